@@ -0,0 +1,26 @@
+package pfe_broker.ledger_writer;
+
+import io.micronaut.configuration.kafka.annotation.KafkaClient;
+import io.micronaut.configuration.kafka.annotation.KafkaKey;
+import io.micronaut.configuration.kafka.annotation.Topic;
+import io.micronaut.context.annotation.Property;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+/**
+ * Publish the account keys seeded into Redis by the warm-up, keyed like
+ * the Redis keys with the seeded amount as value, which feed the position
+ * stores of order-stream.
+ */
+@KafkaClient(
+  id = "ledger-account-change-producer",
+  properties = @Property(
+    name = ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+    value = "org.apache.kafka.common.serialization.LongSerializer"
+  )
+)
+public interface AccountChangeProducer {
+  @Topic("${kafka.topics.account-changes}")
+  CompletableFuture<RecordMetadata> send(@KafkaKey String key, Long change);
+}
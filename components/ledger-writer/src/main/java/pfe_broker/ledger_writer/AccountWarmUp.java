@@ -0,0 +1,371 @@
+package pfe_broker.ledger_writer;
+
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.context.event.ApplicationEventListener;
+import io.micronaut.context.event.StartupEvent;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import javax.sql.DataSource;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.common.RedisConnectionPool;
+import pfe_broker.common.UtilsRunning;
+
+/**
+ * Seed the account keys of Redis, username:balance and username:SYMBOL,
+ * from the users and stocks tables at startup.
+ *
+ * The tables are streamed with a server-side cursor, so the accounts are
+ * never all held in memory, and the keys are written by chunks, each chunk
+ * in a single pipeline. The chunks are written in parallel over the
+ * connection pool while the next rows are fetched.
+ *
+ * Only the missing keys are written (SET NX rather than MSET): a key which
+ * is already in Redis holds the live state, the database lags behind it.
+ *
+ * With kafka.common.account-changes enabled, the keys actually written are
+ * published as the first changes of their accounts, see
+ * {@link AccountChangeProducer}. A key written by a warm-up which fails
+ * before its change is acknowledged is not published again by the next
+ * one, so the failed warm-up is reported and the stores of order-stream
+ * must then be rebuilt from an empty Redis.
+ */
+@Singleton
+public class AccountWarmUp implements ApplicationEventListener<StartupEvent> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    AccountWarmUp.class
+  );
+
+  private static final String SELECT_BALANCES =
+    "SELECT username, balance FROM users";
+
+  private static final String SELECT_POSITIONS =
+    "SELECT users.username, stocks.symbol, stocks.quantity " +
+    "FROM stocks JOIN users ON stocks.user_id = users.id";
+
+  private static final Duration CHUNK_TIMEOUT = Duration.ofSeconds(30);
+
+  @Inject
+  private DataSource dataSource;
+
+  @Inject
+  private RedisClient redisClient;
+
+  @Inject
+  private AccountChangeProducer accountChangeProducer;
+
+  @Property(name = "redis.uri")
+  private String redisUri;
+
+  @Property(name = "redis.connection-pool.size")
+  private int redisPoolSize;
+
+  @Property(name = "redis.connection-pool.max-wait")
+  private Duration redisPoolMaxWait;
+
+  @Property(name = "ledger-writer.warm-up.enabled")
+  private boolean enabled;
+
+  @Property(name = "ledger-writer.warm-up.fetch-size")
+  private int fetchSize;
+
+  @Property(name = "ledger-writer.warm-up.chunk-size")
+  private int chunkSize;
+
+  @Property(name = "ledger-writer.warm-up.progress-interval")
+  private Duration progressInterval;
+
+  @Property(name = "kafka.common.account-changes")
+  private boolean accountChangesEnabled;
+
+  private final LongAdder readKeys = new LongAdder();
+  private final LongAdder seededKeys = new LongAdder();
+  private volatile boolean ready;
+
+  @Override
+  public void onApplicationEvent(StartupEvent event) {
+    if (!enabled) {
+      ready = true;
+      return;
+    }
+    if (!UtilsRunning.isRedisRunning(redisUri)) {
+      LOG.error("Redis is not running, the accounts are not warmed up");
+      return;
+    }
+
+    long start = System.nanoTime();
+    try {
+      warmUp();
+    } catch (SQLException | RedisException e) {
+      LOG.error("Error while warming up the accounts: {}", e.getMessage());
+      return;
+    }
+    ready = true;
+    LOG.info(
+      "Accounts warmed up in {} ms: {} keys read, {} keys seeded",
+      Duration.ofNanos(System.nanoTime() - start).toMillis(),
+      readKeys.sum(),
+      seededKeys.sum()
+    );
+  }
+
+  private void warmUp() throws SQLException {
+    RedisConnectionPool redisConnectionPool = new RedisConnectionPool(
+      redisClient,
+      redisPoolSize,
+      redisPoolMaxWait
+    );
+    ExecutorService executor = Executors.newFixedThreadPool(redisPoolSize);
+    try {
+      ChunkWriter writer = new ChunkWriter(redisConnectionPool, executor);
+      try (Connection connection = dataSource.getConnection()) {
+        // The driver only uses a cursor within a transaction
+        connection.setAutoCommit(false);
+        streamBalances(connection, writer);
+        streamPositions(connection, writer);
+        connection.commit();
+      }
+      writer.finish();
+    } finally {
+      executor.shutdownNow();
+      redisConnectionPool.close();
+    }
+  }
+
+  private void streamBalances(Connection connection, ChunkWriter writer)
+    throws SQLException {
+    try (
+      PreparedStatement statement = connection.prepareStatement(
+        SELECT_BALANCES
+      )
+    ) {
+      statement.setFetchSize(fetchSize);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          writer.add(
+            resultSet.getString(1) + ":balance",
+            Long.toString(resultSet.getLong(2))
+          );
+        }
+      }
+    }
+  }
+
+  private void streamPositions(Connection connection, ChunkWriter writer)
+    throws SQLException {
+    try (
+      PreparedStatement statement = connection.prepareStatement(
+        SELECT_POSITIONS
+      )
+    ) {
+      statement.setFetchSize(fetchSize);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          writer.add(
+            resultSet.getString(1) + ":" + resultSet.getString(2),
+            Integer.toString(resultSet.getInt(3))
+          );
+        }
+      }
+    }
+  }
+
+  /**
+   * Group the keys into chunks and write them in the background, with at
+   * most one chunk in flight per connection of the pool, so the reading of
+   * the cursor is throttled by Redis rather than buffered.
+   */
+  private class ChunkWriter {
+
+    private final RedisConnectionPool redisConnectionPool;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+    private final AtomicReference<RuntimeException> failure =
+      new AtomicReference<>();
+    private Map<String, String> chunk = new HashMap<>();
+    private long lastReport = System.nanoTime();
+
+    ChunkWriter(
+      RedisConnectionPool redisConnectionPool,
+      ExecutorService executor
+    ) {
+      this.redisConnectionPool = redisConnectionPool;
+      this.executor = executor;
+      this.inFlight = new Semaphore(redisConnectionPool.size());
+    }
+
+    void add(String key, String value) {
+      chunk.put(key, value);
+      readKeys.increment();
+      if (chunk.size() >= chunkSize) {
+        submit();
+      }
+    }
+
+    private void submit() {
+      throwIfFailed();
+      Map<String, String> keys = chunk;
+      chunk = new HashMap<>();
+      acquire(1);
+      CompletableFuture
+        .runAsync(() -> write(keys), executor)
+        .whenComplete((result, e) -> {
+          if (e != null) {
+            failure.compareAndSet(null, new RedisException(e.getMessage(), e));
+          }
+          inFlight.release();
+        });
+      reportProgress();
+    }
+
+    /**
+     * Write the last chunk and wait for all the chunks to be written.
+     */
+    void finish() {
+      if (!chunk.isEmpty()) {
+        submit();
+      }
+      acquire(redisConnectionPool.size());
+      throwIfFailed();
+    }
+
+    private void write(Map<String, String> keys) {
+      StatefulRedisConnection<String, String> connection =
+        redisConnectionPool.borrow();
+      try {
+        // Pipeline the chunk, sent in a single flush
+        connection.setAutoFlushCommands(false);
+        RedisAsyncCommands<String, String> commands = connection.async();
+        List<Map.Entry<String, String>> entries = new ArrayList<>(
+          keys.entrySet()
+        );
+        List<RedisFuture<String>> futures = new ArrayList<>(keys.size());
+        for (Map.Entry<String, String> entry : entries) {
+          futures.add(
+            commands.set(entry.getKey(), entry.getValue(), SetArgs.Builder.nx())
+          );
+        }
+        connection.flushCommands();
+
+        if (
+          !LettuceFutures.awaitAll(
+            CHUNK_TIMEOUT,
+            futures.toArray(new RedisFuture[0])
+          )
+        ) {
+          throw new RedisException("Chunk not written after " + CHUNK_TIMEOUT);
+        }
+        List<CompletableFuture<RecordMetadata>> changes = new ArrayList<>();
+        for (int i = 0; i < futures.size(); i++) {
+          // Null when the key already exists
+          if (futures.get(i).toCompletableFuture().getNow(null) != null) {
+            seededKeys.increment();
+            if (accountChangesEnabled) {
+              changes.add(publish(entries.get(i)));
+            }
+          }
+        }
+        awaitPublished(changes);
+      } finally {
+        connection.setAutoFlushCommands(true);
+        redisConnectionPool.release(connection);
+      }
+    }
+
+    private CompletableFuture<RecordMetadata> publish(
+      Map.Entry<String, String> entry
+    ) {
+      return accountChangeProducer.send(
+        entry.getKey(),
+        Long.parseLong(entry.getValue())
+      );
+    }
+
+    private void awaitPublished(
+      List<CompletableFuture<RecordMetadata>> changes
+    ) {
+      try {
+        CompletableFuture
+          .allOf(changes.toArray(CompletableFuture[]::new))
+          .get(CHUNK_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RedisException("Interrupted while publishing the accounts");
+      } catch (ExecutionException | TimeoutException e) {
+        throw new RedisException(
+          "Seeded accounts not published: " + e.getMessage(),
+          e
+        );
+      }
+    }
+
+    private void acquire(int permits) {
+      try {
+        inFlight.acquire(permits);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RedisException("Interrupted while writing the accounts");
+      }
+    }
+
+    private void throwIfFailed() {
+      RuntimeException e = failure.get();
+      if (e != null) {
+        throw e;
+      }
+    }
+
+    private void reportProgress() {
+      long now = System.nanoTime();
+      if (now - lastReport < progressInterval.toNanos()) {
+        return;
+      }
+      lastReport = now;
+      LOG.info(
+        "Warming up the accounts: {} keys read, {} keys seeded",
+        readKeys.sum(),
+        seededKeys.sum()
+      );
+    }
+  }
+
+  /**
+   * @return whether the accounts of the database have been seeded into
+   * Redis, or the warm-up is disabled, reported by
+   * {@link AccountWarmUpHealthIndicator}
+   */
+  public boolean isReady() {
+    return ready;
+  }
+
+  public long getSeededKeys() {
+    return seededKeys.sum();
+  }
+}
@@ -0,0 +1,43 @@
+package pfe_broker.ledger_writer;
+
+import io.micronaut.core.async.publisher.Publishers;
+import io.micronaut.health.HealthStatus;
+import io.micronaut.management.health.indicator.HealthIndicator;
+import io.micronaut.management.health.indicator.HealthResult;
+import io.micronaut.management.health.indicator.annotation.Readiness;
+import jakarta.inject.Singleton;
+import java.util.Map;
+import org.reactivestreams.Publisher;
+
+/**
+ * Report the instance as not ready until the accounts have been seeded into
+ * Redis, so the components relying on the account keys are not sent traffic
+ * before, see {@link AccountWarmUp}.
+ */
+@Singleton
+@Readiness
+public class AccountWarmUpHealthIndicator implements HealthIndicator {
+
+  static final String NAME = "account-warm-up";
+
+  private final AccountWarmUp accountWarmUp;
+
+  AccountWarmUpHealthIndicator(AccountWarmUp accountWarmUp) {
+    this.accountWarmUp = accountWarmUp;
+  }
+
+  @Override
+  public Publisher<HealthResult> getResult() {
+    return Publishers.just(getHealthResult());
+  }
+
+  HealthResult getHealthResult() {
+    return HealthResult
+      .builder(
+        NAME,
+        accountWarmUp.isReady() ? HealthStatus.UP : HealthStatus.DOWN
+      )
+      .details(Map.of("seededKeys", accountWarmUp.getSeededKeys()))
+      .build();
+  }
+}
@@ -0,0 +1,90 @@
+package pfe_broker.ledger_writer;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+
+/**
+ * Net changes of the balances and positions caused by a batch of settled
+ * trades, coalesced per account and per position, so a batch costs one
+ * update per row whatever the number of trades.
+ *
+ * The keys are sorted, so concurrent writers update the rows in the same
+ * order and cannot deadlock.
+ */
+public class LedgerDeltas {
+
+  public record PositionKey(String username, String symbol)
+    implements Comparable<PositionKey> {
+    @Override
+    public int compareTo(PositionKey other) {
+      int byUsername = username.compareTo(other.username);
+      return byUsername != 0 ? byUsername : symbol.compareTo(other.symbol);
+    }
+  }
+
+  private final SortedMap<String, Long> balanceDeltas = new TreeMap<>();
+  private final SortedMap<PositionKey, Integer> positionDeltas =
+    new TreeMap<>();
+  private int tradeCount;
+
+  /**
+   * Add a settled trade: a BUY trade debits the cash and credits the
+   * stocks, a SELL trade credits the cash and debits the stocks.
+   *
+   * The reports of the orders which are not fills change nothing: the
+   * stocks released by the cancel of a SELL order had only been reserved in
+   * Redis.
+   */
+  public void add(Trade trade) {
+    if (trade.getType() != ExecutionType.TRADE) {
+      return;
+    }
+    String username = trade.getOrder().getUsername().toString();
+    String symbol = trade.getSymbol().toString();
+    int quantity = trade.getQuantity();
+    long amount = trade.getPrice() * quantity;
+
+    if (trade.getOrder().getSide() == Side.BUY) {
+      balanceDeltas.merge(username, -amount, Long::sum);
+      positionDeltas.merge(
+        new PositionKey(username, symbol),
+        quantity,
+        Integer::sum
+      );
+    } else {
+      balanceDeltas.merge(username, amount, Long::sum);
+      positionDeltas.merge(
+        new PositionKey(username, symbol),
+        -quantity,
+        Integer::sum
+      );
+    }
+    tradeCount++;
+  }
+
+  /**
+   * @return the change of the balance of each account, in cents
+   */
+  public Map<String, Long> balanceDeltas() {
+    return balanceDeltas;
+  }
+
+  /**
+   * @return the change of the quantity of each position
+   */
+  public Map<PositionKey, Integer> positionDeltas() {
+    return positionDeltas;
+  }
+
+  public int tradeCount() {
+    return tradeCount;
+  }
+
+  public boolean isEmpty() {
+    return tradeCount == 0;
+  }
+}
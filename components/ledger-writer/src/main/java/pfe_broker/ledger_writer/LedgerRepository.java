@@ -0,0 +1,233 @@
+package pfe_broker.ledger_writer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.ledger_writer.LedgerDeltas.PositionKey;
+
+/**
+ * Apply the ledger deltas to the users and stocks tables with batched JDBC
+ * statements.
+ *
+ * The offsets of the consumed trades are stored in the same transaction as
+ * the deltas, so a batch is applied exactly once: after a crash the
+ * consumer restarts from the stored offsets, not from the committed ones.
+ */
+@Singleton
+public class LedgerRepository {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    LedgerRepository.class
+  );
+
+  private static final String CREATE_OFFSETS_TABLE =
+    "CREATE TABLE IF NOT EXISTS ledger_offsets (" +
+    "topic VARCHAR(255) NOT NULL, " +
+    "partition_id INTEGER NOT NULL, " +
+    "next_offset BIGINT NOT NULL, " +
+    "PRIMARY KEY (topic, partition_id))";
+
+  private static final String UPDATE_BALANCE =
+    "UPDATE users SET balance = balance + ? WHERE username = ?";
+
+  // Only for the positive deltas: a position is never inserted nor
+  // decreased below zero
+  private static final String UPSERT_POSITION =
+    "INSERT INTO stocks (symbol, quantity, user_id) " +
+    "SELECT ?, ?, id FROM users WHERE username = ? " +
+    "ON CONFLICT (symbol, user_id) " +
+    "DO UPDATE SET quantity = stocks.quantity + EXCLUDED.quantity";
+
+  private static final String DECREASE_POSITION =
+    "UPDATE stocks SET quantity = quantity + ? " +
+    "WHERE symbol = ? " +
+    "AND user_id = (SELECT id FROM users WHERE username = ?) " +
+    "AND quantity + ? >= 0";
+
+  private static final String UPSERT_OFFSET =
+    "INSERT INTO ledger_offsets (topic, partition_id, next_offset) " +
+    "VALUES (?, ?, ?) " +
+    "ON CONFLICT (topic, partition_id) " +
+    "DO UPDATE SET next_offset = EXCLUDED.next_offset";
+
+  private static final String SELECT_OFFSETS =
+    "SELECT partition_id, next_offset FROM ledger_offsets WHERE topic = ?";
+
+  @Inject
+  private DataSource dataSource;
+
+  @PostConstruct
+  void init() {
+    try (
+      Connection connection = dataSource.getConnection();
+      Statement statement = connection.createStatement()
+    ) {
+      statement.execute(CREATE_OFFSETS_TABLE);
+    } catch (SQLException e) {
+      throw new IllegalStateException("Cannot create the offsets table", e);
+    }
+  }
+
+  /**
+   * @return the offset of the next trade to apply, for each partition of
+   * the topic which has already been applied
+   */
+  public Map<Integer, Long> readOffsets(String topic) {
+    Map<Integer, Long> offsets = new HashMap<>();
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        SELECT_OFFSETS
+      )
+    ) {
+      statement.setString(1, topic);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        while (resultSet.next()) {
+          offsets.put(resultSet.getInt(1), resultSet.getLong(2));
+        }
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException("Cannot read the ledger offsets", e);
+    }
+    return offsets;
+  }
+
+  /**
+   * Apply the deltas and store the offsets of the next trades, atomically.
+   *
+   * @param nextOffsets the offset of the next trade of each partition
+   */
+  public void apply(
+    LedgerDeltas deltas,
+    Map<TopicPartition, Long> nextOffsets
+  ) throws SQLException {
+    try (Connection connection = dataSource.getConnection()) {
+      connection.setAutoCommit(false);
+      try {
+        int unknownAccounts = updateBalances(connection, deltas);
+        int missingPositions = updatePositions(connection, deltas);
+        updateOffsets(connection, nextOffsets);
+        connection.commit();
+        if (unknownAccounts > 0) {
+          LOG.warn(
+            "{} accounts of the trades are not in the database",
+            unknownAccounts
+          );
+        }
+        if (missingPositions > 0) {
+          LOG.warn(
+            "{} positions sold are missing or too small, not decreased",
+            missingPositions
+          );
+        }
+      } catch (SQLException e) {
+        connection.rollback();
+        throw e;
+      }
+    }
+  }
+
+  private int updateBalances(
+    Connection connection,
+    LedgerDeltas deltas
+  ) throws SQLException {
+    int unknownAccounts = 0;
+    try (
+      PreparedStatement statement = connection.prepareStatement(
+        UPDATE_BALANCE
+      )
+    ) {
+      for (Map.Entry<String, Long> delta : deltas
+        .balanceDeltas()
+        .entrySet()) {
+        statement.setLong(1, delta.getValue());
+        statement.setString(2, delta.getKey());
+        statement.addBatch();
+      }
+      for (int updated : statement.executeBatch()) {
+        if (updated == 0) {
+          unknownAccounts++;
+        }
+      }
+    }
+    return unknownAccounts;
+  }
+
+  /**
+   * @return the number of negative deltas without a position large enough
+   * to decrease
+   */
+  private int updatePositions(
+    Connection connection,
+    LedgerDeltas deltas
+  ) throws SQLException {
+    int missingPositions = 0;
+    try (
+      PreparedStatement increase = connection.prepareStatement(
+        UPSERT_POSITION
+      );
+      PreparedStatement decrease = connection.prepareStatement(
+        DECREASE_POSITION
+      )
+    ) {
+      for (Map.Entry<PositionKey, Integer> delta : deltas
+        .positionDeltas()
+        .entrySet()) {
+        if (delta.getValue() == 0) {
+          continue;
+        }
+        String symbol = delta.getKey().symbol();
+        String username = delta.getKey().username();
+        if (delta.getValue() > 0) {
+          increase.setString(1, symbol);
+          increase.setInt(2, delta.getValue());
+          increase.setString(3, username);
+          increase.addBatch();
+        } else {
+          decrease.setInt(1, delta.getValue());
+          decrease.setString(2, symbol);
+          decrease.setString(3, username);
+          decrease.setInt(4, delta.getValue());
+          decrease.addBatch();
+        }
+      }
+      increase.executeBatch();
+      for (int updated : decrease.executeBatch()) {
+        if (updated == 0) {
+          missingPositions++;
+        }
+      }
+    }
+    return missingPositions;
+  }
+
+  private void updateOffsets(
+    Connection connection,
+    Map<TopicPartition, Long> nextOffsets
+  ) throws SQLException {
+    try (
+      PreparedStatement statement = connection.prepareStatement(
+        UPSERT_OFFSET
+      )
+    ) {
+      for (Map.Entry<TopicPartition, Long> offset : nextOffsets.entrySet()) {
+        statement.setString(1, offset.getKey().topic());
+        statement.setInt(2, offset.getKey().partition());
+        statement.setLong(3, offset.getValue());
+        statement.addBatch();
+      }
+      statement.executeBatch();
+    }
+  }
+}
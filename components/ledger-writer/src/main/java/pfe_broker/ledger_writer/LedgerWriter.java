@@ -0,0 +1,169 @@
+package pfe_broker.ledger_writer;
+
+import io.micronaut.configuration.kafka.ConsumerAware;
+import io.micronaut.configuration.kafka.annotation.KafkaListener;
+import io.micronaut.configuration.kafka.annotation.OffsetReset;
+import io.micronaut.configuration.kafka.annotation.Topic;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Inject;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.avro.Trade;
+
+/**
+ * Persist the settled trades to the database, behind Redis.
+ *
+ * The accepted trades of a poll are coalesced into one delta per account
+ * and per position, which are applied in a single transaction along with
+ * the offsets of the trades. The trades are consumed from the offsets
+ * stored in the database, so a batch is never applied twice nor skipped,
+ * whatever the offsets committed to Kafka.
+ */
+@KafkaListener(
+  groupId = "ledger-writer",
+  offsetReset = OffsetReset.EARLIEST,
+  batch = true,
+  // The trades of an aborted transaction of trade-stream are not settled
+  properties = @Property(
+    name = ConsumerConfig.ISOLATION_LEVEL_CONFIG,
+    value = "read_committed"
+  )
+)
+public class LedgerWriter
+  implements ConsumerRebalanceListener, ConsumerAware<String, Trade> {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    LedgerWriter.class
+  );
+
+  @Inject
+  private LedgerRepository ledgerRepository;
+
+  @Property(name = "kafka.topics.accepted-trades")
+  private String acceptedTradesTopic;
+
+  private Consumer<String, Trade> consumer;
+
+  // Offset of the next trade to apply, per partition
+  private final Map<TopicPartition, Long> nextOffsets = new HashMap<>();
+
+  // Age of the last applied trade when it has been applied
+  private volatile Duration lag = Duration.ZERO;
+  private volatile long appliedTrades;
+
+  @Override
+  public void setKafkaConsumer(@NonNull Consumer<String, Trade> consumer) {
+    this.consumer = consumer;
+  }
+
+  @Topic("${kafka.topics.accepted-trades}")
+  void receiveAcceptedTrades(List<ConsumerRecord<String, Trade>> records) {
+    LedgerDeltas deltas = new LedgerDeltas();
+    Map<TopicPartition, Long> firstOffsets = new HashMap<>();
+    Map<TopicPartition, Long> batchOffsets = new HashMap<>();
+    long lastTimestamp = 0;
+
+    for (ConsumerRecord<String, Trade> record : records) {
+      TopicPartition partition = new TopicPartition(
+        record.topic(),
+        record.partition()
+      );
+      // Already applied before a rebalance or a failed commit
+      if (record.offset() < nextOffsets.getOrDefault(partition, 0L)) {
+        continue;
+      }
+      deltas.add(record.value());
+      firstOffsets.putIfAbsent(partition, record.offset());
+      batchOffsets.put(partition, record.offset() + 1);
+      lastTimestamp = Math.max(lastTimestamp, record.timestamp());
+    }
+
+    if (deltas.isEmpty()) {
+      return;
+    }
+
+    try {
+      ledgerRepository.apply(deltas, batchOffsets);
+    } catch (SQLException e) {
+      LOG.error("Error while applying the trades: {}", e.getMessage());
+      // Consume the batch again on the next poll
+      firstOffsets.forEach(consumer::seek);
+      return;
+    }
+
+    nextOffsets.putAll(batchOffsets);
+    appliedTrades += deltas.tradeCount();
+    lag = Duration.ofMillis(
+      Math.max(0, System.currentTimeMillis() - lastTimestamp)
+    );
+    LOG.debug(
+      "Applied {} trades to {} accounts and {} positions",
+      deltas.tradeCount(),
+      deltas.balanceDeltas().size(),
+      deltas.positionDeltas().size()
+    );
+  }
+
+  @Override
+  public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+    partitions.forEach(nextOffsets::remove);
+  }
+
+  @Override
+  public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+    seekToAppliedOffsets(partitions);
+  }
+
+  private void seekToAppliedOffsets(Collection<TopicPartition> partitions) {
+    Map<Integer, Long> storedOffsets = ledgerRepository.readOffsets(
+      acceptedTradesTopic
+    );
+    for (TopicPartition partition : partitions) {
+      Long offset = storedOffsets.get(partition.partition());
+      if (offset == null) {
+        // Nothing applied yet, start from the committed or reset offset
+        nextOffsets.remove(partition);
+        continue;
+      }
+      nextOffsets.put(partition, offset);
+      consumer.seek(partition, offset);
+    }
+  }
+
+  /**
+   * @return how long the last applied trade had been waiting, the delay of
+   * the database behind Redis
+   */
+  public Duration getLag() {
+    return lag;
+  }
+
+  public long getAppliedTrades() {
+    return appliedTrades;
+  }
+
+  @Scheduled(
+    fixedDelay = "${ledger-writer.lag-report-interval}",
+    initialDelay = "${ledger-writer.lag-report-interval}"
+  )
+  void reportLag() {
+    LOG.info(
+      "Ledger lag: {} ms, {} trades applied",
+      lag.toMillis(),
+      appliedTrades
+    );
+  }
+}
@@ -0,0 +1,125 @@
+package pfe_broker.ledger_writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.health.HealthStatus;
+import io.micronaut.test.annotation.TransactionMode;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.common.utils.RedisTestContainer;
+import pfe_broker.models.domains.Stock;
+import pfe_broker.models.domains.User;
+import pfe_broker.models.repositories.StockRepository;
+import pfe_broker.models.repositories.UserRepository;
+
+@MicronautTest(
+  rollback = false,
+  transactional = false,
+  transactionMode = TransactionMode.SINGLE_TRANSACTION
+)
+@Property(
+  name = "datasources.default.driver-class-name",
+  value = "org.testcontainers.jdbc.ContainerDatabaseDriver"
+)
+@Property(
+  name = "datasources.default.url",
+  value = "jdbc:tc:postgresql:16.1:///db"
+)
+@Property(name = "micronaut.server.port", value = "-1")
+@Property(name = "ledger-writer.warm-up.chunk-size", value = "2")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class AccountWarmUpTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Container
+  static final RedisTestContainer redis = new RedisTestContainer();
+
+  @Inject
+  private AccountWarmUp accountWarmUp;
+
+  @Inject
+  private AccountWarmUpHealthIndicator healthIndicator;
+
+  @Inject
+  private UserRepository userRepository;
+
+  @Inject
+  private StockRepository stockRepository;
+
+  @Inject
+  private StatefulRedisConnection<String, String> redisConnection;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics("accepted-trades");
+    if (!redis.isRunning()) {
+      redis.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl(),
+      "redis.uri",
+      redis.getRedisUrl()
+    );
+  }
+
+  @Test
+  void testNotReadyBeforeWarmUp() {
+    AccountWarmUpHealthIndicator indicator = new AccountWarmUpHealthIndicator(
+      new AccountWarmUp()
+    );
+    assertThat(indicator.getHealthResult().getStatus())
+      .isEqualTo(HealthStatus.DOWN);
+  }
+
+  @Test
+  void testWarmUp() {
+    // The empty database has been warmed up at startup
+    assertThat(accountWarmUp.isReady()).isTrue();
+
+    User alice = userRepository.save(new User("alice", "password", 1000L));
+    userRepository.save(new User("bob", "password", 2000L));
+    userRepository.save(new User("carol", "password", 3000L));
+    stockRepository.save(new Stock("AAPL", 10, alice));
+    // Live state of bob, ahead of the database
+    redisConnection.sync().set("bob:balance", "2500");
+
+    long seededKeys = accountWarmUp.getSeededKeys();
+    accountWarmUp.onApplicationEvent(null);
+
+    assertThat(redisConnection.sync().get("alice:balance")).isEqualTo("1000");
+    assertThat(redisConnection.sync().get("carol:balance")).isEqualTo("3000");
+    assertThat(redisConnection.sync().get("alice:AAPL")).isEqualTo("10");
+    // Not overwritten by SET NX
+    assertThat(redisConnection.sync().get("bob:balance")).isEqualTo("2500");
+    assertThat(accountWarmUp.getSeededKeys())
+      .isGreaterThanOrEqualTo(seededKeys + 3);
+
+    assertThat(accountWarmUp.isReady()).isTrue();
+    assertThat(healthIndicator.getHealthResult().getStatus())
+      .isEqualTo(HealthStatus.UP);
+    assertThat(healthIndicator.getHealthResult().getName())
+      .isEqualTo(AccountWarmUpHealthIndicator.NAME);
+  }
+}
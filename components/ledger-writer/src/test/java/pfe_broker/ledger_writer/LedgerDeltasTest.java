@@ -0,0 +1,100 @@
+package pfe_broker.ledger_writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+import pfe_broker.ledger_writer.LedgerDeltas.PositionKey;
+
+class LedgerDeltasTest {
+
+  private static Trade trade(
+    String id,
+    String username,
+    Side side,
+    long price,
+    int quantity
+  ) {
+    Order order = new Order(
+      username,
+      "AAPL",
+      quantity,
+      side,
+      OrderType.MARKET,
+      0L
+    );
+    return new Trade(
+      id,
+      order,
+      "AAPL",
+      price,
+      quantity,
+      quantity,
+      price * quantity,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+  }
+
+  @Test
+  void testCoalesceTradesOfAnAccount() {
+    LedgerDeltas deltas = new LedgerDeltas();
+
+    deltas.add(trade("0-0-0", "user", Side.BUY, 10000L, 10));
+    deltas.add(trade("0-1-0", "user", Side.BUY, 10000L, 10));
+    deltas.add(trade("0-2-0", "user", Side.SELL, 12000L, 5));
+
+    assertThat(deltas.tradeCount()).isEqualTo(3);
+    assertThat(deltas.balanceDeltas()).containsExactly(
+      Map.entry("user", -140000L)
+    );
+    assertThat(deltas.positionDeltas()).containsExactly(
+      Map.entry(new PositionKey("user", "AAPL"), 15)
+    );
+  }
+
+  @Test
+  void testSortAccounts() {
+    LedgerDeltas deltas = new LedgerDeltas();
+
+    deltas.add(trade("0-0-0", "user2", Side.SELL, 10000L, 1));
+    deltas.add(trade("0-1-0", "user1", Side.BUY, 10000L, 1));
+
+    assertThat(deltas.balanceDeltas().keySet()).containsExactly(
+      "user1",
+      "user2"
+    );
+    assertThat(deltas.positionDeltas().keySet()).containsExactly(
+      new PositionKey("user1", "AAPL"),
+      new PositionKey("user2", "AAPL")
+    );
+  }
+
+  @Test
+  void testSkipReportsOfOrders() {
+    LedgerDeltas deltas = new LedgerDeltas();
+    Trade canceled = Trade
+      .newBuilder(trade("0-0-canceled", "user", Side.SELL, 0L, 5))
+      .setType(ExecutionType.CANCELED)
+      .build();
+
+    deltas.add(canceled);
+
+    assertThat(deltas.isEmpty()).isTrue();
+    assertThat(deltas.positionDeltas()).isEmpty();
+  }
+
+  @Test
+  void testEmpty() {
+    assertThat(new LedgerDeltas().isEmpty()).isTrue();
+  }
+}
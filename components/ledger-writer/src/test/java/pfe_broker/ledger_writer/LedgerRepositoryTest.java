@@ -0,0 +1,220 @@
+package pfe_broker.ledger_writer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.annotation.TransactionMode;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.apache.kafka.common.TopicPartition;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.models.domains.User;
+import pfe_broker.models.repositories.UserRepository;
+
+@MicronautTest(
+  rollback = false,
+  transactional = false,
+  transactionMode = TransactionMode.SINGLE_TRANSACTION
+)
+@Property(
+  name = "datasources.default.driver-class-name",
+  value = "org.testcontainers.jdbc.ContainerDatabaseDriver"
+)
+@Property(
+  name = "datasources.default.url",
+  value = "jdbc:tc:postgresql:16.1:///db"
+)
+@Property(name = "ledger-writer.warm-up.enabled", value = "false")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class LedgerRepositoryTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Inject
+  private LedgerRepository ledgerRepository;
+
+  @Inject
+  private UserRepository userRepository;
+
+  @Inject
+  private DataSource dataSource;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics("accepted-trades");
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl()
+    );
+  }
+
+  private static Trade trade(
+    String id,
+    String username,
+    Side side,
+    long price,
+    int quantity
+  ) {
+    Order order = new Order(
+      username,
+      "AAPL",
+      quantity,
+      side,
+      OrderType.MARKET,
+      0L
+    );
+    return new Trade(
+      id,
+      order,
+      "AAPL",
+      price,
+      quantity,
+      quantity,
+      price * quantity,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+  }
+
+  private Integer position(String username, String symbol) throws Exception {
+    try (
+      Connection connection = dataSource.getConnection();
+      PreparedStatement statement = connection.prepareStatement(
+        "SELECT stocks.quantity FROM stocks " +
+        "JOIN users ON stocks.user_id = users.id " +
+        "WHERE users.username = ? AND stocks.symbol = ?"
+      )
+    ) {
+      statement.setString(1, username);
+      statement.setString(2, symbol);
+      try (ResultSet resultSet = statement.executeQuery()) {
+        return resultSet.next() ? resultSet.getInt(1) : null;
+      }
+    }
+  }
+
+  @Test
+  void testApplyDeltas() throws Exception {
+    userRepository.save(new User("buyer", "password", 1_000_000L));
+    userRepository.save(new User("seller", "password", 0L));
+
+    LedgerDeltas deltas = new LedgerDeltas();
+    deltas.add(trade("0-0-0", "buyer", Side.BUY, 10000L, 10));
+    deltas.add(trade("0-0-1", "seller", Side.SELL, 10000L, 10));
+    ledgerRepository.apply(
+      deltas,
+      Map.of(new TopicPartition("accepted-trades", 0), 2L)
+    );
+
+    assertThat(userRepository.findByUsername("buyer").get().getBalance())
+      .isEqualTo(900_000L);
+    assertThat(userRepository.findByUsername("seller").get().getBalance())
+      .isEqualTo(100_000L);
+    // Inserted for the buyer, who held no AAPL
+    assertThat(position("buyer", "AAPL")).isEqualTo(10);
+
+    // Updated on conflict with the existing positions
+    deltas = new LedgerDeltas();
+    deltas.add(trade("0-1-0", "buyer", Side.SELL, 12000L, 4));
+    ledgerRepository.apply(
+      deltas,
+      Map.of(new TopicPartition("accepted-trades", 0), 3L)
+    );
+
+    assertThat(userRepository.findByUsername("buyer").get().getBalance())
+      .isEqualTo(948_000L);
+    assertThat(position("buyer", "AAPL")).isEqualTo(6);
+  }
+
+  @Test
+  void testSkipMissingPositionSold() throws Exception {
+    userRepository.save(new User("short-seller", "password", 0L));
+
+    LedgerDeltas deltas = new LedgerDeltas();
+    deltas.add(trade("2-0-0", "short-seller", Side.SELL, 10000L, 10));
+    ledgerRepository.apply(
+      deltas,
+      Map.of(new TopicPartition("short-trades", 0), 1L)
+    );
+
+    // Credited, but no negative position is inserted
+    assertThat(
+      userRepository.findByUsername("short-seller").get().getBalance()
+    )
+      .isEqualTo(100_000L);
+    assertThat(position("short-seller", "AAPL")).isNull();
+    assertThat(ledgerRepository.readOffsets("short-trades"))
+      .isEqualTo(Map.of(0, 1L));
+  }
+
+  @Test
+  void testSkipUnknownAccounts() throws Exception {
+    LedgerDeltas deltas = new LedgerDeltas();
+    deltas.add(trade("1-0-0", "unknown", Side.BUY, 10000L, 10));
+    ledgerRepository.apply(
+      deltas,
+      Map.of(new TopicPartition("unknown-trades", 0), 1L)
+    );
+
+    assertThat(position("unknown", "AAPL")).isNull();
+    // The offsets are stored all the same, the trade is not applied again
+    assertThat(ledgerRepository.readOffsets("unknown-trades"))
+      .isEqualTo(Map.of(0, 1L));
+  }
+
+  @Test
+  void testStoreOffsets() throws Exception {
+    assertThat(ledgerRepository.readOffsets("offsets-trades")).isEmpty();
+
+    ledgerRepository.apply(
+      new LedgerDeltas(),
+      Map.of(
+        new TopicPartition("offsets-trades", 0),
+        5L,
+        new TopicPartition("offsets-trades", 1),
+        7L
+      )
+    );
+    assertThat(ledgerRepository.readOffsets("offsets-trades"))
+      .isEqualTo(Map.of(0, 5L, 1, 7L));
+
+    // Only the partitions of the batch move forward
+    ledgerRepository.apply(
+      new LedgerDeltas(),
+      Map.of(new TopicPartition("offsets-trades", 0), 9L)
+    );
+    assertThat(ledgerRepository.readOffsets("offsets-trades"))
+      .isEqualTo(Map.of(0, 9L, 1, 7L));
+    assertThat(ledgerRepository.readOffsets("other-trades")).isEmpty();
+  }
+}
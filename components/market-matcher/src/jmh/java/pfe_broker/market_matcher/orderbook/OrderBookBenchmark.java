@@ -0,0 +1,79 @@
+package pfe_broker.market_matcher.orderbook;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import pfe_broker.avro.Side;
+
+/**
+ * Throughput (orders per microsecond) and latency distribution (p50, p99, ...) of
+ * the order book, on a flow of limit orders around a mid price, a part of
+ * them crossing the spread.
+ */
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class OrderBookBenchmark {
+
+  private static final int ORDER_COUNT = 1 << 16;
+  private static final long MID_PRICE = OrderBook.toTicks(100.0);
+
+  @Param({ "10", "100" })
+  private int priceRange;
+
+  private OrderBook<Object> orderBook;
+  private Side[] sides;
+  private long[] prices;
+  private int[] quantities;
+  private Object owner;
+  private MatchHandler<Object> handler;
+  private int index;
+
+  @Setup(Level.Trial)
+  public void generateOrders(Blackhole blackhole) {
+    Random random = new Random(42);
+    sides = new Side[ORDER_COUNT];
+    prices = new long[ORDER_COUNT];
+    quantities = new int[ORDER_COUNT];
+    for (int i = 0; i < ORDER_COUNT; i++) {
+      sides[i] = random.nextBoolean() ? Side.BUY : Side.SELL;
+      prices[i] = MID_PRICE + random.nextInt(priceRange) - priceRange / 2;
+      quantities[i] = 1 + random.nextInt(100);
+    }
+    owner = new Object();
+    handler = (maker, price, quantity) -> blackhole.consume(quantity);
+  }
+
+  @Setup(Level.Iteration)
+  public void resetBook() {
+    orderBook = new OrderBook<>();
+    index = 0;
+  }
+
+  @Benchmark
+  public int submitLimitOrder() {
+    int i = index++ & (ORDER_COUNT - 1);
+    Side side = sides[i];
+    long price = prices[i];
+    int remaining = orderBook.match(side, price, quantities[i], handler);
+    if (remaining > 0) {
+      orderBook.add(side, price, remaining, owner);
+    }
+    return remaining;
+  }
+}
@@ -1,95 +1,57 @@
 package pfe_broker.market_matcher;
 
-import io.confluent.kafka.serializers.KafkaAvroDeserializer;
-import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
 import io.micronaut.context.annotation.Property;
-import io.micronaut.context.env.Environment;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Singleton;
-import java.time.Duration;
-import java.util.List;
-import java.util.Properties;
-import org.apache.kafka.clients.consumer.ConsumerConfig;
-import org.apache.kafka.clients.consumer.ConsumerRecord;
-import org.apache.kafka.clients.consumer.ConsumerRecords;
-import org.apache.kafka.clients.consumer.KafkaConsumer;
-import org.apache.kafka.common.TopicPartition;
-import org.apache.kafka.common.serialization.StringDeserializer;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
+import java.util.Set;
 import pfe_broker.avro.MarketData;
+import pfe_broker.common.LastRecordCache;
 
+/**
+ * Keeps the last market data of every symbol in memory, or only of the
+ * symbols owned by this instance, see {@link LastRecordCache}.
+ */
 @Singleton
-public class MarketDataConsumer {
-
-  private static final Logger LOG = LoggerFactory.getLogger(
-    MarketDataConsumer.class
-  );
-
-  private final Environment environment;
-  private final KafkaConsumer<String, MarketData> consumer;
-
-  @Property(name = "kafka.common.symbol-topic-prefix")
-  private String symbolTopicPrefix;
-
-  protected Properties buildProperties() {
-    Properties props = new Properties();
-    props.put(
-      ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG,
-      environment.get("kafka.bootstrap.servers", String.class).get()
-    );
-    props.put(
-      KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG,
-      environment.get("kafka.schema.registry.url", String.class).get()
-    );
-    props.put(ConsumerConfig.GROUP_ID_CONFIG, "market-matcher-market-data");
-    props.put(
-      ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
-      StringDeserializer.class
-    );
-    props.put(
-      ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
-      KafkaAvroDeserializer.class
+public class MarketDataConsumer extends LastRecordCache<MarketData> {
+
+  public MarketDataConsumer(
+    @Property(name = "kafka.bootstrap.servers") String bootstrapServers,
+    @Property(name = "kafka.schema.registry.url") String schemaRegistryUrl,
+    @Property(name = "kafka.common.symbol-topic-prefix") String topicPrefix
+  ) {
+    super(
+      "market-data-consumer",
+      topicPrefix,
+      avroConsumerProperties(
+        bootstrapServers,
+        schemaRegistryUrl,
+        "market-matcher-market-data-"
+      )
     );
-    props.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
-    props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 10);
-    return props;
   }
 
-  public MarketDataConsumer(Environment environment) {
-    this.environment = environment;
-    this.consumer = new KafkaConsumer<>(this.buildProperties());
+  @PostConstruct
+  @Override
+  public void start() {
+    super.start();
   }
 
-  public MarketData readLastStockData(String symbol) {
-    LOG.debug("Reading last stock data for {}", symbol);
-
-    List<TopicPartition> partitions = consumer
-      .partitionsFor(symbolTopicPrefix + symbol)
-      .stream()
-      .map(partitionInfo ->
-        new TopicPartition(partitionInfo.topic(), partitionInfo.partition())
-      )
-      .toList();
-
-    consumer.assign(partitions);
-    consumer.seekToEnd(partitions);
-
-    for (TopicPartition partition : partitions) {
-      long offset = consumer.position(partition) - 1;
-      consumer.seek(partition, offset);
-    }
-
-    ConsumerRecords<String, MarketData> records = consumer.poll(
-      Duration.ofMillis(10)
-    );
+  @PreDestroy
+  @Override
+  public void stop() {
+    super.stop();
+  }
 
-    ConsumerRecord<String, MarketData> stockData = null;
-    for (ConsumerRecord<String, MarketData> record : records) {
-      if (stockData == null || record.timestamp() > stockData.timestamp()) {
-        stockData = record;
-      }
-    }
+  /**
+   * Restrict the cache to the symbols whose orders are matched by this
+   * instance, when the accepted orders are partitioned by symbol.
+   */
+  public void setOwnedSymbols(Set<String> symbols) {
+    setOwnedKeys(symbols);
+  }
 
-    return stockData == null ? null : stockData.value();
+  public MarketData readLastStockData(String symbol) {
+    return get(symbol);
   }
 }
@@ -1,23 +1,48 @@
 package pfe_broker.market_matcher;
 
+import io.micronaut.configuration.kafka.ConsumerAware;
 import io.micronaut.configuration.kafka.annotation.KafkaListener;
 import io.micronaut.configuration.kafka.annotation.OffsetReset;
+import io.micronaut.configuration.kafka.annotation.OffsetStrategy;
 import io.micronaut.configuration.kafka.annotation.Topic;
-import io.micronaut.messaging.annotation.SendTo;
+import io.micronaut.context.annotation.Property;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Singleton;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.header.Header;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pfe_broker.avro.ExecutionType;
 import pfe_broker.avro.MarketData;
 import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.Side;
 import pfe_broker.avro.Trade;
+import pfe_broker.common.OrderCancel;
+import pfe_broker.common.SymbolPartitioning;
 import pfe_broker.common.SymbolReader;
+import pfe_broker.market_matcher.orderbook.OrderBook;
+import pfe_broker.market_matcher.sharding.WaitStrategy;
+import pfe_broker.market_matcher.sharding.WaitStrategyType;
 
 @Singleton
-public class MarketMatcher {
+public class MarketMatcher
+  implements ConsumerRebalanceListener, ConsumerAware<String, Order> {
 
   private static final Logger LOG = LoggerFactory.getLogger(
     MarketMatcher.class
@@ -25,14 +50,50 @@ public class MarketMatcher {
 
   private final MarketDataConsumer marketDataConsumer;
   private final SymbolReader symbolReader;
+  private final MatcherProducer producer;
+  private final OrderBookChangelog orderBookChangelog;
+  private final Map<String, OrderBook<RestingOrder>> orderBooks =
+    new ConcurrentHashMap<>();
+  // Orders resting in the books, by key, to find the order of a cancel
+  private final Map<String, RestingOrder> restingOrders =
+    new ConcurrentHashMap<>();
   public List<String> symbols = new ArrayList<>();
+  private MatcherShard[] shards;
+  private Consumer<String, Order> ordersConsumer;
+  // Partitions of the accepted orders whose books are held by this instance
+  private volatile Set<Integer> assignedPartitions = Set.of();
+
+  @Property(name = "kafka.topics.accepted-orders")
+  private String acceptedOrdersTopic;
+
+  @Property(name = "kafka.common.partition-orders-by-symbol")
+  private boolean partitionOrdersBySymbol;
+
+  @Property(name = "market-matcher.sharding.enabled", defaultValue = "false")
+  private boolean shardingEnabled;
+
+  @Property(name = "market-matcher.sharding.threads", defaultValue = "0")
+  private int shardingThreads;
+
+  @Property(name = "market-matcher.sharding.buffer-size", defaultValue = "1024")
+  private int shardingBufferSize;
+
+  @Property(
+    name = "market-matcher.sharding.wait-strategy",
+    defaultValue = "SLEEPING"
+  )
+  private WaitStrategyType shardingWaitStrategy;
 
   MarketMatcher(
     MarketDataConsumer marketDataProducer,
-    SymbolReader symbolReader
+    SymbolReader symbolReader,
+    MatcherProducer producer,
+    OrderBookChangelog orderBookChangelog
   ) {
     this.marketDataConsumer = marketDataProducer;
     this.symbolReader = symbolReader;
+    this.producer = producer;
+    this.orderBookChangelog = orderBookChangelog;
   }
 
   @PostConstruct
@@ -42,51 +103,508 @@ public class MarketMatcher {
     } else {
       LOG.error("Kafka is not running");
     }
+    if (this.shardingEnabled) {
+      this.startShards();
+    }
   }
 
+  /**
+   * Match a batch of accepted orders in a transaction, which also holds the
+   * changes of the books and the offsets of the orders.
+   *
+   * When the transaction fails, the books are read back from their
+   * changelog, which only holds the committed batches, and the batch is
+   * received again.
+   */
   @KafkaListener(
     groupId = "market-matcher-orders",
-    producerClientId = "market-matcher-trades-producer",
     offsetReset = OffsetReset.EARLIEST,
+    offsetStrategy = OffsetStrategy.DISABLED,
     pollTimeout = "0ms",
     batch = true
   )
   @Topic("${kafka.topics.accepted-orders}")
-  @SendTo("${kafka.topics.trades}")
-  List<Trade> receiveAcceptedOrder(List<Order> orders) {
-    return orders
+  void receiveAcceptedOrder(List<ConsumerRecord<String, Order>> records) {
+    if (records.isEmpty()) {
+      return;
+    }
+    MatchingBatch batch = new MatchingBatch(producer);
+
+    try {
+      producer.begin();
+      for (ConsumerRecord<String, Order> record : records) {
+        RestingOrder order = new RestingOrder(
+          orderKey(record),
+          orderId(record),
+          record.partition(),
+          record.timestamp(),
+          record.value()
+        );
+        String cancelClOrdId = OrderCancel.clOrdId(record.headers());
+        if (shards == null) {
+          process(order, cancelClOrdId, batch);
+        } else {
+          shardOf(record.value().getSymbol().toString())
+            .publish(order, cancelClOrdId, batch);
+        }
+      }
+
+      // The batch is committed once all its records have been acknowledged
+      batch.await();
+      producer.commit(nextOffsets(records), ordersConsumer.groupMetadata());
+    } catch (RuntimeException e) {
+      LOG.error(
+        "Batch of {} orders aborted: {}",
+        records.size(),
+        e.getMessage()
+      );
+      // The books must not change while they are restored
+      batch.awaitProcessed();
+      producer.abort();
+      restoreBooks();
+      seekToFirstOffsets(records);
+    }
+  }
+
+  /**
+   * @return the offsets to commit for the batch, after its last order of
+   * each partition
+   */
+  private static Map<TopicPartition, OffsetAndMetadata> nextOffsets(
+    List<ConsumerRecord<String, Order>> records
+  ) {
+    Map<TopicPartition, OffsetAndMetadata> offsets = new HashMap<>();
+    for (ConsumerRecord<String, Order> record : records) {
+      offsets.put(
+        new TopicPartition(record.topic(), record.partition()),
+        new OffsetAndMetadata(record.offset() + 1)
+      );
+    }
+    return offsets;
+  }
+
+  /**
+   * Receive the orders of an aborted batch again.
+   */
+  private void seekToFirstOffsets(
+    List<ConsumerRecord<String, Order>> records
+  ) {
+    Map<TopicPartition, Long> firstOffsets = new HashMap<>();
+    for (ConsumerRecord<String, Order> record : records) {
+      firstOffsets.putIfAbsent(
+        new TopicPartition(record.topic(), record.partition()),
+        record.offset()
+      );
+    }
+    firstOffsets.forEach(ordersConsumer::seek);
+  }
+
+  /**
+   * @return the key the order has been sent with, which is kept in a header
+   * when the accepted orders are keyed by symbol
+   */
+  private String orderKey(ConsumerRecord<String, Order> record) {
+    Header header = record
+      .headers()
+      .lastHeader(SymbolPartitioning.ORDER_KEY_HEADER);
+    return header == null
+      ? record.key()
+      : new String(header.value(), StandardCharsets.UTF_8);
+  }
+
+  @Override
+  public void setKafkaConsumer(Consumer<String, Order> consumer) {
+    this.ordersConsumer = consumer;
+  }
+
+  /**
+   * @return an id of the accepted order which does not change when the
+   * order is consumed again, the trades ids are derived from it
+   */
+  private static String orderId(ConsumerRecord<String, Order> record) {
+    return record.partition() + "-" + record.offset();
+  }
+
+  /**
+   * The books of the revoked partitions are held by their next owner, which
+   * reads them back from the changelog.
+   */
+  @Override
+  public void onPartitionsRevoked(Collection<TopicPartition> partitions) {
+    Set<Integer> revoked = partitionsOf(partitions);
+    assignedPartitions =
+      assignedPartitions
+        .stream()
+        .filter(partition -> !revoked.contains(partition))
+        .collect(Collectors.toUnmodifiableSet());
+    restoreBooks();
+  }
+
+  /**
+   * The books of the assigned partitions are read back from the changelog
+   * before their orders are matched.
+   *
+   * When the accepted orders are keyed by symbol, this instance only
+   * receives the orders of the symbols of its partitions, so it only needs
+   * their market data.
+   */
+  @Override
+  public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+    int partitionCount = ordersConsumer
+      .partitionsFor(acceptedOrdersTopic)
+      .size();
+    orderBookChangelog.createTopic(partitionCount);
+    assignedPartitions = Set.copyOf(partitionsOf(ordersConsumer.assignment()));
+    restoreBooks();
+
+    if (!partitionOrdersBySymbol) {
+      return;
+    }
+    Set<Integer> assigned = assignedPartitions;
+
+    marketDataConsumer.setOwnedSymbols(
+      symbols
+        .stream()
+        .filter(symbol ->
+          assigned.contains(
+            SymbolPartitioning.partitionOf(symbol, partitionCount)
+          )
+        )
+        .collect(Collectors.toSet())
+    );
+  }
+
+  private Set<Integer> partitionsOf(Collection<TopicPartition> partitions) {
+    return partitions
       .stream()
-      .map(this::processOrder)
-      .filter(trade -> trade != null)
-      .collect(Collectors.toList());
+      .filter(partition -> partition.topic().equals(acceptedOrdersTopic))
+      .map(TopicPartition::partition)
+      .collect(Collectors.toSet());
   }
 
-  private Trade processOrder(Order order) {
+  /**
+   * Rebuild the books from the orders resting in the assigned partitions,
+   * in their time priority. Only called while no order is being matched.
+   */
+  void restoreBooks() {
+    orderBooks.clear();
+    restingOrders.clear();
+    if (assignedPartitions.isEmpty()) {
+      return;
+    }
+    List<RestingOrder> storedOrders = orderBookChangelog
+      .read(assignedPartitions)
+      .stream()
+      .map(RestingOrder::of)
+      // Stable, the orders of a partition with the same timestamp keep the
+      // order they have been added in
+      .sorted(
+        Comparator
+          .comparingLong(RestingOrder::arrival)
+          .thenComparingInt(RestingOrder::partition)
+      )
+      .toList();
+
+    for (RestingOrder restingOrder : storedOrders) {
+      Order order = restingOrder.order();
+      restingOrder.rest(
+        orderBooks
+          .computeIfAbsent(order.getSymbol().toString(), s -> new OrderBook<>())
+          .add(
+            order.getSide(),
+            order.getPrice(),
+            restingOrder.remainingQuantity(),
+            restingOrder
+          )
+      );
+      restingOrders.put(restingOrder.key(), restingOrder);
+    }
+    LOG.info(
+      "Restored {} resting orders of partitions {}",
+      storedOrders.size(),
+      assignedPartitions
+    );
+  }
+
+  private MatcherShard shardOf(String symbol) {
+    return shards[Math.floorMod(symbol.hashCode(), shards.length)];
+  }
+
+  private void startShards() {
+    int threads = shardingThreads > 0
+      ? shardingThreads
+      : Runtime.getRuntime().availableProcessors();
+
+    shards = new MatcherShard[threads];
+    for (int i = 0; i < threads; i++) {
+      shards[i] =
+        new MatcherShard(
+          "market-matcher-shard-" + i,
+          shardingBufferSize,
+          // Each shard has its own waiting state
+          WaitStrategy.of(shardingWaitStrategy),
+          event -> process(event.order, event.cancelClOrdId, event.batch)
+        );
+      shards[i].start();
+    }
+    LOG.info(
+      "Matching orders on {} threads with a {} wait strategy",
+      threads,
+      shardingWaitStrategy
+    );
+  }
+
+  @PreDestroy
+  void stop() {
+    if (shards != null) {
+      for (MatcherShard shard : shards) {
+        shard.stop();
+      }
+    }
+  }
+
+  /**
+   * @param cancelClOrdId the ClOrdID of the cancel request, null for an
+   * order
+   */
+  private void process(
+    RestingOrder order,
+    String cancelClOrdId,
+    MatchingBatch batch
+  ) {
+    if (cancelClOrdId == null) {
+      processOrder(order, batch);
+    } else {
+      cancelOrder(order, cancelClOrdId, batch);
+    }
+  }
+
+  /**
+   * Match an order against the order book of its symbol.
+   *
+   * The order first trades with the resting orders of the opposite side, in
+   * price-time priority and within its limit price. The remaining quantity
+   * is executed at the last market price if it satisfies the limit price,
+   * otherwise it rests in the book. A LIMIT order is first acknowledged by
+   * a NEW report, as it may rest. Every fill produces a single trade, keyed
+   * by the incoming order and carrying both orders with their fills so far,
+   * so that trade-stream settles the two sides together.
+   *
+   * The trades are sent in the transaction of the batch, along with the
+   * state of the resting orders whose fills have changed. They are
+   * identified by the id of the order and their rank: an order is only
+   * matched again when its batch has been aborted, against the books of the
+   * committed batches, so the id of a committed trade names a single fill.
+   */
+  void processOrder(RestingOrder taker, MatchingBatch batch) {
+    Order order = taker.order();
+    String key = taker.key();
+    String orderId = taker.id();
     String symbol = order.getSymbol().toString();
 
     if (!symbols.contains(symbol)) {
       LOG.warn("Ignoring order {} for unknown symbol {}", order, symbol);
-      return null;
+      return;
     }
 
     MarketData marketData = marketDataConsumer.readLastStockData(symbol);
 
     if (marketData == null) {
-      LOG.warn("Ignoring order {} for unknown symbol {}", order, symbol);
-      return null;
+      LOG.warn("Ignoring order {}, no market data for {}", order, symbol);
+      return;
     }
 
     LOG.debug("Matching order {} with market data {}", order, marketData);
 
-    Trade trade = Trade
+    if (order.getType() == OrderType.LIMIT) {
+      batch.sendTrade(
+        key,
+        buildReport(orderId + "-new", taker, ExecutionType.NEW, 0, null)
+      );
+    }
+
+    OrderBook<RestingOrder> orderBook = orderBooks.computeIfAbsent(
+      symbol,
+      s -> new OrderBook<>()
+    );
+    Side side = order.getSide();
+    long limitPrice = order.getType() == OrderType.LIMIT
+      ? order.getPrice()
+      : OrderBook.marketPrice(side);
+
+    // Rank of the next trade of this order
+    int[] tradeRank = { 0 };
+    int remaining = orderBook.match(
+      side,
+      limitPrice,
+      order.getQuantity(),
+      (maker, price, quantity) -> {
+        batch.sendTrade(
+          key,
+          buildTrade(
+            tradeId(orderId, tradeRank[0]++),
+            taker,
+            maker,
+            symbol,
+            price,
+            quantity
+          )
+        );
+        if (maker.remainingQuantity() == 0) {
+          restingOrders.remove(maker.key(), maker);
+          batch.removeBookOrder(maker);
+        } else {
+          batch.putBookOrder(maker);
+        }
+      }
+    );
+
+    if (remaining == 0) {
+      return;
+    }
+
+    long marketPrice = OrderBook.toTicks(marketData.getClose());
+    boolean marketable = side == Side.BUY
+      ? marketPrice <= limitPrice
+      : marketPrice >= limitPrice;
+
+    if (marketable) {
+      batch.sendTrade(
+        key,
+        buildTrade(
+          tradeId(orderId, tradeRank[0]),
+          taker,
+          null,
+          symbol,
+          marketPrice,
+          remaining
+        )
+      );
+    } else {
+      LOG.debug("Order {} rests in the book for {}", order, remaining);
+      taker.rest(orderBook.add(side, limitPrice, remaining, taker));
+      restingOrders.put(key, taker);
+      batch.putBookOrder(taker);
+    }
+  }
+
+  /**
+   * Cancel the order of the key of the request, if it still rests in the
+   * book of the symbol and on the side of the request. The order leaves its
+   * book and is reported CANCELED, with the quantity which was left, in the
+   * transaction of the batch. Otherwise, for instance when the order has
+   * been filled first, the request is reported CANCEL_REJECTED.
+   */
+  void cancelOrder(
+    RestingOrder request,
+    String cancelClOrdId,
+    MatchingBatch batch
+  ) {
+    Order cancel = request.order();
+    String key = request.key();
+    String symbol = cancel.getSymbol().toString();
+    RestingOrder resting = restingOrders.get(key);
+
+    // The books of other symbols may be matched by other threads
+    if (
+      resting == null ||
+      !resting.order().getSymbol().toString().equals(symbol) ||
+      resting.order().getSide() != cancel.getSide()
+    ) {
+      LOG.debug("Cancel {} rejected, no order {} in the book", cancel, key);
+      batch.sendTrade(
+        key,
+        buildReport(
+          request.id() + "-cancel-rejected",
+          request,
+          ExecutionType.CANCEL_REJECTED,
+          0,
+          cancelClOrdId
+        )
+      );
+      return;
+    }
+
+    orderBooks.get(symbol).cancel(resting.handle());
+    restingOrders.remove(key, resting);
+    batch.removeBookOrder(resting);
+    batch.sendTrade(
+      key,
+      buildReport(
+        request.id() + "-canceled",
+        resting,
+        ExecutionType.CANCELED,
+        resting.remainingQuantity(),
+        cancelClOrdId
+      )
+    );
+  }
+
+  private static String tradeId(String orderId, int rank) {
+    return orderId + "-" + rank;
+  }
+
+  /**
+   * @param counterparty the resting order on the other side of the fill,
+   * null for a trade at the market price
+   */
+  private Trade buildTrade(
+    String id,
+    RestingOrder order,
+    RestingOrder counterparty,
+    String symbol,
+    long price,
+    int quantity
+  ) {
+    order.fill(price, quantity);
+    Trade.Builder trade = Trade
       .newBuilder()
-      .setOrder(order)
-      .setPrice(marketData.getClose())
+      .setId(id)
+      .setOrder(order.order())
+      .setPrice(price)
       .setSymbol(symbol)
-      .setQuantity(order.getQuantity())
+      .setQuantity(quantity)
+      .setCumulativeQuantity(order.filledQuantity())
+      .setCumulativeAmount(order.filledAmount());
+    if (counterparty != null) {
+      counterparty.fill(price, quantity);
+      trade
+        .setCounterpartyKey(counterparty.key())
+        .setCounterpartyOrder(counterparty.order())
+        .setCounterpartyCumulativeQuantity(counterparty.filledQuantity())
+        .setCounterpartyCumulativeAmount(counterparty.filledAmount());
+    }
+    return trade.build();
+  }
+
+  /**
+   * @param quantity the quantity canceled, 0 if none
+   * @return a report of the order which is not a fill, with its fills so
+   * far
+   */
+  private static Trade buildReport(
+    String id,
+    RestingOrder order,
+    ExecutionType type,
+    int quantity,
+    String cancelClOrdId
+  ) {
+    return Trade
+      .newBuilder()
+      .setId(id)
+      .setOrder(order.order())
+      .setPrice(0)
+      .setSymbol(order.order().getSymbol())
+      .setQuantity(quantity)
+      .setCumulativeQuantity(order.filledQuantity())
+      .setCumulativeAmount(order.filledAmount())
+      .setType(type)
+      .setCancelClOrdId(cancelClOrdId)
       .build();
+  }
 
-    return trade;
+  public OrderBook<RestingOrder> getOrderBook(String symbol) {
+    return orderBooks.get(symbol);
   }
 
   /**
@@ -0,0 +1,171 @@
+package pfe_broker.market_matcher;
+
+import io.confluent.kafka.serializers.KafkaAvroSerializer;
+import io.confluent.kafka.serializers.KafkaAvroSerializerConfig;
+import io.micronaut.context.annotation.Property;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.consumer.ConsumerGroupMetadata;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.avro.BookOrder;
+import pfe_broker.avro.Trade;
+
+/**
+ * Transactional producer of the market-matcher.
+ *
+ * The trades of a batch of orders, the changes of the order books and the
+ * offsets of the orders are written in a single transaction, so a batch is
+ * either matched and consumed, or neither: an order is never matched twice
+ * against the books, and the changelog of the books never misses a fill.
+ */
+@Singleton
+public class MatcherProducer {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    MatcherProducer.class
+  );
+
+  private final Properties properties = new Properties();
+  private final String tradesTopic;
+  private final String orderBookTopic;
+
+  private KafkaProducer<String, Object> producer;
+
+  public MatcherProducer(
+    @Property(name = "kafka.bootstrap.servers") String bootstrapServers,
+    @Property(name = "kafka.schema.registry.url") String schemaRegistryUrl,
+    @Property(name = "kafka.topics.trades") String tradesTopic,
+    @Property(name = "kafka.topics.order-book") String orderBookTopic,
+    @Property(name = "market-matcher.transactional-id") String transactionalId
+  ) {
+    this.tradesTopic = tradesTopic;
+    this.orderBookTopic = orderBookTopic;
+    properties.put(ProducerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    properties.put(
+      KafkaAvroSerializerConfig.SCHEMA_REGISTRY_URL_CONFIG,
+      schemaRegistryUrl
+    );
+    properties.put(
+      ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
+      StringSerializer.class
+    );
+    properties.put(
+      ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+      KafkaAvroSerializer.class
+    );
+    // A new instance with the same id fences the transactions of the
+    // previous one
+    properties.put(ProducerConfig.TRANSACTIONAL_ID_CONFIG, transactionalId);
+  }
+
+  /**
+   * Start the transaction of a batch, the producer is created on the first
+   * batch so the matcher starts without Kafka.
+   */
+  void begin() {
+    if (producer == null) {
+      producer = new KafkaProducer<>(properties);
+      producer.initTransactions();
+    }
+    producer.beginTransaction();
+  }
+
+  CompletableFuture<RecordMetadata> sendTrade(String key, Trade trade) {
+    return send(new ProducerRecord<>(tradesTopic, key, trade));
+  }
+
+  /**
+   * Record the state of an order resting in a book, in the partition its
+   * order has been received on.
+   */
+  CompletableFuture<RecordMetadata> putBookOrder(
+    int partition,
+    BookOrder bookOrder
+  ) {
+    return send(
+      new ProducerRecord<>(
+        orderBookTopic,
+        partition,
+        bookOrder.getId().toString(),
+        bookOrder
+      )
+    );
+  }
+
+  /**
+   * Record that an order has left its book.
+   */
+  CompletableFuture<RecordMetadata> removeBookOrder(
+    int partition,
+    String orderId
+  ) {
+    return send(
+      new ProducerRecord<>(orderBookTopic, partition, orderId, null)
+    );
+  }
+
+  private CompletableFuture<RecordMetadata> send(
+    ProducerRecord<String, Object> record
+  ) {
+    CompletableFuture<RecordMetadata> future = new CompletableFuture<>();
+    producer.send(
+      record,
+      (metadata, exception) -> {
+        if (exception == null) {
+          future.complete(metadata);
+        } else {
+          future.completeExceptionally(exception);
+        }
+      }
+    );
+    return future;
+  }
+
+  /**
+   * Commit the batch along with the offsets of its orders.
+   */
+  void commit(
+    Map<TopicPartition, OffsetAndMetadata> offsets,
+    ConsumerGroupMetadata groupMetadata
+  ) {
+    producer.sendOffsetsToTransaction(offsets, groupMetadata);
+    producer.commitTransaction();
+  }
+
+  /**
+   * Abort the batch. A producer which cannot abort, for instance because it
+   * has been fenced, is replaced on the next batch.
+   */
+  void abort() {
+    if (producer == null) {
+      return;
+    }
+    try {
+      producer.abortTransaction();
+    } catch (KafkaException e) {
+      LOG.error("Cannot abort the transaction: {}", e.getMessage());
+      producer.close(Duration.ZERO);
+      producer = null;
+    }
+  }
+
+  @PreDestroy
+  void close() {
+    if (producer != null) {
+      producer.close();
+    }
+  }
+}
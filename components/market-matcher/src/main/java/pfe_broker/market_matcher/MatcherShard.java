@@ -0,0 +1,136 @@
+package pfe_broker.market_matcher;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.market_matcher.sharding.RingBuffer;
+import pfe_broker.market_matcher.sharding.WaitStrategy;
+
+/**
+ * Thread matching the orders of a subset of the symbols.
+ *
+ * Orders are handed over through a bounded ring buffer and matched in the
+ * order they have been published, so every symbol has a single writer and
+ * keeps its ordering. When the buffer is full the publisher waits, which
+ * slows down the Kafka listener instead of buffering without limit, unless
+ * the thread has stopped, in which case nothing would free the buffer.
+ */
+final class MatcherShard implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    MatcherShard.class
+  );
+
+  private static final int DRAIN_LIMIT = 256;
+  private static final long BACKOFF_NANOS = 1_000;
+
+  private final RingBuffer<OrderEvent> ringBuffer;
+  private final WaitStrategy waitStrategy;
+  private final Consumer<OrderEvent> matcher;
+  private final Consumer<OrderEvent> processEvent = this::process;
+  private final BooleanSupplier available;
+  private final Thread thread;
+  private volatile boolean running;
+
+  MatcherShard(
+    String name,
+    int bufferSize,
+    WaitStrategy waitStrategy,
+    Consumer<OrderEvent> matcher
+  ) {
+    this.ringBuffer = new RingBuffer<>(bufferSize, OrderEvent::new);
+    this.waitStrategy = waitStrategy;
+    this.matcher = matcher;
+    this.available = ringBuffer::hasAvailable;
+    this.thread = new Thread(this, name);
+    this.thread.setDaemon(true);
+  }
+
+  void start() {
+    running = true;
+    thread.start();
+  }
+
+  void stop() {
+    running = false;
+    waitStrategy.signal();
+    try {
+      thread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  void publish(RestingOrder order, MatchingBatch batch) {
+    publish(order, null, batch);
+  }
+
+  /**
+   * @param cancelClOrdId the ClOrdID of the cancel request, null for an
+   * order
+   * @throws IllegalStateException if the thread is not running, the order
+   * would never be matched
+   */
+  void publish(
+    RestingOrder order,
+    String cancelClOrdId,
+    MatchingBatch batch
+  ) {
+    checkRunning();
+    long sequence;
+    while ((sequence = ringBuffer.tryClaim()) < 0) {
+      checkRunning();
+      LockSupport.parkNanos(BACKOFF_NANOS);
+    }
+    batch.orderDispatched();
+    ringBuffer.get(sequence).set(order, cancelClOrdId, batch);
+    ringBuffer.publish(sequence);
+    waitStrategy.signal();
+  }
+
+  boolean isRunning() {
+    return running && thread.isAlive();
+  }
+
+  private void checkRunning() {
+    if (!isRunning()) {
+      throw new IllegalStateException(thread.getName() + " is not running");
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      while (running) {
+        if (ringBuffer.drain(processEvent, DRAIN_LIMIT) == 0) {
+          waitStrategy.waitFor(available);
+        }
+      }
+    } catch (Throwable e) {
+      LOG.error("{} stopped: {}", thread.getName(), e.getMessage());
+      throw e;
+    } finally {
+      running = false;
+      // Do not leave a listener waiting for its batch
+      while (ringBuffer.drain(processEvent, DRAIN_LIMIT) > 0) {}
+    }
+  }
+
+  private void process(OrderEvent event) {
+    MatchingBatch batch = event.batch;
+    try {
+      matcher.accept(event);
+    } catch (Exception e) {
+      LOG.error(
+        "Error while matching order {}: {}",
+        event.order.order(),
+        e.getMessage()
+      );
+    } finally {
+      event.clear();
+      batch.orderProcessed();
+    }
+  }
+}
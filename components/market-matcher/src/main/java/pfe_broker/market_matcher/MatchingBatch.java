@@ -0,0 +1,80 @@
+package pfe_broker.market_matcher;
+
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.kafka.clients.producer.RecordMetadata;
+import pfe_broker.avro.Trade;
+
+/**
+ * Tracks a batch of orders received by the listener, which may be matched
+ * by several threads, and the records they have produced in the
+ * transaction of the batch.
+ */
+final class MatchingBatch {
+
+  private final MatcherProducer producer;
+  private final Queue<CompletableFuture<RecordMetadata>> sentRecords =
+    new ConcurrentLinkedQueue<>();
+  // One for each dispatched order, plus one released by awaitProcessed()
+  private final AtomicInteger pendingOrders = new AtomicInteger(1);
+  private final AtomicBoolean released = new AtomicBoolean();
+  private final CompletableFuture<Void> processed = new CompletableFuture<>();
+
+  MatchingBatch(MatcherProducer producer) {
+    this.producer = producer;
+  }
+
+  void sendTrade(String key, Trade trade) {
+    sentRecords.add(producer.sendTrade(key, trade));
+  }
+
+  /**
+   * Record that the order rests in its book, with its fills so far.
+   */
+  void putBookOrder(RestingOrder order) {
+    sentRecords.add(
+      producer.putBookOrder(order.partition(), order.toBookOrder())
+    );
+  }
+
+  /**
+   * Record that the order has left its book.
+   */
+  void removeBookOrder(RestingOrder order) {
+    sentRecords.add(producer.removeBookOrder(order.partition(), order.id()));
+  }
+
+  void orderDispatched() {
+    pendingOrders.incrementAndGet();
+  }
+
+  /**
+   * Wait until every dispatched order of the batch has been matched.
+   */
+  void awaitProcessed() {
+    if (released.compareAndSet(false, true)) {
+      orderProcessed();
+    }
+    processed.join();
+  }
+
+  void orderProcessed() {
+    if (pendingOrders.decrementAndGet() == 0) {
+      processed.complete(null);
+    }
+  }
+
+  /**
+   * Wait until every order of the batch has been matched and all the
+   * records have been acknowledged, so the transaction can be committed.
+   */
+  void await() {
+    awaitProcessed();
+    CompletableFuture
+      .allOf(sentRecords.toArray(CompletableFuture[]::new))
+      .join();
+  }
+}
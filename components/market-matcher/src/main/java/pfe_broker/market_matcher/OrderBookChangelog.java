@@ -0,0 +1,153 @@
+package pfe_broker.market_matcher;
+
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import io.micronaut.context.annotation.Property;
+import jakarta.inject.Singleton;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.NewTopic;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.TopicExistsException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import pfe_broker.avro.BookOrder;
+
+/**
+ * Compacted topic holding the orders resting in the order books, keyed by
+ * the id of each order and written to the partition it has been received
+ * on.
+ *
+ * The books only live in memory, so the instance which is assigned a
+ * partition of the accepted orders reads the resting orders of that
+ * partition back from this topic, up to its end, before matching new
+ * orders. Only the committed records are read, as the books are changed in
+ * the transactions of {@link MatcherProducer}.
+ */
+@Singleton
+public class OrderBookChangelog {
+
+  private final AdminClient adminClient;
+  private final String topic;
+  private final Properties properties = new Properties();
+
+  public OrderBookChangelog(
+    AdminClient adminClient,
+    @Property(name = "kafka.bootstrap.servers") String bootstrapServers,
+    @Property(name = "kafka.schema.registry.url") String schemaRegistryUrl,
+    @Property(name = "kafka.topics.order-book") String topic
+  ) {
+    this.adminClient = adminClient;
+    this.topic = topic;
+    properties.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    properties.put(
+      KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG,
+      schemaRegistryUrl
+    );
+    properties.put(
+      ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
+      StringDeserializer.class
+    );
+    properties.put(
+      ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
+      KafkaAvroDeserializer.class
+    );
+    properties.put(
+      KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG,
+      true
+    );
+    properties.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    properties.put(ConsumerConfig.ISOLATION_LEVEL_CONFIG, "read_committed");
+  }
+
+  /**
+   * Create the topic if it does not exist yet.
+   *
+   * @param partitions the number of partitions of the accepted orders
+   */
+  void createTopic(int partitions) {
+    try {
+      adminClient
+        .createTopics(
+          List.of(
+            new NewTopic(topic, partitions, (short) 1)
+              .configs(
+                Map.of(
+                  TopicConfig.CLEANUP_POLICY_CONFIG,
+                  TopicConfig.CLEANUP_POLICY_COMPACT
+                )
+              )
+          )
+        )
+        .all()
+        .get();
+    } catch (ExecutionException e) {
+      if (!(e.getCause() instanceof TopicExistsException)) {
+        throw new IllegalStateException(
+          "Cannot create " + topic,
+          e.getCause()
+        );
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted creating " + topic, e);
+    }
+  }
+
+  /**
+   * @return the orders resting in the books of the given partitions, in the
+   * order they have been added to the books
+   */
+  Collection<ConsumerRecord<String, BookOrder>> read(
+    Collection<Integer> partitions
+  ) {
+    List<TopicPartition> topicPartitions = partitions
+      .stream()
+      .map(partition -> new TopicPartition(topic, partition))
+      .toList();
+    Map<String, ConsumerRecord<String, BookOrder>> restingOrders =
+      new LinkedHashMap<>();
+
+    try (
+      KafkaConsumer<String, BookOrder> consumer = new KafkaConsumer<>(
+        properties
+      )
+    ) {
+      consumer.assign(topicPartitions);
+      consumer.seekToBeginning(topicPartitions);
+      // The end offsets are the last stable offsets when reading committed
+      Map<TopicPartition, Long> endOffsets = consumer.endOffsets(
+        topicPartitions
+      );
+
+      while (
+        endOffsets
+          .entrySet()
+          .stream()
+          .anyMatch(end -> consumer.position(end.getKey()) < end.getValue())
+      ) {
+        for (ConsumerRecord<String, BookOrder> record : consumer.poll(
+          Duration.ofMillis(100)
+        )) {
+          // A tombstone is written when the order leaves its book, an order
+          // partially filled keeps its place
+          if (record.value() == null) {
+            restingOrders.remove(record.key());
+          } else {
+            restingOrders.put(record.key(), record);
+          }
+        }
+      }
+    }
+    return restingOrders.values();
+  }
+}
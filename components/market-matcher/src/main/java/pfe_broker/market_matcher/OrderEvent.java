@@ -0,0 +1,24 @@
+package pfe_broker.market_matcher;
+
+/**
+ * Mutable slot of a matcher ring buffer, reused for every order.
+ */
+final class OrderEvent {
+
+  RestingOrder order;
+  // ClOrdID of the cancel request, null for an order
+  String cancelClOrdId;
+  MatchingBatch batch;
+
+  void set(RestingOrder order, String cancelClOrdId, MatchingBatch batch) {
+    this.order = order;
+    this.cancelClOrdId = cancelClOrdId;
+    this.batch = batch;
+  }
+
+  void clear() {
+    this.order = null;
+    this.cancelClOrdId = null;
+    this.batch = null;
+  }
+}
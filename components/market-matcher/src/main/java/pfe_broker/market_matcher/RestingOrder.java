@@ -0,0 +1,141 @@
+package pfe_broker.market_matcher;
+
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import pfe_broker.avro.BookOrder;
+import pfe_broker.avro.Order;
+
+/**
+ * Order being matched or waiting in an order book, with the key it has been
+ * received with and its fills so far.
+ */
+public final class RestingOrder {
+
+  private final String key;
+  private final String id;
+  private final int partition;
+  private final long arrival;
+  private final Order order;
+  private int filledQuantity;
+  private long filledAmount;
+  private int handle = -1;
+
+  /**
+   * @param id the id of the accepted order, unique
+   * @param partition the partition the order has been received on
+   * @param arrival the timestamp of the accepted order
+   */
+  public RestingOrder(
+    String key,
+    String id,
+    int partition,
+    long arrival,
+    Order order
+  ) {
+    this.key = key;
+    this.id = id;
+    this.partition = partition;
+    this.arrival = arrival;
+    this.order = order;
+  }
+
+  /**
+   * @return the order read back from the changelog of the books, with its
+   * fills so far
+   */
+  static RestingOrder of(ConsumerRecord<String, BookOrder> record) {
+    BookOrder bookOrder = record.value();
+    RestingOrder restingOrder = new RestingOrder(
+      bookOrder.getKey().toString(),
+      bookOrder.getId().toString(),
+      record.partition(),
+      bookOrder.getArrival(),
+      bookOrder.getOrder()
+    );
+    restingOrder.filledQuantity = bookOrder.getCumulativeQuantity();
+    restingOrder.filledAmount = bookOrder.getCumulativeAmount();
+    return restingOrder;
+  }
+
+  /**
+   * @return the state of the order recorded in the changelog of the books
+   */
+  BookOrder toBookOrder() {
+    return BookOrder
+      .newBuilder()
+      .setId(id)
+      .setKey(key)
+      .setOrder(order)
+      .setArrival(arrival)
+      .setCumulativeQuantity(filledQuantity)
+      .setCumulativeAmount(filledAmount)
+      .build();
+  }
+
+  public String key() {
+    return key;
+  }
+
+  public String id() {
+    return id;
+  }
+
+  public int partition() {
+    return partition;
+  }
+
+  public long arrival() {
+    return arrival;
+  }
+
+  public Order order() {
+    return order;
+  }
+
+  /**
+   * @return the handle of the order in its book, see
+   * {@link pfe_broker.market_matcher.orderbook.OrderBook#add}
+   */
+  public int handle() {
+    return handle;
+  }
+
+  /**
+   * Record that the order rests in its book
+   *
+   * @param handle the handle returned by the book
+   */
+  public void rest(int handle) {
+    this.handle = handle;
+  }
+
+  /**
+   * Record a fill of the order
+   *
+   * @param price in cents
+   */
+  public void fill(long price, int quantity) {
+    filledQuantity += quantity;
+    filledAmount += price * quantity;
+  }
+
+  /**
+   * @return the quantity filled so far
+   */
+  public int filledQuantity() {
+    return filledQuantity;
+  }
+
+  /**
+   * @return the quantity left to fill
+   */
+  public int remainingQuantity() {
+    return order.getQuantity() - filledQuantity;
+  }
+
+  /**
+   * @return the price times quantity of the fills so far, in cents
+   */
+  public long filledAmount() {
+    return filledAmount;
+  }
+}
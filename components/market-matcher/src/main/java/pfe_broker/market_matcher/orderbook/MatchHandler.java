@@ -0,0 +1,16 @@
+package pfe_broker.market_matcher.orderbook;
+
+/**
+ * Receives the fills produced while matching an incoming order.
+ *
+ * @param <T> the type of the object attached to each resting order
+ */
+@FunctionalInterface
+public interface MatchHandler<T> {
+  /**
+   * @param maker the resting order that has been (partially) filled
+   * @param price the execution price, in ticks
+   * @param quantity the executed quantity
+   */
+  void onMatch(T maker, long price, int quantity);
+}
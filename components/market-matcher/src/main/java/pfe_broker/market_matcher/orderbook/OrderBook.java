@@ -0,0 +1,251 @@
+package pfe_broker.market_matcher.orderbook;
+
+import java.util.Arrays;
+import pfe_broker.avro.Side;
+import pfe_broker.common.Money;
+
+/**
+ * Price-time priority limit order book of a single symbol.
+ *
+ * Prices are expressed in ticks ({@link #PRICE_SCALE} ticks per currency
+ * unit), a tick being the minor unit of {@link Money}. Resting orders are
+ * stored in a pool of primitive arrays and chained in an intrusive FIFO queue
+ * per price level, so matching does not allocate nor box anything.
+ *
+ * The book is not thread-safe, it must only be used by a single thread.
+ *
+ * @param <T> the type of the object attached to each resting order
+ */
+public final class OrderBook<T> {
+
+  public static final long PRICE_SCALE = Money.SCALE;
+  public static final long NO_PRICE = Long.MIN_VALUE;
+
+  private static final int NIL = PriceLevels.NIL;
+
+  private final PriceLevels bids;
+  private final PriceLevels asks;
+
+  // Pool of resting orders, indexed by slot
+  private long[] prices;
+  private int[] quantities;
+  private boolean[] buys;
+  private int[] next;
+  private int[] prev;
+  private Object[] owners;
+  private int freeHead = NIL;
+  private int orderCount;
+
+  public OrderBook() {
+    this(1024);
+  }
+
+  public OrderBook(int initialCapacity) {
+    this.bids = new PriceLevels(false, 64);
+    this.asks = new PriceLevels(true, 64);
+    this.prices = new long[0];
+    this.quantities = new int[0];
+    this.buys = new boolean[0];
+    this.next = new int[0];
+    this.prev = new int[0];
+    this.owners = new Object[0];
+    grow(Math.max(initialCapacity, 1));
+  }
+
+  public static long toTicks(double price) {
+    return Money.toMinorUnits(price);
+  }
+
+  public static double toPrice(long ticks) {
+    return Money.toMajorUnits(ticks);
+  }
+
+  /**
+   * @return the limit price which makes an order of the given side match any
+   * price of the opposite side
+   */
+  public static long marketPrice(Side side) {
+    return side == Side.BUY ? Long.MAX_VALUE : Long.MIN_VALUE;
+  }
+
+  /**
+   * Match an incoming order against the opposite side of the book.
+   *
+   * Resting orders are filled from the best price, and in arrival order
+   * within a price level, as long as their price crosses the limit price.
+   * Every fill is reported to the handler, fully filled orders are removed.
+   *
+   * @param side the side of the incoming order
+   * @param limitPrice the limit price in ticks, see {@link #marketPrice(Side)}
+   * @param quantity the quantity of the incoming order
+   * @param handler the handler receiving each fill
+   * @return the quantity which has not been filled
+   */
+  @SuppressWarnings("unchecked")
+  public int match(
+    Side side,
+    long limitPrice,
+    int quantity,
+    MatchHandler<T> handler
+  ) {
+    PriceLevels levels = side == Side.BUY ? asks : bids;
+    int remaining = quantity;
+
+    while (remaining > 0 && !levels.isEmpty()) {
+      int level = levels.best();
+      if (!levels.crosses(level, limitPrice)) {
+        break;
+      }
+      long price = levels.prices[level];
+      int slot = levels.heads[level];
+
+      while (slot != NIL && remaining > 0) {
+        int fill = Math.min(remaining, quantities[slot]);
+        quantities[slot] -= fill;
+        remaining -= fill;
+        handler.onMatch((T) owners[slot], price, fill);
+
+        if (quantities[slot] == 0) {
+          int following = next[slot];
+          release(slot);
+          slot = following;
+        }
+      }
+
+      if (slot == NIL) {
+        levels.remove(level);
+      } else {
+        levels.heads[level] = slot;
+        prev[slot] = NIL;
+      }
+    }
+    return remaining;
+  }
+
+  /**
+   * Add a resting limit order at the back of its price level.
+   *
+   * @return a handle on the order, valid until it is filled or cancelled
+   */
+  public int add(Side side, long price, int quantity, T owner) {
+    if (quantity <= 0) {
+      throw new IllegalArgumentException("Quantity must be positive");
+    }
+    int slot = acquire();
+    prices[slot] = price;
+    quantities[slot] = quantity;
+    buys[slot] = side == Side.BUY;
+    owners[slot] = owner;
+
+    PriceLevels levels = side == Side.BUY ? bids : asks;
+    int level = levels.findOrInsert(price);
+    int tail = levels.tails[level];
+    next[slot] = NIL;
+    prev[slot] = tail;
+    if (tail == NIL) {
+      levels.heads[level] = slot;
+    } else {
+      next[tail] = slot;
+    }
+    levels.tails[level] = slot;
+    return slot;
+  }
+
+  /**
+   * Remove a resting order from the book.
+   *
+   * @param handle the handle returned by {@link #add}
+   * @return false if the order is no longer in the book
+   */
+  public boolean cancel(int handle) {
+    if (handle < 0 || handle >= quantities.length || quantities[handle] == 0) {
+      return false;
+    }
+    PriceLevels levels = buys[handle] ? bids : asks;
+    int level = levels.find(prices[handle]);
+    int previous = prev[handle];
+    int following = next[handle];
+
+    if (previous == NIL) {
+      levels.heads[level] = following;
+    } else {
+      next[previous] = following;
+    }
+    if (following == NIL) {
+      levels.tails[level] = previous;
+    } else {
+      prev[following] = previous;
+    }
+    if (levels.heads[level] == NIL) {
+      levels.remove(level);
+    }
+    release(handle);
+    return true;
+  }
+
+  public long bestBid() {
+    return bids.isEmpty() ? NO_PRICE : bids.prices[bids.best()];
+  }
+
+  public long bestAsk() {
+    return asks.isEmpty() ? NO_PRICE : asks.prices[asks.best()];
+  }
+
+  /**
+   * @return the total resting quantity of a side at the given price
+   */
+  public long volumeAt(Side side, long price) {
+    PriceLevels levels = side == Side.BUY ? bids : asks;
+    int level = levels.find(price);
+    if (level < 0) {
+      return 0;
+    }
+    long volume = 0;
+    for (int slot = levels.heads[level]; slot != NIL; slot = next[slot]) {
+      volume += quantities[slot];
+    }
+    return volume;
+  }
+
+  public int levelCount(Side side) {
+    return side == Side.BUY ? bids.size : asks.size;
+  }
+
+  public int orderCount() {
+    return orderCount;
+  }
+
+  private int acquire() {
+    if (freeHead == NIL) {
+      grow(quantities.length * 2);
+    }
+    int slot = freeHead;
+    freeHead = next[slot];
+    orderCount++;
+    return slot;
+  }
+
+  private void release(int slot) {
+    quantities[slot] = 0;
+    owners[slot] = null;
+    next[slot] = freeHead;
+    freeHead = slot;
+    orderCount--;
+  }
+
+  private void grow(int capacity) {
+    int previousCapacity = quantities.length;
+    prices = Arrays.copyOf(prices, capacity);
+    quantities = Arrays.copyOf(quantities, capacity);
+    buys = Arrays.copyOf(buys, capacity);
+    next = Arrays.copyOf(next, capacity);
+    prev = Arrays.copyOf(prev, capacity);
+    owners = Arrays.copyOf(owners, capacity);
+
+    // Chain the new slots in the free list
+    for (int slot = capacity - 1; slot >= previousCapacity; slot--) {
+      next[slot] = freeHead;
+      freeHead = slot;
+    }
+  }
+}
@@ -0,0 +1,107 @@
+package pfe_broker.market_matcher.orderbook;
+
+import java.util.Arrays;
+
+/**
+ * Sorted price levels of one side of the book, stored in primitive arrays.
+ *
+ * Levels are ordered from the worst to the best price so that the best
+ * level is always the last one: consuming the top of the book never shifts
+ * the arrays, and new orders usually land close to the end.
+ */
+final class PriceLevels {
+
+  static final int NIL = -1;
+
+  private final boolean descending;
+
+  long[] prices;
+  int[] heads;
+  int[] tails;
+  int size;
+
+  /**
+   * @param descending true if a lower price is a better price (asks)
+   */
+  PriceLevels(boolean descending, int initialCapacity) {
+    this.descending = descending;
+    this.prices = new long[initialCapacity];
+    this.heads = new int[initialCapacity];
+    this.tails = new int[initialCapacity];
+  }
+
+  boolean isEmpty() {
+    return size == 0;
+  }
+
+  int best() {
+    return size - 1;
+  }
+
+  /**
+   * @return true if the price of the level can be matched by an order with
+   * the given limit price
+   */
+  boolean crosses(int level, long limitPrice) {
+    return descending
+      ? prices[level] <= limitPrice
+      : prices[level] >= limitPrice;
+  }
+
+  /**
+   * @return the index of the level with the given price, or
+   * {@code -(insertionPoint + 1)} if there is no such level
+   */
+  int find(long price) {
+    int low = 0;
+    int high = size - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      long middlePrice = prices[middle];
+      if (middlePrice == price) {
+        return middle;
+      }
+      boolean before = descending ? middlePrice > price : middlePrice < price;
+      if (before) {
+        low = middle + 1;
+      } else {
+        high = middle - 1;
+      }
+    }
+    return -(low + 1);
+  }
+
+  /**
+   * @return the index of the level with the given price, creating it if needed
+   */
+  int findOrInsert(long price) {
+    int level = find(price);
+    if (level >= 0) {
+      return level;
+    }
+    level = -(level + 1);
+    if (size == prices.length) {
+      int capacity = prices.length * 2;
+      prices = Arrays.copyOf(prices, capacity);
+      heads = Arrays.copyOf(heads, capacity);
+      tails = Arrays.copyOf(tails, capacity);
+    }
+    int moved = size - level;
+    System.arraycopy(prices, level, prices, level + 1, moved);
+    System.arraycopy(heads, level, heads, level + 1, moved);
+    System.arraycopy(tails, level, tails, level + 1, moved);
+    prices[level] = price;
+    heads[level] = NIL;
+    tails[level] = NIL;
+    size++;
+    return level;
+  }
+
+  void remove(int level) {
+    int moved = size - level - 1;
+    System.arraycopy(prices, level + 1, prices, level, moved);
+    System.arraycopy(heads, level + 1, heads, level, moved);
+    System.arraycopy(tails, level + 1, tails, level, moved);
+    size--;
+  }
+}
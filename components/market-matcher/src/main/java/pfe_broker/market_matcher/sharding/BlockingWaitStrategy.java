@@ -0,0 +1,49 @@
+package pfe_broker.market_matcher.sharding;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Blocks the thread on a condition until a producer signals it: no CPU is
+ * used while idle, at the cost of a lock on the publication path when the
+ * consumer is waiting.
+ */
+final class BlockingWaitStrategy implements WaitStrategy {
+
+  // Bounds the latency of a signal racing with the consumer going to sleep
+  private static final long TIMEOUT_MILLIS = 10;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition notEmpty = lock.newCondition();
+  private volatile boolean waiting;
+
+  @Override
+  public void waitFor(BooleanSupplier available) {
+    lock.lock();
+    try {
+      waiting = true;
+      if (!available.getAsBoolean()) {
+        notEmpty.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      waiting = false;
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void signal() {
+    if (waiting) {
+      lock.lock();
+      try {
+        notEmpty.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+}
@@ -0,0 +1,18 @@
+package pfe_broker.market_matcher.sharding;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Spins on the condition: lowest latency, but the thread keeps a core busy.
+ */
+final class BusySpinWaitStrategy implements WaitStrategy {
+
+  private static final int SPINS = 10_000;
+
+  @Override
+  public void waitFor(BooleanSupplier available) {
+    for (int i = 0; i < SPINS && !available.getAsBoolean(); i++) {
+      Thread.onSpinWait();
+    }
+  }
+}
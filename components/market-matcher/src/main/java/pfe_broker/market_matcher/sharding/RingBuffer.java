@@ -0,0 +1,112 @@
+package pfe_broker.market_matcher.sharding;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Bounded multi-producer single-consumer ring buffer of preallocated entries.
+ *
+ * Producers claim a sequence, fill the entry in place and publish it. Each
+ * slot carries its own sequence number, so publishing a slot never waits
+ * for the other producers and the consumer reads the entries in the order
+ * the sequences have been claimed.
+ *
+ * @param <E> the type of the entries, which are reused once consumed
+ */
+public final class RingBuffer<E> {
+
+  private final E[] entries;
+  private final AtomicLongArray sequences;
+  private final int mask;
+  private final AtomicLong producerSequence = new AtomicLong();
+
+  // Only read and written by the consumer thread
+  private long consumerSequence;
+
+  @SuppressWarnings("unchecked")
+  public RingBuffer(int capacity, Supplier<E> factory) {
+    if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+      throw new IllegalArgumentException(
+        "Capacity must be a power of two: " + capacity
+      );
+    }
+    this.entries = (E[]) new Object[capacity];
+    this.sequences = new AtomicLongArray(capacity);
+    this.mask = capacity - 1;
+    for (int i = 0; i < capacity; i++) {
+      entries[i] = factory.get();
+      sequences.set(i, i);
+    }
+  }
+
+  public int capacity() {
+    return entries.length;
+  }
+
+  /**
+   * Claim the next slot.
+   *
+   * @return the claimed sequence, or -1 if the buffer is full
+   */
+  public long tryClaim() {
+    while (true) {
+      long sequence = producerSequence.get();
+      long slotSequence = sequences.get((int) sequence & mask);
+      if (slotSequence == sequence) {
+        if (producerSequence.compareAndSet(sequence, sequence + 1)) {
+          return sequence;
+        }
+      } else if (slotSequence < sequence) {
+        return -1;
+      }
+    }
+  }
+
+  /**
+   * @return the entry of a claimed sequence, to be filled before publishing
+   */
+  public E get(long sequence) {
+    return entries[(int) sequence & mask];
+  }
+
+  /**
+   * Make a claimed entry visible to the consumer.
+   */
+  public void publish(long sequence) {
+    sequences.lazySet((int) sequence & mask, sequence + 1);
+  }
+
+  /**
+   * @return true if the consumer has at least one entry to read
+   */
+  public boolean hasAvailable() {
+    int index = (int) consumerSequence & mask;
+    return sequences.get(index) == consumerSequence + 1;
+  }
+
+  /**
+   * Consume the published entries, in sequence order. Must only be called
+   * by the consumer thread.
+   *
+   * @param handler the handler of each entry, which must not keep it
+   * @param limit the maximum number of entries to consume
+   * @return the number of consumed entries
+   */
+  public int drain(Consumer<E> handler, int limit) {
+    int count = 0;
+    while (count < limit) {
+      int index = (int) consumerSequence & mask;
+      if (sequences.get(index) != consumerSequence + 1) {
+        break;
+      }
+      handler.accept(entries[index]);
+      // Hand the slot back to the producers, one lap later
+      sequences.lazySet(index, consumerSequence + entries.length);
+      consumerSequence++;
+      count++;
+    }
+    return count;
+  }
+}
@@ -0,0 +1,30 @@
+package pfe_broker.market_matcher.sharding;
+
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Spins, yields, then parks the thread for a short time: a good compromise
+ * between latency and CPU usage when the load is irregular.
+ */
+final class SleepingWaitStrategy implements WaitStrategy {
+
+  private static final int SPINS = 100;
+  private static final int YIELDS = 100;
+  private static final long SLEEP_NANOS = 100_000;
+
+  @Override
+  public void waitFor(BooleanSupplier available) {
+    for (int i = 0; i < SPINS + YIELDS; i++) {
+      if (available.getAsBoolean()) {
+        return;
+      }
+      if (i < SPINS) {
+        Thread.onSpinWait();
+      } else {
+        Thread.yield();
+      }
+    }
+    LockSupport.parkNanos(SLEEP_NANOS);
+  }
+}
@@ -0,0 +1,34 @@
+package pfe_broker.market_matcher.sharding;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * How a consumer thread waits for new entries in its ring buffer.
+ *
+ * The strategies trade latency for CPU usage, from the busy spin, which
+ * burns a whole core, to the blocking strategy, which needs the producers
+ * to signal every publication.
+ */
+public interface WaitStrategy {
+  /**
+   * Wait until the condition holds. It may return early, so the consumer
+   * can check whether it has been stopped.
+   *
+   * @param available true when there are entries to consume
+   */
+  void waitFor(BooleanSupplier available);
+
+  /**
+   * Wake up the consumer after a publication.
+   */
+  default void signal() {}
+
+  static WaitStrategy of(WaitStrategyType type) {
+    return switch (type) {
+      case BUSY_SPIN -> new BusySpinWaitStrategy();
+      case YIELDING -> new YieldingWaitStrategy();
+      case SLEEPING -> new SleepingWaitStrategy();
+      case BLOCKING -> new BlockingWaitStrategy();
+    };
+  }
+}
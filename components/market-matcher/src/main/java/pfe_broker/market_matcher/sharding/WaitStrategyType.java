@@ -0,0 +1,8 @@
+package pfe_broker.market_matcher.sharding;
+
+public enum WaitStrategyType {
+  BUSY_SPIN,
+  YIELDING,
+  SLEEPING,
+  BLOCKING,
+}
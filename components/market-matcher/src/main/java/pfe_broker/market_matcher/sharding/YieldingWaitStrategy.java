@@ -0,0 +1,22 @@
+package pfe_broker.market_matcher.sharding;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Spins for a while, then yields the core to the other threads.
+ */
+final class YieldingWaitStrategy implements WaitStrategy {
+
+  private static final int SPINS = 100;
+
+  @Override
+  public void waitFor(BooleanSupplier available) {
+    for (int i = 0; i < SPINS; i++) {
+      if (available.getAsBoolean()) {
+        return;
+      }
+      Thread.onSpinWait();
+    }
+    Thread.yield();
+  }
+}
@@ -1,6 +1,7 @@
 package pfe_broker.market_matcher;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.awaitility.Awaitility.await;
 
 import io.micronaut.core.annotation.NonNull;
@@ -8,6 +9,8 @@ import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import io.micronaut.test.support.TestPropertyProvider;
 import jakarta.inject.Inject;
 import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,9 +18,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.ExecutionType;
 import pfe_broker.avro.MarketData;
 import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
 import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+import pfe_broker.common.LastRecordCache.LastRecord;
 import pfe_broker.common.utils.KafkaTestContainer;
 import pfe_broker.market_matcher.mocks.MockMarketDataProducer;
 import pfe_broker.market_matcher.mocks.MockOrderProducer;
@@ -37,6 +44,9 @@ class MarketMatcherTest implements TestPropertyProvider {
   @Inject
   MarketMatcher marketMatcher;
 
+  @Inject
+  MarketDataConsumer marketDataConsumer;
+
   private final float closeValue = 100.0f;
 
   @Override
@@ -67,6 +77,12 @@ class MarketMatcherTest implements TestPropertyProvider {
         .setVolume(10)
         .build()
     );
+
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(marketDataConsumer.readLastStockData("AAPL")).isNotNull();
+      });
   }
 
   @BeforeEach
@@ -83,7 +99,14 @@ class MarketMatcherTest implements TestPropertyProvider {
     // Assert that AAPL is in the list of symbols of the order consumer
     assertThat(marketMatcher.symbols).contains("AAPL");
     // Given
-    Order order = new Order("user", "AAPL", 10, Side.BUY);
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
 
     // When
     mockOrderProducer.sendOrder("user", order);
@@ -96,8 +119,275 @@ class MarketMatcherTest implements TestPropertyProvider {
         assertThat(mockTradeListener.trades).hasSize(1);
         assertThat(mockTradeListener.trades.get(0).getOrder()).isEqualTo(order);
         assertThat(mockTradeListener.trades.get(0).getPrice())
-          .isEqualTo(closeValue);
+          .isEqualTo(10000L);
+      });
+  }
+
+  @Test
+  void testLimitOrderMatching(
+    MockTradeListener mockTradeListener,
+    MockOrderProducer mockOrderProducer
+  ) {
+    // Given
+    Order sellOrder = new Order(
+      "seller",
+      "AAPL",
+      5,
+      Side.SELL,
+      OrderType.LIMIT,
+      12000L
+    );
+    Order buyOrder = new Order(
+      "buyer",
+      "AAPL",
+      5,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+
+    // When
+    mockOrderProducer.sendOrder("seller", sellOrder);
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(marketMatcher.getOrderBook("AAPL")).isNotNull();
+        assertThat(marketMatcher.getOrderBook("AAPL").orderCount())
+          .isEqualTo(1);
+      });
+    // The resting order is acknowledged
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() ->
+        assertThat(mockTradeListener.trades)
+          .extracting(Trade::getType)
+          .containsExactly(ExecutionType.NEW)
+      );
+
+    // When
+    mockOrderProducer.sendOrder("buyer", buyOrder);
+
+    // Then
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        // A single trade carries both sides of the fill
+        assertThat(fills(mockTradeListener)).hasSize(1);
+        Trade trade = fills(mockTradeListener).get(0);
+        assertThat(trade.getOrder()).isEqualTo(buyOrder);
+        assertThat(trade.getCounterpartyOrder()).isEqualTo(sellOrder);
+        assertThat(trade.getCounterpartyKey().toString()).isEqualTo("seller");
+        assertThat(trade.getPrice()).isEqualTo(12000L);
+        assertThat(trade.getQuantity()).isEqualTo(5);
+        assertThat(trade.getCounterpartyCumulativeQuantity()).isEqualTo(5);
       });
+    assertThat(marketMatcher.getOrderBook("AAPL").orderCount()).isZero();
+  }
+
+  @Test
+  void testPartialFills(
+    MockTradeListener mockTradeListener,
+    MockOrderProducer mockOrderProducer
+  ) {
+    // Given
+    Order sellOrder = new Order(
+      "seller",
+      "AAPL",
+      10,
+      Side.SELL,
+      OrderType.LIMIT,
+      12000L
+    );
+    Order firstBuyOrder = new Order(
+      "buyer",
+      "AAPL",
+      4,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Order secondBuyOrder = new Order(
+      "buyer",
+      "AAPL",
+      6,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+
+    // When
+    mockOrderProducer.sendOrder("seller", sellOrder);
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(marketMatcher.getOrderBook("AAPL")).isNotNull();
+        assertThat(marketMatcher.getOrderBook("AAPL").orderCount())
+          .isEqualTo(1);
+      });
+    mockOrderProducer.sendOrder("buyer", firstBuyOrder);
+    mockOrderProducer.sendOrder("buyer", secondBuyOrder);
+
+    // Then
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> assertThat(fills(mockTradeListener)).hasSize(2));
+    // The trades of the resting order carry its fills so far
+    assertThat(fills(mockTradeListener))
+      .extracting(
+        trade -> trade.getCounterpartyCumulativeQuantity(),
+        trade -> trade.getCounterpartyCumulativeAmount()
+      )
+      .containsExactly(tuple(4, 48000L), tuple(10, 120000L));
+    assertThat(fills(mockTradeListener))
+      .filteredOn(trade -> trade.getOrder().equals(secondBuyOrder))
+      .extracting(trade -> trade.getCumulativeQuantity())
+      .containsExactly(6);
+  }
+
+  @Test
+  void testRestingOrdersAreRestored(
+    MockTradeListener mockTradeListener,
+    MockOrderProducer mockOrderProducer
+  ) {
+    // Given
+    Order sellOrder = new Order(
+      "seller",
+      "AAPL",
+      3,
+      Side.SELL,
+      OrderType.LIMIT,
+      13000L
+    );
+    Order buyOrder = new Order(
+      "buyer",
+      "AAPL",
+      2,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    mockOrderProducer.sendOrder("seller", sellOrder);
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(marketMatcher.getOrderBook("AAPL")).isNotNull();
+        assertThat(marketMatcher.getOrderBook("AAPL").orderCount())
+          .isEqualTo(1);
+      });
+
+    // When the books are read back from the changelog
+    marketMatcher.restoreBooks();
+
+    // Then
+    assertThat(marketMatcher.getOrderBook("AAPL").orderCount()).isEqualTo(1);
+
+    // When
+    mockOrderProducer.sendOrder("buyer", buyOrder);
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> assertThat(fills(mockTradeListener)).hasSize(1));
+    marketMatcher.restoreBooks();
+    mockOrderProducer.sendOrder(
+      "buyer",
+      new Order("buyer", "AAPL", 1, Side.BUY, OrderType.MARKET, 0L)
+    );
+
+    // Then the partially filled order kept its fills
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> assertThat(fills(mockTradeListener)).hasSize(2));
+    assertThat(fills(mockTradeListener))
+      .extracting(
+        trade -> trade.getCounterpartyCumulativeQuantity(),
+        trade -> trade.getCounterpartyCumulativeAmount()
+      )
+      .containsExactly(tuple(2, 26000L), tuple(3, 39000L));
+
+    // The filled order has left the book for good
+    marketMatcher.restoreBooks();
+    assertThat(marketMatcher.getOrderBook("AAPL")).isNull();
+  }
+
+  @Test
+  void testRestingOrderIsCanceled(
+    MockTradeListener mockTradeListener,
+    MockOrderProducer mockOrderProducer
+  ) {
+    // Given
+    Order sellOrder = new Order(
+      "canceler",
+      "AAPL",
+      3,
+      Side.SELL,
+      OrderType.LIMIT,
+      14000L
+    );
+    Order cancel = new Order(
+      "canceler",
+      "AAPL",
+      3,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+    mockOrderProducer.sendOrder("canceler:1:1", sellOrder);
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(marketMatcher.getOrderBook("AAPL")).isNotNull();
+        assertThat(marketMatcher.getOrderBook("AAPL").orderCount())
+          .isEqualTo(1);
+      });
+
+    // When
+    mockOrderProducer.sendCancel("canceler:1:1", cancel, "2");
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() ->
+        assertThat(marketMatcher.getOrderBook("AAPL").orderCount()).isZero()
+      );
+    // The order has left the book for good
+    marketMatcher.restoreBooks();
+    assertThat(marketMatcher.getOrderBook("AAPL")).isNull();
+
+    // When the order is canceled again
+    mockOrderProducer.sendCancel("canceler:1:1", cancel, "3");
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() ->
+        assertThat(mockTradeListener.trades)
+          .extracting(
+            Trade::getType,
+            trade -> trade.getQuantity(),
+            trade -> String.valueOf(trade.getCancelClOrdId())
+          )
+          .containsExactly(
+            tuple(ExecutionType.NEW, 0, "null"),
+            tuple(ExecutionType.CANCELED, 3, "2"),
+            tuple(ExecutionType.CANCEL_REJECTED, 0, "3")
+          )
+      );
+  }
+
+  @Test
+  void testMarketDataCache() {
+    LastRecord<MarketData> tick = marketDataConsumer.getLastRecord("AAPL");
+
+    assertThat(tick).isNotNull();
+    assertThat(tick.value().getClose()).isEqualTo(closeValue);
+    assertThat(tick.staleness()).isPositive();
+    assertThat(tick.lastUpdate()).isBeforeOrEqualTo(Instant.now());
+    assertThat(marketDataConsumer.getLastRecord("UNKNOWN")).isNull();
   }
 
   @Test
@@ -106,7 +396,14 @@ class MarketMatcherTest implements TestPropertyProvider {
     MockOrderProducer mockOrderProducer
   ) {
     // Given
-    Order order = new Order("user", "UNKNOWN", 10, Side.BUY);
+    Order order = new Order(
+      "user",
+      "UNKNOWN",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
 
     // When
     mockOrderProducer.sendOrder("user", order);
@@ -119,4 +416,14 @@ class MarketMatcherTest implements TestPropertyProvider {
         assertThat(mockTradeListener.trades).isEmpty();
       });
   }
+
+  /**
+   * @return the trades received, without the reports of the orders
+   */
+  private static List<Trade> fills(MockTradeListener mockTradeListener) {
+    return mockTradeListener.trades
+      .stream()
+      .filter(trade -> trade.getType() == ExecutionType.TRADE)
+      .toList();
+  }
 }
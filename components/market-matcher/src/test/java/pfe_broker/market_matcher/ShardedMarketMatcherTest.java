@@ -0,0 +1,173 @@
+package pfe_broker.market_matcher;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.awaitility.Awaitility.await;
+
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.MarketData;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.market_matcher.mocks.MockMarketDataProducer;
+import pfe_broker.market_matcher.mocks.MockOrderProducer;
+import pfe_broker.market_matcher.mocks.MockTradeListener;
+import pfe_broker.market_matcher.sharding.WaitStrategy;
+import pfe_broker.market_matcher.sharding.WaitStrategyType;
+
+@MicronautTest(transactional = false)
+@Property(name = "market-matcher.sharding.enabled", value = "true")
+@Property(name = "market-matcher.sharding.threads", value = "2")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ShardedMarketMatcherTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Inject
+  MarketMatcher marketMatcher;
+
+  @Inject
+  MarketDataConsumer marketDataConsumer;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl()
+    );
+  }
+
+  @BeforeAll
+  void setup(MockMarketDataProducer mockMarketDataProducer) {
+    mockMarketDataProducer.sendMarketData(
+      MarketData
+        .newBuilder()
+        .setClose(100.0f)
+        .setHigh(110.0f)
+        .setLow(90.0f)
+        .setOpen(95.0f)
+        .setVolume(10)
+        .build()
+    );
+
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(marketDataConsumer.readLastStockData("AAPL")).isNotNull();
+      });
+  }
+
+  @BeforeEach
+  void reset(MockTradeListener mockTradeListener) {
+    marketMatcher.retreiveSymbols();
+    mockTradeListener.trades.clear();
+  }
+
+  @Test
+  void testLimitOrderMatching(
+    MockTradeListener mockTradeListener,
+    MockOrderProducer mockOrderProducer
+  ) {
+    // Given
+    Order sellOrder = new Order(
+      "seller",
+      "AAPL",
+      5,
+      Side.SELL,
+      OrderType.LIMIT,
+      12000L
+    );
+    Order buyOrder = new Order(
+      "buyer",
+      "AAPL",
+      5,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+
+    // When
+    mockOrderProducer.sendOrder("seller", sellOrder);
+    await()
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(marketMatcher.getOrderBook("AAPL")).isNotNull();
+        assertThat(marketMatcher.getOrderBook("AAPL").orderCount())
+          .isEqualTo(1);
+      });
+    mockOrderProducer.sendOrder("buyer", buyOrder);
+
+    // Then
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        // The resting order is acknowledged, then filled
+        assertThat(mockTradeListener.trades)
+          .extracting(Trade::getType)
+          .containsExactlyInAnyOrder(ExecutionType.NEW, ExecutionType.TRADE);
+        assertThat(mockTradeListener.trades)
+          .filteredOn(trade -> trade.getType() == ExecutionType.TRADE)
+          .extracting(
+            Trade::getOrder,
+            Trade::getCounterpartyOrder,
+            Trade::getPrice
+          )
+          .containsExactly(tuple(buyOrder, sellOrder, 12000L));
+      });
+    assertThat(marketMatcher.getOrderBook("AAPL").orderCount()).isZero();
+  }
+
+  @Test
+  void testPublishToStoppedShard() {
+    MatcherShard shard = new MatcherShard(
+      "stopped-shard",
+      2,
+      WaitStrategy.of(WaitStrategyType.SLEEPING),
+      event -> {}
+    );
+    RestingOrder order = new RestingOrder(
+      "user",
+      "0-0",
+      0,
+      0L,
+      new Order("user", "AAPL", 10, Side.BUY, OrderType.MARKET, 0L)
+    );
+
+    // Never started, or stopped: the order would never be matched
+    assertThatThrownBy(() -> shard.publish(order, null))
+      .isInstanceOf(IllegalStateException.class);
+
+    shard.start();
+    shard.stop();
+    assertThat(shard.isRunning()).isFalse();
+    assertThatThrownBy(() -> shard.publish(order, null))
+      .isInstanceOf(IllegalStateException.class);
+  }
+}
@@ -3,10 +3,19 @@ package pfe_broker.market_matcher.mocks;
 import io.micronaut.configuration.kafka.annotation.KafkaClient;
 import io.micronaut.configuration.kafka.annotation.KafkaKey;
 import io.micronaut.configuration.kafka.annotation.Topic;
+import io.micronaut.messaging.annotation.MessageHeader;
 import pfe_broker.avro.Order;
+import pfe_broker.common.OrderCancel;
 
 @KafkaClient
 public interface MockOrderProducer {
   @Topic("${kafka.topics.accepted-orders}")
   void sendOrder(@KafkaKey String key, Order order);
+
+  @Topic("${kafka.topics.accepted-orders}")
+  void sendCancel(
+    @KafkaKey String key,
+    Order order,
+    @MessageHeader(OrderCancel.CL_ORD_ID_HEADER) String clOrdId
+  );
 }
@@ -0,0 +1,101 @@
+package pfe_broker.market_matcher.orderbook;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pfe_broker.avro.Side;
+
+class OrderBookTest {
+
+  private record Fill(String maker, long price, int quantity) {}
+
+  private OrderBook<String> orderBook;
+  private List<Fill> fills;
+
+  @BeforeEach
+  void setup() {
+    orderBook = new OrderBook<>(2);
+    fills = new ArrayList<>();
+  }
+
+  private int match(Side side, long limitPrice, int quantity) {
+    return orderBook.match(
+      side,
+      limitPrice,
+      quantity,
+      (maker, price, filled) -> fills.add(new Fill(maker, price, filled))
+    );
+  }
+
+  @Test
+  void testPriceTimePriority() {
+    orderBook.add(Side.SELL, 101, 10, "first");
+    orderBook.add(Side.SELL, 100, 10, "second");
+    orderBook.add(Side.SELL, 100, 10, "third");
+
+    int remaining = match(Side.BUY, 101, 25);
+
+    assertThat(remaining).isZero();
+    assertThat(fills)
+      .containsExactly(
+        new Fill("second", 100, 10),
+        new Fill("third", 100, 10),
+        new Fill("first", 101, 5)
+      );
+    assertThat(orderBook.bestAsk()).isEqualTo(101);
+    assertThat(orderBook.volumeAt(Side.SELL, 101)).isEqualTo(5);
+    assertThat(orderBook.orderCount()).isEqualTo(1);
+  }
+
+  @Test
+  void testLimitPriceIsRespected() {
+    orderBook.add(Side.BUY, 99, 10, "bid");
+    orderBook.add(Side.BUY, 98, 10, "lowerBid");
+
+    int remaining = match(Side.SELL, 99, 15);
+
+    assertThat(remaining).isEqualTo(5);
+    assertThat(fills).containsExactly(new Fill("bid", 99, 10));
+    assertThat(orderBook.bestBid()).isEqualTo(98);
+    assertThat(orderBook.levelCount(Side.BUY)).isEqualTo(1);
+  }
+
+  @Test
+  void testMarketOrderSweepsTheBook() {
+    orderBook.add(Side.BUY, 99, 10, "bid");
+    orderBook.add(Side.BUY, 50, 10, "lowerBid");
+
+    int remaining = match(Side.SELL, OrderBook.marketPrice(Side.SELL), 30);
+
+    assertThat(remaining).isEqualTo(10);
+    assertThat(fills).hasSize(2);
+    assertThat(orderBook.bestBid()).isEqualTo(OrderBook.NO_PRICE);
+    assertThat(orderBook.orderCount()).isZero();
+  }
+
+  @Test
+  void testCancel() {
+    int first = orderBook.add(Side.SELL, 100, 10, "first");
+    orderBook.add(Side.SELL, 100, 10, "second");
+    int third = orderBook.add(Side.SELL, 102, 10, "third");
+
+    assertThat(orderBook.cancel(first)).isTrue();
+    assertThat(orderBook.cancel(first)).isFalse();
+    assertThat(orderBook.cancel(third)).isTrue();
+    assertThat(orderBook.levelCount(Side.SELL)).isEqualTo(1);
+
+    match(Side.BUY, OrderBook.marketPrice(Side.BUY), 10);
+
+    assertThat(fills).containsExactly(new Fill("second", 100, 10));
+    assertThat(orderBook.orderCount()).isZero();
+  }
+
+  @Test
+  void testPriceConversion() {
+    assertThat(OrderBook.toTicks(123.45)).isEqualTo(12345);
+    assertThat(OrderBook.toPrice(12345)).isEqualTo(123.45);
+  }
+}
@@ -0,0 +1,72 @@
+package pfe_broker.market_matcher.sharding;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RingBufferTest {
+
+  private static class Entry {
+
+    int value;
+  }
+
+  private void publish(RingBuffer<Entry> ringBuffer, int value) {
+    long sequence = ringBuffer.tryClaim();
+    assertThat(sequence).isNotNegative();
+    ringBuffer.get(sequence).value = value;
+    ringBuffer.publish(sequence);
+  }
+
+  @Test
+  void testEntriesAreConsumedInOrder() {
+    RingBuffer<Entry> ringBuffer = new RingBuffer<>(4, Entry::new);
+    List<Integer> values = new ArrayList<>();
+
+    for (int lap = 0; lap < 3; lap++) {
+      for (int i = 0; i < 4; i++) {
+        publish(ringBuffer, lap * 4 + i);
+      }
+      assertThat(ringBuffer.drain(entry -> values.add(entry.value), 10))
+        .isEqualTo(4);
+    }
+
+    assertThat(values).hasSize(12).isSorted();
+    assertThat(ringBuffer.hasAvailable()).isFalse();
+  }
+
+  @Test
+  void testBufferIsBounded() {
+    RingBuffer<Entry> ringBuffer = new RingBuffer<>(2, Entry::new);
+
+    publish(ringBuffer, 1);
+    publish(ringBuffer, 2);
+
+    assertThat(ringBuffer.tryClaim()).isEqualTo(-1);
+    assertThat(ringBuffer.drain(entry -> {}, 1)).isEqualTo(1);
+    assertThat(ringBuffer.tryClaim()).isEqualTo(2);
+  }
+
+  @Test
+  void testUnpublishedEntryIsNotConsumed() {
+    RingBuffer<Entry> ringBuffer = new RingBuffer<>(4, Entry::new);
+
+    long claimed = ringBuffer.tryClaim();
+    publish(ringBuffer, 2);
+
+    assertThat(ringBuffer.hasAvailable()).isFalse();
+    assertThat(ringBuffer.drain(entry -> {}, 10)).isZero();
+
+    ringBuffer.publish(claimed);
+    assertThat(ringBuffer.drain(entry -> {}, 10)).isEqualTo(2);
+  }
+
+  @Test
+  void testCapacityMustBeAPowerOfTwo() {
+    assertThatThrownBy(() -> new RingBuffer<>(3, Entry::new))
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+}
@@ -0,0 +1,62 @@
+package pfe_broker.order_stream;
+
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueStore;
+
+/**
+ * Apply the changes of the accounts to the position stores.
+ *
+ * Each change is published once by the component which has applied it to
+ * Redis, in the same transaction as its other outputs: the seeds of the
+ * warm-up, the stocks reserved by the accepted SELL orders, and the
+ * settlements of trade-stream. The records are keyed like the Redis keys,
+ * username:balance for the cash and username:SYMBOL for the stocks, with
+ * the amount added as value, so the stores hold the sums of the changes,
+ * the values of Redis once all of them are applied.
+ */
+public class AccountChangeProcessor
+  implements Processor<String, Long, Void, Void> {
+
+  private KeyValueStore<String, Long> positions;
+  private KeyValueStore<String, Long> balances;
+
+  @Override
+  public void init(ProcessorContext<Void, Void> context) {
+    this.positions = context.getStateStore(PositionStores.POSITIONS);
+    this.balances = context.getStateStore(PositionStores.BALANCES);
+  }
+
+  @Override
+  public void process(Record<String, Long> record) {
+    String key = RekeyProcessor.originalKey(record);
+    String username = username(key);
+
+    if (username.equals(key) || record.value() == null) {
+      return;
+    }
+    if (key.equals(username + ":balance")) {
+      add(balances, username, record.value());
+    } else {
+      add(positions, key, record.value());
+    }
+  }
+
+  private static void add(
+    KeyValueStore<String, Long> store,
+    String key,
+    long change
+  ) {
+    Long value = store.get(key);
+    store.put(key, (value == null ? 0 : value) + change);
+  }
+
+  /**
+   * @return the username of an account-changes key
+   */
+  static String username(String key) {
+    int separator = key.indexOf(':');
+    return separator < 0 ? key : key.substring(0, separator);
+  }
+}
@@ -7,6 +7,7 @@ import io.micronaut.context.annotation.Requires;
 import org.apache.kafka.clients.admin.AdminClient;
 import org.apache.kafka.clients.admin.CreateTopicsOptions;
 import org.apache.kafka.clients.admin.NewTopic;
+import pfe_broker.common.SymbolReader;
 
 @Requires(bean = AdminClient.class)
 @Factory
@@ -29,9 +30,22 @@ public class BeanFactory {
 
   @Bean
   NewTopic acceptedOrdersTopic(
-    @Property(name = "kafka.topics.accepted-orders") String topicName
+    @Property(name = "kafka.topics.accepted-orders") String topicName,
+    @Property(
+      name = "kafka.common.partition-orders-by-symbol"
+    ) boolean partitionOrdersBySymbol,
+    @Property(name = "kafka.common.symbol-partitions") int symbolPartitions,
+    SymbolReader symbolReader
   ) {
-    return new NewTopic(topicName, 2, (short) 1);
+    int partitions = 2;
+    if (partitionOrdersBySymbol) {
+      // One partition per symbol spreads the symbols over the matchers
+      partitions =
+        symbolPartitions > 0
+          ? symbolPartitions
+          : Math.max(partitions, symbolReader.getSymbols().size());
+    }
+    return new NewTopic(topicName, partitions, (short) 1);
   }
 
   @Bean
@@ -40,4 +54,12 @@ public class BeanFactory {
   ) {
     return new NewTopic(topicName, 2, (short) 1);
   }
+
+  @Bean
+  @Requires(property = "kafka.common.account-changes", value = "true")
+  NewTopic accountChangesTopic(
+    @Property(name = "kafka.topics.account-changes") String topicName
+  ) {
+    return new NewTopic(topicName, 2, (short) 1);
+  }
 }
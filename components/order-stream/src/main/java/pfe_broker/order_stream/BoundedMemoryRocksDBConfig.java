@@ -0,0 +1,67 @@
+package pfe_broker.order_stream;
+
+import java.util.Map;
+import org.apache.kafka.streams.state.RocksDBConfigSetter;
+import org.rocksdb.BlockBasedTableConfig;
+import org.rocksdb.Cache;
+import org.rocksdb.LRUCache;
+import org.rocksdb.Options;
+import org.rocksdb.WriteBufferManager;
+
+/**
+ * Bound the off-heap memory used by all the RocksDB stores of the instance.
+ *
+ * The stores share one block cache, which also holds the index and filter
+ * blocks, and the memtables are charged to that cache, so the total memory
+ * does not grow with the number of stores and partitions.
+ */
+public class BoundedMemoryRocksDBConfig implements RocksDBConfigSetter {
+
+  public static final String TOTAL_OFF_HEAP_MEMORY_CONFIG =
+    "order-stream.positions.rocksdb.total-off-heap-memory";
+  public static final String TOTAL_MEMTABLE_MEMORY_CONFIG =
+    "order-stream.positions.rocksdb.total-memtable-memory";
+
+  private static final double INDEX_FILTER_BLOCK_RATIO = 0.1;
+
+  private static Cache cache;
+  private static WriteBufferManager writeBufferManager;
+
+  private static synchronized void initialize(Map<String, Object> configs) {
+    if (cache != null) {
+      return;
+    }
+    long totalOffHeapMemory = Long.parseLong(
+      configs.get(TOTAL_OFF_HEAP_MEMORY_CONFIG).toString()
+    );
+    long totalMemtableMemory = Long.parseLong(
+      configs.get(TOTAL_MEMTABLE_MEMORY_CONFIG).toString()
+    );
+    cache =
+      new LRUCache(totalOffHeapMemory, -1, false, INDEX_FILTER_BLOCK_RATIO);
+    writeBufferManager = new WriteBufferManager(totalMemtableMemory, cache);
+  }
+
+  @Override
+  public void setConfig(
+    String storeName,
+    Options options,
+    Map<String, Object> configs
+  ) {
+    initialize(configs);
+
+    BlockBasedTableConfig tableConfig =
+      (BlockBasedTableConfig) options.tableFormatConfig();
+    tableConfig.setBlockCache(cache);
+    tableConfig.setCacheIndexAndFilterBlocks(true);
+    tableConfig.setCacheIndexAndFilterBlocksWithHighPriority(true);
+    tableConfig.setPinTopLevelIndexAndFilter(true);
+    options.setWriteBufferManager(writeBufferManager);
+    options.setTableFormatConfig(tableConfig);
+  }
+
+  @Override
+  public void close(String storeName, Options options) {
+    // The cache and the write buffer manager are shared by all the stores
+  }
+}
@@ -0,0 +1,219 @@
+package pfe_broker.order_stream;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.Cancellable;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderRejectReason;
+import pfe_broker.common.OrderCancel;
+import pfe_broker.common.PendingRecord;
+
+/**
+ * Check the integrity of the orders with pipelined Redis commands.
+ *
+ * The reservation of each order is queued on a connection which does not
+ * flush automatically. The queued commands are sent together when the batch
+ * is full or when the punctuator fires, so a batch costs a single round
+ * trip. The orders are partitioned by username, so the reservations of an
+ * account are all sent by the same processor, in the order of its orders.
+ *
+ * The orders are kept in a changelogged store, {@link #PENDING_ORDERS_STORE},
+ * until their result is forwarded, and removed in the same transaction. An
+ * order received before a commit is therefore checked by the next owner of
+ * the task after a crash or a rebalance, and a reservation sent again gets
+ * the result recorded by the first one, see
+ * {@link OrderIntegrityCheckService#reserveStockAsync}.
+ *
+ * The stream thread never waits for Redis: the punctuator forwards the
+ * results which have arrived, in the order of the records, and the next
+ * ones on a later punctuation. An order waits at most the configured
+ * latency, plus the round trip and one more punctuation, before being
+ * forwarded.
+ */
+public class OrderIntegrityCheckProcessor
+  implements Processor<String, Order, String, OrderIntegrityCheckRecord> {
+
+  public static final String PENDING_ORDERS_STORE = "pending-orders";
+
+  private final OrderIntegrityCheckService integrityCheckService;
+  private final int maxBatchSize;
+  private final Duration maxLatency;
+  // Results of the orders whose checks have been sent, by sequence number
+  private final Map<Long, CompletableFuture<OrderRejectReason>> sentChecks =
+    new HashMap<>();
+
+  private ProcessorContext<String, OrderIntegrityCheckRecord> context;
+  private KeyValueStore<Long, PendingRecord<Order>> pendingOrders;
+  private StatefulRedisConnection<String, String> redisConnection;
+  private Cancellable punctuator;
+  private long nextSequence;
+  private int unsentCount;
+
+  public OrderIntegrityCheckProcessor(
+    OrderIntegrityCheckService integrityCheckService,
+    int maxBatchSize,
+    Duration maxLatency
+  ) {
+    this.integrityCheckService = integrityCheckService;
+    this.maxBatchSize = maxBatchSize;
+    this.maxLatency = maxLatency;
+  }
+
+  @Override
+  public void init(
+    ProcessorContext<String, OrderIntegrityCheckRecord> context
+  ) {
+    this.context = context;
+    this.pendingOrders = context.getStateStore(PENDING_ORDERS_STORE);
+    this.redisConnection = integrityCheckService.connectPipelined();
+
+    // The orders left by the previous owner of the task are checked first
+    try (
+      KeyValueIterator<Long, PendingRecord<Order>> iterator =
+        pendingOrders.all()
+    ) {
+      while (iterator.hasNext()) {
+        nextSequence = iterator.next().key + 1;
+        unsentCount++;
+      }
+    }
+
+    this.punctuator =
+      context.schedule(
+        maxLatency,
+        PunctuationType.WALL_CLOCK_TIME,
+        timestamp -> {
+          send();
+          forwardCompleted();
+        }
+      );
+  }
+
+  @Override
+  public void process(Record<String, Order> record) {
+    pendingOrders.put(
+      nextSequence++,
+      new PendingRecord<>(
+        record.key(),
+        record.value(),
+        record.timestamp(),
+        record.headers()
+      )
+    );
+    unsentCount++;
+    if (unsentCount >= maxBatchSize) {
+      send();
+    }
+  }
+
+  /**
+   * Queue the checks of the orders not sent yet, and send them together.
+   */
+  private void send() {
+    if (unsentCount == 0) {
+      return;
+    }
+    try (
+      KeyValueIterator<Long, PendingRecord<Order>> iterator =
+        pendingOrders.all()
+    ) {
+      while (iterator.hasNext()) {
+        KeyValue<Long, PendingRecord<Order>> pending = iterator.next();
+        if (!sentChecks.containsKey(pending.key)) {
+          sentChecks.put(pending.key, check(pending.value));
+        }
+      }
+    }
+    redisConnection.flushCommands();
+    unsentCount = 0;
+  }
+
+  private CompletableFuture<OrderRejectReason> check(
+    PendingRecord<Order> pending
+  ) {
+    // A cancel request reserves nothing, the market-matcher checks it
+    // against the order it cancels
+    if (OrderCancel.clOrdId(pending.headers()) != null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    Order order = pending.value();
+    OrderRejectReason rejectReason = integrityCheckService.validate(order);
+    if (rejectReason != null) {
+      return CompletableFuture.completedFuture(rejectReason);
+    }
+    return integrityCheckService
+      .reserveStockAsync(redisConnection.async(), originalKey(pending), order)
+      .toCompletableFuture();
+  }
+
+  /**
+   * Forward the results which have arrived, up to the first order still
+   * waiting for its result, so the orders are forwarded in sequence.
+   */
+  private void forwardCompleted() {
+    List<KeyValue<Long, PendingRecord<Order>>> completed = new ArrayList<>();
+    try (
+      KeyValueIterator<Long, PendingRecord<Order>> iterator =
+        pendingOrders.all()
+    ) {
+      while (iterator.hasNext()) {
+        KeyValue<Long, PendingRecord<Order>> pending = iterator.next();
+        CompletableFuture<OrderRejectReason> result = sentChecks.get(
+          pending.key
+        );
+        if (result == null || !result.isDone()) {
+          break;
+        }
+        completed.add(pending);
+      }
+    }
+
+    for (KeyValue<Long, PendingRecord<Order>> pending : completed) {
+      // Completed, a failed check is raised on the stream thread
+      OrderRejectReason rejectReason = sentChecks.remove(pending.key).join();
+      PendingRecord<Order> record = pending.value;
+      context.forward(
+        RekeyProcessor.restoreKey(
+          new Record<>(
+            record.key(),
+            new OrderIntegrityCheckRecord(record.value(), rejectReason),
+            record.timestamp(),
+            record.headers()
+          )
+        )
+      );
+      pendingOrders.delete(pending.key);
+    }
+  }
+
+  private static String originalKey(PendingRecord<Order> pending) {
+    return RekeyProcessor.originalKey(
+      new Record<>(
+        pending.key(),
+        pending.value(),
+        pending.timestamp(),
+        pending.headers()
+      )
+    );
+  }
+
+  @Override
+  public void close() {
+    // The pending orders stay in the store for the next owner of the task,
+    // which sends their checks again
+    punctuator.cancel();
+    redisConnection.close();
+  }
+}
@@ -1,19 +1,23 @@
 package pfe_broker.order_stream;
 
 import io.lettuce.core.RedisClient;
+import io.lettuce.core.ScriptOutputType;
 import io.lettuce.core.api.StatefulRedisConnection;
-import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.api.async.RedisAsyncCommands;
 import io.micronaut.context.annotation.Property;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletionStage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pfe_broker.avro.Order;
 import pfe_broker.avro.OrderRejectReason;
-import pfe_broker.avro.Side;
+import pfe_broker.avro.OrderType;
+import pfe_broker.common.RedisScript;
 import pfe_broker.common.SymbolReader;
 import pfe_broker.common.UtilsRunning;
 
@@ -33,7 +37,12 @@ public class OrderIntegrityCheckService {
   @Property(name = "redis.uri")
   private String redisUri;
 
-  private StatefulRedisConnection<String, String> redisConnection;
+  @Property(name = "order-stream.reserved-orders-ttl")
+  private Duration reservedOrdersTtl;
+
+  private final RedisScript reserveStockScript = RedisScript.fromResource(
+    "lua/reserve-stock.lua"
+  );
 
   private List<String> symbols = new ArrayList<>();
 
@@ -44,67 +53,77 @@ public class OrderIntegrityCheckService {
     } else {
       LOG.error("Kafka is not running");
     }
-    if (this.isRedisRunning()) {
-      this.redisConnection = redisClient.connect();
-    } else {
+    if (!this.isRedisRunning()) {
       LOG.error("Redis is not running");
     }
   }
 
-  private boolean verifyUserExistInRedis(String username) {
-    return redisConnection.sync().exists(username + ":balance") == 1;
-  }
-
-  private OrderRejectReason marketOrderCheckIntegrity(Order order) {
-    RedisCommands<String, String> syncCommands = redisConnection.sync();
-
+  private String[] reservationKeys(String key, Order order) {
     String username = order.getUsername().toString();
     String symbol = order.getSymbol().toString();
-    Integer quantity = order.getQuantity();
-    Side side = order.getSide();
-
-    String stockKey = username + ":" + symbol;
+    return new String[] {
+      username + ":balance",
+      username + ":" + symbol,
+      "reserved-order:" + key,
+    };
+  }
 
-    if (side == Side.BUY) {
-      return null;
-    }
+  private String[] reservationArgs(Order order) {
+    return new String[] {
+      String.valueOf(order.getQuantity()),
+      order.getSide().toString(),
+      String.valueOf(reservedOrdersTtl.toSeconds()),
+    };
+  }
 
-    syncCommands.watch(stockKey);
-    int countdown = 10;
-    while (countdown-- > 0) {
-      String stockQuantityString = syncCommands.get(stockKey);
-      if (stockQuantityString == null || stockQuantityString.isEmpty()) {
-        LOG.debug(
-          "Order {} rejected because of insufficient stocks (entry does not exist)",
-          order
+  /**
+   * Check that the account exists and reserve the stocks of a SELL order,
+   * atomically. The script is sent when the commands of the connection are
+   * flushed. An order which has already been checked is not reserved again,
+   * its recorded result is returned.
+   *
+   * @param key the key of the order, username:ClOrdID:OrderID
+   * @return the reason to reject the order with, null if it is accepted
+   */
+  public CompletionStage<OrderRejectReason> reserveStockAsync(
+    RedisAsyncCommands<String, String> commands,
+    String key,
+    Order order
+  ) {
+    return reserveStockScript
+      .<Long>evalAsync(
+        commands,
+        ScriptOutputType.INTEGER,
+        reservationKeys(key, order),
+        reservationArgs(order)
+      )
+      .thenApply(code -> {
+        StockReservationResult reservation = StockReservationResult.fromCode(
+          code
         );
-        syncCommands.unwatch();
-        return OrderRejectReason.INCORRECT_QUANTITY;
-      }
-      Integer stockQuantity = Integer.parseInt(stockQuantityString);
-      if (stockQuantity < quantity) {
-        LOG.debug("Order {} rejected because of insufficient stocks", order);
-        syncCommands.unwatch();
-        return OrderRejectReason.INCORRECT_QUANTITY;
-      }
-      syncCommands.multi();
-      syncCommands.decrby(stockKey, quantity);
-      try {
-        syncCommands.exec();
-        syncCommands.unwatch();
-        return null;
-      } catch (Exception e) {
-        LOG.debug("Retrying order {}", order);
-      }
-    }
-    LOG.debug("Order {} rejected because of insufficient stocks", order);
-    syncCommands.unwatch();
-    return OrderRejectReason.INCORRECT_QUANTITY;
+        LOG.debug("Order {} reservation: {}", order, reservation);
+        return reservation.rejectReason();
+      });
   }
 
-  public OrderRejectReason checkIntegrity(Order order) {
-    LOG.debug("Checking integrity of order {}", order);
+  /**
+   * Open a connection which only sends its commands when they are flushed,
+   * to pipeline the reservations of several orders.
+   */
+  public StatefulRedisConnection<String, String> connectPipelined() {
+    StatefulRedisConnection<String, String> connection =
+      redisClient.connect();
+    reserveStockScript.load(connection.sync());
+    connection.setAutoFlushCommands(false);
+    return connection;
+  }
 
+  /**
+   * Check the fields of an order, without any Redis command.
+   *
+   * @return the reason to reject the order with, null if it is valid
+   */
+  public OrderRejectReason validate(Order order) {
     String username = order.getUsername().toString();
     String symbol = order.getSymbol().toString();
     Integer quantity = order.getQuantity();
@@ -121,20 +140,11 @@ public class OrderIntegrityCheckService {
       LOG.debug("Order {} rejected because of invalid quantity", order);
       return OrderRejectReason.INCORRECT_QUANTITY;
     }
-
-    if (!verifyUserExistInRedis(username)) {
-      LOG.debug("Order {} rejected because of unknown user", order);
-      return OrderRejectReason.UNKNOWN_ACCOUNT;
-    }
-
-    OrderRejectReason marketOrderCheckIntegrityResult =
-      marketOrderCheckIntegrity(order);
-
-    if (marketOrderCheckIntegrityResult == null) {
-      LOG.debug("Market order {} accepted", order);
+    if (order.getType() == OrderType.LIMIT && order.getPrice() <= 0) {
+      LOG.debug("Order {} rejected because of invalid limit price", order);
+      return OrderRejectReason.OTHER;
     }
-
-    return marketOrderCheckIntegrityResult;
+    return null;
   }
 
   /**
@@ -8,6 +8,7 @@ import io.micronaut.context.annotation.Property;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -16,8 +17,11 @@ import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.kstream.Consumed;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.kstream.Repartitioned;
+import org.apache.kafka.streams.state.Stores;
 import pfe_broker.avro.Order;
 import pfe_broker.avro.RejectedOrder;
+import pfe_broker.common.PendingRecord;
 
 @Factory
 public class OrderStream {
@@ -37,6 +41,30 @@ public class OrderStream {
   @Property(name = "kafka.topics.rejected-orders")
   private String rejectedOrdersTopic;
 
+  @Property(name = "order-stream.redis-pipeline.max-batch-size")
+  private int pipelineMaxBatchSize;
+
+  @Property(name = "order-stream.redis-pipeline.max-latency")
+  private Duration pipelineMaxLatency;
+
+  @Property(name = "order-stream.username-partitions")
+  private int usernamePartitions;
+
+  @Property(name = "kafka.common.partition-orders-by-symbol")
+  private boolean partitionOrdersBySymbol;
+
+  @Property(name = "kafka.common.account-changes")
+  private boolean accountChangesEnabled;
+
+  @Property(name = "kafka.topics.account-changes")
+  private String accountChangesTopic;
+
+  @Property(name = "order-stream.positions.rocksdb.total-off-heap-memory")
+  private long rocksDBTotalOffHeapMemory;
+
+  @Property(name = "order-stream.positions.rocksdb.total-memtable-memory")
+  private long rocksDBTotalMemtableMemory;
+
   private final Serdes.StringSerde keySerde = new Serdes.StringSerde();
 
   @Singleton
@@ -57,19 +85,112 @@ public class OrderStream {
       Consumed.with(this.keySerde, this.orderAvroSerde())
     );
 
+    KStream<String, Order> ordersByUsername = repartitionByUsername(
+      orderStream
+    );
+
+    builder.addStateStore(
+      Stores.keyValueStoreBuilder(
+        Stores.inMemoryKeyValueStore(
+          OrderIntegrityCheckProcessor.PENDING_ORDERS_STORE
+        ),
+        Serdes.Long(),
+        PendingRecord.serde(this.orderAvroSerde())
+      )
+    );
     KStream<String, OrderIntegrityCheckRecord> integrityCheckedOrderStream =
-      orderStream.mapValues(order ->
-        new OrderIntegrityCheckRecord(
-          order,
-          integrityCheckService.checkIntegrity(order)
-        )
+      ordersByUsername.process(
+        () ->
+          new OrderIntegrityCheckProcessor(
+            integrityCheckService,
+            pipelineMaxBatchSize,
+            pipelineMaxLatency
+          ),
+        OrderIntegrityCheckProcessor.PENDING_ORDERS_STORE
       );
 
     processAcceptedAndRejectedOrders(integrityCheckedOrderStream);
 
+    if (accountChangesEnabled) {
+      keepPositionsInStateStores(builder, props);
+    }
+
     return orderStream;
   }
 
+  /**
+   * The orders are keyed by username:ClOrdID:OrderID, so the orders of a
+   * user are spread over all the partitions. Partition them by username
+   * instead, so each account has a single writer, which checks its orders in
+   * sequence.
+   * The original key is restored once the orders are checked.
+   */
+  private KStream<String, Order> repartitionByUsername(
+    KStream<String, Order> orderStream
+  ) {
+    return orderStream
+      .process(() ->
+        new RekeyProcessor<Order>((key, order) ->
+          order.getUsername().toString()
+        )
+      )
+      .repartition(
+        Repartitioned
+          .<String, Order>as("orders-by-username")
+          .withKeySerde(keySerde)
+          .withValueSerde(this.orderAvroSerde())
+          .withNumberOfPartitions(usernamePartitions)
+      );
+  }
+
+  /**
+   * Keep a copy of the accounts of Redis in state stores, fed by the
+   * changes published by every component which changes them. The changes
+   * are partitioned by username like the orders, with the same number of
+   * partitions, so each instance holds all the entries of its users, read
+   * with {@link PositionQueryService}.
+   */
+  private void keepPositionsInStateStores(
+    ConfiguredStreamBuilder builder,
+    Properties props
+  ) {
+    props.put(
+      StreamsConfig.ROCKSDB_CONFIG_SETTER_CLASS_CONFIG,
+      BoundedMemoryRocksDBConfig.class
+    );
+    props.put(
+      BoundedMemoryRocksDBConfig.TOTAL_OFF_HEAP_MEMORY_CONFIG,
+      rocksDBTotalOffHeapMemory
+    );
+    props.put(
+      BoundedMemoryRocksDBConfig.TOTAL_MEMTABLE_MEMORY_CONFIG,
+      rocksDBTotalMemtableMemory
+    );
+
+    builder.addStateStore(PositionStores.positionsStore());
+    builder.addStateStore(PositionStores.balancesStore());
+
+    builder
+      .stream(accountChangesTopic, Consumed.with(keySerde, Serdes.Long()))
+      .process(() ->
+        new RekeyProcessor<Long>((key, change) ->
+          AccountChangeProcessor.username(key)
+        )
+      )
+      .repartition(
+        Repartitioned
+          .<String, Long>as("account-changes-by-username")
+          .withKeySerde(keySerde)
+          .withValueSerde(Serdes.Long())
+          .withNumberOfPartitions(usernamePartitions)
+      )
+      .process(
+        AccountChangeProcessor::new,
+        PositionStores.POSITIONS,
+        PositionStores.BALANCES
+      );
+  }
+
   private void processAcceptedAndRejectedOrders(
     KStream<String, OrderIntegrityCheckRecord> integrityCheckedOrdersStream
   ) {
@@ -77,6 +198,22 @@ public class OrderStream {
       .filter((key, value) -> value.orderRejectReason() == null)
       .mapValues(OrderIntegrityCheckRecord::order);
 
+    if (accountChangesEnabled) {
+      // Published in the transaction of the orders, once per reservation
+      acceptedOrders
+        .process(ReservationChangeProcessor::new)
+        .to(accountChangesTopic, Produced.with(keySerde, Serdes.Long()));
+    }
+
+    if (partitionOrdersBySymbol) {
+      acceptedOrders =
+        acceptedOrders.process(() ->
+          new RekeyProcessor<Order>((key, order) ->
+            order.getSymbol().toString()
+          )
+        );
+    }
+
     KStream<String, RejectedOrder> rejectedOrders = integrityCheckedOrdersStream
       .filter((key, value) -> value.orderRejectReason() != null)
       .mapValues(value ->
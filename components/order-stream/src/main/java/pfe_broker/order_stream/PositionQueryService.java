@@ -0,0 +1,69 @@
+package pfe_broker.order_stream;
+
+import io.micronaut.context.annotation.Requires;
+import jakarta.inject.Singleton;
+import java.util.Optional;
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.KafkaStreams;
+import org.apache.kafka.streams.KeyQueryMetadata;
+import org.apache.kafka.streams.StoreQueryParameters;
+import org.apache.kafka.streams.state.QueryableStoreTypes;
+import org.apache.kafka.streams.state.ReadOnlyKeyValueStore;
+
+/**
+ * Interactive queries on the position stores.
+ *
+ * The stores follow the accounts of Redis, behind them by the time the
+ * changes take to be published and applied. A user is only known by the
+ * instance owning the partition of its username, see
+ * {@link #getOwner(String)}.
+ */
+@Singleton
+@Requires(property = "kafka.common.account-changes", value = "true")
+public class PositionQueryService {
+
+  private final KafkaStreams kafkaStreams;
+
+  public PositionQueryService(KafkaStreams kafkaStreams) {
+    this.kafkaStreams = kafkaStreams;
+  }
+
+  /**
+   * @return the quantity of stocks owned by the user, if known locally
+   */
+  public Optional<Long> getPosition(String username, String symbol) {
+    ReadOnlyKeyValueStore<String, Long> positions = kafkaStreams.store(
+      StoreQueryParameters.fromNameAndType(
+        PositionStores.POSITIONS,
+        QueryableStoreTypes.keyValueStore()
+      )
+    );
+    return Optional.ofNullable(
+      positions.get(PositionStores.positionKey(username, symbol))
+    );
+  }
+
+  /**
+   * @return the cash balance of the user, if known locally
+   */
+  public Optional<Double> getBalance(String username) {
+    ReadOnlyKeyValueStore<String, Double> balances = kafkaStreams.store(
+      StoreQueryParameters.fromNameAndType(
+        PositionStores.BALANCES,
+        QueryableStoreTypes.keyValueStore()
+      )
+    );
+    return Optional.ofNullable(balances.get(username));
+  }
+
+  /**
+   * @return the instance holding the positions of the user
+   */
+  public KeyQueryMetadata getOwner(String username) {
+    return kafkaStreams.queryMetadataForKey(
+      PositionStores.POSITIONS,
+      username,
+      Serdes.String().serializer()
+    );
+  }
+}
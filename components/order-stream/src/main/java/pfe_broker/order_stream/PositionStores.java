@@ -0,0 +1,48 @@
+package pfe_broker.order_stream;
+
+import org.apache.kafka.common.serialization.Serdes;
+import org.apache.kafka.streams.state.KeyValueStore;
+import org.apache.kafka.streams.state.StoreBuilder;
+import org.apache.kafka.streams.state.Stores;
+
+/**
+ * State stores holding a copy of the accounts of Redis, kept up to date
+ * with the changes published on the account-changes topic, see
+ * {@link AccountChangeProcessor}. Both stores are backed by RocksDB and a
+ * changelog topic, and are fed by a stream partitioned by username, so a
+ * task owns all the entries of its users.
+ */
+public final class PositionStores {
+
+  /**
+   * Quantity of stocks owned, keyed by username:SYMBOL
+   */
+  public static final String POSITIONS = "positions";
+
+  /**
+   * Cash balance in cents, keyed by username
+   */
+  public static final String BALANCES = "balances";
+
+  private PositionStores() {}
+
+  public static String positionKey(String username, String symbol) {
+    return username + ":" + symbol;
+  }
+
+  static StoreBuilder<KeyValueStore<String, Long>> positionsStore() {
+    return Stores.keyValueStoreBuilder(
+      Stores.persistentKeyValueStore(POSITIONS),
+      Serdes.String(),
+      Serdes.Long()
+    );
+  }
+
+  static StoreBuilder<KeyValueStore<String, Long>> balancesStore() {
+    return Stores.keyValueStoreBuilder(
+      Stores.persistentKeyValueStore(BALANCES),
+      Serdes.String(),
+      Serdes.Long()
+    );
+  }
+}
@@ -0,0 +1,68 @@
+package pfe_broker.order_stream;
+
+import java.nio.charset.StandardCharsets;
+import java.util.function.BiFunction;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import pfe_broker.common.SymbolPartitioning;
+
+/**
+ * Re-key a record, the original key is moved to a header so that it can be
+ * restored later with {@link #restoreKey(Record)}.
+ */
+public class RekeyProcessor<V> implements Processor<String, V, String, V> {
+
+  private final BiFunction<String, V, String> keyMapper;
+  private ProcessorContext<String, V> context;
+
+  public RekeyProcessor(BiFunction<String, V, String> keyMapper) {
+    this.keyMapper = keyMapper;
+  }
+
+  @Override
+  public void init(ProcessorContext<String, V> context) {
+    this.context = context;
+  }
+
+  @Override
+  public void process(Record<String, V> record) {
+    Headers headers = new RecordHeaders(record.headers().toArray());
+    headers
+      .remove(SymbolPartitioning.ORDER_KEY_HEADER)
+      .add(
+        SymbolPartitioning.ORDER_KEY_HEADER,
+        record.key().getBytes(StandardCharsets.UTF_8)
+      );
+
+    context.forward(
+      record
+        .withKey(keyMapper.apply(record.key(), record.value()))
+        .withHeaders(headers)
+    );
+  }
+
+  /**
+   * @return the key of the record before it has been re-keyed
+   */
+  public static String originalKey(Record<String, ?> record) {
+    Header header = record
+      .headers()
+      .lastHeader(SymbolPartitioning.ORDER_KEY_HEADER);
+    return header == null
+      ? record.key()
+      : new String(header.value(), StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @return the record with its original key, without the header
+   */
+  public static <V> Record<String, V> restoreKey(Record<String, V> record) {
+    Headers headers = new RecordHeaders(record.headers().toArray());
+    headers.remove(SymbolPartitioning.ORDER_KEY_HEADER);
+    return record.withKey(originalKey(record)).withHeaders(headers);
+  }
+}
@@ -0,0 +1,49 @@
+package pfe_broker.order_stream;
+
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.Side;
+import pfe_broker.common.OrderCancel;
+
+/**
+ * Publish the stocks reserved in Redis by the accepted orders, see
+ * lua/reserve-stock.lua: an accepted SELL order has taken its quantity
+ * from the stocks of its user, the BUY orders and the cancel requests
+ * reserve nothing.
+ */
+public class ReservationChangeProcessor
+  implements Processor<String, Order, String, Long> {
+
+  private ProcessorContext<String, Long> context;
+
+  @Override
+  public void init(ProcessorContext<String, Long> context) {
+    this.context = context;
+  }
+
+  @Override
+  public void process(Record<String, Order> record) {
+    Order order = record.value();
+    if (
+      order.getSide() != Side.SELL ||
+      OrderCancel.clOrdId(record.headers()) != null
+    ) {
+      return;
+    }
+
+    context.forward(
+      new Record<>(
+        PositionStores.positionKey(
+          order.getUsername().toString(),
+          order.getSymbol().toString()
+        ),
+        (long) -order.getQuantity(),
+        record.timestamp(),
+        new RecordHeaders()
+      )
+    );
+  }
+}
@@ -0,0 +1,37 @@
+package pfe_broker.order_stream;
+
+import pfe_broker.avro.OrderRejectReason;
+
+/**
+ * Result of the stock reservation script, see lua/reserve-stock.lua.
+ */
+public enum StockReservationResult {
+  RESERVED(0, null),
+  UNKNOWN_ACCOUNT(1, OrderRejectReason.UNKNOWN_ACCOUNT),
+  NO_POSITION(2, OrderRejectReason.INCORRECT_QUANTITY),
+  INSUFFICIENT_STOCK(3, OrderRejectReason.INCORRECT_QUANTITY);
+
+  private final long code;
+  private final OrderRejectReason rejectReason;
+
+  StockReservationResult(long code, OrderRejectReason rejectReason) {
+    this.code = code;
+    this.rejectReason = rejectReason;
+  }
+
+  public static StockReservationResult fromCode(long code) {
+    for (StockReservationResult result : values()) {
+      if (result.code == code) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Unknown reservation result: " + code);
+  }
+
+  /**
+   * @return the reason to reject the order with, null if it is accepted
+   */
+  public OrderRejectReason rejectReason() {
+    return rejectReason;
+  }
+}
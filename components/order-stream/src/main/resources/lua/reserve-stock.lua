@@ -0,0 +1,44 @@
+-- Check that the account exists and reserve the stocks sold by an order,
+-- once
+--
+-- KEYS[1]: balance of the user (username:balance)
+-- KEYS[2]: stocks of the symbol owned by the user (username:SYMBOL)
+-- KEYS[3]: result of the reservation of the order (reserved-order:KEY)
+-- ARGV[1]: quantity of the order
+-- ARGV[2]: side of the order, BUY or SELL
+-- ARGV[3]: seconds the result of the reservation is kept
+--
+-- Returns a StockReservationResult code, the recorded one if the order has
+-- already been checked
+
+local reserved = redis.call('GET', KEYS[3])
+if reserved then
+  return tonumber(reserved)
+end
+
+local function reserve()
+  if redis.call('EXISTS', KEYS[1]) == 0 then
+    return 1 -- UNKNOWN_ACCOUNT
+  end
+
+  if ARGV[2] ~= 'SELL' then
+    return 0 -- RESERVED, nothing to reserve for a BUY order
+  end
+
+  local stock = redis.call('GET', KEYS[2])
+  if not stock then
+    return 2 -- NO_POSITION
+  end
+
+  local quantity = tonumber(ARGV[1])
+  if tonumber(stock) < quantity then
+    return 3 -- INSUFFICIENT_STOCK
+  end
+
+  redis.call('DECRBY', KEYS[2], quantity)
+  return 0 -- RESERVED
+end
+
+local result = reserve()
+redis.call('SET', KEYS[3], result, 'EX', ARGV[3])
+return result
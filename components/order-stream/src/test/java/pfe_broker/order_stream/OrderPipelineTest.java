@@ -0,0 +1,161 @@
+package pfe_broker.order_stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderRejectReason;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.Side;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.common.utils.RedisTestContainer;
+import pfe_broker.order_stream.mocks.MockOrderListener;
+import pfe_broker.order_stream.mocks.MockOrderProducer;
+
+@MicronautTest(transactional = false)
+@Property(name = "order-stream.redis-pipeline.max-batch-size", value = "4")
+@Property(name = "order-stream.redis-pipeline.max-latency", value = "500ms")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class OrderPipelineTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Container
+  static final RedisTestContainer redis = new RedisTestContainer();
+
+  @Inject
+  OrderIntegrityCheckService orderIntegrityCheckService;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics(
+      "orders",
+      "accepted-orders",
+      "rejected-orders",
+      "market-data.AAPL"
+    );
+    if (!redis.isRunning()) {
+      redis.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl(),
+      "redis.uri",
+      redis.getRedisUrl()
+    );
+  }
+
+  @BeforeEach
+  void setup(
+    MockOrderListener mockOrderListener,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    orderIntegrityCheckService.retreiveSymbols();
+    mockOrderListener.acceptedOrders.clear();
+    mockOrderListener.rejectedOrders.clear();
+    redisConnection.sync().flushall();
+    // Register user
+    redisConnection.sync().set("user:balance", "10000000");
+  }
+
+  @Test
+  void testOrdersOfABatchAreCheckedInOrder(
+    MockOrderProducer mockOrderProducer,
+    MockOrderListener mockOrderListener,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    redisConnection.sync().set("user:AAPL", "10");
+    List<Order> orders = List.of(
+      new Order("user", "AAPL", 6, Side.SELL, OrderType.MARKET, 0L),
+      new Order("user", "AAPL", 6, Side.SELL, OrderType.MARKET, 0L),
+      new Order("user", "AAPL", 4, Side.SELL, OrderType.MARKET, 0L),
+      new Order("user", "AAPL", 1, Side.BUY, OrderType.MARKET, 0L),
+      new Order("user", "AAPL", 1, Side.SELL, OrderType.MARKET, 0L)
+    );
+
+    // When
+    for (int i = 0; i < orders.size(); i++) {
+      mockOrderProducer.sendOrder("user:" + i + ":" + i, orders.get(i));
+    }
+
+    // Then
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        // Each order is checked after the reservations of the previous ones,
+        // the outputs are spread over the partitions by their keys
+        assertThat(mockOrderListener.acceptedOrders)
+          .containsExactlyInAnyOrder(
+            orders.get(0),
+            orders.get(2),
+            orders.get(3)
+          );
+        assertThat(mockOrderListener.rejectedOrders)
+          .extracting(rejectedOrder -> rejectedOrder.getOrder())
+          .containsExactlyInAnyOrder(orders.get(1), orders.get(4));
+        assertThat(mockOrderListener.rejectedOrders)
+          .allMatch(rejectedOrder ->
+            rejectedOrder.getReason() == OrderRejectReason.INCORRECT_QUANTITY
+          );
+        assertThat(redisConnection.sync().get("user:AAPL")).isEqualTo("0");
+      });
+  }
+
+  @Test
+  void testOrderCheckedAgainIsReservedOnce(
+    MockOrderProducer mockOrderProducer,
+    MockOrderListener mockOrderListener,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    redisConnection.sync().set("user:AAPL", "10");
+    Order order = new Order(
+      "user",
+      "AAPL",
+      7,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+
+    // When, the same order checked again, as after a crash
+    mockOrderProducer.sendOrder("user:1:1", order);
+    mockOrderProducer.sendOrder("user:1:1", order);
+
+    // Then
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(mockOrderListener.acceptedOrders).hasSize(2);
+        assertThat(mockOrderListener.rejectedOrders).isEmpty();
+        assertThat(redisConnection.sync().get("user:AAPL")).isEqualTo("3");
+      });
+  }
+}
@@ -16,6 +16,8 @@ import org.junit.jupiter.api.TestInstance;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderRejectReason;
+import pfe_broker.avro.OrderType;
 import pfe_broker.avro.Side;
 import pfe_broker.common.utils.KafkaTestContainer;
 import pfe_broker.common.utils.RedisTestContainer;
@@ -73,7 +75,7 @@ public class OrderStreamTest implements TestPropertyProvider {
     mockOrderListener.rejectedOrders.clear();
     redisConnection.sync().flushall();
     // Register user
-    redisConnection.sync().set("user:balance", "100000");
+    redisConnection.sync().set("user:balance", "10000000");
   }
 
   @Test
@@ -82,7 +84,14 @@ public class OrderStreamTest implements TestPropertyProvider {
     MockOrderListener mockOrderListener
   ) {
     // Given
-    Order order = new Order("user", "AAPL", 10, Side.BUY);
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
 
     // When
     mockOrderProducer.sendOrder("user", order);
@@ -104,7 +113,14 @@ public class OrderStreamTest implements TestPropertyProvider {
   ) {
     // Given
     redisConnection.sync().set("user:AAPL", "10");
-    Order order = new Order("user", "AAPL", 7, Side.SELL);
+    Order order = new Order(
+      "user",
+      "AAPL",
+      7,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
 
     // When
     mockOrderProducer.sendOrder("user", order);
@@ -127,7 +143,14 @@ public class OrderStreamTest implements TestPropertyProvider {
   ) {
     // Given
     redisConnection.sync().set("user:AAPL", "9");
-    Order order = new Order("user", "AAPL", 10, Side.SELL);
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
 
     // When
     mockOrderProducer.sendOrder("user", order);
@@ -142,4 +165,34 @@ public class OrderStreamTest implements TestPropertyProvider {
         assertThat(redisConnection.sync().get("user:AAPL")).isEqualTo("9");
       });
   }
+
+  @Test
+  void testOrderStreamUnknownAccount(
+    MockOrderProducer mockOrderProducer,
+    MockOrderListener mockOrderListener
+  ) {
+    // Given
+    Order order = new Order(
+      "unknown",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+
+    // When
+    mockOrderProducer.sendOrder("unknown", order);
+
+    // Then
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(mockOrderListener.acceptedOrders).hasSize(0);
+        assertThat(mockOrderListener.rejectedOrders).hasSize(1);
+        assertThat(mockOrderListener.rejectedOrders.get(0).getReason())
+          .isEqualTo(OrderRejectReason.UNKNOWN_ACCOUNT);
+      });
+  }
 }
@@ -0,0 +1,170 @@
+package pfe_broker.order_stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.Side;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.common.utils.RedisTestContainer;
+import pfe_broker.order_stream.mocks.MockAccountChangeProducer;
+import pfe_broker.order_stream.mocks.MockOrderListener;
+import pfe_broker.order_stream.mocks.MockOrderProducer;
+
+@MicronautTest(transactional = false)
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Property(name = "kafka.common.account-changes", value = "true")
+public class PositionStoreTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Container
+  static final RedisTestContainer redis = new RedisTestContainer();
+
+  @Inject
+  OrderIntegrityCheckService orderIntegrityCheckService;
+
+  @Inject
+  PositionQueryService positionQueryService;
+
+  @Inject
+  MockAccountChangeProducer mockAccountChangeProducer;
+
+  @Inject
+  StatefulRedisConnection<String, String> redisConnection;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics(
+      "orders",
+      "accepted-orders",
+      "rejected-orders",
+      "account-changes",
+      "market-data.AAPL"
+    );
+    if (!redis.isRunning()) {
+      redis.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl(),
+      "redis.uri",
+      redis.getRedisUrl()
+    );
+  }
+
+  @BeforeEach
+  void setup(MockOrderListener mockOrderListener) {
+    orderIntegrityCheckService.retreiveSymbols();
+    mockOrderListener.acceptedOrders.clear();
+    mockOrderListener.rejectedOrders.clear();
+  }
+
+  /**
+   * Seed an account in Redis and publish it, like the warm-up of
+   * ledger-writer.
+   */
+  private void seedAccount(String username, long balance, long stocks) {
+    redisConnection.sync().set(username + ":balance", String.valueOf(balance));
+    redisConnection.sync().set(username + ":AAPL", String.valueOf(stocks));
+    mockAccountChangeProducer.sendChange(username + ":balance", balance);
+    mockAccountChangeProducer.sendChange(username + ":AAPL", stocks);
+
+    await()
+      .atMost(Duration.ofSeconds(30))
+      .ignoreExceptions()
+      .untilAsserted(() -> {
+        assertThat(positionQueryService.getBalance(username))
+          .contains(balance);
+        assertThat(positionQueryService.getPosition(username, "AAPL"))
+          .contains(stocks);
+      });
+  }
+
+  @Test
+  void testSellOrderReservesStocksInTheStore(
+    MockOrderProducer mockOrderProducer,
+    MockOrderListener mockOrderListener
+  ) {
+    // Given
+    seedAccount("seller", 100000L, 10L);
+    Order order = new Order(
+      "seller",
+      "AAPL",
+      7,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+
+    // When
+    mockOrderProducer.sendOrder("seller:1", order);
+
+    // Then
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .ignoreExceptions()
+      .untilAsserted(() -> {
+        assertThat(mockOrderListener.acceptedOrders).hasSize(1);
+        assertThat(redisConnection.sync().get("seller:AAPL")).isEqualTo("3");
+        assertThat(positionQueryService.getPosition("seller", "AAPL"))
+          .contains(3L);
+      });
+  }
+
+  @Test
+  void testRejectedOrderLeavesTheStoreUnchanged(
+    MockOrderProducer mockOrderProducer,
+    MockOrderListener mockOrderListener
+  ) {
+    // Given
+    seedAccount("holder", 100000L, 5L);
+    Order order = new Order(
+      "holder",
+      "AAPL",
+      6,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+
+    // When
+    mockOrderProducer.sendOrder("holder:1", order);
+
+    // Then
+    await()
+      .pollInterval(Duration.ofSeconds(1))
+      .atMost(Duration.ofSeconds(10))
+      .untilAsserted(() -> {
+        assertThat(mockOrderListener.rejectedOrders).hasSize(1);
+      });
+    assertThat(redisConnection.sync().get("holder:AAPL")).isEqualTo("5");
+    assertThat(positionQueryService.getPosition("holder", "AAPL"))
+      .contains(5L);
+  }
+}
@@ -0,0 +1,19 @@
+package pfe_broker.order_stream.mocks;
+
+import io.micronaut.configuration.kafka.annotation.KafkaClient;
+import io.micronaut.configuration.kafka.annotation.KafkaKey;
+import io.micronaut.configuration.kafka.annotation.Topic;
+import io.micronaut.context.annotation.Property;
+import org.apache.kafka.clients.producer.ProducerConfig;
+
+@KafkaClient(
+  id = "mock-account-change-producer",
+  properties = @Property(
+    name = ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+    value = "org.apache.kafka.common.serialization.LongSerializer"
+  )
+)
+public interface MockAccountChangeProducer {
+  @Topic("${kafka.topics.account-changes}")
+  void sendChange(@KafkaKey String key, Long change);
+}
@@ -0,0 +1,87 @@
+package pfe_broker.quickfix_server.store;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import quickfix.FileStoreFactory;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+/**
+ * Throughput (messages per second) of the message stores, storing an
+ * execution report and incrementing the sender sequence number, as done for
+ * each message sent by the acceptor.
+ */
+@BenchmarkMode(Mode.Throughput)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class MessageStoreBenchmark {
+
+  private static final String MESSAGE =
+    "8=FIX.4.4\u00019=178\u000135=8\u000134=1\u000149=SERVER\u0001" +
+    "52=20240101-00:00:00.000\u000156=user1\u00016=100.0\u000111=1\u0001" +
+    "14=10\u000117=1\u000131=100.0\u000132=10\u000137=1\u000139=2\u0001" +
+    "54=1\u000155=AAPL\u0001150=F\u0001151=0\u000110=000\u0001";
+
+  @Param({ "file", "mapped" })
+  private String messageStore;
+
+  private Path directory;
+  private MessageStore store;
+
+  @Setup(Level.Trial)
+  public void createStore() throws Exception {
+    directory = Files.createTempDirectory("message-store-benchmark");
+    SessionID sessionID = new SessionID("FIX.4.4", "SERVER", "user1");
+    SessionSettings settings = new SessionSettings();
+    settings.setString(
+      sessionID,
+      FileStoreFactory.SETTING_FILE_STORE_PATH,
+      directory.toString()
+    );
+    MessageStoreFactory factory = "mapped".equals(messageStore)
+      ? new MappedFileStoreFactory(settings, 64 << 20)
+      : new FileStoreFactory(settings);
+    store = factory.create(sessionID);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteStore() throws IOException {
+    if (store instanceof MappedFileStore mappedStore) {
+      mappedStore.close();
+    }
+    try (Stream<Path> paths = Files.walk(directory)) {
+      paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+        path.toFile().delete();
+      });
+    }
+  }
+
+  @Benchmark
+  public void storeMessage() throws IOException {
+    int sequence = store.getNextSenderMsgSeqNum();
+    store.set(sequence, MESSAGE);
+    store.incrNextSenderMsgSeqNum();
+  }
+}
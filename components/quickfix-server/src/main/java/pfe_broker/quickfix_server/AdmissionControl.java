@@ -0,0 +1,176 @@
+package pfe_broker.quickfix_server;
+
+import io.micronaut.context.annotation.Property;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.ListOffsetsResult.ListOffsetsResultInfo;
+import org.apache.kafka.clients.admin.OffsetSpec;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.common.TopicPartition;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Admission of the new orders, before they are sent to Kafka.
+ *
+ * An order is rejected when its user or the whole node sends orders faster
+ * than their token bucket allows, or when too many orders are waiting to be
+ * checked by the order-stream. The orders in flight are measured as the lag
+ * of the order-stream, sampled periodically, plus the orders admitted since
+ * the last sample. Rejecting the excess orders keeps the queues short, and
+ * so the latency low for the other users.
+ *
+ * The order-stream repartitions the orders by username before checking
+ * them, so the lag is summed over all the partitions its consumer group
+ * commits: an order is counted on the orders topic until it has been
+ * repartitioned, then on the repartition topic until it has been checked.
+ *
+ * When the lag cannot be read, the orders are not limited by it.
+ */
+@Singleton
+public class AdmissionControl {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    AdmissionControl.class
+  );
+
+  public enum Admission {
+    ADMITTED(null),
+    SESSION_RATE_EXCEEDED("Order rate limit of the session exceeded"),
+    GLOBAL_RATE_EXCEEDED("Order rate limit of the server exceeded"),
+    TOO_MANY_ORDERS_IN_FLIGHT("Too many orders in flight, retry later");
+
+    private final String text;
+
+    Admission(String text) {
+      this.text = text;
+    }
+
+    /**
+     * @return the reason of the rejection, sent to the user
+     */
+    public String text() {
+      return text;
+    }
+  }
+
+  @Inject
+  private AdminClient adminClient;
+
+  @Property(name = "quickfix-server.admission.session-rate")
+  private double sessionRate;
+
+  @Property(name = "quickfix-server.admission.session-burst")
+  private int sessionBurst;
+
+  @Property(name = "quickfix-server.admission.global-rate")
+  private double globalRate;
+
+  @Property(name = "quickfix-server.admission.global-burst")
+  private int globalBurst;
+
+  @Property(name = "quickfix-server.admission.max-in-flight")
+  private long maxInFlight;
+
+  @Property(name = "quickfix-server.admission.orders-consumer-group")
+  private String ordersConsumerGroup;
+
+  private TokenBucket globalBucket;
+  private final Map<String, TokenBucket> sessionBuckets =
+    new ConcurrentHashMap<>();
+
+  private volatile long lag;
+  private final AtomicLong admittedSinceSample = new AtomicLong();
+
+  @PostConstruct
+  void init() {
+    globalBucket = new TokenBucket(globalRate, globalBurst);
+  }
+
+  public Admission admit(String username) {
+    if (lag + admittedSinceSample.get() >= maxInFlight) {
+      return Admission.TOO_MANY_ORDERS_IN_FLIGHT;
+    }
+    // Checked first, so a flooding session does not use the global tokens
+    TokenBucket sessionBucket = sessionBuckets.computeIfAbsent(
+      username,
+      k -> new TokenBucket(sessionRate, sessionBurst)
+    );
+    if (!sessionBucket.tryAcquire()) {
+      return Admission.SESSION_RATE_EXCEEDED;
+    }
+    if (!globalBucket.tryAcquire()) {
+      return Admission.GLOBAL_RATE_EXCEEDED;
+    }
+    admittedSinceSample.incrementAndGet();
+    return Admission.ADMITTED;
+  }
+
+  /**
+   * Forget the bucket of a user who has logged out
+   */
+  public void forget(String username) {
+    sessionBuckets.remove(username);
+  }
+
+  public long getLag() {
+    return lag;
+  }
+
+  /**
+   * Measure the lag of the order-stream on its input topics: the end offsets
+   * of the partitions minus the offsets committed by its consumer group.
+   */
+  @Scheduled(fixedDelay = "${quickfix-server.admission.lag-sample-interval}")
+  void sampleLag() {
+    long admitted = admittedSinceSample.get();
+    try {
+      Map<TopicPartition, OffsetAndMetadata> committed = adminClient
+        .listConsumerGroupOffsets(ordersConsumerGroup)
+        .partitionsToOffsetAndMetadata()
+        .get(1, TimeUnit.SECONDS)
+        .entrySet()
+        .stream()
+        .filter(entry -> entry.getValue() != null)
+        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+      Map<TopicPartition, ListOffsetsResultInfo> ends = adminClient
+        .listOffsets(
+          committed
+            .keySet()
+            .stream()
+            .collect(Collectors.toMap(p -> p, p -> OffsetSpec.latest()))
+        )
+        .all()
+        .get(1, TimeUnit.SECONDS);
+
+      long total = 0;
+      for (TopicPartition partition : committed.keySet()) {
+        ListOffsetsResultInfo end = ends.get(partition);
+        if (end != null) {
+          total +=
+            Math.max(0, end.offset() - committed.get(partition).offset());
+        }
+      }
+      // The orders admitted since the previous sample are now in the lag
+      admittedSinceSample.addAndGet(-admitted);
+      lag = total;
+    } catch (ExecutionException | TimeoutException e) {
+      LOG.warn("Lag of the order-stream not read: {}", e.getMessage());
+      // Do not limit on a stale measure
+      admittedSinceSample.addAndGet(-admitted);
+      lag = 0;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,268 @@
+package pfe_broker.quickfix_server;
+
+import io.micronaut.context.annotation.Property;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.common.PasswordHasher;
+import pfe_broker.models.projections.UserCredentials;
+import pfe_broker.models.repositories.UserRepository;
+
+/**
+ * Check the credentials of the users on logon.
+ *
+ * The logons are verified on the thread of their own session, the acceptor
+ * being threaded per session, so a slow verification only delays the
+ * logon being verified. The credentials are read on a small pool of
+ * threads and kept in a bounded cache for a while, so a reconnection
+ * storm sends at most one query per user and never more concurrent queries
+ * than the size of the pool. The concurrent logons of a user share the same
+ * query. Only the id and the password hash are read, not the stocks. The
+ * unknown users are cached too, for a shorter while.
+ *
+ * Hashing a password takes thousands of iterations, so the successful
+ * verifications are cached as well, for as long as the credentials: a user
+ * logging on again with the same password is not hashed again. They are
+ * keyed by the username and a digest of the password, salted with a key
+ * drawn on startup, so the cache never holds the passwords themselves.
+ *
+ * The passwords stored in plain text, before the passwords were hashed, are
+ * still accepted and replaced by their hash on the first logon.
+ */
+@Singleton
+public class CredentialService {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    CredentialService.class
+  );
+
+  private record CachedCredentials(
+    Optional<UserCredentials> credentials,
+    long expiresAt
+  ) {}
+
+  @Inject
+  private UserRepository userRepository;
+
+  @Property(name = "quickfix-server.credentials.cache-size")
+  private int cacheSize;
+
+  @Property(name = "quickfix-server.credentials.cache-ttl")
+  private Duration cacheTtl;
+
+  @Property(name = "quickfix-server.credentials.unknown-user-ttl")
+  private Duration unknownUserTtl;
+
+  @Property(name = "quickfix-server.credentials.db-threads")
+  private int dbThreads;
+
+  @Property(name = "quickfix-server.credentials.timeout")
+  private Duration timeout;
+
+  private Map<String, CachedCredentials> cache;
+  // Expiry of the successful verifications, by username and password digest
+  private Map<String, Long> verified;
+  private final byte[] digestKey = new byte[32];
+  private final Map<
+    String,
+    CompletableFuture<Optional<UserCredentials>>
+  > lookups = new ConcurrentHashMap<>();
+
+  private ExecutorService dbExecutor;
+
+  @PostConstruct
+  void init() {
+    cache = boundedCache(cacheSize);
+    verified = boundedCache(cacheSize);
+    new SecureRandom().nextBytes(digestKey);
+    dbExecutor = Executors.newFixedThreadPool(dbThreads);
+  }
+
+  /**
+   * @return a map ordered from the least recently used entry, which is
+   * evicted beyond the size of the cache
+   */
+  private static <V> Map<String, V> boundedCache(int maxSize) {
+    return new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+        return size() > maxSize;
+      }
+    };
+  }
+
+  @PreDestroy
+  void close() {
+    dbExecutor.shutdownNow();
+  }
+
+  /**
+   * @return false if the user does not exist, the password is wrong, or the
+   * credentials could not be read in time
+   */
+  public boolean verify(String username, String password) {
+    String verification = username + "$" + digest(password);
+    Long verifiedUntil;
+    synchronized (verified) {
+      verifiedUntil = verified.get(verification);
+    }
+    if (
+      verifiedUntil != null && verifiedUntil > System.currentTimeMillis()
+    ) {
+      return true;
+    }
+
+    Optional<UserCredentials> credentials;
+    try {
+      credentials =
+        lookup(username).get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      LOG.warn("Credentials of user [{}] not read in time", username);
+      return false;
+    } catch (ExecutionException e) {
+      LOG.error(
+        "Error while reading the credentials of user [{}]: {}",
+        username,
+        e.getCause().getMessage()
+      );
+      return false;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+
+    if (credentials.isEmpty()) {
+      return false;
+    }
+    String stored = credentials.get().password();
+    boolean valid;
+    if (PasswordHasher.isHash(stored)) {
+      valid = PasswordHasher.verify(password, stored);
+    } else {
+      valid = PasswordHasher.verifyPlain(password, stored);
+      if (valid) {
+        upgradePassword(credentials.get(), password);
+      }
+    }
+    if (valid) {
+      synchronized (verified) {
+        verified.put(
+          verification,
+          System.currentTimeMillis() + cacheTtl.toMillis()
+        );
+      }
+    }
+    return valid;
+  }
+
+  /**
+   * @return the SHA-256 of the password salted with the key of this
+   * instance, in Base64
+   */
+  private String digest(String password) {
+    try {
+      MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+      sha256.update(digestKey);
+      return Base64
+        .getEncoder()
+        .encodeToString(
+          sha256.digest(password.getBytes(StandardCharsets.UTF_8))
+        );
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException("Cannot digest the password", e);
+    }
+  }
+
+  private CompletableFuture<Optional<UserCredentials>> lookup(
+    String username
+  ) {
+    CachedCredentials cached;
+    synchronized (cache) {
+      cached = cache.get(username);
+    }
+    if (cached != null && cached.expiresAt() > System.currentTimeMillis()) {
+      return CompletableFuture.completedFuture(cached.credentials());
+    }
+
+    CompletableFuture<Optional<UserCredentials>> lookup =
+      new CompletableFuture<>();
+    CompletableFuture<Optional<UserCredentials>> pending = lookups.putIfAbsent(
+      username,
+      lookup
+    );
+    if (pending != null) {
+      // Share the query of a concurrent logon
+      return pending;
+    }
+
+    dbExecutor.execute(() -> {
+      try {
+        Optional<UserCredentials> credentials = userRepository.searchByUsername(
+          username
+        );
+        cache(username, credentials);
+        lookup.complete(credentials);
+      } catch (RuntimeException e) {
+        lookup.completeExceptionally(e);
+      } finally {
+        lookups.remove(username, lookup);
+      }
+    });
+    return lookup;
+  }
+
+  private void cache(
+    String username,
+    Optional<UserCredentials> credentials
+  ) {
+    // An unknown user may be created soon, it is not cached for as long
+    Duration ttl = credentials.isPresent() ? cacheTtl : unknownUserTtl;
+    CachedCredentials cached = new CachedCredentials(
+      credentials,
+      System.currentTimeMillis() + ttl.toMillis()
+    );
+    synchronized (cache) {
+      cache.put(username, cached);
+    }
+  }
+
+  private void upgradePassword(UserCredentials credentials, String password) {
+    dbExecutor.execute(() -> {
+      String hash = PasswordHasher.hash(password);
+      try {
+        userRepository.updatePassword(credentials.id(), hash);
+        cache(
+          credentials.username(),
+          Optional.of(
+            new UserCredentials(credentials.id(), credentials.username(), hash)
+          )
+        );
+      } catch (RuntimeException e) {
+        LOG.error(
+          "Error while hashing the password of user [{}]: {}",
+          credentials.username(),
+          e.getMessage()
+        );
+      }
+    });
+  }
+}
@@ -0,0 +1,101 @@
+package pfe_broker.quickfix_server;
+
+import java.util.Iterator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.DataDictionary;
+import quickfix.Field;
+import quickfix.FieldMap;
+import quickfix.Group;
+import quickfix.Message;
+
+/**
+ * Log the FIX messages with the names of their fields and values, such as
+ * MsgType=NewOrderSingle|Symbol=AAPL.
+ *
+ * Nothing is done unless the logger is enabled at the DEBUG level. The
+ * fields are read directly from the message rather than parsed back from
+ * its string form, and the field names are precomputed from the data
+ * dictionary, so formatting a message costs a single StringBuilder. The
+ * logger is attached to an asynchronous appender, see log4j2.yml, so the
+ * threads of the sessions do not wait for the console.
+ */
+public class FixMessageLogger {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    FixMessageLogger.class
+  );
+
+  private static final char SEPARATOR = '|';
+
+  private final DataDictionary dataDictionary;
+  // Indexed by tag, null for the tags unknown to the dictionary
+  private final String[] fieldNames;
+  private final boolean[] hasValueNames;
+
+  public FixMessageLogger(DataDictionary dataDictionary) {
+    this.dataDictionary = dataDictionary;
+
+    int maxTag = 0;
+    for (int tag : dataDictionary.getOrderedFields()) {
+      maxTag = Math.max(maxTag, tag);
+    }
+    this.fieldNames = new String[maxTag + 1];
+    this.hasValueNames = new boolean[maxTag + 1];
+    for (int tag : dataDictionary.getOrderedFields()) {
+      fieldNames[tag] = dataDictionary.getFieldName(tag);
+      hasValueNames[tag] = dataDictionary.hasFieldValue(tag);
+    }
+  }
+
+  public void log(String prefix, Message message) {
+    if (!LOG.isDebugEnabled()) {
+      return;
+    }
+    LOG.debug("{}: {}", prefix, format(message));
+  }
+
+  String format(Message message) {
+    StringBuilder builder = new StringBuilder(256);
+    appendFields(builder, message.getHeader());
+    appendFields(builder, message);
+    appendFields(builder, message.getTrailer());
+    if (builder.length() > 0) {
+      // Trailing separator
+      builder.setLength(builder.length() - 1);
+    }
+    return builder.toString();
+  }
+
+  private void appendFields(StringBuilder builder, FieldMap fieldMap) {
+    Iterator<Field<?>> fields = fieldMap.iterator();
+    while (fields.hasNext()) {
+      Field<?> field = fields.next();
+      int tag = field.getTag();
+      String value = String.valueOf(field.getObject());
+      appendField(builder, tag, value);
+
+      if (fieldMap.hasGroup(tag)) {
+        for (Group group : fieldMap.getGroups(tag)) {
+          appendFields(builder, group);
+        }
+      }
+    }
+  }
+
+  private void appendField(StringBuilder builder, int tag, String value) {
+    boolean known = tag < fieldNames.length && fieldNames[tag] != null;
+    if (known) {
+      builder.append(fieldNames[tag]);
+    } else {
+      builder.append(tag);
+    }
+    builder.append('=');
+
+    String valueName = known && hasValueNames[tag]
+      ? dataDictionary.getValueName(tag, value)
+      : null;
+    builder.append(valueName != null ? valueName : value);
+    builder.append(SEPARATOR);
+  }
+}
@@ -0,0 +1,45 @@
+package pfe_broker.quickfix_server;
+
+import io.micronaut.context.annotation.Property;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import pfe_broker.avro.MarketData;
+import pfe_broker.common.LastRecordCache;
+
+/**
+ * Keeps the last market data of every symbol in memory, to answer the
+ * market data requests of the clients, and notifies the listeners of every
+ * update, see {@link MarketDataPublisher}.
+ */
+@Singleton
+public class MarketDataCache extends LastRecordCache<MarketData> {
+
+  public MarketDataCache(
+    @Property(name = "kafka.bootstrap.servers") String bootstrapServers,
+    @Property(name = "kafka.schema.registry.url") String schemaRegistryUrl,
+    @Property(name = "kafka.common.symbol-topic-prefix") String topicPrefix
+  ) {
+    super(
+      "market-data-cache",
+      topicPrefix,
+      avroConsumerProperties(
+        bootstrapServers,
+        schemaRegistryUrl,
+        "quickfix-server-market-data-"
+      )
+    );
+  }
+
+  @PostConstruct
+  @Override
+  public void start() {
+    super.start();
+  }
+
+  @PreDestroy
+  @Override
+  public void stop() {
+    super.stop();
+  }
+}
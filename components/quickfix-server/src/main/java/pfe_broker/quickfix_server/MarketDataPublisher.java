@@ -0,0 +1,389 @@
+package pfe_broker.quickfix_server;
+
+import io.micronaut.context.annotation.Property;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.avro.MarketData;
+import quickfix.FieldNotFound;
+import quickfix.Group;
+import quickfix.Message;
+import quickfix.field.MDEntryPx;
+import quickfix.field.MDEntrySize;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MDReqRejReason;
+import quickfix.field.MDUpdateAction;
+import quickfix.field.NoMDEntryTypes;
+import quickfix.field.NoRelatedSym;
+import quickfix.field.SubscriptionRequestType;
+import quickfix.field.Symbol;
+import quickfix.field.Text;
+import quickfix.fix44.MarketDataIncrementalRefresh;
+import quickfix.fix44.MarketDataRequest;
+import quickfix.fix44.MarketDataRequestReject;
+import quickfix.fix44.MarketDataSnapshotFullRefresh;
+
+/**
+ * Answer the market data requests from the {@link MarketDataCache}.
+ *
+ * A snapshot request is answered with a MarketDataSnapshotFullRefresh per
+ * symbol. A subscription (SubscriptionRequestType=1) is answered with the
+ * snapshots, then a MarketDataIncrementalRefresh each time the market data
+ * of one of its symbols changes, until it is disabled or the user logs out.
+ *
+ * The updates are conflated per session: only the last market data of each
+ * symbol waits to be sent, and a single task at a time sends the updates of
+ * a session. While the socket of a session still has more than
+ * max-pending-writes messages to write, the updates keep being conflated
+ * instead of being sent, so a slow client receives fewer updates instead of
+ * a backlog.
+ */
+@Singleton
+public class MarketDataPublisher {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    MarketDataPublisher.class
+  );
+
+  // Delay before sending to a session whose socket is still busy
+  private static final long CONGESTION_DELAY_MS = 10;
+
+  public record Subscription(
+    String mdReqID,
+    List<String> symbols,
+    List<Character> entryTypes
+  ) {}
+
+  /**
+   * Subscriptions and pending updates of a session
+   */
+  private static class Feed {
+
+    private final String username;
+    private final Map<String, Subscription> subscriptions =
+      new ConcurrentHashMap<>();
+    // Last market data not sent yet, per symbol
+    private final Map<String, MarketData> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    Feed(String username) {
+      this.username = username;
+    }
+  }
+
+  @Inject
+  private MarketDataCache marketDataCache;
+
+  @Inject
+  private SessionRegistry sessionRegistry;
+
+  @Property(name = "quickfix-server.market-data.fanout-threads")
+  private int fanoutThreads;
+
+  @Property(name = "quickfix-server.market-data.max-pending-writes")
+  private int maxPendingWrites;
+
+  private final Map<String, Feed> feeds = new ConcurrentHashMap<>();
+  private final Map<String, Set<Feed>> feedsBySymbol =
+    new ConcurrentHashMap<>();
+
+  private ScheduledExecutorService executor;
+
+  @PostConstruct
+  void init() {
+    executor = Executors.newScheduledThreadPool(fanoutThreads);
+    marketDataCache.addListener(this::onMarketData);
+  }
+
+  @PreDestroy
+  void close() {
+    executor.shutdownNow();
+  }
+
+  public void onMarketDataRequest(MarketDataRequest request, String username)
+    throws FieldNotFound {
+    String mdReqID = request.getString(MDReqID.FIELD);
+    char requestType = request.getChar(SubscriptionRequestType.FIELD);
+
+    if (
+      requestType ==
+      SubscriptionRequestType.DISABLE_PREVIOUS_SNAPSHOT_UPDATE_REQUEST
+    ) {
+      unsubscribe(username, mdReqID);
+      return;
+    }
+
+    Subscription subscription = parseRequest(request);
+    if (requestType == SubscriptionRequestType.SNAPSHOT_UPDATES) {
+      // Before the snapshots, so no update is missed in between
+      subscribe(username, subscription);
+    }
+
+    List<MarketDataSnapshotFullRefresh> snapshots = createSnapshots(
+      subscription
+    );
+    if (
+      snapshots.isEmpty() && requestType == SubscriptionRequestType.SNAPSHOT
+    ) {
+      MarketDataRequestReject reject = new MarketDataRequestReject(
+        new MDReqID(mdReqID)
+      );
+      reject.set(new MDReqRejReason(MDReqRejReason.UNKNOWN_SYMBOL));
+      reject.set(new Text("No market data for " + subscription.symbols()));
+      send(username, reject);
+      return;
+    }
+    snapshots.forEach(snapshot -> send(username, snapshot));
+  }
+
+  public Subscription parseRequest(MarketDataRequest request)
+    throws FieldNotFound {
+    List<String> symbols = new ArrayList<>();
+    MarketDataRequest.NoRelatedSym relatedSymbol =
+      new MarketDataRequest.NoRelatedSym();
+    for (int i = 1; i <= request.getInt(NoRelatedSym.FIELD); i++) {
+      request.getGroup(i, relatedSymbol);
+      symbols.add(relatedSymbol.getString(Symbol.FIELD));
+    }
+
+    List<Character> entryTypes = new ArrayList<>();
+    MarketDataRequest.NoMDEntryTypes entryType =
+      new MarketDataRequest.NoMDEntryTypes();
+    for (int i = 1; i <= request.getInt(NoMDEntryTypes.FIELD); i++) {
+      request.getGroup(i, entryType);
+      entryTypes.add(entryType.getChar(MDEntryType.FIELD));
+    }
+
+    return new Subscription(
+      request.getString(MDReqID.FIELD),
+      List.copyOf(symbols),
+      List.copyOf(entryTypes)
+    );
+  }
+
+  /**
+   * @return a snapshot per symbol of the subscription, for the symbols with
+   * market data
+   */
+  public List<MarketDataSnapshotFullRefresh> createSnapshots(
+    Subscription subscription
+  ) {
+    List<MarketDataSnapshotFullRefresh> snapshots = new ArrayList<>();
+    for (String symbol : subscription.symbols()) {
+      MarketData marketData = marketDataCache.get(symbol);
+      if (marketData == null) {
+        continue;
+      }
+      MarketDataSnapshotFullRefresh snapshot =
+        new MarketDataSnapshotFullRefresh();
+      snapshot.set(new MDReqID(subscription.mdReqID()));
+      snapshot.set(new Symbol(symbol));
+      for (char entryType : subscription.entryTypes()) {
+        MarketDataSnapshotFullRefresh.NoMDEntries entry =
+          new MarketDataSnapshotFullRefresh.NoMDEntries();
+        if (setEntry(entry, entryType, marketData)) {
+          snapshot.addGroup(entry);
+        }
+      }
+      snapshots.add(snapshot);
+    }
+    return snapshots;
+  }
+
+  private MarketDataIncrementalRefresh createIncrementalRefresh(
+    Subscription subscription,
+    String symbol,
+    MarketData marketData
+  ) {
+    MarketDataIncrementalRefresh refresh = new MarketDataIncrementalRefresh();
+    refresh.set(new MDReqID(subscription.mdReqID()));
+    for (char entryType : subscription.entryTypes()) {
+      MarketDataIncrementalRefresh.NoMDEntries entry =
+        new MarketDataIncrementalRefresh.NoMDEntries();
+      entry.setChar(MDUpdateAction.FIELD, MDUpdateAction.CHANGE);
+      if (setEntry(entry, entryType, marketData)) {
+        entry.setString(Symbol.FIELD, symbol);
+        refresh.addGroup(entry);
+      }
+    }
+    return refresh;
+  }
+
+  /**
+   * Fill an entry of the given type from the market data.
+   *
+   * @return false if the market data has no value for this type
+   */
+  private static boolean setEntry(
+    Group entry,
+    char entryType,
+    MarketData marketData
+  ) {
+    Float price =
+      switch (entryType) {
+        case MDEntryType.BID,
+          MDEntryType.OFFER,
+          MDEntryType.TRADE,
+          MDEntryType.CLOSING_PRICE -> marketData.getClose();
+        case MDEntryType.OPENING_PRICE -> marketData.getOpen();
+        case MDEntryType.TRADING_SESSION_HIGH_PRICE -> marketData.getHigh();
+        case MDEntryType.TRADING_SESSION_LOW_PRICE -> marketData.getLow();
+        default -> null;
+      };
+    if (price == null) {
+      return false;
+    }
+    entry.setChar(MDEntryType.FIELD, entryType);
+    entry.setDouble(MDEntryPx.FIELD, price);
+    entry.setInt(MDEntrySize.FIELD, marketData.getVolume());
+    return true;
+  }
+
+  private void subscribe(String username, Subscription subscription) {
+    Feed feed = feeds.computeIfAbsent(username, Feed::new);
+    Subscription previous = feed.subscriptions.put(
+      subscription.mdReqID(),
+      subscription
+    );
+    if (previous != null) {
+      removeSymbols(feed, previous.symbols());
+    }
+    for (String symbol : subscription.symbols()) {
+      feedsBySymbol
+        .computeIfAbsent(symbol, s -> ConcurrentHashMap.newKeySet())
+        .add(feed);
+    }
+    LOG.debug("User {} subscribed to {}", username, subscription.symbols());
+  }
+
+  private void unsubscribe(String username, String mdReqID) {
+    Feed feed = feeds.get(username);
+    if (feed == null) {
+      return;
+    }
+    Subscription subscription = feed.subscriptions.remove(mdReqID);
+    if (subscription != null) {
+      removeSymbols(feed, subscription.symbols());
+    }
+    if (feed.subscriptions.isEmpty()) {
+      feeds.remove(username, feed);
+    }
+  }
+
+  /**
+   * Disable the subscriptions of a user, on logout
+   */
+  public void unsubscribeAll(String username) {
+    Feed feed = feeds.remove(username);
+    if (feed == null) {
+      return;
+    }
+    for (Subscription subscription : feed.subscriptions.values()) {
+      for (String symbol : subscription.symbols()) {
+        Set<Feed> symbolFeeds = feedsBySymbol.get(symbol);
+        if (symbolFeeds != null) {
+          symbolFeeds.remove(feed);
+        }
+      }
+    }
+    feed.subscriptions.clear();
+  }
+
+  /**
+   * Stop sending the updates of the symbols to the feed, unless another of
+   * its subscriptions includes them
+   */
+  private void removeSymbols(Feed feed, List<String> symbols) {
+    for (String symbol : symbols) {
+      boolean subscribed = feed.subscriptions
+        .values()
+        .stream()
+        .anyMatch(subscription -> subscription.symbols().contains(symbol));
+      Set<Feed> symbolFeeds = feedsBySymbol.get(symbol);
+      if (!subscribed && symbolFeeds != null) {
+        symbolFeeds.remove(feed);
+        feed.pending.remove(symbol);
+      }
+    }
+  }
+
+  /**
+   * Called on the market data consumer thread, which only records the
+   * update and schedules the feeds
+   */
+  private void onMarketData(String symbol, MarketData marketData) {
+    Set<Feed> symbolFeeds = feedsBySymbol.get(symbol);
+    if (symbolFeeds == null) {
+      return;
+    }
+    for (Feed feed : symbolFeeds) {
+      // Replaces the update not sent yet
+      feed.pending.put(symbol, marketData);
+      if (feed.draining.compareAndSet(false, true)) {
+        executor.execute(() -> drain(feed));
+      }
+    }
+  }
+
+  /**
+   * Send the pending updates of a feed. A single task drains a feed at a
+   * time, so the updates of a symbol are sent in order.
+   */
+  private void drain(Feed feed) {
+    do {
+      if (isCongested(feed.username)) {
+        // Still draining, the updates are conflated until the retry
+        executor.schedule(
+          () -> drain(feed),
+          CONGESTION_DELAY_MS,
+          TimeUnit.MILLISECONDS
+        );
+        return;
+      }
+      for (String symbol : feed.pending.keySet()) {
+        MarketData marketData = feed.pending.remove(symbol);
+        if (marketData == null) {
+          continue;
+        }
+        for (Subscription subscription : feed.subscriptions.values()) {
+          if (subscription.symbols().contains(symbol)) {
+            send(
+              feed.username,
+              createIncrementalRefresh(subscription, symbol, marketData)
+            );
+          }
+        }
+      }
+      feed.draining.set(false);
+      // An update received after the loop is sent by this task, unless
+      // another one has been scheduled for it
+    } while (
+      !feed.pending.isEmpty() && feed.draining.compareAndSet(false, true)
+    );
+  }
+
+  private boolean isCongested(String username) {
+    SessionRegistry.SessionHandle session = sessionRegistry.get(username);
+    return session != null && session.getPendingWrites() > maxPendingWrites;
+  }
+
+  private void send(String username, Message message) {
+    SessionRegistry.SessionHandle session = sessionRegistry.get(username);
+    if (session == null || !session.send(message)) {
+      LOG.debug("Market data not sent to user [{}]", username);
+    }
+  }
+}
@@ -3,10 +3,23 @@ package pfe_broker.quickfix_server;
 import io.micronaut.configuration.kafka.annotation.KafkaClient;
 import io.micronaut.configuration.kafka.annotation.KafkaKey;
 import io.micronaut.configuration.kafka.annotation.Topic;
+import io.micronaut.messaging.annotation.MessageHeader;
 import pfe_broker.avro.Order;
+import pfe_broker.common.OrderCancel;
 
 @KafkaClient(id = "quickfix-order-producer")
 public interface OrderProducer {
   @Topic("${kafka.topics.orders}")
   void sendOrder(@KafkaKey String key, Order order);
+
+  /**
+   * Send a cancel request, keyed by the key of the order it cancels, see
+   * {@link OrderCancel}
+   */
+  @Topic("${kafka.topics.orders}")
+  void sendCancel(
+    @KafkaKey String key,
+    Order order,
+    @MessageHeader(OrderCancel.CL_ORD_ID_HEADER) String clOrdId
+  );
 }
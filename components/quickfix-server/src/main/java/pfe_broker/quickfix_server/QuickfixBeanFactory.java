@@ -22,6 +22,7 @@ import javax.management.ObjectName;
 import org.quickfixj.jmx.JmxExporter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import pfe_broker.quickfix_server.store.MappedFileStoreFactory;
 import quickfix.Acceptor;
 import quickfix.Application;
 import quickfix.ConfigError;
@@ -34,7 +35,7 @@ import quickfix.MessageStoreFactory;
 import quickfix.SLF4JLogFactory;
 import quickfix.SessionID;
 import quickfix.SessionSettings;
-import quickfix.SocketAcceptor;
+import quickfix.ThreadedSocketAcceptor;
 import quickfix.mina.acceptor.DynamicAcceptorSessionProvider;
 import quickfix.mina.acceptor.DynamicAcceptorSessionProvider.TemplateMapping;
 
@@ -72,6 +73,11 @@ public class QuickfixBeanFactory {
     return serverApplication;
   }
 
+  /**
+   * Each session is processed on its own thread, so a logon waiting for its
+   * credentials, or hashing a password, does not hold up the messages of
+   * the other sessions, see {@link CredentialService}.
+   */
   @Bean
   @Singleton
   public Acceptor serverAcceptor(
@@ -81,7 +87,7 @@ public class QuickfixBeanFactory {
     LogFactory serverLogFactory,
     MessageFactory serverMessageFactory
   ) throws ConfigError, FieldConvertError, JMException {
-    SocketAcceptor socketAcceptor = new SocketAcceptor(
+    ThreadedSocketAcceptor socketAcceptor = new ThreadedSocketAcceptor(
       serverApplication,
       serverMessageStoreFactory,
       serverSessionSettings,
@@ -142,8 +148,13 @@ public class QuickfixBeanFactory {
   @Bean
   @Singleton
   public MessageStoreFactory serverMessageStoreFactory(
-    SessionSettings serverSessionSettings
+    SessionSettings serverSessionSettings,
+    @Property(name = "quickfix.config.message_store") String messageStore,
+    @Property(name = "quickfix.config.mapped_store_size") long mappedStoreSize
   ) {
+    if ("mapped".equals(messageStore)) {
+      return new MappedFileStoreFactory(serverSessionSettings, mappedStoreSize);
+    }
     return new FileStoreFactory(serverSessionSettings);
   }
 
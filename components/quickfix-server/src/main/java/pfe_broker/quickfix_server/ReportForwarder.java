@@ -0,0 +1,28 @@
+package pfe_broker.quickfix_server;
+
+import io.micronaut.configuration.kafka.annotation.KafkaClient;
+import io.micronaut.configuration.kafka.annotation.KafkaKey;
+import io.micronaut.configuration.kafka.annotation.Topic;
+import io.micronaut.context.annotation.Property;
+import java.util.concurrent.CompletableFuture;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.RecordMetadata;
+
+/**
+ * Send the execution reports of the users logged on to another node to the
+ * report topic of that node, keyed by username, as FIX strings.
+ */
+@KafkaClient(
+  id = "quickfix-report-forwarder",
+  properties = @Property(
+    name = ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+    value = "org.apache.kafka.common.serialization.StringSerializer"
+  )
+)
+public interface ReportForwarder {
+  CompletableFuture<RecordMetadata> forward(
+    @Topic String topic,
+    @KafkaKey String username,
+    String report
+  );
+}
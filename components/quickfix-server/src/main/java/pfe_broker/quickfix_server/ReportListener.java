@@ -1,18 +1,40 @@
 package pfe_broker.quickfix_server;
 
-import io.micronaut.configuration.kafka.annotation.KafkaKey;
 import io.micronaut.configuration.kafka.annotation.KafkaListener;
 import io.micronaut.configuration.kafka.annotation.Topic;
+import io.micronaut.context.annotation.Property;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
 import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import pfe_broker.avro.RejectedOrder;
 import pfe_broker.avro.Trade;
+import quickfix.InvalidMessage;
+import quickfix.Message;
 
+/**
+ * Turn the trades and rejected orders into execution reports, or into the
+ * rejects of the cancel requests, by batch.
+ *
+ * The reports of a batch are grouped by user and handed to the send queues
+ * of the sessions, see {@link SessionRegistry}, so the listener threads do
+ * not wait for the clients. The reports of the users logged on to another
+ * node are forwarded to that node.
+ */
 @Singleton
 public class ReportListener {
 
+  private static final Logger LOG = LoggerFactory.getLogger(
+    ReportListener.class
+  );
+
   @Inject
   private ServerApplication serverApplication;
 
@@ -23,14 +45,89 @@ public class ReportListener {
   )
   @Topic("${kafka.topics.accepted-trades}")
   void receiveAcceptedTrade(List<ConsumerRecord<String, Trade>> records) {
-    records.forEach(record -> {
-      serverApplication.sendTradeReport(record.key(), record.value());
-    });
+    serverApplication.sendReports(
+      groupByUsername(
+        records,
+        trade -> trade.getOrder().getUsername().toString(),
+        record -> serverApplication.createReport(record.key(), record.value())
+      )
+    );
   }
 
-  @KafkaListener("quickfix-rejected-orders-consumer")
+  @KafkaListener(
+    groupId = "quickfix-rejected-orders-consumer",
+    pollTimeout = "0ms",
+    batch = true
+  )
   @Topic("${kafka.topics.rejected-orders}")
-  void receiveRejectedOrder(@KafkaKey String key, RejectedOrder rejectedOrder) {
-    serverApplication.sendRejectedOrderReport(key, rejectedOrder);
+  void receiveRejectedOrder(
+    List<ConsumerRecord<String, RejectedOrder>> records
+  ) {
+    serverApplication.sendReports(
+      groupByUsername(
+        records,
+        rejectedOrder -> rejectedOrder.getOrder().getUsername().toString(),
+        record ->
+          serverApplication.createRejectedOrderReport(
+            record.key(),
+            record.value(),
+            rejectionId(record)
+          )
+      )
+    );
+  }
+
+  /**
+   * Reports of the users logged on to this node, forwarded by the nodes
+   * which received their trades or rejected orders.
+   */
+  @KafkaListener(
+    groupId = "quickfix-node-reports-consumer-${quickfix-server.node-id}",
+    pollTimeout = "0ms",
+    batch = true,
+    properties = @Property(
+      name = ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
+      value = "org.apache.kafka.common.serialization.StringDeserializer"
+    )
+  )
+  @Topic("${kafka.topics.node-reports-prefix}${quickfix-server.node-id}")
+  void receiveForwardedReport(List<ConsumerRecord<String, String>> records) {
+    Map<String, List<Message>> reports = new HashMap<>();
+    for (ConsumerRecord<String, String> record : records) {
+      try {
+        reports
+          .computeIfAbsent(record.key(), k -> new ArrayList<>())
+          .add(serverApplication.parseReport(record.value()));
+      } catch (InvalidMessage e) {
+        LOG.error(
+          "Invalid report forwarded for user [{}]: {}",
+          record.key(),
+          e.getMessage()
+        );
+      }
+    }
+    serverApplication.sendForwardedReports(reports);
+  }
+
+  /**
+   * @return an id of the rejection which does not change when the record is
+   * consumed again, used as its ExecID
+   */
+  private static String rejectionId(ConsumerRecord<String, ?> record) {
+    return "rejected-" + record.partition() + "-" + record.offset();
+  }
+
+  private static <T> Map<String, List<Message>> groupByUsername(
+    List<ConsumerRecord<String, T>> records,
+    Function<T, String> username,
+    Function<ConsumerRecord<String, T>, Message> createReport
+  ) {
+    Map<String, List<Message>> reports = new HashMap<>();
+    for (ConsumerRecord<String, T> record : records) {
+      reports
+        .computeIfAbsent(username.apply(record.value()), k -> new ArrayList<>())
+        .add(createReport.apply(record));
+    }
+    return reports;
   }
 }
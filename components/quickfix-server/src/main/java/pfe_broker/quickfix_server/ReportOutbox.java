@@ -0,0 +1,161 @@
+package pfe_broker.quickfix_server;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.micronaut.context.annotation.Property;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.common.RedisConnectionPool;
+import pfe_broker.common.RedisConnectionPoolReporter;
+import pfe_broker.common.RedisScript;
+import pfe_broker.common.UtilsRunning;
+import quickfix.Message;
+
+/**
+ * Execution reports of the users who are not logged on, kept until they log
+ * on again, on any node.
+ *
+ * The reports of a user are appended as FIX strings to a Redis list,
+ * report-outbox:USERNAME, trimmed to the most recent ones and expired after
+ * a while. On logon the whole list is read and deleted in a single command,
+ * so a reconnection costs one read per user whatever the size of its
+ * backlog.
+ *
+ * Without Redis, the reports of the users who are not logged on are lost.
+ */
+@Singleton
+public class ReportOutbox {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    ReportOutbox.class
+  );
+
+  private static final String KEY_PREFIX = "report-outbox:";
+
+  @Inject
+  private RedisClient redisClient;
+
+  @Inject
+  private RedisConnectionPoolReporter redisPoolReporter;
+
+  @Property(name = "redis.uri")
+  private String redisUri;
+
+  @Property(name = "redis.connection-pool.size")
+  private int redisPoolSize;
+
+  @Property(name = "redis.connection-pool.max-wait")
+  private Duration redisPoolMaxWait;
+
+  @Property(name = "quickfix-server.outbox.max-reports")
+  private int maxReports;
+
+  @Property(name = "quickfix-server.outbox.ttl")
+  private Duration ttl;
+
+  private RedisConnectionPool redisConnectionPool;
+
+  private final RedisScript appendScript = RedisScript.fromResource(
+    "lua/append-report-outbox.lua"
+  );
+  private final RedisScript takeScript = RedisScript.fromResource(
+    "lua/take-report-outbox.lua"
+  );
+
+  @PostConstruct
+  void init() {
+    if (UtilsRunning.isRedisRunning(redisUri)) {
+      redisConnectionPool =
+        new RedisConnectionPool(redisClient, redisPoolSize, redisPoolMaxWait);
+      redisPoolReporter.register("report-outbox", redisConnectionPool);
+    } else {
+      LOG.warn("Redis is not running, the undelivered reports are dropped");
+    }
+  }
+
+  @PreDestroy
+  void close() {
+    if (redisConnectionPool != null) {
+      redisPoolReporter.unregister("report-outbox");
+      redisConnectionPool.close();
+    }
+  }
+
+  /**
+   * Keep reports for a user who is not logged on.
+   *
+   * @return false if the reports could not be kept
+   */
+  public boolean store(String username, List<? extends Message> reports) {
+    if (redisConnectionPool == null) {
+      return false;
+    }
+    String[] args = new String[reports.size() + 2];
+    args[0] = Integer.toString(maxReports);
+    args[1] = Long.toString(ttl.toSeconds());
+    for (int i = 0; i < reports.size(); i++) {
+      args[i + 2] = reports.get(i).toString();
+    }
+    try {
+      long size = redisConnectionPool.execute(commands ->
+        appendScript.<Long>eval(
+          commands,
+          ScriptOutputType.INTEGER,
+          new String[] { KEY_PREFIX + username },
+          args
+        )
+      );
+      LOG.debug("{} reports in the outbox of user [{}]", size, username);
+      return true;
+    } catch (RedisException e) {
+      LOG.error("Reports of user [{}] not kept: {}", username, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * Read and empty the outbox of a user, without blocking the caller.
+   *
+   * @return the reports, oldest first, none if they could not be read
+   */
+  public CompletionStage<List<String>> take(String username) {
+    if (redisConnectionPool == null) {
+      return CompletableFuture.completedFuture(List.of());
+    }
+    StatefulRedisConnection<String, String> connection;
+    try {
+      connection = redisConnectionPool.borrow();
+    } catch (RedisException e) {
+      LOG.error("Outbox of user [{}] not read: {}", username, e.getMessage());
+      return CompletableFuture.completedFuture(List.of());
+    }
+    return takeScript
+      .<List<String>>evalAsync(
+        connection.async(),
+        ScriptOutputType.MULTI,
+        new String[] { KEY_PREFIX + username }
+      )
+      .handle((reports, error) -> {
+        redisConnectionPool.release(connection);
+        if (error != null) {
+          LOG.error(
+            "Outbox of user [{}] not read: {}",
+            username,
+            error.getMessage()
+          );
+          return List.of();
+        }
+        return reports;
+      });
+  }
+}
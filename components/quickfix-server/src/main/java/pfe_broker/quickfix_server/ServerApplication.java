@@ -5,57 +5,65 @@ import io.micronaut.core.io.ResourceLoader;
 import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
 import pfe_broker.avro.RejectedOrder;
 import pfe_broker.avro.Trade;
 import pfe_broker.avro.utils.Converters;
-import pfe_broker.models.domains.User;
-import pfe_broker.models.repositories.UserRepository;
+import pfe_broker.common.Money;
+import pfe_broker.common.OrderCancel;
+import pfe_broker.common.SnowflakeIdGenerator;
 import quickfix.Application;
 import quickfix.ConfigError;
 import quickfix.DataDictionary;
 import quickfix.DoNotSend;
 import quickfix.FieldNotFound;
+import quickfix.FixVersions;
 import quickfix.IncorrectDataFormat;
 import quickfix.IncorrectTagValue;
+import quickfix.InvalidMessage;
 import quickfix.Message;
 import quickfix.MessageCracker;
+import quickfix.MessageUtils;
 import quickfix.RejectLogon;
-import quickfix.Session;
 import quickfix.SessionID;
-import quickfix.SessionNotFound;
 import quickfix.UnsupportedMessageType;
 import quickfix.field.AvgPx;
+import quickfix.field.ClOrdID;
 import quickfix.field.CumQty;
+import quickfix.field.CxlRejReason;
+import quickfix.field.CxlRejResponseTo;
 import quickfix.field.ExecID;
 import quickfix.field.ExecType;
+import quickfix.field.LastPx;
+import quickfix.field.LastQty;
 import quickfix.field.LeavesQty;
-import quickfix.field.MDEntryPx;
-import quickfix.field.MDEntrySize;
-import quickfix.field.MDEntryType;
-import quickfix.field.MDReqID;
-import quickfix.field.NoRelatedSym;
 import quickfix.field.OrdRejReason;
 import quickfix.field.OrdStatus;
 import quickfix.field.OrderID;
 import quickfix.field.OrderQty;
+import quickfix.field.OrigClOrdID;
 import quickfix.field.Password;
+import quickfix.field.Price;
 import quickfix.field.SenderCompID;
 import quickfix.field.Side;
 import quickfix.field.Symbol;
-import quickfix.field.TargetCompID;
+import quickfix.field.Text;
 import quickfix.field.Username;
 import quickfix.fix44.ExecutionReport;
 import quickfix.fix44.Logon;
 import quickfix.fix44.MarketDataRequest;
-import quickfix.fix44.MarketDataSnapshotFullRefresh;
+import quickfix.fix44.MessageFactory;
 import quickfix.fix44.NewOrderSingle;
+import quickfix.fix44.OrderCancelReject;
+import quickfix.fix44.OrderCancelRequest;
 
 @Singleton
 public class ServerApplication extends MessageCracker implements Application {
@@ -64,13 +72,32 @@ public class ServerApplication extends MessageCracker implements Application {
     ServerApplication.class
   );
 
-  private Map<String, SessionID> sessionIDMap = new HashMap<>();
+  @Inject
+  private SessionRegistry sessionRegistry;
 
   @Inject
   private OrderProducer orderProducer;
 
   @Inject
-  private UserRepository userRepository;
+  private MarketDataPublisher marketDataPublisher;
+
+  @Inject
+  private CredentialService credentialService;
+
+  @Inject
+  private SessionOwnership sessionOwnership;
+
+  @Inject
+  private ReportForwarder reportForwarder;
+
+  @Inject
+  private ReportOutbox reportOutbox;
+
+  @Inject
+  private AdmissionControl admissionControl;
+
+  @Property(name = "kafka.topics.node-reports-prefix")
+  private String nodeReportsTopicPrefix;
 
   @Property(name = "quickfix.config.data_dictionary")
   private String dataDictionaryPath;
@@ -80,8 +107,23 @@ public class ServerApplication extends MessageCracker implements Application {
 
   DataDictionary dataDictionary;
 
+  private FixMessageLogger fixMessageLogger;
+
+  private final MessageFactory messageFactory = new MessageFactory();
+
+  @Property(name = "quickfix-server.node-id")
+  private int nodeId;
+
+  // OrderIDs, and the ExecIDs of the local rejects, unique across the
+  // instances and the restarts
+  private SnowflakeIdGenerator idGenerator;
+
+  private final AtomicInteger receivedOrders = new AtomicInteger();
+  private final AtomicInteger sentReports = new AtomicInteger();
+
   @PostConstruct
   public void init() {
+    idGenerator = new SnowflakeIdGenerator(nodeId);
     try {
       dataDictionary =
         new DataDictionary(
@@ -89,30 +131,55 @@ public class ServerApplication extends MessageCracker implements Application {
             .getResourceAsStream("classpath:" + dataDictionaryPath)
             .get()
         );
+      fixMessageLogger = new FixMessageLogger(dataDictionary);
     } catch (ConfigError configError) {
       configError.printStackTrace();
     }
   }
 
-  private Integer orderKey = 0;
-  private Integer executionKey = 0;
-
-  public Integer getExecutionKey() {
-    return executionKey;
+  /**
+   * Number of orders received and of execution reports sent
+   */
+  public int getReceivedOrders() {
+    return receivedOrders.get();
   }
 
-  public Integer getOrderKey() {
-    return orderKey;
+  public int getSentReports() {
+    return sentReports.get();
   }
 
   @Override
   public void onCreate(SessionID sessionId) {}
 
   @Override
-  public void onLogon(SessionID sessionId) {}
+  public void onLogon(SessionID sessionId) {
+    // The target of the session is the SenderCompID of the user
+    String username = sessionId.getTargetCompID();
+    SessionRegistry.SessionHandle session = sessionRegistry.register(
+      username,
+      sessionId
+    );
+    sessionOwnership.claim(username);
+    if (session != null) {
+      reportOutbox
+        .take(username)
+        .thenAccept(reports -> session.releaseBacklog(parseReports(reports)));
+    }
+  }
 
+  /**
+   * Also called when the connection of a logged on session is lost
+   */
   @Override
-  public void onLogout(SessionID sessionId) {}
+  public void onLogout(SessionID sessionId) {
+    String username = sessionId.getTargetCompID();
+    sessionRegistry.unregister(sessionId);
+    if (sessionRegistry.get(username) == null) {
+      sessionOwnership.release(username);
+      admissionControl.forget(username);
+    }
+    marketDataPublisher.unsubscribeAll(username);
+  }
 
   @Override
   public void toAdmin(Message message, SessionID sessionId) {}
@@ -121,22 +188,17 @@ public class ServerApplication extends MessageCracker implements Application {
   public void fromAdmin(Message message, SessionID sessionId)
     throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, RejectLogon {
     try {
-      String sender = message
-        .getHeader()
-        .getString(quickfix.field.SenderCompID.FIELD);
       if (message.isAdmin() && message instanceof Logon) {
         String username = message.getString(Username.FIELD);
         String password = message.getString(Password.FIELD);
 
         // Check credentials
-        if (checkCredentials(username, password)) {
+        if (credentialService.verify(username, password)) {
           LOG.debug("Valid credentials for: " + username);
         } else {
           LOG.debug("Logon rejected for: " + username);
           throw new RejectLogon("Invalid username or password");
         }
-
-        sessionIDMap.put(sender, sessionId);
       }
     } catch (FieldNotFound e) {
       e.printStackTrace();
@@ -149,128 +211,432 @@ public class ServerApplication extends MessageCracker implements Application {
   @Override
   public void fromApp(Message message, SessionID sessionId)
     throws FieldNotFound, IncorrectDataFormat, IncorrectTagValue, UnsupportedMessageType {
-    logQuickFixJMessage(message, "Received message");
+    fixMessageLogger.log("Received message", message);
     crack(message, sessionId);
   }
 
   public void onMessage(NewOrderSingle message, SessionID sessionID)
     throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
     LOG.debug("Received new Single Order");
+    String username = message.getHeader().getString(SenderCompID.FIELD);
+    receivedOrders.incrementAndGet();
+
+    AdmissionControl.Admission admission = admissionControl.admit(username);
+    if (admission != AdmissionControl.Admission.ADMITTED) {
+      LOG.debug("Order of user [{}] rejected: {}", username, admission);
+      sentReports.incrementAndGet();
+      sendLocalReports(
+        username,
+        List.of(
+          createLocalRejectReport(message, OrdRejReason.OTHER, admission.text())
+        )
+      );
+      return;
+    }
+
+    OrderType orderType;
+    try {
+      orderType = Converters.OrderType.toAvro(message.getOrdType());
+    } catch (IllegalArgumentException e) {
+      LOG.debug("Order of user [{}] rejected: {}", username, e.getMessage());
+      sentReports.incrementAndGet();
+      sendLocalReports(
+        username,
+        List.of(
+          createLocalRejectReport(
+            message,
+            OrdRejReason.UNSUPPORTED_ORDER_CHARACTERISTIC,
+            "Unsupported order type"
+          )
+        )
+      );
+      return;
+    }
+    long price = orderType == OrderType.LIMIT
+      ? Money.toMinorUnits(message.getDouble(Price.FIELD))
+      : 0L;
     Order avroOrder = new Order(
-      message.getHeader().getString(SenderCompID.FIELD),
+      username,
       message.getString(Symbol.FIELD),
       message.getInt(OrderQty.FIELD),
-      Converters.Side.toAvro(message.getSide())
+      Converters.Side.toAvro(message.getSide()),
+      orderType,
+      price
+    );
+    String key = orderKey(
+      username,
+      message.getString(ClOrdID.FIELD),
+      Long.toString(idGenerator.nextId())
     );
-    String key =
-      avroOrder.getUsername() +
-      ":" +
-      message.getString(quickfix.field.ClOrdID.FIELD);
-
-    orderKey++;
 
     orderProducer.sendOrder(key, avroOrder);
   }
 
-  public void onMessage(MarketDataRequest message, SessionID sessionID) {
-    try {
-      sendMarketDataSnapshot(message);
-    } catch (quickfix.FieldNotFound e) {
-      e.printStackTrace();
+  /**
+   * Send a cancel request along with the orders, keyed by the key of the
+   * order it cancels, see {@link OrderCancel}. That key holds the OrderID
+   * assigned on reception, which the client receives with the
+   * acknowledgement of the order, so the request must carry it.
+   */
+  public void onMessage(OrderCancelRequest message, SessionID sessionID)
+    throws FieldNotFound {
+    LOG.debug("Received Order Cancel Request");
+    String username = message.getHeader().getString(SenderCompID.FIELD);
+    String clOrdID = message.getString(ClOrdID.FIELD);
+    String origClOrdID = message.getString(OrigClOrdID.FIELD);
+
+    if (!message.isSetField(OrderID.FIELD)) {
+      LOG.debug("Cancel of user [{}] rejected: no OrderID", username);
+      sentReports.incrementAndGet();
+      sendLocalReports(
+        username,
+        List.of(
+          createCancelReject(
+            "NONE",
+            clOrdID,
+            origClOrdID,
+            "OrderID required"
+          )
+        )
+      );
+      return;
     }
-  }
+    Order avroOrder = new Order(
+      username,
+      message.getString(Symbol.FIELD),
+      message.isSetField(OrderQty.FIELD) ? message.getInt(OrderQty.FIELD) : 0,
+      Converters.Side.toAvro(message.getSide()),
+      OrderType.MARKET,
+      0L
+    );
+    String key = orderKey(
+      username,
+      origClOrdID,
+      message.getString(OrderID.FIELD)
+    );
 
-  public void sendMarketDataSnapshot(MarketDataRequest message)
-    throws FieldNotFound {
-    MarketDataSnapshotFullRefresh fixMD = createMarketDataSnapshot(message);
+    orderProducer.sendCancel(key, avroOrder, clOrdID);
+  }
 
-    String senderCompId = message.getHeader().getString(SenderCompID.FIELD);
-    String targetCompId = message.getHeader().getString(TargetCompID.FIELD);
-    fixMD.getHeader().setString(SenderCompID.FIELD, targetCompId);
-    fixMD.getHeader().setString(TargetCompID.FIELD, senderCompId);
+  /**
+   * Reject of an order refused before it reaches Kafka, by the admission
+   * control or for an order type the matcher does not support
+   */
+  private ExecutionReport createLocalRejectReport(
+    NewOrderSingle order,
+    int reason,
+    String text
+  ) throws FieldNotFound {
+    int quantity = order.getInt(OrderQty.FIELD);
+    ExecutionReport executionReport = new ExecutionReport(
+      new OrderID(Long.toString(idGenerator.nextId())),
+      new ExecID(Long.toString(idGenerator.nextId())),
+      new ExecType(ExecType.REJECTED),
+      new OrdStatus(OrdStatus.REJECTED),
+      order.getSide(),
+      new LeavesQty(quantity),
+      new CumQty(0),
+      new AvgPx(0)
+    );
+    executionReport.set(order.getClOrdID());
+    executionReport.set(new Symbol(order.getString(Symbol.FIELD)));
+    executionReport.set(new OrderQty(quantity));
+    executionReport.set(new OrdRejReason(reason));
+    executionReport.set(new Text(text));
+    return executionReport;
+  }
 
-    sendMessage(message, targetCompId);
+  public void onMessage(MarketDataRequest message, SessionID sessionID)
+    throws FieldNotFound {
+    marketDataPublisher.onMarketDataRequest(
+      message,
+      message.getHeader().getString(SenderCompID.FIELD)
+    );
   }
 
-  public MarketDataSnapshotFullRefresh createMarketDataSnapshot(
-    MarketDataRequest message
-  ) throws FieldNotFound {
-    MarketDataRequest.NoRelatedSym noRelatedSyms =
-      new MarketDataRequest.NoRelatedSym();
+  /**
+   * Send execution reports, grouped by username, to the send queues of the
+   * sessions. The reports of a user are sent in order.
+   *
+   * The reports of the users logged on to another node are forwarded to the
+   * report topic of that node, see {@link SessionOwnership}, and the reports
+   * of the users who are not logged on are kept in their
+   * {@link ReportOutbox}.
+   */
+  public void sendReports(Map<String, List<Message>> reports) {
+    Map<String, List<Message>> remoteReports = new HashMap<>();
+    reports.forEach((username, userReports) -> {
+      sentReports.addAndGet(userReports.size());
+      if (!sendLocalReports(username, userReports)) {
+        remoteReports.put(username, userReports);
+      }
+    });
+    if (remoteReports.isEmpty()) {
+      return;
+    }
 
-    int relatedSymbolCount = message.getInt(NoRelatedSym.FIELD);
+    Map<String, Integer> owners = sessionOwnership.owners(
+      remoteReports.keySet()
+    );
+    remoteReports.forEach((username, userReports) -> {
+      Integer owner = owners.get(username);
+      if (owner == null || owner == sessionOwnership.getNodeId()) {
+        keepReports(username, userReports);
+        return;
+      }
+      String topic = nodeReportsTopicPrefix + owner;
+      // Sent without waiting, in order per user as they share the key
+      userReports.forEach(report -> {
+        reportForwarder
+          .forward(topic, username, report.toString())
+          .whenComplete((metadata, error) -> {
+            if (error != null) {
+              LOG.error(
+                "Report of user [{}] not forwarded to node {}: {}",
+                username,
+                owner,
+                error.getMessage()
+              );
+            }
+          });
+      });
+    });
+  }
 
-    MarketDataSnapshotFullRefresh fixMD = new MarketDataSnapshotFullRefresh();
-    fixMD.setString(MDReqID.FIELD, message.getString(MDReqID.FIELD));
+  /**
+   * Send execution reports forwarded by another node, to the sessions of
+   * this node only.
+   */
+  public void sendForwardedReports(Map<String, List<Message>> reports) {
+    reports.forEach((username, userReports) -> {
+      if (!sendLocalReports(username, userReports)) {
+        keepReports(username, userReports);
+      }
+    });
+  }
 
-    for (int i = 1; i <= relatedSymbolCount; ++i) {
-      message.getGroup(i, noRelatedSyms);
-      String symbol = noRelatedSyms.getString(Symbol.FIELD);
-      fixMD.setString(Symbol.FIELD, symbol);
+  /**
+   * @return false if the user is not logged on to this node
+   */
+  private boolean sendLocalReports(
+    String username,
+    List<? extends Message> reports
+  ) {
+    SessionRegistry.SessionHandle session = sessionRegistry.get(username);
+    if (session == null) {
+      return false;
+    }
+    reports.forEach(report -> {
+      fixMessageLogger.log("Sending message", report);
+    });
+    session.enqueue(reports);
+    return true;
+  }
 
-      double symbolPrice = 0.0;
-      int symbolVolume = 0;
+  /**
+   * Keep the reports of a user who is not logged on, to send them on logon
+   */
+  private void keepReports(String username, List<Message> reports) {
+    if (!reportOutbox.store(username, reports)) {
+      LOG.error(
+        "User [{}] not logged on, {} reports dropped",
+        username,
+        reports.size()
+      );
+    }
+  }
 
-      if (symbol.equals("GOOGL")) {
-        symbolPrice = 123.45;
-        symbolVolume = 1000;
-      } else if (symbol.equals("AAPL")) {
-        symbolPrice = 456.78;
-        symbolVolume = 1000;
+  /**
+   * Parse the reports of an outbox, skipping the invalid ones
+   */
+  private List<Message> parseReports(List<String> reports) {
+    List<Message> messages = new ArrayList<>(reports.size());
+    for (String report : reports) {
+      try {
+        Message message = parseReport(report);
+        fixMessageLogger.log("Sending message", message);
+        messages.add(message);
+      } catch (InvalidMessage e) {
+        LOG.error("Invalid report in outbox: {}", e.getMessage());
       }
-
-      MarketDataSnapshotFullRefresh.NoMDEntries noMDEntries =
-        new MarketDataSnapshotFullRefresh.NoMDEntries();
-      noMDEntries.setChar(MDEntryType.FIELD, '0');
-      noMDEntries.setDouble(MDEntryPx.FIELD, symbolPrice);
-      noMDEntries.setInt(MDEntrySize.FIELD, symbolVolume);
-      fixMD.addGroup(noMDEntries);
     }
+    return messages;
+  }
+
+  /**
+   * Parse a report forwarded by another node or kept in an outbox, an
+   * execution report or the reject of a cancel request
+   */
+  public Message parseReport(String report) throws InvalidMessage {
+    Message message = messageFactory.create(
+      FixVersions.BEGINSTRING_FIX44,
+      MessageUtils.getMessageType(report)
+    );
+    message.fromString(report, dataDictionary, false);
+    return message;
+  }
 
-    return fixMD;
+  /**
+   * Report a record of the accepted trades: a fill, the acknowledgement of
+   * an order or the answer to a cancel request
+   */
+  public Message createReport(String key, Trade trade) {
+    return switch (trade.getType()) {
+      case TRADE -> createTradeReport(key, trade);
+      case NEW -> createOrderReport(key, trade, ExecType.NEW, OrdStatus.NEW);
+      case CANCELED -> createOrderReport(
+        key,
+        trade,
+        ExecType.CANCELED,
+        OrdStatus.CANCELED
+      );
+      case CANCEL_REJECTED -> {
+        OrderKey orderKey = OrderKey.parse(
+          key,
+          trade.getOrder().getUsername().toString()
+        );
+        yield createCancelReject(
+          orderKey.orderID(),
+          trade.getCancelClOrdId().toString(),
+          orderKey.clOrdID(),
+          "Unknown order or too late to cancel"
+        );
+      }
+    };
   }
 
-  public void sendTradeReport(String key, Trade trade) {
+  /**
+   * Report a fill of an order, with the fills of the order so far carried
+   * by the trade: the order is partially filled until no quantity remains.
+   *
+   * The ExecID is the id of the trade, so a trade delivered again is
+   * reported with the same ExecID rather than as another fill.
+   */
+  public ExecutionReport createTradeReport(String key, Trade trade) {
     Order order = trade.getOrder();
     String symbol = order.getSymbol().toString();
-    String execId = executionKey.toString();
-    String clOrdID = key.split(":")[1];
+    OrderKey orderKey = OrderKey.parse(key, order.getUsername().toString());
     char side = Converters.Side.charFromAvro(order.getSide());
     int tradeQuantity = trade.getQuantity();
     int baseQuantity = order.getQuantity();
-    double price = trade.getPrice();
+    // The trades produced before the fills were carried are their own fills
+    int cumulativeQuantity = trade.getCumulativeQuantity() > 0
+      ? trade.getCumulativeQuantity()
+      : tradeQuantity;
+    long cumulativeAmount = trade.getCumulativeQuantity() > 0
+      ? trade.getCumulativeAmount()
+      : trade.getPrice() * tradeQuantity;
+    int leavesQuantity = Math.max(0, baseQuantity - cumulativeQuantity);
 
     ExecutionReport executionReport = new ExecutionReport(
-      new OrderID(clOrdID),
-      new ExecID(execId),
+      new OrderID(orderKey.orderID()),
+      new ExecID(trade.getId().toString()),
       new ExecType(ExecType.TRADE),
-      new OrdStatus(OrdStatus.FILLED),
+      new OrdStatus(
+        leavesQuantity > 0 ? OrdStatus.PARTIALLY_FILLED : OrdStatus.FILLED
+      ),
       new Side(side),
-      new LeavesQty(baseQuantity - tradeQuantity),
-      new CumQty(0),
-      new AvgPx(price)
+      new LeavesQty(leavesQuantity),
+      new CumQty(cumulativeQuantity),
+      new AvgPx(Money.toMajorUnits(cumulativeAmount) / cumulativeQuantity)
     );
+    executionReport.set(new ClOrdID(orderKey.clOrdID()));
     executionReport.set(new Symbol(symbol));
-    executionReport.set(new OrderQty(tradeQuantity));
+    executionReport.set(new OrderQty(baseQuantity));
+    executionReport.set(new LastQty(tradeQuantity));
+    executionReport.set(new LastPx(Money.toMajorUnits(trade.getPrice())));
+    return executionReport;
+  }
 
-    executionKey++;
+  /**
+   * Report the acknowledgement or the cancel of an order, with its fills so
+   * far. The report of a cancel carries the ClOrdID of the cancel request,
+   * and the ClOrdID of the order as OrigClOrdID.
+   */
+  private ExecutionReport createOrderReport(
+    String key,
+    Trade report,
+    char execType,
+    char ordStatus
+  ) {
+    Order order = report.getOrder();
+    OrderKey orderKey = OrderKey.parse(key, order.getUsername().toString());
+    int cumulativeQuantity = report.getCumulativeQuantity();
+    long cumulativeAmount = report.getCumulativeAmount();
+    // Nothing is left of a canceled order
+    int leavesQuantity = execType == ExecType.CANCELED
+      ? 0
+      : order.getQuantity() - cumulativeQuantity;
+
+    ExecutionReport executionReport = new ExecutionReport(
+      new OrderID(orderKey.orderID()),
+      new ExecID(report.getId().toString()),
+      new ExecType(execType),
+      new OrdStatus(ordStatus),
+      Converters.Side.fromAvro(order.getSide()),
+      new LeavesQty(leavesQuantity),
+      new CumQty(cumulativeQuantity),
+      new AvgPx(
+        cumulativeQuantity > 0
+          ? Money.toMajorUnits(cumulativeAmount) / cumulativeQuantity
+          : 0
+      )
+    );
+    if (report.getCancelClOrdId() == null) {
+      executionReport.set(new ClOrdID(orderKey.clOrdID()));
+    } else {
+      executionReport.set(new ClOrdID(report.getCancelClOrdId().toString()));
+      executionReport.set(new OrigClOrdID(orderKey.clOrdID()));
+    }
+    executionReport.set(new Symbol(order.getSymbol().toString()));
+    executionReport.set(new OrderQty(order.getQuantity()));
+    return executionReport;
+  }
 
-    sendMessage(executionReport, order.getUsername().toString());
+  /**
+   * Reject of a cancel request, for an order which is unknown or no longer
+   * rests in its book
+   *
+   * @param orderID the OrderID of the order, NONE if unknown
+   */
+  private OrderCancelReject createCancelReject(
+    String orderID,
+    String clOrdID,
+    String origClOrdID,
+    String text
+  ) {
+    OrderCancelReject cancelReject = new OrderCancelReject(
+      new OrderID(orderID),
+      new ClOrdID(clOrdID),
+      new OrigClOrdID(origClOrdID),
+      new OrdStatus(OrdStatus.REJECTED),
+      new CxlRejResponseTo(CxlRejResponseTo.ORDER_CANCEL_REQUEST)
+    );
+    cancelReject.set(new CxlRejReason(CxlRejReason.UNKNOWN_ORDER));
+    cancelReject.set(new Text(text));
+    return cancelReject;
   }
 
-  public void sendRejectedOrderReport(String key, RejectedOrder rejectedOrder) {
+  /**
+   * @param execID the id of the rejection, which does not change when the
+   * rejection is delivered again
+   */
+  public ExecutionReport createRejectedOrderReport(
+    String key,
+    RejectedOrder rejectedOrder,
+    String execID
+  ) {
     Order order = rejectedOrder.getOrder();
     String symbol = order.getSymbol().toString();
-    String execId = executionKey.toString();
-    String clOrdID = key.split(":")[1];
+    OrderKey orderKey = OrderKey.parse(key, order.getUsername().toString());
     char side = Converters.Side.charFromAvro(order.getSide());
     int quantity = order.getQuantity();
     OrdRejReason rejectReason = Converters.OrderRejectReason.fromAvro(
       rejectedOrder.getReason()
     );
     ExecutionReport executionReport = new ExecutionReport(
-      new OrderID(clOrdID),
-      new ExecID(execId),
+      new OrderID(orderKey.orderID()),
+      new ExecID(execID),
       new ExecType(ExecType.REJECTED),
       new OrdStatus(OrdStatus.REJECTED),
       new Side(side),
@@ -278,69 +644,46 @@ public class ServerApplication extends MessageCracker implements Application {
       new CumQty(0),
       new AvgPx(0)
     );
+    executionReport.set(new ClOrdID(orderKey.clOrdID()));
     executionReport.set(new Symbol(symbol));
     executionReport.set(new OrderQty(quantity));
     executionReport.set(rejectReason);
-
-    executionKey++;
-
-    sendMessage(executionReport, order.getUsername().toString());
+    return executionReport;
   }
 
   /**
-   * for now, this method creates the user for testing purposes, normally it should just check the users credentials
+   * The key of an order, kept by its trades and rejection, is
+   * username:ClOrdID:OrderID, the OrderID being assigned on reception. The
+   * cancel requests are keyed by the key of the order they cancel.
    */
-  private boolean checkCredentials(String username, String password) {
-    User user;
-    User userMatch = userRepository.findByUsername(username).orElse(null);
-    if (userMatch == null) {
-      user = new User("user1", "password", 1000.0);
-      userRepository.save(user);
-    } else {
-      user = userMatch;
-    }
-    return user != null && user.getPassword().equals(password);
+  private static String orderKey(
+    String username,
+    String clOrdID,
+    String orderID
+  ) {
+    return username + ":" + clOrdID + ":" + orderID;
   }
 
-  protected void sendMessage(Message message, String username) {
-    logQuickFixJMessage(message, "Sending message");
-    SessionID sessionID = sessionIDMap.get(username);
-    try {
-      Session.sendToTarget(message, sessionID);
-    } catch (SessionNotFound | NullPointerException e) {
-      LOG.error("Session not found for user [{}]({})", username, sessionID);
+  /**
+   * The ClOrdID and OrderID of an order key.
+   *
+   * The ClOrdID is chosen by the client and may contain ':', so the key is
+   * split from the right, after the username known from the order. The keys
+   * without an OrderID, username:ClOrdID, use the ClOrdID as OrderID.
+   */
+  record OrderKey(String clOrdID, String orderID) {
+    static OrderKey parse(String key, String username) {
+      String ids = key.startsWith(username + ":")
+        ? key.substring(username.length() + 1)
+        : key.substring(key.indexOf(':') + 1);
+      int separator = ids.lastIndexOf(':');
+      if (separator < 0) {
+        return new OrderKey(ids, ids);
+      }
+      return new OrderKey(
+        ids.substring(0, separator),
+        ids.substring(separator + 1)
+      );
     }
   }
-
-  private void logQuickFixJMessage(Message message, String prefix) {
-    List<String> messageParts = Arrays
-      .stream(message.toString().split("\u0001"))
-      .map(s -> {
-        String[] split = s.split("=");
-        if (split.length != 2) {
-          return s;
-        }
-        String key = split[0];
-        String value = split[1];
-
-        String fieldName = dataDictionary.getFieldName(Integer.parseInt(key));
-        String fieldValue = dataDictionary.getValueName(
-          Integer.parseInt(key),
-          value
-        );
-
-        if (fieldName == null) {
-          fieldName = key;
-        }
-        if (fieldValue == null) {
-          fieldValue = value;
-        }
-
-        return fieldName + "=" + fieldValue;
-      })
-      .toList();
-
-    String messageString = String.join("|", messageParts);
-    LOG.debug("{}: {}", prefix, messageString);
-  }
 }
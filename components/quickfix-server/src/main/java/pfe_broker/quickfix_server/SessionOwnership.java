@@ -0,0 +1,232 @@
+package pfe_broker.quickfix_server;
+
+import io.lettuce.core.KeyValue;
+import io.lettuce.core.LettuceFutures;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.RedisFuture;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.SetArgs;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.common.RedisConnectionPool;
+import pfe_broker.common.RedisConnectionPoolReporter;
+import pfe_broker.common.RedisScript;
+import pfe_broker.common.UtilsRunning;
+
+/**
+ * Node of the cluster holding the session of each logged on user, shared by
+ * the quickfix-server instances in Redis as session-owner:USERNAME = NODE_ID.
+ *
+ * A node claims the users when they log on and releases them when they log
+ * out. The claims expire unless refreshed, so the users of a node which
+ * stopped without logging them out are released after a while.
+ *
+ * Without Redis, a single node is assumed and no user is owned by another
+ * node.
+ */
+@Singleton
+public class SessionOwnership {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    SessionOwnership.class
+  );
+
+  private static final String KEY_PREFIX = "session-owner:";
+
+  @Inject
+  private RedisClient redisClient;
+
+  @Inject
+  private RedisConnectionPoolReporter redisPoolReporter;
+
+  @Inject
+  private SessionRegistry sessionRegistry;
+
+  @Property(name = "redis.uri")
+  private String redisUri;
+
+  @Property(name = "redis.connection-pool.size")
+  private int redisPoolSize;
+
+  @Property(name = "redis.connection-pool.max-wait")
+  private Duration redisPoolMaxWait;
+
+  @Property(name = "quickfix-server.node-id")
+  private int nodeId;
+
+  @Property(name = "quickfix-server.routing.owner-ttl")
+  private Duration ownerTtl;
+
+  private RedisConnectionPool redisConnectionPool;
+
+  private final RedisScript releaseScript = RedisScript.fromResource(
+    "lua/release-session-owner.lua"
+  );
+
+  @PostConstruct
+  void init() {
+    if (UtilsRunning.isRedisRunning(redisUri)) {
+      redisConnectionPool =
+        new RedisConnectionPool(redisClient, redisPoolSize, redisPoolMaxWait);
+      redisPoolReporter.register("session-ownership", redisConnectionPool);
+    } else {
+      LOG.warn("Redis is not running, the reports are only sent locally");
+    }
+  }
+
+  @PreDestroy
+  void close() {
+    if (redisConnectionPool != null) {
+      redisPoolReporter.unregister("session-ownership");
+      redisConnectionPool.close();
+    }
+  }
+
+  public int getNodeId() {
+    return nodeId;
+  }
+
+  /**
+   * Record this node as the owner of the session of the user.
+   */
+  public void claim(String username) {
+    if (redisConnectionPool == null) {
+      return;
+    }
+    try {
+      redisConnectionPool.execute(commands ->
+        commands.set(
+          KEY_PREFIX + username,
+          Integer.toString(nodeId),
+          SetArgs.Builder.ex(ownerTtl)
+        )
+      );
+    } catch (RedisException e) {
+      LOG.error(
+        "Session of user [{}] not claimed: {}",
+        username,
+        e.getMessage()
+      );
+    }
+  }
+
+  /**
+   * Remove the ownership of the user, unless claimed since by another node.
+   */
+  public void release(String username) {
+    if (redisConnectionPool == null) {
+      return;
+    }
+    try {
+      redisConnectionPool.execute(commands ->
+        releaseScript.<Long>eval(
+          commands,
+          ScriptOutputType.INTEGER,
+          new String[] { KEY_PREFIX + username },
+          Integer.toString(nodeId)
+        )
+      );
+    } catch (RedisException e) {
+      LOG.error(
+        "Session of user [{}] not released: {}",
+        username,
+        e.getMessage()
+      );
+    }
+  }
+
+  /**
+   * @return the node owning the session of each user, in a single query,
+   * without the users which are not logged on
+   */
+  public Map<String, Integer> owners(Collection<String> usernames) {
+    Map<String, Integer> owners = new HashMap<>();
+    if (redisConnectionPool == null || usernames.isEmpty()) {
+      return owners;
+    }
+    String[] keys = usernames
+      .stream()
+      .map(username -> KEY_PREFIX + username)
+      .toArray(String[]::new);
+    try {
+      List<KeyValue<String, String>> values = redisConnectionPool.execute(
+        commands -> commands.mget(keys)
+      );
+      values.forEach(value -> {
+        if (value.hasValue()) {
+          owners.put(
+            value.getKey().substring(KEY_PREFIX.length()),
+            Integer.parseInt(value.getValue())
+          );
+        }
+      });
+    } catch (RedisException e) {
+      LOG.error("Owners of the sessions not read: {}", e.getMessage());
+    }
+    return owners;
+  }
+
+  /**
+   * Extend the claims of the local sessions, in one pipeline.
+   */
+  @Scheduled(
+    fixedDelay = "${quickfix-server.routing.owner-refresh-interval}",
+    initialDelay = "${quickfix-server.routing.owner-refresh-interval}"
+  )
+  void refresh() {
+    Collection<String> usernames = sessionRegistry.usernames();
+    if (redisConnectionPool == null || usernames.isEmpty()) {
+      return;
+    }
+    StatefulRedisConnection<String, String> connection;
+    try {
+      connection = redisConnectionPool.borrow();
+    } catch (RedisException e) {
+      LOG.error("Sessions not refreshed: {}", e.getMessage());
+      return;
+    }
+    try {
+      connection.setAutoFlushCommands(false);
+      RedisAsyncCommands<String, String> commands = connection.async();
+      List<RedisFuture<String>> futures = new ArrayList<>(usernames.size());
+      for (String username : usernames) {
+        futures.add(
+          commands.set(
+            KEY_PREFIX + username,
+            Integer.toString(nodeId),
+            SetArgs.Builder.ex(ownerTtl)
+          )
+        );
+      }
+      connection.flushCommands();
+      if (
+        !LettuceFutures.awaitAll(
+          ownerTtl,
+          futures.toArray(new RedisFuture[0])
+        )
+      ) {
+        LOG.error("Sessions not refreshed in time");
+      }
+    } catch (RedisException e) {
+      LOG.error("Sessions not refreshed: {}", e.getMessage());
+    } finally {
+      connection.setAutoFlushCommands(true);
+      redisConnectionPool.release(connection);
+    }
+  }
+}
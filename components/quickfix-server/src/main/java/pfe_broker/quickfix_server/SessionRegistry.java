@@ -0,0 +1,270 @@
+package pfe_broker.quickfix_server;
+
+import io.micronaut.context.annotation.Property;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.inject.Singleton;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import quickfix.Message;
+import quickfix.Responder;
+import quickfix.Session;
+import quickfix.SessionID;
+import quickfix.mina.IoSessionResponder;
+
+/**
+ * Sessions of the logged on users, keyed by username.
+ *
+ * The registry is written by the QuickFIX/J threads on logon and logout and
+ * read by the Kafka listener threads which send the reports, without
+ * locking. The Session itself is cached, so sending a report does not look
+ * it up in the global session table of QuickFIX/J.
+ *
+ * The reports are not sent on the listener threads but queued per session,
+ * and each queue is drained by one task at a time on a shared pool, so a
+ * slow client only delays its own reports.
+ */
+@Singleton
+public class SessionRegistry {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    SessionRegistry.class
+  );
+
+  // Messages sent by a drain task before it yields its thread to the other
+  // sessions
+  private static final int DRAIN_BATCH_SIZE = 256;
+
+  /**
+   * Session of a user, with the number of messages being sent to it.
+   */
+  public static class SessionHandle {
+
+    private final String username;
+    private final Session session;
+    private final Executor executor;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final Queue<Message> queue = new ConcurrentLinkedQueue<>();
+    // Messages kept for the user while logged out, sent before the queue
+    private final Queue<Message> backlog = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    // Nothing is sent until the backlog is known
+    private volatile boolean held;
+
+    SessionHandle(
+      String username,
+      Session session,
+      Executor executor,
+      boolean held
+    ) {
+      this.username = username;
+      this.session = session;
+      this.executor = executor;
+      this.held = held;
+    }
+
+    /**
+     * Send the messages kept while the user was logged out, before the
+     * messages queued since the logon, and start sending the queue.
+     */
+    public void releaseBacklog(List<? extends Message> messages) {
+      queueDepth.addAndGet(messages.size());
+      backlog.addAll(messages);
+      held = false;
+      scheduleDrain();
+    }
+
+    /**
+     * Queue messages to be sent in order on the pool of the registry, after
+     * the messages already queued.
+     */
+    public void enqueue(List<? extends Message> messages) {
+      queueDepth.addAndGet(messages.size());
+      queue.addAll(messages);
+      scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+      if (held || !draining.compareAndSet(false, true)) {
+        return;
+      }
+      try {
+        executor.execute(this::drain);
+      } catch (RejectedExecutionException e) {
+        // The registry is closed
+        draining.set(false);
+      }
+    }
+
+    private void drain() {
+      try {
+        for (int i = 0; i < DRAIN_BATCH_SIZE; i++) {
+          Message message = backlog.poll();
+          if (message == null) {
+            message = queue.poll();
+          }
+          if (message == null) {
+            break;
+          }
+          try {
+            if (!session.send(message)) {
+              LOG.error("Message not sent to user [{}]", username);
+            }
+          } catch (RuntimeException e) {
+            LOG.error(
+              "Error while sending a message to user [{}]: {}",
+              username,
+              e.getMessage()
+            );
+          } finally {
+            queueDepth.decrementAndGet();
+          }
+        }
+      } finally {
+        draining.set(false);
+      }
+      // Messages queued during the drain, or beyond the batch
+      if (!backlog.isEmpty() || !queue.isEmpty()) {
+        scheduleDrain();
+      }
+    }
+
+    /**
+     * @return false if the message could not be sent, the session is
+     * logged out
+     */
+    public boolean send(Message message) {
+      queueDepth.incrementAndGet();
+      try {
+        return session.send(message);
+      } finally {
+        queueDepth.decrementAndGet();
+      }
+    }
+
+    public String getUsername() {
+      return username;
+    }
+
+    public Session getSession() {
+      return session;
+    }
+
+    /**
+     * @return the number of messages waiting to be written to the session
+     */
+    public int getQueueDepth() {
+      return queueDepth.get();
+    }
+
+    /**
+     * @return the number of messages sent to the session but still in the
+     * write queue of its socket, because the client does not read them
+     */
+    public int getPendingWrites() {
+      Responder responder = session.getResponder();
+      if (responder instanceof IoSessionResponder ioSessionResponder) {
+        return ioSessionResponder.getIoSession().getScheduledWriteMessages();
+      }
+      return 0;
+    }
+  }
+
+  private final Map<String, SessionHandle> handles = new ConcurrentHashMap<>();
+  private final Map<SessionID, SessionHandle> handlesBySessionID =
+    new ConcurrentHashMap<>();
+
+  @Property(name = "quickfix-server.reports.sender-threads")
+  private int senderThreads;
+
+  private ExecutorService senderExecutor;
+
+  @PostConstruct
+  void init() {
+    senderExecutor = Executors.newFixedThreadPool(senderThreads);
+  }
+
+  @PreDestroy
+  void close() {
+    senderExecutor.shutdownNow();
+  }
+
+  /**
+   * Register the session of a user which has logged on, replacing its
+   * previous session if any.
+   *
+   * The queue of the session is held until
+   * {@link SessionHandle#releaseBacklog(List)} is called.
+   *
+   * @return the session, null if not found
+   */
+  public SessionHandle register(String username, SessionID sessionID) {
+    Session session = Session.lookupSession(sessionID);
+    if (session == null) {
+      LOG.error("Session not found for user [{}]({})", username, sessionID);
+      return null;
+    }
+    SessionHandle handle = new SessionHandle(
+      username,
+      session,
+      senderExecutor,
+      true
+    );
+    SessionHandle previous = handles.put(username, handle);
+    if (previous != null) {
+      handlesBySessionID.remove(previous.getSession().getSessionID());
+    }
+    handlesBySessionID.put(sessionID, handle);
+    return handle;
+  }
+
+  /**
+   * Remove the session of a user which has logged out or disconnected.
+   */
+  public void unregister(SessionID sessionID) {
+    SessionHandle handle = handlesBySessionID.remove(sessionID);
+    if (handle != null) {
+      // Keep a newer session of the same user
+      handles.remove(handle.getUsername(), handle);
+    }
+  }
+
+  /**
+   * @return the session of the user, null if the user is not logged on
+   */
+  public SessionHandle get(String username) {
+    return handles.get(username);
+  }
+
+  /**
+   * @return the number of messages waiting to be written to the session of
+   * the user, 0 if the user is not logged on
+   */
+  public int getQueueDepth(String username) {
+    SessionHandle handle = handles.get(username);
+    return handle == null ? 0 : handle.getQueueDepth();
+  }
+
+  /**
+   * @return the users logged on to this node
+   */
+  public Collection<String> usernames() {
+    return handles.keySet();
+  }
+
+  public int size() {
+    return handles.size();
+  }
+}
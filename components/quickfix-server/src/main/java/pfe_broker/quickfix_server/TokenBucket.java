@@ -0,0 +1,57 @@
+package pfe_broker.quickfix_server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket refilled at a fixed rate up to a burst, lock-free.
+ *
+ * Implemented as a generic cell rate algorithm: rather than a number of
+ * tokens, the bucket keeps the time at which it would be full again, which
+ * moves forward by the interval between two tokens on each acquisition. A
+ * token is available while that time is less than a burst ahead of now.
+ */
+public final class TokenBucket {
+
+  private final long interval;
+  private final long burstTolerance;
+  private final LongSupplier clock;
+  private final AtomicLong fullAt;
+
+  /**
+   * @param rate tokens per second
+   * @param burst tokens available at once
+   */
+  public TokenBucket(double rate, int burst) {
+    this(rate, burst, System::nanoTime);
+  }
+
+  TokenBucket(double rate, int burst, LongSupplier clock) {
+    if (rate <= 0 || burst <= 0) {
+      throw new IllegalArgumentException(
+        "Rate and burst must be positive: " + rate + ", " + burst
+      );
+    }
+    this.interval = Math.max(1, (long) (1_000_000_000L / rate));
+    this.burstTolerance = interval * burst;
+    this.clock = clock;
+    this.fullAt = new AtomicLong(clock.getAsLong());
+  }
+
+  /**
+   * @return false if no token is available, the caller is over the rate
+   */
+  public boolean tryAcquire() {
+    long now = clock.getAsLong();
+    while (true) {
+      long previous = fullAt.get();
+      long next = Math.max(previous, now) + interval;
+      if (next - now > burstTolerance) {
+        return false;
+      }
+      if (fullAt.compareAndSet(previous, next)) {
+        return true;
+      }
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package pfe_broker.quickfix_server;
+
+import io.micronaut.context.annotation.Bean;
+import io.micronaut.context.annotation.Factory;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.context.annotation.Requires;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.admin.CreateTopicsOptions;
+import org.apache.kafka.clients.admin.NewTopic;
+
+@Requires(bean = AdminClient.class)
+@Factory
+public class TopicFactory {
+
+  @Bean
+  CreateTopicsOptions options() {
+    return new CreateTopicsOptions()
+      .timeoutMs(5000)
+      .validateOnly(false)
+      .retryOnQuotaViolation(false);
+  }
+
+  /**
+   * Reports forwarded to this node by the other nodes, in a single partition
+   * to keep the order of the reports of each user
+   */
+  @Bean
+  NewTopic nodeReportsTopic(
+    @Property(name = "kafka.topics.node-reports-prefix") String prefix,
+    @Property(name = "quickfix-server.node-id") int nodeId
+  ) {
+    return new NewTopic(prefix + nodeId, 1, (short) 1);
+  }
+}
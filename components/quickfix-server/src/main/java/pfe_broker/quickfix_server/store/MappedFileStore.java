@@ -0,0 +1,263 @@
+package pfe_broker.quickfix_server.store;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.Date;
+import quickfix.CharsetSupport;
+import quickfix.MessageStore;
+import quickfix.SystemTime;
+
+/**
+ * Message store of a FIX session backed by two memory-mapped files.
+ *
+ * The header file holds the creation time and the next sequence numbers,
+ * the body file is an append-only log of the messages sent, each record
+ * being [length][sequence number][message]. Both are written through the
+ * mappings, so storing a message or incrementing a sequence number is a
+ * memory write, without a system call. The body is mapped by regions which
+ * double when full.
+ *
+ * The offsets of the messages, needed to resend them, are kept in memory
+ * indexed by sequence number and rebuilt by scanning the log on startup.
+ *
+ * The pages are written back by the operating system: the store survives a
+ * crash of the process, not of the host. The store is closed with its
+ * session, QuickFIX/J closing the stores which are Closeable.
+ */
+public class MappedFileStore implements MessageStore, Closeable {
+
+  private static final int HEADER_SIZE = 64;
+  private static final int MAGIC = 0x4d465354; // MFST
+  private static final int MAGIC_OFFSET = 0;
+  private static final int CREATION_TIME_OFFSET = 8;
+  private static final int NEXT_SENDER_OFFSET = 16;
+  private static final int NEXT_TARGET_OFFSET = 20;
+
+  // Length and sequence number of a record
+  private static final int RECORD_HEADER_SIZE = 8;
+
+  private final Path headerPath;
+  private final Path bodyPath;
+  private final long initialSize;
+  private final Charset charset;
+
+  private FileChannel headerChannel;
+  private FileChannel bodyChannel;
+  private MappedByteBuffer header;
+  private MappedByteBuffer body;
+
+  // Position of the next record in the body
+  private int end;
+  // Offset of each message plus one, indexed by sequence number, 0 if absent
+  private int[] offsets = new int[1024];
+
+  public MappedFileStore(String path, String sessionName, long initialSize)
+    throws IOException {
+    File directory = new File(path);
+    directory.mkdirs();
+    this.headerPath = directory.toPath().resolve(sessionName + ".mheader");
+    this.bodyPath = directory.toPath().resolve(sessionName + ".mbody");
+    this.initialSize = initialSize;
+    this.charset = Charset.forName(CharsetSupport.getCharset());
+    open();
+  }
+
+  private void open() throws IOException {
+    headerChannel =
+      FileChannel.open(
+        headerPath,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      );
+    bodyChannel =
+      FileChannel.open(
+        bodyPath,
+        StandardOpenOption.CREATE,
+        StandardOpenOption.READ,
+        StandardOpenOption.WRITE
+      );
+    header = headerChannel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+    body =
+      bodyChannel.map(
+        FileChannel.MapMode.READ_WRITE,
+        0,
+        Math.max(initialSize, bodyChannel.size())
+      );
+
+    if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+      initialize();
+    } else {
+      rebuildIndex();
+    }
+  }
+
+  private void initialize() {
+    header.putLong(CREATION_TIME_OFFSET, SystemTime.currentTimeMillis());
+    header.putInt(NEXT_SENDER_OFFSET, 1);
+    header.putInt(NEXT_TARGET_OFFSET, 1);
+    header.putInt(MAGIC_OFFSET, MAGIC);
+    body.putInt(0, 0);
+    end = 0;
+    Arrays.fill(offsets, 0);
+  }
+
+  /**
+   * Scan the log up to the first empty record, the end of the log.
+   */
+  private void rebuildIndex() {
+    Arrays.fill(offsets, 0);
+    int position = 0;
+    while (position + RECORD_HEADER_SIZE <= body.capacity()) {
+      int length = body.getInt(position);
+      int next = position + RECORD_HEADER_SIZE + length;
+      if (length <= 0 || next > body.capacity()) {
+        break;
+      }
+      index(body.getInt(position + 4), position);
+      position = next;
+    }
+    end = position;
+  }
+
+  private void index(int sequence, int offset) {
+    if (sequence >= offsets.length) {
+      offsets =
+        Arrays.copyOf(offsets, Math.max(offsets.length * 2, sequence + 1));
+    }
+    offsets[sequence] = offset + 1;
+  }
+
+  @Override
+  public synchronized boolean set(int sequence, String message)
+    throws IOException {
+    byte[] bytes = message.getBytes(charset);
+    // The record and the empty record which ends the log
+    ensureCapacity(end + RECORD_HEADER_SIZE + bytes.length + 4);
+
+    int position = end;
+    body.putInt(position + 4, sequence);
+    body.put(position + RECORD_HEADER_SIZE, bytes);
+    body.putInt(position + RECORD_HEADER_SIZE + bytes.length, 0);
+    // Written last, a record is only read once complete
+    body.putInt(position, bytes.length);
+
+    index(sequence, position);
+    end = position + RECORD_HEADER_SIZE + bytes.length;
+    return true;
+  }
+
+  private void ensureCapacity(long capacity) throws IOException {
+    if (capacity <= body.capacity()) {
+      return;
+    }
+    long size = body.capacity();
+    while (size < capacity) {
+      size *= 2;
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IOException("Message store full: " + bodyPath);
+    }
+    body = bodyChannel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+  }
+
+  @Override
+  public synchronized void get(
+    int startSequence,
+    int endSequence,
+    Collection<String> messages
+  ) {
+    int last = Math.min(endSequence, offsets.length - 1);
+    for (int sequence = startSequence; sequence <= last; sequence++) {
+      int offset = offsets[sequence] - 1;
+      if (offset < 0) {
+        continue;
+      }
+      byte[] bytes = new byte[body.getInt(offset)];
+      body.get(offset + RECORD_HEADER_SIZE, bytes);
+      messages.add(new String(bytes, charset));
+    }
+  }
+
+  @Override
+  public synchronized int getNextSenderMsgSeqNum() {
+    return header.getInt(NEXT_SENDER_OFFSET);
+  }
+
+  @Override
+  public synchronized int getNextTargetMsgSeqNum() {
+    return header.getInt(NEXT_TARGET_OFFSET);
+  }
+
+  @Override
+  public synchronized void setNextSenderMsgSeqNum(int next) {
+    header.putInt(NEXT_SENDER_OFFSET, next);
+  }
+
+  @Override
+  public synchronized void setNextTargetMsgSeqNum(int next) {
+    header.putInt(NEXT_TARGET_OFFSET, next);
+  }
+
+  @Override
+  public synchronized void incrNextSenderMsgSeqNum() {
+    setNextSenderMsgSeqNum(getNextSenderMsgSeqNum() + 1);
+  }
+
+  @Override
+  public synchronized void incrNextTargetMsgSeqNum() {
+    setNextTargetMsgSeqNum(getNextTargetMsgSeqNum() + 1);
+  }
+
+  @Override
+  public synchronized Date getCreationTime() {
+    return new Date(header.getLong(CREATION_TIME_OFFSET));
+  }
+
+  @Override
+  public synchronized Calendar getCreationTimeCalendar() {
+    Calendar calendar = SystemTime.getUtcCalendar();
+    calendar.setTimeInMillis(header.getLong(CREATION_TIME_OFFSET));
+    return calendar;
+  }
+
+  @Override
+  public synchronized void reset() {
+    initialize();
+  }
+
+  @Override
+  public synchronized void refresh() throws IOException {
+    close();
+    open();
+  }
+
+  /**
+   * Write the pages back to the files, and close them
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    header.force();
+    body.force();
+    headerChannel.close();
+    bodyChannel.close();
+  }
+
+  /**
+   * Delete the files of a closed store
+   */
+  public void deleteFiles() throws IOException {
+    Files.deleteIfExists(headerPath);
+    Files.deleteIfExists(bodyPath);
+  }
+}
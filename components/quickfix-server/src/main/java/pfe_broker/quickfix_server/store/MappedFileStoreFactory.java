@@ -0,0 +1,43 @@
+package pfe_broker.quickfix_server.store;
+
+import java.io.IOException;
+import quickfix.ConfigError;
+import quickfix.FieldConvertError;
+import quickfix.FileStoreFactory;
+import quickfix.FileUtil;
+import quickfix.MessageStore;
+import quickfix.MessageStoreFactory;
+import quickfix.RuntimeError;
+import quickfix.SessionID;
+import quickfix.SessionSettings;
+
+/**
+ * Create a {@link MappedFileStore} per session, in the directory of the
+ * FileStorePath setting, like the {@link FileStoreFactory}.
+ */
+public class MappedFileStoreFactory implements MessageStoreFactory {
+
+  private final SessionSettings settings;
+  private final long initialSize;
+
+  public MappedFileStoreFactory(SessionSettings settings, long initialSize) {
+    this.settings = settings;
+    this.initialSize = initialSize;
+  }
+
+  @Override
+  public MessageStore create(SessionID sessionID) {
+    try {
+      return new MappedFileStore(
+        settings.getString(
+          sessionID,
+          FileStoreFactory.SETTING_FILE_STORE_PATH
+        ),
+        FileUtil.sessionIdFileName(sessionID),
+        initialSize
+      );
+    } catch (ConfigError | FieldConvertError | IOException e) {
+      throw new RuntimeError(e);
+    }
+  }
+}
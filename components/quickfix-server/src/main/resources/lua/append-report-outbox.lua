@@ -0,0 +1,16 @@
+-- Append execution reports to the outbox of a user who is not logged on,
+-- keeping only the most recent ones
+--
+-- KEYS[1]: outbox of the user (report-outbox:USERNAME)
+-- ARGV[1]: maximum number of reports kept
+-- ARGV[2]: time to live of the outbox, in seconds
+-- ARGV[3..]: reports, as FIX strings
+--
+-- Returns the number of reports in the outbox
+
+for i = 3, #ARGV do
+  redis.call('RPUSH', KEYS[1], ARGV[i])
+end
+redis.call('LTRIM', KEYS[1], -tonumber(ARGV[1]), -1)
+redis.call('EXPIRE', KEYS[1], ARGV[2])
+return redis.call('LLEN', KEYS[1])
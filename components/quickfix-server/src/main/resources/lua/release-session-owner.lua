@@ -0,0 +1,9 @@
+-- Delete the owner of a session only if it is still the given node, so a
+-- logout does not release a user which has logged on again on another node
+--
+-- KEYS[1]: session-owner:USERNAME
+-- ARGV[1]: node id
+if redis.call('GET', KEYS[1]) == ARGV[1] then
+  return redis.call('DEL', KEYS[1])
+end
+return 0
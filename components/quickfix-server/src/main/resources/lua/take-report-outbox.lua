@@ -0,0 +1,10 @@
+-- Read and empty the outbox of a user, in one step so a report appended
+-- meanwhile is neither lost nor read twice
+--
+-- KEYS[1]: outbox of the user (report-outbox:USERNAME)
+--
+-- Returns the reports, oldest first
+
+local reports = redis.call('LRANGE', KEYS[1], 0, -1)
+redis.call('DEL', KEYS[1])
+return reports
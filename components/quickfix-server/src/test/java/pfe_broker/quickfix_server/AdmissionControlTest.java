@@ -0,0 +1,155 @@
+package pfe_broker.quickfix_server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.annotation.TransactionMode;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.util.Map;
+import org.apache.kafka.clients.admin.AdminClient;
+import org.apache.kafka.clients.consumer.OffsetAndMetadata;
+import org.apache.kafka.clients.producer.KafkaProducer;
+import org.apache.kafka.clients.producer.ProducerConfig;
+import org.apache.kafka.clients.producer.ProducerRecord;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.serialization.StringSerializer;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.common.utils.RedisTestContainer;
+import pfe_broker.quickfix_server.AdmissionControl.Admission;
+
+@MicronautTest(
+  rollback = false,
+  transactional = false,
+  transactionMode = TransactionMode.SINGLE_TRANSACTION
+)
+@Property(
+  name = "datasources.default.driver-class-name",
+  value = "org.testcontainers.jdbc.ContainerDatabaseDriver"
+)
+@Property(
+  name = "datasources.default.url",
+  value = "jdbc:tc:postgresql:16.1:///db"
+)
+@Property(name = "quickfix-server.admission.session-burst", value = "2")
+@Property(name = "quickfix-server.admission.max-in-flight", value = "10")
+@Property(name = "quickfix-server.admission.lag-sample-interval", value = "1h")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class AdmissionControlTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  private static final String REPARTITION_TOPIC =
+    "OrderStream-orders-by-username-repartition";
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Container
+  static final RedisTestContainer redis = new RedisTestContainer();
+
+  @Inject
+  private AdmissionControl admissionControl;
+
+  @Inject
+  private AdminClient adminClient;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics(
+      "orders",
+      "accepted-trades",
+      "rejected-orders",
+      REPARTITION_TOPIC
+    );
+    if (!redis.isRunning()) {
+      redis.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl(),
+      "redis.uri",
+      redis.getRedisUrl()
+    );
+  }
+
+  private void produce(String topic, int count) throws Exception {
+    try (
+      KafkaProducer<String, String> producer = new KafkaProducer<>(
+        Map.of(
+          ProducerConfig.BOOTSTRAP_SERVERS_CONFIG,
+          kafka.getBootstrapServers(),
+          ProducerConfig.KEY_SERIALIZER_CLASS_CONFIG,
+          StringSerializer.class,
+          ProducerConfig.VALUE_SERIALIZER_CLASS_CONFIG,
+          StringSerializer.class
+        )
+      )
+    ) {
+      for (int i = 0; i < count; i++) {
+        producer.send(new ProducerRecord<>(topic, 0, "user", "order")).get();
+      }
+    }
+  }
+
+  private void commit(String topic, long offset) throws Exception {
+    adminClient
+      .alterConsumerGroupOffsets(
+        "OrderStream",
+        Map.of(new TopicPartition(topic, 0), new OffsetAndMetadata(offset))
+      )
+      .all()
+      .get();
+  }
+
+  @Test
+  void testSessionRate() {
+    assertThat(admissionControl.admit("user1")).isEqualTo(Admission.ADMITTED);
+    assertThat(admissionControl.admit("user1")).isEqualTo(Admission.ADMITTED);
+    assertThat(admissionControl.admit("user1"))
+      .isEqualTo(Admission.SESSION_RATE_EXCEEDED);
+
+    // The buckets are per session
+    assertThat(admissionControl.admit("user2")).isEqualTo(Admission.ADMITTED);
+
+    // A new bucket once the user has logged out
+    admissionControl.forget("user1");
+    assertThat(admissionControl.admit("user1")).isEqualTo(Admission.ADMITTED);
+  }
+
+  @Test
+  void testLagOfTheInputTopics() throws Exception {
+    produce("orders", 5);
+    produce(REPARTITION_TOPIC, 7);
+    commit("orders", 2);
+    commit(REPARTITION_TOPIC, 1);
+
+    // The orders not yet repartitioned, and those not yet checked
+    admissionControl.sampleLag();
+    assertThat(admissionControl.getLag()).isEqualTo(9);
+
+    assertThat(admissionControl.admit("user3")).isEqualTo(Admission.ADMITTED);
+    assertThat(admissionControl.admit("user4"))
+      .isEqualTo(Admission.TOO_MANY_ORDERS_IN_FLIGHT);
+
+    // Caught up
+    commit("orders", 5);
+    commit(REPARTITION_TOPIC, 7);
+    admissionControl.sampleLag();
+    assertThat(admissionControl.getLag()).isZero();
+    assertThat(admissionControl.admit("user4")).isEqualTo(Admission.ADMITTED);
+  }
+}
@@ -0,0 +1,133 @@
+package pfe_broker.quickfix_server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.annotation.TransactionMode;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.common.PasswordHasher;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.models.domains.User;
+import pfe_broker.models.repositories.UserRepository;
+
+@MicronautTest(
+  rollback = false,
+  transactional = false,
+  transactionMode = TransactionMode.SINGLE_TRANSACTION
+)
+@Property(
+  name = "datasources.default.driver-class-name",
+  value = "org.testcontainers.jdbc.ContainerDatabaseDriver"
+)
+@Property(
+  name = "datasources.default.url",
+  value = "jdbc:tc:postgresql:16.1:///db"
+)
+@Property(name = "quickfix-server.credentials.unknown-user-ttl", value = "1s")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class CredentialServiceTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Inject
+  private CredentialService credentialService;
+
+  @Inject
+  private UserRepository userRepository;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics("orders", "accepted-trades", "rejected-orders");
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl()
+    );
+  }
+
+  @BeforeAll
+  void setup() {
+    userRepository.save(
+      new User("hasheduser", PasswordHasher.hash("secret"), 100000L)
+    );
+    userRepository.save(new User("plainuser", "secret", 100000L));
+    userRepository.save(
+      new User("cacheduser", PasswordHasher.hash("secret"), 100000L)
+    );
+  }
+
+  @Test
+  void testVerifyHashedPassword() {
+    assertThat(credentialService.verify("hasheduser", "secret")).isTrue();
+    assertThat(credentialService.verify("hasheduser", "wrong")).isFalse();
+  }
+
+  @Test
+  void testVerifyUnknownUser() {
+    assertThat(credentialService.verify("unknownuser", "secret")).isFalse();
+  }
+
+  @Test
+  void testHashPlainPassword() {
+    assertThat(credentialService.verify("plainuser", "secret")).isTrue();
+
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        String stored = userRepository
+          .searchByUsername("plainuser")
+          .get()
+          .password();
+        assertThat(PasswordHasher.isHash(stored)).isTrue();
+      });
+    assertThat(credentialService.verify("plainuser", "secret")).isTrue();
+    assertThat(credentialService.verify("plainuser", "wrong")).isFalse();
+  }
+
+  @Test
+  void testCacheVerifications() {
+    assertThat(credentialService.verify("cacheduser", "secret")).isTrue();
+
+    long id = userRepository.searchByUsername("cacheduser").get().id();
+    userRepository.updatePassword(id, PasswordHasher.hash("changed"));
+
+    // Verified again from the cache, without reading nor hashing
+    assertThat(credentialService.verify("cacheduser", "secret")).isTrue();
+    // Only the password which has been verified
+    assertThat(credentialService.verify("cacheduser", "wrong")).isFalse();
+  }
+
+  @Test
+  void testCacheUnknownUsers() {
+    assertThat(credentialService.verify("lateuser", "secret")).isFalse();
+    userRepository.save(
+      new User("lateuser", PasswordHasher.hash("secret"), 100000L)
+    );
+
+    // Still unknown until the entry expires
+    assertThat(credentialService.verify("lateuser", "secret")).isFalse();
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .until(() -> credentialService.verify("lateuser", "secret"));
+  }
+}
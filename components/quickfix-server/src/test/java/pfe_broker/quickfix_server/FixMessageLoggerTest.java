@@ -0,0 +1,74 @@
+package pfe_broker.quickfix_server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+import quickfix.ConfigError;
+import quickfix.DataDictionary;
+import quickfix.field.ClOrdID;
+import quickfix.field.MDEntryType;
+import quickfix.field.MDReqID;
+import quickfix.field.MarketDepth;
+import quickfix.field.OrdType;
+import quickfix.field.SenderCompID;
+import quickfix.field.Side;
+import quickfix.field.SubscriptionRequestType;
+import quickfix.field.Symbol;
+import quickfix.field.TransactTime;
+import quickfix.fix44.MarketDataRequest;
+import quickfix.fix44.NewOrderSingle;
+
+class FixMessageLoggerTest {
+
+  private final FixMessageLogger fixMessageLogger;
+
+  FixMessageLoggerTest() throws ConfigError {
+    fixMessageLogger = new FixMessageLogger(new DataDictionary("FIX44.xml"));
+  }
+
+  @Test
+  void testFormatNamesFieldsAndValues() {
+    NewOrderSingle newOrderSingle = new NewOrderSingle(
+      new ClOrdID("1"),
+      new Side(Side.BUY),
+      new TransactTime(),
+      new OrdType(OrdType.MARKET)
+    );
+    newOrderSingle.set(new Symbol("AAPL"));
+    newOrderSingle.getHeader().setString(SenderCompID.FIELD, "user1");
+
+    String formatted = fixMessageLogger.format(newOrderSingle);
+
+    assertThat(formatted)
+      .contains("MsgType=NEW_ORDER_SINGLE")
+      .contains("SenderCompID=user1")
+      .contains("ClOrdID=1")
+      .contains("Side=BUY")
+      .contains("OrdType=MARKET")
+      .contains("Symbol=AAPL")
+      .doesNotEndWith("|");
+  }
+
+  @Test
+  void testFormatRepeatingGroups() {
+    MarketDataRequest marketDataRequest = new MarketDataRequest(
+      new MDReqID("1"),
+      new SubscriptionRequestType(SubscriptionRequestType.SNAPSHOT),
+      new MarketDepth(0)
+    );
+    MarketDataRequest.NoRelatedSym relatedSymbol =
+      new MarketDataRequest.NoRelatedSym();
+    relatedSymbol.set(new Symbol("GOOGL"));
+    marketDataRequest.addGroup(relatedSymbol);
+    MarketDataRequest.NoMDEntryTypes entryType =
+      new MarketDataRequest.NoMDEntryTypes();
+    entryType.set(new MDEntryType(MDEntryType.BID));
+    marketDataRequest.addGroup(entryType);
+
+    String formatted = fixMessageLogger.format(marketDataRequest);
+
+    assertThat(formatted)
+      .contains("NoRelatedSym=1|Symbol=GOOGL")
+      .contains("NoMDEntryTypes=1|MDEntryType=BID");
+  }
+}
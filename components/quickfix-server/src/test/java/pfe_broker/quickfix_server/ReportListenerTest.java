@@ -14,7 +14,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.ExecutionType;
 import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
 import pfe_broker.avro.Side;
 import pfe_broker.avro.Trade;
 import pfe_broker.common.utils.KafkaTestContainer;
@@ -62,15 +64,36 @@ public class ReportListenerTest implements TestPropertyProvider {
     MockReportProducer mockReportProducer,
     ServerApplication serverApplication
   ) {
-    Order order = new Order("testuser", "AAPL", 10, Side.BUY);
-    Trade trade = new Trade(order, "APPL", 100.0, 10);
+    Order order = new Order(
+      "testuser",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Trade trade = new Trade(
+      "0-0-0",
+      order,
+      "APPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
 
     mockReportProducer.sendTrade("testuser:1", trade);
 
     await()
       .atMost(5, TimeUnit.SECONDS)
       .untilAsserted(() -> {
-        assertEquals(1, serverApplication.getExecutionKey());
+        assertEquals(1, serverApplication.getSentReports());
       });
   }
 }
@@ -0,0 +1,128 @@
+package pfe_broker.quickfix_server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.annotation.TransactionMode;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.common.utils.RedisTestContainer;
+import quickfix.field.ClOrdID;
+import quickfix.fix44.ExecutionReport;
+
+@MicronautTest(
+  rollback = false,
+  transactional = false,
+  transactionMode = TransactionMode.SINGLE_TRANSACTION
+)
+@Property(
+  name = "datasources.default.driver-class-name",
+  value = "org.testcontainers.jdbc.ContainerDatabaseDriver"
+)
+@Property(
+  name = "datasources.default.url",
+  value = "jdbc:tc:postgresql:16.1:///db"
+)
+@Property(name = "quickfix-server.outbox.max-reports", value = "2")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class ReportOutboxTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Container
+  static final RedisTestContainer redis = new RedisTestContainer();
+
+  @Inject
+  private ReportOutbox reportOutbox;
+
+  @Inject
+  private ServerApplication serverApplication;
+
+  @Inject
+  private StatefulRedisConnection<String, String> redisConnection;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics("orders", "accepted-trades", "rejected-orders");
+    if (!redis.isRunning()) {
+      redis.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl(),
+      "redis.uri",
+      redis.getRedisUrl()
+    );
+  }
+
+  @BeforeEach
+  void setup() {
+    redisConnection.sync().flushall();
+  }
+
+  private static ExecutionReport report(String clOrdID) {
+    ExecutionReport report = new ExecutionReport();
+    report.set(new ClOrdID(clOrdID));
+    return report;
+  }
+
+  private String clOrdID(String report) throws Exception {
+    return serverApplication.parseReport(report).getString(ClOrdID.FIELD);
+  }
+
+  @Test
+  void testStoreAndTake() throws Exception {
+    assertThat(reportOutbox.store("user1", List.of(report("1"), report("2"))))
+      .isTrue();
+
+    List<String> reports = reportOutbox
+      .take("user1")
+      .toCompletableFuture()
+      .get();
+    assertThat(reports).hasSize(2);
+    assertThat(serverApplication.parseReport(reports.get(0)))
+      .isInstanceOf(ExecutionReport.class);
+    assertThat(clOrdID(reports.get(0))).isEqualTo("1");
+    assertThat(clOrdID(reports.get(1))).isEqualTo("2");
+
+    // Emptied by the first read
+    assertThat(reportOutbox.take("user1").toCompletableFuture().get())
+      .isEmpty();
+  }
+
+  @Test
+  void testKeepMostRecentReports() throws Exception {
+    reportOutbox.store("user1", List.of(report("1"), report("2")));
+    reportOutbox.store("user1", List.of(report("3")));
+
+    List<String> reports = reportOutbox
+      .take("user1")
+      .toCompletableFuture()
+      .get();
+    assertThat(reports).hasSize(2);
+    assertThat(clOrdID(reports.get(0))).isEqualTo("2");
+    assertThat(redisConnection.sync().exists("report-outbox:user1"))
+      .isZero();
+  }
+}
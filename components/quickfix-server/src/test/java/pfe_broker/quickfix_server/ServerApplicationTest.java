@@ -3,7 +3,6 @@ package pfe_broker.quickfix_server;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertNotNull;
 
 import io.micronaut.context.annotation.Property;
 import io.micronaut.core.annotation.NonNull;
@@ -12,31 +11,45 @@ import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
 import io.micronaut.test.support.TestPropertyProvider;
 import jakarta.inject.Inject;
 import java.time.Duration;
+import java.util.List;
 import java.util.Map;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.MarketData;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderRejectReason;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.RejectedOrder;
+import pfe_broker.avro.Trade;
 import pfe_broker.common.utils.KafkaTestContainer;
 import pfe_broker.models.domains.User;
 import pfe_broker.models.repositories.UserRepository;
 import pfe_broker.quickfix_server.mocks.MockOrderListener;
 import quickfix.FieldNotFound;
 import quickfix.IncorrectTagValue;
+import quickfix.Message;
 import quickfix.SessionID;
 import quickfix.UnsupportedMessageType;
+import quickfix.field.CxlRejReason;
+import quickfix.field.ExecType;
 import quickfix.field.MDEntryType;
 import quickfix.field.MDReqID;
 import quickfix.field.MDUpdateType;
 import quickfix.field.MarketDepth;
+import quickfix.field.OrdStatus;
 import quickfix.field.SenderCompID;
 import quickfix.field.SubscriptionRequestType;
 import quickfix.field.Symbol;
 import quickfix.field.TargetCompID;
+import quickfix.fix44.ExecutionReport;
 import quickfix.fix44.MarketDataRequest;
 import quickfix.fix44.MarketDataSnapshotFullRefresh;
 import quickfix.fix44.NewOrderSingle;
+import quickfix.fix44.OrderCancelReject;
 
 @MicronautTest(
   rollback = false,
@@ -85,7 +98,7 @@ public class ServerApplicationTest implements TestPropertyProvider {
 
   @BeforeAll
   void setup() {
-    user = new User("testuser", "testpassword", 1000.0);
+    user = new User("testuser", "testpassword", 100000L);
     userRepository.save(user);
   }
 
@@ -116,7 +129,44 @@ public class ServerApplicationTest implements TestPropertyProvider {
   }
 
   @Test
-  void createMarketDataSnapshotTest() throws FieldNotFound {
+  public void testUnsupportedOrderTypeRejected()
+    throws FieldNotFound, UnsupportedMessageType, IncorrectTagValue {
+    NewOrderSingle newOrderSingle = new NewOrderSingle(
+      new quickfix.field.ClOrdID("2"),
+      new quickfix.field.Side(quickfix.field.Side.SELL),
+      new quickfix.field.TransactTime(),
+      // Stop orders are not supported by the matcher
+      new quickfix.field.OrdType('3')
+    );
+    newOrderSingle.set(new quickfix.field.Symbol("AAPL"));
+    newOrderSingle.set(new quickfix.field.OrderQty(10));
+    newOrderSingle.getHeader().setString(SenderCompID.FIELD, "testuser");
+    int sentReports = serverApplication.getSentReports();
+
+    // Rejected with a report instead of failing on the FIX thread
+    serverApplication.onMessage(
+      newOrderSingle,
+      new SessionID("FIX.4.4", "testuser", "SERVER")
+    );
+    assertThat(serverApplication.getSentReports()).isEqualTo(sentReports + 1);
+  }
+
+  @Test
+  void createMarketDataSnapshotTest(
+    MarketDataCache marketDataCache,
+    MarketDataPublisher marketDataPublisher
+  ) throws FieldNotFound {
+    marketDataCache.update(
+      "GOOGL",
+      new MarketData(120.0f, 125.0f, 119.0f, 123.45f, 1000),
+      System.currentTimeMillis()
+    );
+    marketDataCache.update(
+      "AAPL",
+      new MarketData(450.0f, 460.0f, 449.0f, 456.78f, 2000),
+      System.currentTimeMillis()
+    );
+
     MarketDataRequest marketDataRequest = new MarketDataRequest();
 
     marketDataRequest.set(new MDReqID("1"));
@@ -133,26 +183,223 @@ public class ServerApplicationTest implements TestPropertyProvider {
     relatedSymbolGroup1.set(new Symbol("GOOGL"));
     marketDataRequest.addGroup(relatedSymbolGroup1);
 
-    MarketDataRequest.NoMDEntryTypes entryTypeGroup1 =
-      new MarketDataRequest.NoMDEntryTypes();
-    entryTypeGroup1.set(new MDEntryType(MDEntryType.BID));
-    marketDataRequest.addGroup(entryTypeGroup1);
-
     MarketDataRequest.NoRelatedSym relatedSymbolGroup2 =
       new MarketDataRequest.NoRelatedSym();
     relatedSymbolGroup2.set(new Symbol("AAPL"));
     marketDataRequest.addGroup(relatedSymbolGroup2);
 
+    MarketDataRequest.NoMDEntryTypes entryTypeGroup1 =
+      new MarketDataRequest.NoMDEntryTypes();
+    entryTypeGroup1.set(new MDEntryType(MDEntryType.BID));
+    marketDataRequest.addGroup(entryTypeGroup1);
+
     MarketDataRequest.NoMDEntryTypes entryTypeGroup2 =
       new MarketDataRequest.NoMDEntryTypes();
-    entryTypeGroup2.set(new MDEntryType(MDEntryType.BID));
+    entryTypeGroup2.set(
+      new MDEntryType(MDEntryType.TRADING_SESSION_HIGH_PRICE)
+    );
     marketDataRequest.addGroup(entryTypeGroup2);
 
-    MarketDataSnapshotFullRefresh snapshot = null;
-    snapshot = serverApplication.createMarketDataSnapshot(marketDataRequest);
+    List<MarketDataSnapshotFullRefresh> snapshots =
+      marketDataPublisher.createSnapshots(
+        marketDataPublisher.parseRequest(marketDataRequest)
+      );
 
-    assertNotNull(snapshot);
+    assertThat(snapshots).hasSize(2);
+    MarketDataSnapshotFullRefresh snapshot = snapshots.get(0);
     assertEquals("1", snapshot.getMDReqID().getValue());
+    assertEquals("GOOGL", snapshot.getSymbol().getValue());
     assertEquals(2, snapshot.getNoMDEntries().getValue());
+
+    MarketDataSnapshotFullRefresh.NoMDEntries entry =
+      new MarketDataSnapshotFullRefresh.NoMDEntries();
+    snapshot.getGroup(1, entry);
+    assertEquals(MDEntryType.BID, entry.getMDEntryType().getValue());
+    assertEquals(123.45, entry.getMDEntryPx().getValue(), 0.001);
+    assertEquals(1000, entry.getMDEntrySize().getValue(), 0.001);
+    snapshot.getGroup(2, entry);
+    assertEquals(125.0, entry.getMDEntryPx().getValue(), 0.001);
+  }
+
+  @Test
+  public void testTradeReports() throws FieldNotFound {
+    Order order = new Order(
+      "testuser",
+      "AAPL",
+      10,
+      pfe_broker.avro.Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+
+    ExecutionReport partial = serverApplication.createTradeReport(
+      "testuser:1:42",
+      new Trade(
+        "42-0",
+        order,
+        "AAPL",
+        10000L,
+        4,
+        4,
+        40000L,
+        null,
+        null,
+        0,
+        0L,
+        ExecutionType.TRADE,
+        null
+      )
+    );
+    assertEquals(OrdStatus.PARTIALLY_FILLED, partial.getOrdStatus().getValue());
+    assertEquals(4, partial.getCumQty().getValue(), 0.001);
+    assertEquals(6, partial.getLeavesQty().getValue(), 0.001);
+    assertEquals(100.0, partial.getAvgPx().getValue(), 0.001);
+
+    ExecutionReport filled = serverApplication.createTradeReport(
+      "testuser:1:42",
+      new Trade(
+        "42-1",
+        order,
+        "AAPL",
+        12500L,
+        6,
+        10,
+        115000L,
+        null,
+        null,
+        0,
+        0L,
+        ExecutionType.TRADE,
+        null
+      )
+    );
+    assertEquals(OrdStatus.FILLED, filled.getOrdStatus().getValue());
+    assertEquals(10, filled.getCumQty().getValue(), 0.001);
+    assertEquals(0, filled.getLeavesQty().getValue(), 0.001);
+    assertEquals(115.0, filled.getAvgPx().getValue(), 0.001);
+    assertEquals(125.0, filled.getLastPx().getValue(), 0.001);
+    assertEquals(6, filled.getLastQty().getValue(), 0.001);
+    // The same trade delivered again has the same ExecID
+    assertEquals("42-1", filled.getExecID().getValue());
+    assertEquals("42", filled.getOrderID().getValue());
+    assertEquals("1", filled.getClOrdID().getValue());
+  }
+
+  @Test
+  public void testReportsOfClOrdIDWithSeparator() throws FieldNotFound {
+    Order order = new Order(
+      "testuser",
+      "AAPL",
+      10,
+      pfe_broker.avro.Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+
+    ExecutionReport trade = serverApplication.createTradeReport(
+      "testuser:batch:7:43",
+      new Trade(
+        "43-0",
+        order,
+        "AAPL",
+        10000L,
+        10,
+        10,
+        100000L,
+        null,
+        null,
+        0,
+        0L,
+        ExecutionType.TRADE,
+        null
+      )
+    );
+    assertEquals("batch:7", trade.getClOrdID().getValue());
+    assertEquals("43", trade.getOrderID().getValue());
+
+    ExecutionReport rejected = serverApplication.createRejectedOrderReport(
+      "testuser:batch:7:43",
+      new RejectedOrder(order, OrderRejectReason.INCORRECT_QUANTITY),
+      "rejected-0-12"
+    );
+    assertEquals("batch:7", rejected.getClOrdID().getValue());
+    assertEquals("43", rejected.getOrderID().getValue());
+    assertEquals("rejected-0-12", rejected.getExecID().getValue());
+  }
+
+  @SuppressWarnings("unchecked")
+  private <T extends Message> T createOrderReport(Trade report) {
+    return (T) serverApplication.createReport("testuser:1:44", report);
+  }
+
+  @Test
+  public void testOrderAndCancelReports() throws FieldNotFound {
+    Order order = new Order(
+      "testuser",
+      "AAPL",
+      10,
+      pfe_broker.avro.Side.SELL,
+      OrderType.LIMIT,
+      12000L
+    );
+
+    ExecutionReport acknowledged = createOrderReport(
+      Trade
+        .newBuilder()
+        .setId("0-44-new")
+        .setOrder(order)
+        .setSymbol("AAPL")
+        .setPrice(0)
+        .setQuantity(0)
+        .setType(ExecutionType.NEW)
+        .build()
+    );
+    assertEquals(ExecType.NEW, acknowledged.getExecType().getValue());
+    assertEquals(OrdStatus.NEW, acknowledged.getOrdStatus().getValue());
+    assertEquals(10, acknowledged.getLeavesQty().getValue(), 0.001);
+    assertEquals("44", acknowledged.getOrderID().getValue());
+    assertEquals("1", acknowledged.getClOrdID().getValue());
+
+    ExecutionReport canceled = createOrderReport(
+      Trade
+        .newBuilder()
+        .setId("0-45-canceled")
+        .setOrder(order)
+        .setSymbol("AAPL")
+        .setPrice(0)
+        .setQuantity(6)
+        .setCumulativeQuantity(4)
+        .setCumulativeAmount(48000L)
+        .setType(ExecutionType.CANCELED)
+        .setCancelClOrdId("2")
+        .build()
+    );
+    assertEquals(ExecType.CANCELED, canceled.getExecType().getValue());
+    assertEquals(OrdStatus.CANCELED, canceled.getOrdStatus().getValue());
+    assertEquals(0, canceled.getLeavesQty().getValue(), 0.001);
+    assertEquals(4, canceled.getCumQty().getValue(), 0.001);
+    assertEquals(120.0, canceled.getAvgPx().getValue(), 0.001);
+    assertEquals("2", canceled.getClOrdID().getValue());
+    assertEquals("1", canceled.getOrigClOrdID().getValue());
+
+    OrderCancelReject cancelReject = createOrderReport(
+      Trade
+        .newBuilder()
+        .setId("0-46-cancel-rejected")
+        .setOrder(order)
+        .setSymbol("AAPL")
+        .setPrice(0)
+        .setQuantity(0)
+        .setType(ExecutionType.CANCEL_REJECTED)
+        .setCancelClOrdId("3")
+        .build()
+    );
+    assertEquals("44", cancelReject.getOrderID().getValue());
+    assertEquals("3", cancelReject.getClOrdID().getValue());
+    assertEquals("1", cancelReject.getOrigClOrdID().getValue());
+    assertEquals(
+      CxlRejReason.UNKNOWN_ORDER,
+      cancelReject.getCxlRejReason().getValue()
+    );
   }
 }
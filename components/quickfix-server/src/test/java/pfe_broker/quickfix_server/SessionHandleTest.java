@@ -0,0 +1,141 @@
+package pfe_broker.quickfix_server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import quickfix.Message;
+import quickfix.Session;
+import quickfix.field.ClOrdID;
+
+public class SessionHandleTest {
+
+  private ExecutorService executor;
+
+  @BeforeEach
+  void setup() {
+    executor = Executors.newFixedThreadPool(2);
+  }
+
+  @AfterEach
+  void close() {
+    executor.shutdownNow();
+  }
+
+  private static Message message(String clOrdID) {
+    Message message = new Message();
+    message.setField(new ClOrdID(clOrdID));
+    return message;
+  }
+
+  private static Session recordingSession(List<Message> sent) {
+    Session session = mock(Session.class);
+    when(session.send(any())).thenAnswer(invocation -> {
+      sent.add(invocation.getArgument(0));
+      return true;
+    });
+    return session;
+  }
+
+  @Test
+  void testMessagesSentInOrder() throws Exception {
+    List<Message> sent = new CopyOnWriteArrayList<>();
+    SessionRegistry.SessionHandle handle = new SessionRegistry.SessionHandle(
+      "user",
+      recordingSession(sent),
+      executor,
+      false
+    );
+
+    for (int i = 0; i < 1000; i += 10) {
+      handle.enqueue(
+        IntStream
+          .range(i, i + 10)
+          .mapToObj(j -> message(Integer.toString(j)))
+          .toList()
+      );
+    }
+
+    await()
+      .atMost(5, TimeUnit.SECONDS)
+      .untilAsserted(() -> assertThat(handle.getQueueDepth()).isZero());
+    assertThat(sent).hasSize(1000);
+    for (int i = 0; i < 1000; i++) {
+      assertThat(sent.get(i).getString(ClOrdID.FIELD))
+        .isEqualTo(Integer.toString(i));
+    }
+  }
+
+  @Test
+  void testSlowSessionDoesNotDelayOthers() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Session slowSession = mock(Session.class);
+    when(slowSession.send(any())).thenAnswer(invocation -> {
+      release.await();
+      return true;
+    });
+    SessionRegistry.SessionHandle slow = new SessionRegistry.SessionHandle(
+      "slow",
+      slowSession,
+      executor,
+      false
+    );
+    List<Message> sent = new CopyOnWriteArrayList<>();
+    SessionRegistry.SessionHandle fast = new SessionRegistry.SessionHandle(
+      "fast",
+      recordingSession(sent),
+      executor,
+      false
+    );
+
+    slow.enqueue(List.of(message("1"), message("2")));
+    fast.enqueue(List.of(message("1"), message("2")));
+
+    await()
+      .atMost(5, TimeUnit.SECONDS)
+      .untilAsserted(() -> assertThat(sent).hasSize(2));
+    assertThat(slow.getQueueDepth()).isEqualTo(2);
+
+    release.countDown();
+    await()
+      .atMost(5, TimeUnit.SECONDS)
+      .untilAsserted(() -> assertThat(slow.getQueueDepth()).isZero());
+  }
+
+  @Test
+  void testBacklogSentFirst() throws Exception {
+    List<Message> sent = new CopyOnWriteArrayList<>();
+    SessionRegistry.SessionHandle handle = new SessionRegistry.SessionHandle(
+      "user",
+      recordingSession(sent),
+      executor,
+      true
+    );
+
+    handle.enqueue(List.of(message("3")));
+    Thread.sleep(100);
+    assertThat(sent).isEmpty();
+
+    handle.releaseBacklog(List.of(message("1"), message("2")));
+    await()
+      .atMost(5, TimeUnit.SECONDS)
+      .untilAsserted(() -> assertThat(handle.getQueueDepth()).isZero());
+    assertThat(sent).hasSize(3);
+    for (int i = 0; i < 3; i++) {
+      assertThat(sent.get(i).getString(ClOrdID.FIELD))
+        .isEqualTo(Integer.toString(i + 1));
+    }
+  }
+}
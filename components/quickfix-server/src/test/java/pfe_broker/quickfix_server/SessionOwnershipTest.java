@@ -0,0 +1,102 @@
+package pfe_broker.quickfix_server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.annotation.TransactionMode;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import jakarta.inject.Inject;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.common.utils.RedisTestContainer;
+
+@MicronautTest(
+  rollback = false,
+  transactional = false,
+  transactionMode = TransactionMode.SINGLE_TRANSACTION
+)
+@Property(
+  name = "datasources.default.driver-class-name",
+  value = "org.testcontainers.jdbc.ContainerDatabaseDriver"
+)
+@Property(
+  name = "datasources.default.url",
+  value = "jdbc:tc:postgresql:16.1:///db"
+)
+@Property(name = "quickfix-server.node-id", value = "1")
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+public class SessionOwnershipTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Container
+  static final RedisTestContainer redis = new RedisTestContainer();
+
+  @Inject
+  private SessionOwnership sessionOwnership;
+
+  @Inject
+  private StatefulRedisConnection<String, String> redisConnection;
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics("orders", "accepted-trades", "rejected-orders");
+    if (!redis.isRunning()) {
+      redis.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl(),
+      "redis.uri",
+      redis.getRedisUrl()
+    );
+  }
+
+  @BeforeEach
+  void setup() {
+    redisConnection.sync().flushall();
+  }
+
+  @Test
+  void testClaimAndRelease() {
+    sessionOwnership.claim("user1");
+    redisConnection.sync().set("session-owner:user2", "2");
+
+    assertThat(sessionOwnership.owners(List.of("user1", "user2", "user3")))
+      .containsExactlyInAnyOrderEntriesOf(Map.of("user1", 1, "user2", 2));
+    assertThat(redisConnection.sync().ttl("session-owner:user1")).isPositive();
+
+    sessionOwnership.release("user1");
+    assertThat(sessionOwnership.owners(List.of("user1"))).isEmpty();
+  }
+
+  @Test
+  void testReleaseKeepsOtherNodeClaim() {
+    sessionOwnership.claim("user1");
+    // The user logged on again to another node
+    redisConnection.sync().set("session-owner:user1", "2");
+
+    sessionOwnership.release("user1");
+    assertThat(sessionOwnership.owners(List.of("user1")))
+      .containsEntry("user1", 2);
+  }
+}
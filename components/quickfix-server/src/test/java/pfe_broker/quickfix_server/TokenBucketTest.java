@@ -0,0 +1,60 @@
+package pfe_broker.quickfix_server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class TokenBucketTest {
+
+  private static final long SECOND = 1_000_000_000L;
+
+  @Test
+  void testBurst() {
+    AtomicLong clock = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(10, 5, clock::get);
+
+    for (int i = 0; i < 5; i++) {
+      assertThat(bucket.tryAcquire()).isTrue();
+    }
+    assertThat(bucket.tryAcquire()).isFalse();
+  }
+
+  @Test
+  void testRefill() {
+    AtomicLong clock = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(10, 5, clock::get);
+    for (int i = 0; i < 5; i++) {
+      bucket.tryAcquire();
+    }
+
+    // One token every 100 ms
+    clock.addAndGet(SECOND / 10);
+    assertThat(bucket.tryAcquire()).isTrue();
+    assertThat(bucket.tryAcquire()).isFalse();
+
+    // Refilled up to the burst only
+    clock.addAndGet(10 * SECOND);
+    int acquired = 0;
+    while (bucket.tryAcquire()) {
+      acquired++;
+    }
+    assertThat(acquired).isEqualTo(5);
+  }
+
+  @Test
+  void testRate() {
+    AtomicLong clock = new AtomicLong();
+    TokenBucket bucket = new TokenBucket(1000, 1, clock::get);
+
+    int acquired = 0;
+    for (int i = 0; i < 100_000; i++) {
+      clock.addAndGet(SECOND / 10_000);
+      if (bucket.tryAcquire()) {
+        acquired++;
+      }
+    }
+    // 10 seconds at 1000 orders per second
+    assertThat(acquired).isBetween(9_999, 10_001);
+  }
+}
@@ -0,0 +1,95 @@
+package pfe_broker.quickfix_server.store;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class MappedFileStoreTest {
+
+  @TempDir
+  Path directory;
+
+  private MappedFileStore open(long size) throws Exception {
+    return new MappedFileStore(directory.toString(), "session", size);
+  }
+
+  @Test
+  void testSetAndGet() throws Exception {
+    MappedFileStore store = open(1024);
+    assertThat(store.getNextSenderMsgSeqNum()).isEqualTo(1);
+    assertThat(store.getNextTargetMsgSeqNum()).isEqualTo(1);
+
+    store.set(1, "first");
+    store.set(2, "second");
+    store.set(4, "fourth");
+
+    List<String> messages = new ArrayList<>();
+    store.get(1, 4, messages);
+    assertThat(messages).containsExactly("first", "second", "fourth");
+    store.close();
+  }
+
+  @Test
+  void testGrow() throws Exception {
+    MappedFileStore store = open(64);
+    for (int sequence = 1; sequence <= 2000; sequence++) {
+      store.set(sequence, "message " + sequence);
+    }
+
+    List<String> messages = new ArrayList<>();
+    store.get(1999, 2000, messages);
+    assertThat(messages).containsExactly("message 1999", "message 2000");
+    store.close();
+  }
+
+  @Test
+  void testReopen() throws Exception {
+    MappedFileStore store = open(1024);
+    store.set(1, "first");
+    store.set(2, "second");
+    store.setNextSenderMsgSeqNum(3);
+    store.incrNextTargetMsgSeqNum();
+    long creationTime = store.getCreationTime().getTime();
+    store.close();
+
+    store = open(1024);
+    assertThat(store.getNextSenderMsgSeqNum()).isEqualTo(3);
+    assertThat(store.getNextTargetMsgSeqNum()).isEqualTo(2);
+    assertThat(store.getCreationTime().getTime()).isEqualTo(creationTime);
+
+    List<String> messages = new ArrayList<>();
+    store.get(1, 2, messages);
+    assertThat(messages).containsExactly("first", "second");
+
+    // Appended after the messages stored before the restart
+    store.set(3, "third");
+    store.refresh();
+    messages.clear();
+    store.get(1, 3, messages);
+    assertThat(messages).containsExactly("first", "second", "third");
+    store.close();
+  }
+
+  @Test
+  void testReset() throws Exception {
+    MappedFileStore store = open(1024);
+    store.set(1, "first");
+    store.setNextSenderMsgSeqNum(2);
+    store.reset();
+
+    assertThat(store.getNextSenderMsgSeqNum()).isEqualTo(1);
+    List<String> messages = new ArrayList<>();
+    store.get(1, 1, messages);
+    assertThat(messages).isEmpty();
+    store.close();
+
+    store = open(1024);
+    store.get(1, 1, messages);
+    assertThat(messages).isEmpty();
+    store.close();
+  }
+}
@@ -0,0 +1,60 @@
+package pfe_broker.trade_stream;
+
+import java.util.List;
+import org.apache.kafka.streams.KeyValue;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+
+/**
+ * Changes applied to the accounts of Redis by the settlement of a trade,
+ * see lua/settle-trades.lua, keyed like the Redis keys with the amount
+ * added as value. They are published with the settled trades, and feed
+ * the position stores of order-stream.
+ */
+final class AccountChanges {
+
+  private AccountChanges() {}
+
+  /**
+   * @param leg the trade of an order of a fill with its result, see
+   * {@link FillSettlement#legs(String, Trade)}
+   * @return the changes of the account of the order
+   */
+  static List<KeyValue<String, Long>> of(TradeIntegrityCheckRecord leg) {
+    Trade trade = leg.trade();
+    String username = trade.getOrder().getUsername().toString();
+    String balanceKey = username + ":balance";
+    String stockKey = username + ":" + trade.getSymbol();
+    long quantity = trade.getQuantity();
+    boolean sells = trade.getOrder().getSide() == Side.SELL;
+
+    if (trade.getType() == ExecutionType.CANCELED) {
+      // The stocks reserved by a canceled SELL order are released
+      return sells ? List.of(KeyValue.pair(stockKey, quantity)) : List.of();
+    }
+    if (trade.getType() != ExecutionType.TRADE) {
+      return List.of();
+    }
+
+    if (leg.orderRejectReason() != null) {
+      // Only the SELL orders rejected for their counterparty had an account
+      // whose reserved stocks are released
+      boolean released =
+        sells &&
+        leg.orderRejectReason() ==
+        SettlementResult.COUNTERPARTY_REJECTED.rejectReason();
+      return released ? List.of(KeyValue.pair(stockKey, quantity)) : List.of();
+    }
+
+    long amount = trade.getPrice() * quantity;
+    if (sells) {
+      // The stocks have been reserved when the order has been accepted
+      return List.of(KeyValue.pair(balanceKey, amount));
+    }
+    return List.of(
+      KeyValue.pair(balanceKey, -amount),
+      KeyValue.pair(stockKey, quantity)
+    );
+  }
+}
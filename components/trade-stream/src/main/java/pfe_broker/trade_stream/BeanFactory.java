@@ -40,4 +40,12 @@ public class BeanFactory {
   ) {
     return new NewTopic(topicName, 2, (short) 1);
   }
+
+  @Bean
+  @Requires(property = "kafka.common.account-changes", value = "true")
+  NewTopic accountChangesTopic(
+    @Property(name = "kafka.topics.account-changes") String topicName
+  ) {
+    return new NewTopic(topicName, 2, (short) 1);
+  }
 }
@@ -0,0 +1,78 @@
+package pfe_broker.trade_stream;
+
+import java.util.List;
+import org.apache.kafka.streams.KeyValue;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+
+/**
+ * Result of the settlement of a fill, for each of its sides.
+ *
+ * A fill between two orders of the book carries both orders, see
+ * {@link Trade#getCounterpartyOrder()}, and is split into one trade per
+ * order once settled, each keyed by the key of its order.
+ *
+ * @param buyer the result of the BUY side, SETTLED if the fill has none
+ * @param seller the result of the SELL side, SETTLED if the fill has none
+ */
+public record FillSettlement(SettlementResult buyer, SettlementResult seller) {
+  public static final FillSettlement SETTLED = new FillSettlement(
+    SettlementResult.SETTLED,
+    SettlementResult.SETTLED
+  );
+
+  public SettlementResult of(Side side) {
+    return side == Side.BUY ? buyer : seller;
+  }
+
+  /**
+   * @param key the key of the fill, the key of its incoming order
+   * @return the trade of each order of the fill with its result
+   */
+  public List<KeyValue<String, TradeIntegrityCheckRecord>> legs(
+    String key,
+    Trade fill
+  ) {
+    Order order = fill.getOrder();
+    if (fill.getCounterpartyOrder() == null) {
+      return List.of(KeyValue.pair(key, record(fill, order.getSide())));
+    }
+
+    Order counterparty = fill.getCounterpartyOrder();
+    Trade leg = Trade
+      .newBuilder(fill)
+      .setId(legId(fill, order))
+      .clearCounterpartyKey()
+      .clearCounterpartyOrder()
+      .clearCounterpartyCumulativeQuantity()
+      .clearCounterpartyCumulativeAmount()
+      .build();
+    Trade counterpartyLeg = Trade
+      .newBuilder(leg)
+      .setId(legId(fill, counterparty))
+      .setOrder(counterparty)
+      .setCumulativeQuantity(fill.getCounterpartyCumulativeQuantity())
+      .setCumulativeAmount(fill.getCounterpartyCumulativeAmount())
+      .build();
+    return List.of(
+      KeyValue.pair(key, record(leg, order.getSide())),
+      KeyValue.pair(
+        fill.getCounterpartyKey().toString(),
+        record(counterpartyLeg, counterparty.getSide())
+      )
+    );
+  }
+
+  /**
+   * @return an id of the trade of an order of the fill, which does not
+   * change when the fill is received again
+   */
+  private static String legId(Trade fill, Order order) {
+    return fill.getId() + "-" + order.getSide();
+  }
+
+  private TradeIntegrityCheckRecord record(Trade trade, Side side) {
+    return new TradeIntegrityCheckRecord(trade, of(side).rejectReason());
+  }
+}
@@ -0,0 +1,38 @@
+package pfe_broker.trade_stream;
+
+import pfe_broker.avro.OrderRejectReason;
+
+/**
+ * Result of the settlement of a side of a fill, see lua/settle-trades.lua.
+ */
+public enum SettlementResult {
+  SETTLED(0, null),
+  UNKNOWN_ACCOUNT(1, OrderRejectReason.UNKNOWN_ACCOUNT),
+  INSUFFICIENT_FUNDS(2, OrderRejectReason.INCORRECT_QUANTITY),
+  // The other side of the fill could not be settled
+  COUNTERPARTY_REJECTED(3, OrderRejectReason.OTHER);
+
+  private final long code;
+  private final OrderRejectReason rejectReason;
+
+  SettlementResult(long code, OrderRejectReason rejectReason) {
+    this.code = code;
+    this.rejectReason = rejectReason;
+  }
+
+  public static SettlementResult fromCode(long code) {
+    for (SettlementResult result : values()) {
+      if (result.code == code) {
+        return result;
+      }
+    }
+    throw new IllegalArgumentException("Unknown settlement result: " + code);
+  }
+
+  /**
+   * @return the reason to reject the order with, null if the trade is settled
+   */
+  public OrderRejectReason rejectReason() {
+    return rejectReason;
+  }
+}
@@ -1,18 +1,27 @@
 package pfe_broker.trade_stream;
 
 import io.lettuce.core.RedisClient;
-import io.lettuce.core.api.StatefulRedisConnection;
-import io.lettuce.core.api.sync.RedisCommands;
+import io.lettuce.core.ScriptOutputType;
 import io.micronaut.context.annotation.Property;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import pfe_broker.avro.OrderRejectReason;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.Order;
 import pfe_broker.avro.Side;
 import pfe_broker.avro.Trade;
+import pfe_broker.common.RedisConnectionPool;
+import pfe_broker.common.RedisConnectionPoolReporter;
+import pfe_broker.common.RedisScript;
 import pfe_broker.common.UtilsRunning;
 
+@Singleton
 public class TradeIntegrityCheckService {
 
   private static final Logger LOG = LoggerFactory.getLogger(
@@ -22,80 +31,180 @@ public class TradeIntegrityCheckService {
   @Inject
   private RedisClient redisClient;
 
+  @Inject
+  private RedisConnectionPoolReporter redisPoolReporter;
+
   @Property(name = "redis.uri")
   private String redisUri;
 
-  private StatefulRedisConnection<String, String> redisConnection;
+  @Property(name = "redis.connection-pool.size")
+  private int redisPoolSize;
+
+  @Property(name = "redis.connection-pool.max-wait")
+  private Duration redisPoolMaxWait;
+
+  @Property(name = "trade-stream.settled-trades-ttl")
+  private Duration settledTradesTtl;
+
+  private RedisConnectionPool redisConnectionPool;
+
+  private final RedisScript settleTradesScript = RedisScript.fromResource(
+    "lua/settle-trades.lua"
+  );
 
   @PostConstruct
   void init() {
     if (this.isRedisRunning()) {
-      this.redisConnection = redisClient.connect();
+      this.redisConnectionPool =
+        new RedisConnectionPool(redisClient, redisPoolSize, redisPoolMaxWait);
+      this.redisPoolReporter.register(
+          "trade-settlement",
+          this.redisConnectionPool
+        );
     } else {
       LOG.error("Redis is not running");
     }
   }
 
-  private OrderRejectReason marketOrderCheckIntegrity(Trade trade) {
-    RedisCommands<String, String> syncCommands = redisConnection.sync();
+  @PreDestroy
+  void close() {
+    if (this.redisConnectionPool != null) {
+      this.redisPoolReporter.unregister("trade-settlement");
+      this.redisConnectionPool.close();
+    }
+  }
 
-    String username = trade.getOrder().getUsername().toString();
-    String symbol = trade.getSymbol().toString();
-    Integer quantity = trade.getQuantity();
-    Double price = trade.getPrice();
-    Side side = trade.getOrder().getSide();
-    Double amount = price * quantity;
+  /**
+   * @return the key of the result of the settlement of a fill, which
+   * prevents a fill received again, after a crash before its result has
+   * been committed, from being settled twice. The market-matcher commits
+   * each trade id once, for a single fill.
+   */
+  private static String settledTradeKey(Trade fill) {
+    return "settled-trade:" + fill.getId();
+  }
 
-    String stockKey = username + ":" + symbol;
-    String balanceKey = username + ":balance";
+  /**
+   * Settle a fill, both its sides at once when it is between two orders:
+   * check the balance of the buyer, debit its cash and credit its shares,
+   * and credit the cash of the seller, atomically and in a single round
+   * trip. A fill which has already been settled is not settled again, its
+   * recorded result is returned.
+   */
+  public FillSettlement settle(Trade fill) {
+    FillSettlement settlement = settleBatch(List.of(fill)).get(0);
+    LOG.debug("Fill {} settled: {}", fill, settlement);
+    return settlement;
+  }
 
-    if (side == Side.SELL) {
-      syncCommands.incrbyfloat(balanceKey, amount);
-      return null;
+  /**
+   * Settle several fills in order with a single script, which checks the
+   * balance of each buyer and then applies the net cash and position
+   * deltas of each account at once.
+   *
+   * The reports of the orders which are not fills are settled as well when
+   * they change an account, see {@link #changesAccounts(Trade)}, the others
+   * are passed through.
+   *
+   * @return the results of the fills, in the same order
+   */
+  public List<FillSettlement> settleBatch(List<Trade> fills) {
+    List<Trade> settledFills = fills
+      .stream()
+      .filter(TradeIntegrityCheckService::changesAccounts)
+      .toList();
+    List<Long> codes = settledFills.isEmpty()
+      ? List.of()
+      : eval(new SettleArguments(settledFills));
+
+    List<FillSettlement> settlements = new ArrayList<>(fills.size());
+    int settled = 0;
+    for (Trade fill : fills) {
+      settlements.add(
+        changesAccounts(fill)
+          ? fromCodes(codes, settled++)
+          : FillSettlement.SETTLED
+      );
     }
+    return settlements;
+  }
 
-    syncCommands.watch(balanceKey);
-    int countdown = 10;
-    while (countdown-- > 0) {
-      Double balance = Double.parseDouble(syncCommands.get(balanceKey));
-      if (balance < amount) {
-        syncCommands.unwatch();
-        LOG.debug(
-          "Order {} rejected because of insufficient funds",
-          trade.getOrder()
-        );
-        return OrderRejectReason.INCORRECT_QUANTITY;
-      }
-      syncCommands.multi();
-      syncCommands.incrbyfloat(balanceKey, -amount);
-      syncCommands.incrby(stockKey, quantity);
-
-      try {
-        syncCommands.exec();
-        return null;
-      } catch (Exception e) {
-        LOG.debug("Retrying trade {}", trade);
-      }
-    }
-    LOG.debug(
-      "Order {} rejected because of insufficient funds",
-      trade.getOrder()
+  private List<Long> eval(SettleArguments arguments) {
+    return redisConnectionPool.execute(commands ->
+      settleTradesScript.eval(
+        commands,
+        ScriptOutputType.MULTI,
+        arguments.keys,
+        arguments.args
+      )
     );
-    syncCommands.unwatch();
-    return OrderRejectReason.INCORRECT_QUANTITY;
   }
 
-  public OrderRejectReason checkIntegrity(Trade trade) {
-    LOG.debug("Checking integrity of trade {}", trade);
+  /**
+   * @return true for a fill, and for the cancel of a SELL order whose
+   * reserved stocks are released. The acknowledgements and the cancels of
+   * the BUY orders, which reserve nothing, change no account.
+   */
+  private static boolean changesAccounts(Trade trade) {
+    if (trade.getType() == ExecutionType.TRADE) {
+      return true;
+    }
+    return (
+      trade.getType() == ExecutionType.CANCELED &&
+      trade.getOrder().getSide() == Side.SELL
+    );
+  }
 
-    OrderRejectReason marketOrderCheckIntegrityResult =
-      marketOrderCheckIntegrity(trade);
+  private static FillSettlement fromCodes(List<Long> codes, int fill) {
+    return new FillSettlement(
+      SettlementResult.fromCode(codes.get(2 * fill)),
+      SettlementResult.fromCode(codes.get(2 * fill + 1))
+    );
+  }
 
-    if (marketOrderCheckIntegrityResult == null) {
-      LOG.debug("Trade {} accepted", trade);
+  /**
+   * Keys and arguments of lua/settle-trades.lua.
+   */
+  private class SettleArguments {
+
+    private final String[] keys;
+    private final String[] args;
+
+    SettleArguments(List<Trade> fills) {
+      keys = new String[fills.size() * 5];
+      args = new String[fills.size() * 3 + 1];
+      args[0] = String.valueOf(settledTradesTtl.toSeconds());
+      for (int i = 0; i < fills.size(); i++) {
+        Trade fill = fills.get(i);
+        Order order = fill.getOrder();
+        Order counterparty = fill.getCounterpartyOrder();
+        // The keys of a missing side are those of the other one, unused
+        Order buyer = order.getSide() == Side.BUY || counterparty == null
+          ? order
+          : counterparty;
+        Order seller = order.getSide() == Side.SELL || counterparty == null
+          ? order
+          : counterparty;
+
+        keys[5 * i] = settledTradeKey(fill);
+        keys[5 * i + 1] = buyer.getUsername() + ":balance";
+        keys[5 * i + 2] = buyer.getUsername() + ":" + fill.getSymbol();
+        keys[5 * i + 3] = seller.getUsername() + ":balance";
+        keys[5 * i + 4] = seller.getUsername() + ":" + fill.getSymbol();
+        args[3 * i + 1] = String.valueOf(fill.getQuantity());
+        args[3 * i + 2] = String.valueOf(fill.getPrice() * fill.getQuantity());
+        args[3 * i + 3] = sides(fill);
+      }
     }
+  }
 
-    return marketOrderCheckIntegrityResult;
+  private static String sides(Trade fill) {
+    if (fill.getType() == ExecutionType.CANCELED) {
+      return "RELEASE";
+    }
+    return fill.getCounterpartyOrder() == null
+      ? fill.getOrder().getSide().toString()
+      : "BOTH";
   }
 
   private boolean isRedisRunning() {
@@ -0,0 +1,149 @@
+package pfe_broker.trade_stream;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import org.apache.kafka.streams.KeyValue;
+import org.apache.kafka.streams.processor.Cancellable;
+import org.apache.kafka.streams.processor.PunctuationType;
+import org.apache.kafka.streams.processor.api.Processor;
+import org.apache.kafka.streams.processor.api.ProcessorContext;
+import org.apache.kafka.streams.processor.api.Record;
+import org.apache.kafka.streams.state.KeyValueIterator;
+import org.apache.kafka.streams.state.KeyValueStore;
+import pfe_broker.avro.Trade;
+import pfe_broker.common.PendingRecord;
+
+/**
+ * Settle the trades by batches, with one update of the balance and of each
+ * position per account and per batch.
+ *
+ * The fills are buffered until the batch is full or the punctuator fires,
+ * then settled in the order they have been received, see
+ * {@link TradeIntegrityCheckService#settleBatch(List)}. The trades of the
+ * orders of each fill are forwarded in the order of the records.
+ *
+ * A trade waits at most the configured latency, plus the round trip,
+ * before being forwarded. The pending trades are kept in a changelogged
+ * store, {@link #PENDING_TRADES_STORE}, and removed in the transaction which
+ * forwards their results, so a trade received before a commit is settled by
+ * the next owner of the task after a crash or a rebalance. A batch settled
+ * again after a crash gets the results recorded by the first settlement.
+ */
+public class TradeNettingProcessor
+  implements Processor<String, Trade, String, TradeIntegrityCheckRecord> {
+
+  public static final String PENDING_TRADES_STORE = "pending-trades";
+
+  private final TradeIntegrityCheckService integrityCheckService;
+  private final int maxBatchSize;
+  private final Duration maxLatency;
+
+  private ProcessorContext<String, TradeIntegrityCheckRecord> context;
+  private KeyValueStore<Long, PendingRecord<Trade>> pendingTrades;
+  private Cancellable punctuator;
+  private long nextSequence;
+  private int pendingCount;
+
+  public TradeNettingProcessor(
+    TradeIntegrityCheckService integrityCheckService,
+    int maxBatchSize,
+    Duration maxLatency
+  ) {
+    this.integrityCheckService = integrityCheckService;
+    this.maxBatchSize = maxBatchSize;
+    this.maxLatency = maxLatency;
+  }
+
+  @Override
+  public void init(
+    ProcessorContext<String, TradeIntegrityCheckRecord> context
+  ) {
+    this.context = context;
+    this.pendingTrades = context.getStateStore(PENDING_TRADES_STORE);
+
+    // The trades left by the previous owner of the task are settled first
+    try (
+      KeyValueIterator<Long, PendingRecord<Trade>> iterator =
+        pendingTrades.all()
+    ) {
+      while (iterator.hasNext()) {
+        nextSequence = iterator.next().key + 1;
+        pendingCount++;
+      }
+    }
+
+    this.punctuator =
+      context.schedule(
+        maxLatency,
+        PunctuationType.WALL_CLOCK_TIME,
+        timestamp -> flush()
+      );
+  }
+
+  @Override
+  public void process(Record<String, Trade> record) {
+    pendingTrades.put(
+      nextSequence++,
+      new PendingRecord<>(
+        record.key(),
+        record.value(),
+        record.timestamp(),
+        record.headers()
+      )
+    );
+    pendingCount++;
+    if (pendingCount >= maxBatchSize) {
+      flush();
+    }
+  }
+
+  private void flush() {
+    if (pendingCount == 0) {
+      return;
+    }
+
+    // The sequence numbers are increasing, the store is iterated in order
+    List<KeyValue<Long, PendingRecord<Trade>>> batch = new ArrayList<>();
+    try (
+      KeyValueIterator<Long, PendingRecord<Trade>> iterator =
+        pendingTrades.all()
+    ) {
+      iterator.forEachRemaining(batch::add);
+    }
+
+    List<Trade> fills = new ArrayList<>();
+    batch.forEach(pending -> fills.add(pending.value.value()));
+    Iterator<FillSettlement> settlements = integrityCheckService
+      .settleBatch(fills)
+      .iterator();
+
+    for (KeyValue<Long, PendingRecord<Trade>> pending : batch) {
+      PendingRecord<Trade> record = pending.value;
+      FillSettlement settlement = settlements.next();
+      for (KeyValue<String, TradeIntegrityCheckRecord> leg : settlement.legs(
+        record.key(),
+        record.value()
+      )) {
+        context.forward(
+          new Record<>(
+            leg.key,
+            leg.value,
+            record.timestamp(),
+            record.headers()
+          )
+        );
+      }
+      pendingTrades.delete(pending.key);
+    }
+    pendingCount = 0;
+  }
+
+  @Override
+  public void close() {
+    // The pending trades stay in the store for the next owner of the task,
+    // the Redis pool may already be closed on a shutdown
+    punctuator.cancel();
+  }
+}
@@ -8,6 +8,7 @@ import io.micronaut.context.annotation.Property;
 import jakarta.inject.Inject;
 import jakarta.inject.Named;
 import jakarta.inject.Singleton;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -16,8 +17,10 @@ import org.apache.kafka.streams.StreamsConfig;
 import org.apache.kafka.streams.kstream.Consumed;
 import org.apache.kafka.streams.kstream.KStream;
 import org.apache.kafka.streams.kstream.Produced;
+import org.apache.kafka.streams.state.Stores;
 import pfe_broker.avro.RejectedOrder;
 import pfe_broker.avro.Trade;
+import pfe_broker.common.PendingRecord;
 
 @Factory
 public class TradeStream {
@@ -34,6 +37,21 @@ public class TradeStream {
   @Property(name = "kafka.topics.rejected-orders")
   private String rejectedOrdersTopic;
 
+  @Property(name = "kafka.common.account-changes")
+  private boolean accountChangesEnabled;
+
+  @Property(name = "kafka.topics.account-changes")
+  private String accountChangesTopic;
+
+  @Property(name = "trade-stream.netting.enabled")
+  private boolean nettingEnabled;
+
+  @Property(name = "trade-stream.netting.max-batch-size")
+  private int nettingMaxBatchSize;
+
+  @Property(name = "trade-stream.netting.max-latency")
+  private Duration nettingMaxLatency;
+
   @Inject
   private TradeIntegrityCheckService integrityCheckService;
 
@@ -57,13 +75,33 @@ public class TradeStream {
       Consumed.with(this.keySerde, this.tradeAvroSerde())
     );
 
-    KStream<String, TradeIntegrityCheckRecord> integrityCheckedTradeStream =
-      tradeStream.mapValues(trade ->
-        new TradeIntegrityCheckRecord(
-          trade,
-          integrityCheckService.checkIntegrity(trade)
+    KStream<String, TradeIntegrityCheckRecord> integrityCheckedTradeStream;
+    if (nettingEnabled) {
+      builder.addStateStore(
+        Stores.keyValueStoreBuilder(
+          Stores.inMemoryKeyValueStore(
+            TradeNettingProcessor.PENDING_TRADES_STORE
+          ),
+          Serdes.Long(),
+          PendingRecord.serde(this.tradeAvroSerde())
         )
       );
+      integrityCheckedTradeStream =
+        tradeStream.process(
+          () ->
+            new TradeNettingProcessor(
+              integrityCheckService,
+              nettingMaxBatchSize,
+              nettingMaxLatency
+            ),
+          TradeNettingProcessor.PENDING_TRADES_STORE
+        );
+    } else {
+      integrityCheckedTradeStream =
+        tradeStream.flatMap((key, fill) ->
+          integrityCheckService.settle(fill).legs(key, fill)
+        );
+    }
 
     processAcceptedAndRejectedTrades(integrityCheckedTradeStream);
 
@@ -92,6 +130,14 @@ public class TradeStream {
       rejectedOrdersTopic,
       Produced.with(keySerde, this.rejectedOrderAvroSerde())
     );
+
+    if (accountChangesEnabled) {
+      // Published in the transaction of the settled trades, once per
+      // settlement
+      integrityCheckedTradesStream
+        .flatMap((key, leg) -> AccountChanges.of(leg))
+        .to(accountChangesTopic, Produced.with(keySerde, Serdes.Long()));
+    }
   }
 
   private SpecificAvroSerde<RejectedOrder> rejectedOrderAvroSerde() {
@@ -0,0 +1,135 @@
+-- Settle a batch of fills, in order and once, with one update of each
+-- balance and of each position
+--
+-- A fill has a buyer, a seller, or both when two orders of the book have
+-- traded together. Both sides are settled together: when one of them
+-- cannot be, neither is, and the stocks reserved by the SELL order are
+-- released.
+--
+-- KEYS[5i - 4]: result of the settlement of the i-th fill (settled-trade:ID)
+-- KEYS[5i - 3]: balance of the buyer (username:balance)
+-- KEYS[5i - 2]: stocks of the symbol owned by the buyer (username:SYMBOL)
+-- KEYS[5i - 1]: balance of the seller
+-- KEYS[5i]: stocks of the symbol owned by the seller
+-- ARGV[1]: seconds the results of the settlements are kept
+-- ARGV[3i - 1]: quantity of the i-th fill
+-- ARGV[3i]: amount of the i-th fill in cents, price * quantity
+-- ARGV[3i + 1]: sides of the fill, BUY, SELL or BOTH, the keys of a
+-- missing side are not used, or RELEASE for the cancel of a SELL order,
+-- whose quantity is given back to the seller
+--
+-- Returns the SettlementResult codes of the buyer and of the seller of each
+-- fill, 0 for a missing side, the recorded ones if the fill has already
+-- been settled
+
+local SETTLED = 0
+local UNKNOWN_ACCOUNT = 1
+local INSUFFICIENT_FUNDS = 2
+local COUNTERPARTY_REJECTED = 3
+
+-- Balances read or changed by this batch, false for an unknown account
+local balances = {}
+local cashDeltas = {}
+local stockDeltas = {}
+
+local function balanceOf(key)
+  if balances[key] == nil then
+    local balance = redis.call('GET', key)
+    balances[key] = balance and tonumber(balance) or false
+  end
+  return balances[key]
+end
+
+local function addCash(key, delta)
+  balances[key] = balances[key] + delta
+  cashDeltas[key] = (cashDeltas[key] or 0) + delta
+end
+
+local function addStocks(key, delta)
+  stockDeltas[key] = (stockDeltas[key] or 0) + delta
+end
+
+local function settle(i)
+  local buyerBalanceKey, buyerStockKey = KEYS[5 * i - 3], KEYS[5 * i - 2]
+  local sellerBalanceKey, sellerStockKey = KEYS[5 * i - 1], KEYS[5 * i]
+  local quantity = tonumber(ARGV[3 * i - 1])
+  local amount = tonumber(ARGV[3 * i])
+
+  if ARGV[3 * i + 1] == 'RELEASE' then
+    -- The stocks have been reserved when the order has been accepted
+    addStocks(sellerStockKey, quantity)
+    return SETTLED, SETTLED
+  end
+  local buys = ARGV[3 * i + 1] ~= 'SELL'
+  local sells = ARGV[3 * i + 1] ~= 'BUY'
+  local buyer, seller = SETTLED, SETTLED
+
+  if buys then
+    local balance = balanceOf(buyerBalanceKey)
+    if not balance then
+      buyer = UNKNOWN_ACCOUNT
+    elseif balance < amount then
+      buyer = INSUFFICIENT_FUNDS
+    end
+  end
+  if sells and not balanceOf(sellerBalanceKey) then
+    seller = UNKNOWN_ACCOUNT
+  end
+
+  if buyer ~= SETTLED or seller ~= SETTLED then
+    if buys and buyer == SETTLED then
+      buyer = COUNTERPARTY_REJECTED
+    end
+    if sells and seller == SETTLED then
+      seller = COUNTERPARTY_REJECTED
+      -- The stocks have been reserved when the order has been accepted
+      addStocks(sellerStockKey, quantity)
+    end
+    return buyer, seller
+  end
+
+  if buys then
+    addCash(buyerBalanceKey, -amount)
+    addStocks(buyerStockKey, quantity)
+  end
+  if sells then
+    -- The stocks have been reserved when the order has been accepted
+    addCash(sellerBalanceKey, amount)
+  end
+  return buyer, seller
+end
+
+local results = {}
+-- Results of the fills of this batch, a fill may be repeated
+local batchResults = {}
+
+for i = 1, #KEYS / 5 do
+  local settledKey = KEYS[5 * i - 4]
+  local settled = batchResults[settledKey] or redis.call('GET', settledKey)
+  local buyer, seller
+
+  if settled then
+    local separator = string.find(settled, ':')
+    buyer = tonumber(string.sub(settled, 1, separator - 1))
+    seller = tonumber(string.sub(settled, separator + 1))
+  else
+    buyer, seller = settle(i)
+    batchResults[settledKey] = buyer .. ':' .. seller
+    redis.call('SET', settledKey, batchResults[settledKey], 'EX', ARGV[1])
+  end
+  results[2 * i - 1] = buyer
+  results[2 * i] = seller
+end
+
+-- Numbers are formatted explicitly, tostring would use the exponent
+-- notation for large amounts
+for key, delta in pairs(cashDeltas) do
+  if delta ~= 0 then
+    redis.call('INCRBY', key, string.format('%d', delta))
+  end
+end
+for key, delta in pairs(stockDeltas) do
+  redis.call('INCRBY', key, string.format('%d', delta))
+end
+
+return results
@@ -0,0 +1,175 @@
+package pfe_broker.trade_stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.common.utils.RedisTestContainer;
+import pfe_broker.trade_stream.mocks.MockAccountChangeListener;
+import pfe_broker.trade_stream.mocks.MockListener;
+import pfe_broker.trade_stream.mocks.MockTradeProducer;
+
+@MicronautTest(transactional = false)
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Property(name = "kafka.common.account-changes", value = "true")
+public class AccountChangesTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Container
+  static final RedisTestContainer redis = new RedisTestContainer();
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics(
+      "trades",
+      "accepted-trades",
+      "rejected-orders",
+      "account-changes"
+    );
+    if (!redis.isRunning()) {
+      redis.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl(),
+      "redis.uri",
+      redis.getRedisUrl()
+    );
+  }
+
+  @BeforeEach
+  void setup(
+    MockListener mockListener,
+    MockAccountChangeListener mockAccountChangeListener,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    mockListener.acceptedTrades.clear();
+    mockListener.rejectedOrders.clear();
+    mockAccountChangeListener.changes.clear();
+    redisConnection.sync().flushall();
+  }
+
+  private static Trade fill(String id, int quantity) {
+    Order buyOrder = new Order(
+      "buyer",
+      "AAPL",
+      quantity,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Order sellOrder = new Order(
+      "seller",
+      "AAPL",
+      quantity,
+      Side.SELL,
+      OrderType.LIMIT,
+      10000L
+    );
+    return new Trade(
+      id,
+      buyOrder,
+      "AAPL",
+      10000L,
+      quantity,
+      quantity,
+      10000L * quantity,
+      "seller",
+      sellOrder,
+      quantity,
+      10000L * quantity,
+      ExecutionType.TRADE,
+      null
+    );
+  }
+
+  @Test
+  void testChangesOfASettledFill(
+    MockListener mockListener,
+    MockAccountChangeListener mockAccountChangeListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    redisConnection.sync().set("buyer:balance", "1000000");
+    // The stocks of the SELL order have been reserved
+    redisConnection.sync().set("seller:balance", "0");
+    redisConnection.sync().set("seller:AAPL", "0");
+
+    // When
+    mockTradeProducer.sendTrade("buyer", fill("0-0-0", 10));
+
+    // Then the changes are those applied to Redis
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).hasSize(2);
+        assertThat(mockAccountChangeListener.changes)
+          .containsOnly(
+            Map.entry("buyer:balance", -100000L),
+            Map.entry("buyer:AAPL", 10L),
+            Map.entry("seller:balance", 100000L)
+          );
+      });
+    assertThat(redisConnection.sync().get("buyer:balance"))
+      .isEqualTo("900000");
+    assertThat(redisConnection.sync().get("buyer:AAPL")).isEqualTo("10");
+    assertThat(redisConnection.sync().get("seller:balance"))
+      .isEqualTo("100000");
+  }
+
+  @Test
+  void testChangesOfARejectedFill(
+    MockListener mockListener,
+    MockAccountChangeListener mockAccountChangeListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    redisConnection.sync().set("buyer:balance", "10000");
+    redisConnection.sync().set("seller:balance", "0");
+    redisConnection.sync().set("seller:AAPL", "0");
+
+    // When
+    mockTradeProducer.sendTrade("buyer", fill("0-1-0", 10));
+
+    // Then only the stocks reserved by the seller are released
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.rejectedOrders).hasSize(2);
+        assertThat(mockAccountChangeListener.changes)
+          .containsOnly(Map.entry("seller:AAPL", 10L));
+      });
+    assertThat(redisConnection.sync().get("seller:AAPL")).isEqualTo("10");
+    assertThat(redisConnection.sync().get("buyer:balance")).isEqualTo("10000");
+  }
+}
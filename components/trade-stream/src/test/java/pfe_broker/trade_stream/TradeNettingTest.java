@@ -0,0 +1,300 @@
+package pfe_broker.trade_stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.micronaut.context.annotation.Property;
+import io.micronaut.core.annotation.NonNull;
+import io.micronaut.test.extensions.junit5.annotation.MicronautTest;
+import io.micronaut.test.support.TestPropertyProvider;
+import java.time.Duration;
+import java.util.Map;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.ExecutionType;
+import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderRejectReason;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.Side;
+import pfe_broker.avro.Trade;
+import pfe_broker.common.utils.KafkaTestContainer;
+import pfe_broker.common.utils.RedisTestContainer;
+import pfe_broker.trade_stream.mocks.MockListener;
+import pfe_broker.trade_stream.mocks.MockTradeProducer;
+
+@MicronautTest(transactional = false)
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+@Property(name = "trade-stream.netting.enabled", value = "true")
+@Property(name = "trade-stream.netting.max-latency", value = "500ms")
+public class TradeNettingTest implements TestPropertyProvider {
+  static {
+    Application.setProperties();
+  }
+
+  @Container
+  static final KafkaTestContainer kafka = new KafkaTestContainer();
+
+  @Container
+  static final RedisTestContainer redis = new RedisTestContainer();
+
+  @Override
+  public @NonNull Map<String, String> getProperties() {
+    if (!kafka.isRunning()) {
+      kafka.start();
+    }
+    kafka.registerTopics("trades", "accepted-trades", "rejected-orders");
+    if (!redis.isRunning()) {
+      redis.start();
+    }
+    return Map.of(
+      "kafka.bootstrap.servers",
+      kafka.getBootstrapServers(),
+      "kafka.schema.registry.url",
+      kafka.getSchemaRegistryUrl(),
+      "redis.uri",
+      redis.getRedisUrl()
+    );
+  }
+
+  @BeforeEach
+  void setup(
+    MockListener mockListener,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    mockListener.acceptedTrades.clear();
+    mockListener.rejectedOrders.clear();
+    redisConnection.sync().flushall();
+  }
+
+  @Test
+  void testTradesAreSettledInOrder(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    Order buyOrder = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Order sellOrder = new Order(
+      "user",
+      "AAPL",
+      5,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+    Trade firstBuyTrade = new Trade(
+      "0-0-0",
+      buyOrder,
+      "AAPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+    Trade secondBuyTrade = new Trade(
+      "0-1-0",
+      buyOrder,
+      "AAPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+    Trade sellTrade = new Trade(
+      "0-2-0",
+      sellOrder,
+      "AAPL",
+      10000L,
+      5,
+      5,
+      50000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+    redisConnection.sync().set("user:balance", "150000");
+
+    // When
+    mockTradeProducer.sendTrade("user", firstBuyTrade);
+    mockTradeProducer.sendTrade("user", secondBuyTrade);
+    mockTradeProducer.sendTrade("user", sellTrade);
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).hasSize(2);
+        assertThat(mockListener.rejectedOrders).hasSize(1);
+        assertThat(mockListener.rejectedOrders.get(0).getReason())
+          .isEqualTo(OrderRejectReason.INCORRECT_QUANTITY);
+        assertThat(redisConnection.sync().get("user:balance"))
+          .isEqualTo("100000");
+        assertThat(redisConnection.sync().get("user:AAPL")).isEqualTo("10");
+      });
+  }
+
+  @Test
+  void testFillsOfABatchAreSettledOnBothSides(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given alice sells to bob, then buys from carol with the proceeds
+    Order aliceSellOrder = new Order(
+      "alice",
+      "AAPL",
+      5,
+      Side.SELL,
+      OrderType.LIMIT,
+      10000L
+    );
+    Order bobBuyOrder = new Order(
+      "bob",
+      "AAPL",
+      5,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Order aliceBuyOrder = new Order(
+      "alice",
+      "MSFT",
+      5,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Order carolSellOrder = new Order(
+      "carol",
+      "MSFT",
+      5,
+      Side.SELL,
+      OrderType.LIMIT,
+      10000L
+    );
+    Trade firstFill = new Trade(
+      "2-0-0",
+      bobBuyOrder,
+      "AAPL",
+      10000L,
+      5,
+      5,
+      50000L,
+      "alice",
+      aliceSellOrder,
+      5,
+      50000L,
+      ExecutionType.TRADE,
+      null
+    );
+    Trade secondFill = new Trade(
+      "2-1-0",
+      aliceBuyOrder,
+      "MSFT",
+      10000L,
+      5,
+      5,
+      50000L,
+      "carol",
+      carolSellOrder,
+      5,
+      50000L,
+      ExecutionType.TRADE,
+      null
+    );
+    redisConnection.sync().set("alice:balance", "0");
+    redisConnection.sync().set("bob:balance", "50000");
+    redisConnection.sync().set("carol:balance", "0");
+
+    // When
+    mockTradeProducer.sendTrade("bob", firstFill);
+    mockTradeProducer.sendTrade("bob", secondFill);
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).hasSize(4);
+        assertThat(mockListener.rejectedOrders).isEmpty();
+        assertThat(redisConnection.sync().get("alice:balance")).isEqualTo("0");
+        assertThat(redisConnection.sync().get("alice:MSFT")).isEqualTo("5");
+        assertThat(redisConnection.sync().get("bob:balance")).isEqualTo("0");
+        assertThat(redisConnection.sync().get("bob:AAPL")).isEqualTo("5");
+        assertThat(redisConnection.sync().get("carol:balance"))
+          .isEqualTo("50000");
+      });
+  }
+
+  @Test
+  void testSellOfUnknownAccountIsRejected(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    Order sellOrder = new Order(
+      "unknown",
+      "AAPL",
+      5,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+    Trade sellTrade = new Trade(
+      "1-0-0",
+      sellOrder,
+      "AAPL",
+      10000L,
+      5,
+      5,
+      50000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+
+    // When
+    mockTradeProducer.sendTrade("unknown", sellTrade);
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).isEmpty();
+        assertThat(mockListener.rejectedOrders).hasSize(1);
+        assertThat(mockListener.rejectedOrders.get(0).getReason())
+          .isEqualTo(OrderRejectReason.UNKNOWN_ACCOUNT);
+        assertThat(redisConnection.sync().get("unknown:balance")).isNull();
+      });
+  }
+}
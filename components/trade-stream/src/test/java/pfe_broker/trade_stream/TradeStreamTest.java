@@ -1,6 +1,7 @@
 package pfe_broker.trade_stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.awaitility.Awaitility.await;
 
 import io.lettuce.core.api.StatefulRedisConnection;
@@ -14,7 +15,11 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.testcontainers.junit.jupiter.Container;
 import org.testcontainers.junit.jupiter.Testcontainers;
+import pfe_broker.avro.ExecutionType;
 import pfe_broker.avro.Order;
+import pfe_broker.avro.OrderRejectReason;
+import pfe_broker.avro.OrderType;
+import pfe_broker.avro.RejectedOrder;
 import pfe_broker.avro.Side;
 import pfe_broker.avro.Trade;
 import pfe_broker.common.utils.KafkaTestContainer;
@@ -72,9 +77,30 @@ public class TradeStreamTest implements TestPropertyProvider {
     StatefulRedisConnection<String, String> redisConnection
   ) {
     // Given
-    Order order = new Order("user", "AAPL", 10, Side.BUY);
-    Trade trade = new Trade(order, "APPL", 100.0, 10);
-    redisConnection.sync().set("user:balance", "10000");
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Trade trade = new Trade(
+      "0-0-0",
+      order,
+      "APPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+    redisConnection.sync().set("user:balance", "1000000");
 
     // When
     mockTradeProducer.sendTrade("user", trade);
@@ -86,7 +112,7 @@ public class TradeStreamTest implements TestPropertyProvider {
         assertThat(mockListener.acceptedTrades).hasSize(1);
         assertThat(mockListener.rejectedOrders).hasSize(0);
         assertThat(redisConnection.sync().get("user:balance"))
-          .isEqualTo("9000");
+          .isEqualTo("900000");
         assertThat(redisConnection.sync().get("user:APPL")).isEqualTo("10");
       });
   }
@@ -98,9 +124,30 @@ public class TradeStreamTest implements TestPropertyProvider {
     StatefulRedisConnection<String, String> redisConnection
   ) {
     // Given
-    Order order = new Order("user", "AAPL", 10, Side.SELL);
-    Trade trade = new Trade(order, "APPL", 100.0, 10);
-    redisConnection.sync().set("user:balance", "10000");
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+    Trade trade = new Trade(
+      "0-1-0",
+      order,
+      "APPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+    redisConnection.sync().set("user:balance", "1000000");
 
     // When
     mockTradeProducer.sendTrade("user", trade);
@@ -112,7 +159,7 @@ public class TradeStreamTest implements TestPropertyProvider {
         assertThat(mockListener.acceptedTrades).hasSize(1);
         assertThat(mockListener.rejectedOrders).hasSize(0);
         assertThat(redisConnection.sync().get("user:balance"))
-          .isEqualTo("11000");
+          .isEqualTo("1100000");
       });
   }
 
@@ -123,9 +170,76 @@ public class TradeStreamTest implements TestPropertyProvider {
     StatefulRedisConnection<String, String> redisConnection
   ) {
     // Given
-    Order order = new Order("user", "AAPL", 10, Side.BUY);
-    Trade trade = new Trade(order, "APPL", 100.0, 10);
-    redisConnection.sync().set("user:balance", "100");
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Trade trade = new Trade(
+      "0-2-0",
+      order,
+      "APPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+    redisConnection.sync().set("user:balance", "10000");
+
+    // When
+    mockTradeProducer.sendTrade("user", trade);
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).hasSize(0);
+        assertThat(mockListener.rejectedOrders).hasSize(1);
+        assertThat(redisConnection.sync().get("user:balance"))
+          .isEqualTo("10000");
+        assertThat(redisConnection.sync().get("user:APPL")).isNull();
+      });
+  }
+
+  @Test
+  void testTradeStreamBuyMarketOrderUnknownAccount(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Trade trade = new Trade(
+      "0-3-0",
+      order,
+      "APPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
 
     // When
     mockTradeProducer.sendTrade("user", trade);
@@ -136,8 +250,294 @@ public class TradeStreamTest implements TestPropertyProvider {
       .untilAsserted(() -> {
         assertThat(mockListener.acceptedTrades).hasSize(0);
         assertThat(mockListener.rejectedOrders).hasSize(1);
-        assertThat(redisConnection.sync().get("user:balance")).isEqualTo("100");
+        assertThat(mockListener.rejectedOrders.get(0).getReason())
+          .isEqualTo(OrderRejectReason.UNKNOWN_ACCOUNT);
         assertThat(redisConnection.sync().get("user:APPL")).isNull();
       });
   }
+
+  @Test
+  void testTradeStreamSellMarketOrderUnknownAccount(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.SELL,
+      OrderType.MARKET,
+      0L
+    );
+    Trade trade = new Trade(
+      "0-5-0",
+      order,
+      "APPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+
+    // When
+    mockTradeProducer.sendTrade("user", trade);
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).hasSize(0);
+        assertThat(mockListener.rejectedOrders).hasSize(1);
+        assertThat(mockListener.rejectedOrders.get(0).getReason())
+          .isEqualTo(OrderRejectReason.UNKNOWN_ACCOUNT);
+        assertThat(redisConnection.sync().get("user:balance")).isNull();
+      });
+  }
+
+  @Test
+  void testTradeStreamFillIsSettledOnBothSides(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    Order buyOrder = new Order(
+      "buyer",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Order sellOrder = new Order(
+      "seller",
+      "AAPL",
+      10,
+      Side.SELL,
+      OrderType.LIMIT,
+      10000L
+    );
+    Trade fill = new Trade(
+      "0-6-0",
+      buyOrder,
+      "AAPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      "seller",
+      sellOrder,
+      10,
+      100000L,
+      ExecutionType.TRADE,
+      null
+    );
+    redisConnection.sync().set("buyer:balance", "1000000");
+    // The stocks of the SELL order have been reserved
+    redisConnection.sync().set("seller:balance", "0");
+    redisConnection.sync().set("seller:AAPL", "0");
+
+    // When
+    mockTradeProducer.sendTrade("buyer", fill);
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).hasSize(2);
+        assertThat(mockListener.rejectedOrders).isEmpty();
+        assertThat(redisConnection.sync().get("buyer:balance"))
+          .isEqualTo("900000");
+        assertThat(redisConnection.sync().get("buyer:AAPL")).isEqualTo("10");
+        assertThat(redisConnection.sync().get("seller:balance"))
+          .isEqualTo("100000");
+      });
+    assertThat(mockListener.acceptedTrades)
+      .extracting(trade -> trade.getId().toString(), Trade::getOrder)
+      .containsExactlyInAnyOrder(
+        tuple("0-6-0-BUY", buyOrder),
+        tuple("0-6-0-SELL", sellOrder)
+      );
+  }
+
+  @Test
+  void testTradeStreamFillRejectedOnBothSides(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    Order buyOrder = new Order(
+      "buyer",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Order sellOrder = new Order(
+      "seller",
+      "AAPL",
+      10,
+      Side.SELL,
+      OrderType.LIMIT,
+      10000L
+    );
+    Trade fill = new Trade(
+      "0-7-0",
+      buyOrder,
+      "AAPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      "seller",
+      sellOrder,
+      10,
+      100000L,
+      ExecutionType.TRADE,
+      null
+    );
+    redisConnection.sync().set("buyer:balance", "10000");
+    redisConnection.sync().set("seller:balance", "0");
+    redisConnection.sync().set("seller:AAPL", "0");
+
+    // When
+    mockTradeProducer.sendTrade("buyer", fill);
+
+    // Then the seller is not paid and gets its stocks back
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).isEmpty();
+        assertThat(mockListener.rejectedOrders).hasSize(2);
+        assertThat(redisConnection.sync().get("buyer:balance"))
+          .isEqualTo("10000");
+        assertThat(redisConnection.sync().get("buyer:AAPL")).isNull();
+        assertThat(redisConnection.sync().get("seller:balance"))
+          .isEqualTo("0");
+        assertThat(redisConnection.sync().get("seller:AAPL")).isEqualTo("10");
+      });
+    assertThat(mockListener.rejectedOrders)
+      .extracting(RejectedOrder::getOrder, RejectedOrder::getReason)
+      .containsExactlyInAnyOrder(
+        tuple(buyOrder, OrderRejectReason.INCORRECT_QUANTITY),
+        tuple(sellOrder, OrderRejectReason.OTHER)
+      );
+  }
+
+  @Test
+  void testTradeStreamCanceledSellOrderReleasesStocks(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given a SELL order acknowledged, partially filled then canceled
+    Order sellOrder = new Order(
+      "seller",
+      "AAPL",
+      10,
+      Side.SELL,
+      OrderType.LIMIT,
+      10000L
+    );
+    Trade acknowledged = Trade
+      .newBuilder()
+      .setId("0-8-new")
+      .setOrder(sellOrder)
+      .setSymbol("AAPL")
+      .setPrice(0)
+      .setQuantity(0)
+      .setType(ExecutionType.NEW)
+      .build();
+    Trade canceled = Trade
+      .newBuilder(acknowledged)
+      .setId("0-9-canceled")
+      .setQuantity(6)
+      .setCumulativeQuantity(4)
+      .setCumulativeAmount(40000L)
+      .setType(ExecutionType.CANCELED)
+      .setCancelClOrdId("2")
+      .build();
+    redisConnection.sync().set("seller:balance", "40000");
+    redisConnection.sync().set("seller:AAPL", "0");
+
+    // When
+    mockTradeProducer.sendTrade("seller", acknowledged);
+    mockTradeProducer.sendTrade("seller", canceled);
+    // Delivered again after a crash
+    mockTradeProducer.sendTrade("seller", canceled);
+
+    // Then the reports are passed through, the stocks left are released once
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades)
+          .extracting(Trade::getType)
+          .containsExactly(
+            ExecutionType.NEW,
+            ExecutionType.CANCELED,
+            ExecutionType.CANCELED
+          );
+        assertThat(redisConnection.sync().get("seller:AAPL")).isEqualTo("6");
+      });
+    assertThat(mockListener.rejectedOrders).isEmpty();
+    assertThat(redisConnection.sync().get("seller:balance")).isEqualTo("40000");
+  }
+
+  @Test
+  void testTradeStreamReplayedTradeIsSettledOnce(
+    MockListener mockListener,
+    MockTradeProducer mockTradeProducer,
+    StatefulRedisConnection<String, String> redisConnection
+  ) {
+    // Given
+    Order order = new Order(
+      "user",
+      "AAPL",
+      10,
+      Side.BUY,
+      OrderType.MARKET,
+      0L
+    );
+    Trade trade = new Trade(
+      "0-4-0",
+      order,
+      "APPL",
+      10000L,
+      10,
+      10,
+      100000L,
+      null,
+      null,
+      0,
+      0L,
+      ExecutionType.TRADE,
+      null
+    );
+    redisConnection.sync().set("user:balance", "1000000");
+
+    // When
+    mockTradeProducer.sendTrade("user", trade);
+    mockTradeProducer.sendTrade("user", trade);
+
+    // Then
+    await()
+      .atMost(Duration.ofSeconds(5))
+      .untilAsserted(() -> {
+        assertThat(mockListener.acceptedTrades).hasSize(2);
+        assertThat(mockListener.rejectedOrders).hasSize(0);
+        assertThat(redisConnection.sync().get("user:balance"))
+          .isEqualTo("900000");
+        assertThat(redisConnection.sync().get("user:APPL")).isEqualTo("10");
+      });
+  }
 }
@@ -0,0 +1,29 @@
+package pfe_broker.trade_stream.mocks;
+
+import io.micronaut.configuration.kafka.annotation.KafkaKey;
+import io.micronaut.configuration.kafka.annotation.KafkaListener;
+import io.micronaut.configuration.kafka.annotation.Topic;
+import io.micronaut.context.annotation.Property;
+import jakarta.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+
+@Singleton
+public class MockAccountChangeListener {
+
+  // Sum of the changes received, by account key
+  public Map<String, Long> changes = new ConcurrentHashMap<>();
+
+  @KafkaListener(
+    groupId = "mock-account-changes-consumer",
+    properties = @Property(
+      name = ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
+      value = "org.apache.kafka.common.serialization.LongDeserializer"
+    )
+  )
+  @Topic("${kafka.topics.account-changes}")
+  void receiveChange(@KafkaKey String key, Long change) {
+    changes.merge(key, change, Long::sum);
+  }
+}
@@ -14,10 +14,10 @@ import org.apache.avro.message.SchemaStore;
 
 @org.apache.avro.specific.AvroGenerated
 public class Order extends org.apache.avro.specific.SpecificRecordBase implements org.apache.avro.specific.SpecificRecord {
-  private static final long serialVersionUID = 5889493834219403263L;
+  private static final long serialVersionUID = 7791074700432075932L;
 
 
-  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"namespace\":\"pfe_broker.avro\",\"fields\":[{\"name\":\"username\",\"type\":\"string\"},{\"name\":\"symbol\",\"type\":\"string\"},{\"name\":\"quantity\",\"type\":\"int\"},{\"name\":\"side\",\"type\":{\"type\":\"enum\",\"name\":\"Side\",\"symbols\":[\"BUY\",\"SELL\"]}}]}");
+  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Order\",\"namespace\":\"pfe_broker.avro\",\"fields\":[{\"name\":\"username\",\"type\":\"string\"},{\"name\":\"symbol\",\"type\":\"string\"},{\"name\":\"quantity\",\"type\":\"int\"},{\"name\":\"side\",\"type\":{\"type\":\"enum\",\"name\":\"Side\",\"symbols\":[\"BUY\",\"SELL\"]}},{\"name\":\"type\",\"type\":{\"type\":\"enum\",\"name\":\"OrderType\",\"symbols\":[\"MARKET\",\"LIMIT\"]},\"default\":\"MARKET\"},{\"name\":\"price\",\"type\":\"long\",\"default\":0}]}");
   public static org.apache.avro.Schema getClassSchema() { return SCHEMA$; }
 
   private static final SpecificData MODEL$ = new SpecificData();
@@ -77,6 +77,8 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
   private java.lang.CharSequence symbol;
   private int quantity;
   private pfe_broker.avro.Side side;
+  private pfe_broker.avro.OrderType type;
+  private long price;
 
   /**
    * Default constructor.  Note that this does not initialize fields
@@ -91,12 +93,16 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
    * @param symbol The new value for symbol
    * @param quantity The new value for quantity
    * @param side The new value for side
+   * @param type The new value for type
+   * @param price The new value for price
    */
-  public Order(java.lang.CharSequence username, java.lang.CharSequence symbol, java.lang.Integer quantity, pfe_broker.avro.Side side) {
+  public Order(java.lang.CharSequence username, java.lang.CharSequence symbol, java.lang.Integer quantity, pfe_broker.avro.Side side, pfe_broker.avro.OrderType type, java.lang.Long price) {
     this.username = username;
     this.symbol = symbol;
     this.quantity = quantity;
     this.side = side;
+    this.type = type;
+    this.price = price;
   }
 
   @Override
@@ -113,6 +119,8 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     case 1: return symbol;
     case 2: return quantity;
     case 3: return side;
+    case 4: return type;
+    case 5: return price;
     default: throw new IndexOutOfBoundsException("Invalid index: " + field$);
     }
   }
@@ -126,6 +134,8 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     case 1: symbol = (java.lang.CharSequence)value$; break;
     case 2: quantity = (java.lang.Integer)value$; break;
     case 3: side = (pfe_broker.avro.Side)value$; break;
+    case 4: type = (pfe_broker.avro.OrderType)value$; break;
+    case 5: price = (java.lang.Long)value$; break;
     default: throw new IndexOutOfBoundsException("Invalid index: " + field$);
     }
   }
@@ -198,6 +208,40 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     this.side = value;
   }
 
+  /**
+   * Gets the value of the 'type' field.
+   * @return The value of the 'type' field.
+   */
+  public pfe_broker.avro.OrderType getType() {
+    return type;
+  }
+
+
+  /**
+   * Sets the value of the 'type' field.
+   * @param value the value to set.
+   */
+  public void setType(pfe_broker.avro.OrderType value) {
+    this.type = value;
+  }
+
+  /**
+   * Gets the value of the 'price' field.
+   * @return The value of the 'price' field.
+   */
+  public long getPrice() {
+    return price;
+  }
+
+
+  /**
+   * Sets the value of the 'price' field.
+   * @param value the value to set.
+   */
+  public void setPrice(long value) {
+    this.price = value;
+  }
+
   /**
    * Creates a new Order RecordBuilder.
    * @return A new Order RecordBuilder
@@ -243,6 +287,8 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
     private java.lang.CharSequence symbol;
     private int quantity;
     private pfe_broker.avro.Side side;
+    private pfe_broker.avro.OrderType type;
+    private long price;
 
     /** Creates a new Builder */
     private Builder() {
@@ -271,6 +317,14 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         this.side = data().deepCopy(fields()[3].schema(), other.side);
         fieldSetFlags()[3] = other.fieldSetFlags()[3];
       }
+      if (isValidValue(fields()[4], other.type)) {
+        this.type = data().deepCopy(fields()[4].schema(), other.type);
+        fieldSetFlags()[4] = other.fieldSetFlags()[4];
+      }
+      if (isValidValue(fields()[5], other.price)) {
+        this.price = data().deepCopy(fields()[5].schema(), other.price);
+        fieldSetFlags()[5] = other.fieldSetFlags()[5];
+      }
     }
 
     /**
@@ -295,6 +349,14 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         this.side = data().deepCopy(fields()[3].schema(), other.side);
         fieldSetFlags()[3] = true;
       }
+      if (isValidValue(fields()[4], other.type)) {
+        this.type = data().deepCopy(fields()[4].schema(), other.type);
+        fieldSetFlags()[4] = true;
+      }
+      if (isValidValue(fields()[5], other.price)) {
+        this.price = data().deepCopy(fields()[5].schema(), other.price);
+        fieldSetFlags()[5] = true;
+      }
     }
 
     /**
@@ -456,6 +518,85 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
       return this;
     }
 
+    /**
+      * Gets the value of the 'type' field.
+      * @return The value.
+      */
+    public pfe_broker.avro.OrderType getType() {
+      return type;
+    }
+
+
+    /**
+      * Sets the value of the 'type' field.
+      * @param value The value of 'type'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Order.Builder setType(pfe_broker.avro.OrderType value) {
+      validate(fields()[4], value);
+      this.type = value;
+      fieldSetFlags()[4] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'type' field has been set.
+      * @return True if the 'type' field has been set, false otherwise.
+      */
+    public boolean hasType() {
+      return fieldSetFlags()[4];
+    }
+
+
+    /**
+      * Clears the value of the 'type' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Order.Builder clearType() {
+      type = null;
+      fieldSetFlags()[4] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'price' field.
+      * @return The value.
+      */
+    public long getPrice() {
+      return price;
+    }
+
+
+    /**
+      * Sets the value of the 'price' field.
+      * @param value The value of 'price'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Order.Builder setPrice(long value) {
+      validate(fields()[5], value);
+      this.price = value;
+      fieldSetFlags()[5] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'price' field has been set.
+      * @return True if the 'price' field has been set, false otherwise.
+      */
+    public boolean hasPrice() {
+      return fieldSetFlags()[5];
+    }
+
+
+    /**
+      * Clears the value of the 'price' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Order.Builder clearPrice() {
+      fieldSetFlags()[5] = false;
+      return this;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public Order build() {
@@ -465,6 +606,8 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
         record.symbol = fieldSetFlags()[1] ? this.symbol : (java.lang.CharSequence) defaultValue(fields()[1]);
         record.quantity = fieldSetFlags()[2] ? this.quantity : (java.lang.Integer) defaultValue(fields()[2]);
         record.side = fieldSetFlags()[3] ? this.side : (pfe_broker.avro.Side) defaultValue(fields()[3]);
+        record.type = fieldSetFlags()[4] ? this.type : (pfe_broker.avro.OrderType) defaultValue(fields()[4]);
+        record.price = fieldSetFlags()[5] ? this.price : (java.lang.Long) defaultValue(fields()[5]);
         return record;
       } catch (org.apache.avro.AvroMissingFieldException e) {
         throw e;
@@ -505,6 +648,10 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
     out.writeEnum(this.side.ordinal());
 
+    out.writeEnum(this.type.ordinal());
+
+    out.writeLong(this.price);
+
   }
 
   @Override public void customDecode(org.apache.avro.io.ResolvingDecoder in)
@@ -520,8 +667,12 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
 
       this.side = pfe_broker.avro.Side.values()[in.readEnum()];
 
+      this.type = pfe_broker.avro.OrderType.values()[in.readEnum()];
+
+      this.price = in.readLong();
+
     } else {
-      for (int i = 0; i < 4; i++) {
+      for (int i = 0; i < 6; i++) {
         switch (fieldOrder[i].pos()) {
         case 0:
           this.username = in.readString(this.username instanceof Utf8 ? (Utf8)this.username : null);
@@ -539,6 +690,14 @@ public class Order extends org.apache.avro.specific.SpecificRecordBase implement
           this.side = pfe_broker.avro.Side.values()[in.readEnum()];
           break;
 
+        case 4:
+          this.type = pfe_broker.avro.OrderType.values()[in.readEnum()];
+          break;
+
+        case 5:
+          this.price = in.readLong();
+          break;
+
         default:
           throw new java.io.IOException("Corrupt ResolvingDecoder.");
         }
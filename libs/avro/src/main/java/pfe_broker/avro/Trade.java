@@ -14,10 +14,10 @@ import org.apache.avro.message.SchemaStore;
 
 @org.apache.avro.specific.AvroGenerated
 public class Trade extends org.apache.avro.specific.SpecificRecordBase implements org.apache.avro.specific.SpecificRecord {
-  private static final long serialVersionUID = -5736402585144105847L;
+  private static final long serialVersionUID = 4213583126937520961L;
 
 
-  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Trade\",\"namespace\":\"pfe_broker.avro\",\"fields\":[{\"name\":\"order\",\"type\":{\"type\":\"record\",\"name\":\"Order\",\"fields\":[{\"name\":\"username\",\"type\":\"string\"},{\"name\":\"symbol\",\"type\":\"string\"},{\"name\":\"quantity\",\"type\":\"int\"},{\"name\":\"side\",\"type\":{\"type\":\"enum\",\"name\":\"Side\",\"symbols\":[\"BUY\",\"SELL\"]}}]}},{\"name\":\"symbol\",\"type\":\"string\"},{\"name\":\"price\",\"type\":\"double\"},{\"name\":\"quantity\",\"type\":\"int\"}]}");
+  public static final org.apache.avro.Schema SCHEMA$ = new org.apache.avro.Schema.Parser().parse("{\"type\":\"record\",\"name\":\"Trade\",\"namespace\":\"pfe_broker.avro\",\"fields\":[{\"name\":\"id\",\"type\":\"string\"},{\"name\":\"order\",\"type\":{\"type\":\"record\",\"name\":\"Order\",\"fields\":[{\"name\":\"username\",\"type\":\"string\"},{\"name\":\"symbol\",\"type\":\"string\"},{\"name\":\"quantity\",\"type\":\"int\"},{\"name\":\"side\",\"type\":{\"type\":\"enum\",\"name\":\"Side\",\"symbols\":[\"BUY\",\"SELL\"]}},{\"name\":\"type\",\"type\":{\"type\":\"enum\",\"name\":\"OrderType\",\"symbols\":[\"MARKET\",\"LIMIT\"]},\"default\":\"MARKET\"},{\"name\":\"price\",\"type\":\"long\",\"default\":0}]}},{\"name\":\"symbol\",\"type\":\"string\"},{\"name\":\"price\",\"type\":\"long\"},{\"name\":\"quantity\",\"type\":\"int\"},{\"name\":\"cumulativeQuantity\",\"type\":\"int\",\"default\":0},{\"name\":\"cumulativeAmount\",\"type\":\"long\",\"default\":0},{\"name\":\"counterpartyKey\",\"type\":[\"null\",\"string\"],\"default\":null},{\"name\":\"counterpartyOrder\",\"type\":[\"null\",\"Order\"],\"default\":null},{\"name\":\"counterpartyCumulativeQuantity\",\"type\":\"int\",\"default\":0},{\"name\":\"counterpartyCumulativeAmount\",\"type\":\"long\",\"default\":0},{\"name\":\"type\",\"type\":{\"type\":\"enum\",\"name\":\"ExecutionType\",\"symbols\":[\"TRADE\",\"NEW\",\"CANCELED\",\"CANCEL_REJECTED\"]},\"default\":\"TRADE\"},{\"name\":\"cancelClOrdId\",\"type\":[\"null\",\"string\"],\"default\":null}]}");
   public static org.apache.avro.Schema getClassSchema() { return SCHEMA$; }
 
   private static final SpecificData MODEL$ = new SpecificData();
@@ -73,10 +73,19 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
     return DECODER.decode(b);
   }
 
+  private java.lang.CharSequence id;
   private pfe_broker.avro.Order order;
   private java.lang.CharSequence symbol;
-  private double price;
+  private long price;
   private int quantity;
+  private int cumulativeQuantity;
+  private long cumulativeAmount;
+  private java.lang.CharSequence counterpartyKey;
+  private pfe_broker.avro.Order counterpartyOrder;
+  private int counterpartyCumulativeQuantity;
+  private long counterpartyCumulativeAmount;
+  private pfe_broker.avro.ExecutionType type;
+  private java.lang.CharSequence cancelClOrdId;
 
   /**
    * Default constructor.  Note that this does not initialize fields
@@ -87,16 +96,34 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
 
   /**
    * All-args constructor.
+   * @param id The new value for id
    * @param order The new value for order
    * @param symbol The new value for symbol
    * @param price The new value for price
    * @param quantity The new value for quantity
+   * @param cumulativeQuantity The new value for cumulativeQuantity
+   * @param cumulativeAmount The new value for cumulativeAmount
+   * @param counterpartyKey The new value for counterpartyKey
+   * @param counterpartyOrder The new value for counterpartyOrder
+   * @param counterpartyCumulativeQuantity The new value for counterpartyCumulativeQuantity
+   * @param counterpartyCumulativeAmount The new value for counterpartyCumulativeAmount
+   * @param type The new value for type
+   * @param cancelClOrdId The new value for cancelClOrdId
    */
-  public Trade(pfe_broker.avro.Order order, java.lang.CharSequence symbol, java.lang.Double price, java.lang.Integer quantity) {
+  public Trade(java.lang.CharSequence id, pfe_broker.avro.Order order, java.lang.CharSequence symbol, java.lang.Long price, java.lang.Integer quantity, java.lang.Integer cumulativeQuantity, java.lang.Long cumulativeAmount, java.lang.CharSequence counterpartyKey, pfe_broker.avro.Order counterpartyOrder, java.lang.Integer counterpartyCumulativeQuantity, java.lang.Long counterpartyCumulativeAmount, pfe_broker.avro.ExecutionType type, java.lang.CharSequence cancelClOrdId) {
+    this.id = id;
     this.order = order;
     this.symbol = symbol;
     this.price = price;
     this.quantity = quantity;
+    this.cumulativeQuantity = cumulativeQuantity;
+    this.cumulativeAmount = cumulativeAmount;
+    this.counterpartyKey = counterpartyKey;
+    this.counterpartyOrder = counterpartyOrder;
+    this.counterpartyCumulativeQuantity = counterpartyCumulativeQuantity;
+    this.counterpartyCumulativeAmount = counterpartyCumulativeAmount;
+    this.type = type;
+    this.cancelClOrdId = cancelClOrdId;
   }
 
   @Override
@@ -109,10 +136,19 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
   @Override
   public java.lang.Object get(int field$) {
     switch (field$) {
-    case 0: return order;
-    case 1: return symbol;
-    case 2: return price;
-    case 3: return quantity;
+    case 0: return id;
+    case 1: return order;
+    case 2: return symbol;
+    case 3: return price;
+    case 4: return quantity;
+    case 5: return cumulativeQuantity;
+    case 6: return cumulativeAmount;
+    case 7: return counterpartyKey;
+    case 8: return counterpartyOrder;
+    case 9: return counterpartyCumulativeQuantity;
+    case 10: return counterpartyCumulativeAmount;
+    case 11: return type;
+    case 12: return cancelClOrdId;
     default: throw new IndexOutOfBoundsException("Invalid index: " + field$);
     }
   }
@@ -122,14 +158,40 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
   @SuppressWarnings(value="unchecked")
   public void put(int field$, java.lang.Object value$) {
     switch (field$) {
-    case 0: order = (pfe_broker.avro.Order)value$; break;
-    case 1: symbol = (java.lang.CharSequence)value$; break;
-    case 2: price = (java.lang.Double)value$; break;
-    case 3: quantity = (java.lang.Integer)value$; break;
+    case 0: id = (java.lang.CharSequence)value$; break;
+    case 1: order = (pfe_broker.avro.Order)value$; break;
+    case 2: symbol = (java.lang.CharSequence)value$; break;
+    case 3: price = (java.lang.Long)value$; break;
+    case 4: quantity = (java.lang.Integer)value$; break;
+    case 5: cumulativeQuantity = (java.lang.Integer)value$; break;
+    case 6: cumulativeAmount = (java.lang.Long)value$; break;
+    case 7: counterpartyKey = (java.lang.CharSequence)value$; break;
+    case 8: counterpartyOrder = (pfe_broker.avro.Order)value$; break;
+    case 9: counterpartyCumulativeQuantity = (java.lang.Integer)value$; break;
+    case 10: counterpartyCumulativeAmount = (java.lang.Long)value$; break;
+    case 11: type = (pfe_broker.avro.ExecutionType)value$; break;
+    case 12: cancelClOrdId = (java.lang.CharSequence)value$; break;
     default: throw new IndexOutOfBoundsException("Invalid index: " + field$);
     }
   }
 
+  /**
+   * Gets the value of the 'id' field.
+   * @return The value of the 'id' field.
+   */
+  public java.lang.CharSequence getId() {
+    return id;
+  }
+
+
+  /**
+   * Sets the value of the 'id' field.
+   * @param value the value to set.
+   */
+  public void setId(java.lang.CharSequence value) {
+    this.id = value;
+  }
+
   /**
    * Gets the value of the 'order' field.
    * @return The value of the 'order' field.
@@ -168,7 +230,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
    * Gets the value of the 'price' field.
    * @return The value of the 'price' field.
    */
-  public double getPrice() {
+  public long getPrice() {
     return price;
   }
 
@@ -177,7 +239,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
    * Sets the value of the 'price' field.
    * @param value the value to set.
    */
-  public void setPrice(double value) {
+  public void setPrice(long value) {
     this.price = value;
   }
 
@@ -198,6 +260,142 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
     this.quantity = value;
   }
 
+  /**
+   * Gets the value of the 'cumulativeQuantity' field.
+   * @return The value of the 'cumulativeQuantity' field.
+   */
+  public int getCumulativeQuantity() {
+    return cumulativeQuantity;
+  }
+
+
+  /**
+   * Sets the value of the 'cumulativeQuantity' field.
+   * @param value the value to set.
+   */
+  public void setCumulativeQuantity(int value) {
+    this.cumulativeQuantity = value;
+  }
+
+  /**
+   * Gets the value of the 'cumulativeAmount' field.
+   * @return The value of the 'cumulativeAmount' field.
+   */
+  public long getCumulativeAmount() {
+    return cumulativeAmount;
+  }
+
+
+  /**
+   * Sets the value of the 'cumulativeAmount' field.
+   * @param value the value to set.
+   */
+  public void setCumulativeAmount(long value) {
+    this.cumulativeAmount = value;
+  }
+
+  /**
+   * Gets the value of the 'counterpartyKey' field.
+   * @return The value of the 'counterpartyKey' field.
+   */
+  public java.lang.CharSequence getCounterpartyKey() {
+    return counterpartyKey;
+  }
+
+
+  /**
+   * Sets the value of the 'counterpartyKey' field.
+   * @param value the value to set.
+   */
+  public void setCounterpartyKey(java.lang.CharSequence value) {
+    this.counterpartyKey = value;
+  }
+
+  /**
+   * Gets the value of the 'counterpartyOrder' field.
+   * @return The value of the 'counterpartyOrder' field.
+   */
+  public pfe_broker.avro.Order getCounterpartyOrder() {
+    return counterpartyOrder;
+  }
+
+
+  /**
+   * Sets the value of the 'counterpartyOrder' field.
+   * @param value the value to set.
+   */
+  public void setCounterpartyOrder(pfe_broker.avro.Order value) {
+    this.counterpartyOrder = value;
+  }
+
+  /**
+   * Gets the value of the 'counterpartyCumulativeQuantity' field.
+   * @return The value of the 'counterpartyCumulativeQuantity' field.
+   */
+  public int getCounterpartyCumulativeQuantity() {
+    return counterpartyCumulativeQuantity;
+  }
+
+
+  /**
+   * Sets the value of the 'counterpartyCumulativeQuantity' field.
+   * @param value the value to set.
+   */
+  public void setCounterpartyCumulativeQuantity(int value) {
+    this.counterpartyCumulativeQuantity = value;
+  }
+
+  /**
+   * Gets the value of the 'counterpartyCumulativeAmount' field.
+   * @return The value of the 'counterpartyCumulativeAmount' field.
+   */
+  public long getCounterpartyCumulativeAmount() {
+    return counterpartyCumulativeAmount;
+  }
+
+
+  /**
+   * Sets the value of the 'counterpartyCumulativeAmount' field.
+   * @param value the value to set.
+   */
+  public void setCounterpartyCumulativeAmount(long value) {
+    this.counterpartyCumulativeAmount = value;
+  }
+
+  /**
+   * Gets the value of the 'type' field.
+   * @return The value of the 'type' field.
+   */
+  public pfe_broker.avro.ExecutionType getType() {
+    return type;
+  }
+
+
+  /**
+   * Sets the value of the 'type' field.
+   * @param value the value to set.
+   */
+  public void setType(pfe_broker.avro.ExecutionType value) {
+    this.type = value;
+  }
+
+  /**
+   * Gets the value of the 'cancelClOrdId' field.
+   * @return The value of the 'cancelClOrdId' field.
+   */
+  public java.lang.CharSequence getCancelClOrdId() {
+    return cancelClOrdId;
+  }
+
+
+  /**
+   * Sets the value of the 'cancelClOrdId' field.
+   * @param value the value to set.
+   */
+  public void setCancelClOrdId(java.lang.CharSequence value) {
+    this.cancelClOrdId = value;
+  }
+
   /**
    * Creates a new Trade RecordBuilder.
    * @return A new Trade RecordBuilder
@@ -239,11 +437,20 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
   public static class Builder extends org.apache.avro.specific.SpecificRecordBuilderBase<Trade>
     implements org.apache.avro.data.RecordBuilder<Trade> {
 
+    private java.lang.CharSequence id;
     private pfe_broker.avro.Order order;
     private pfe_broker.avro.Order.Builder orderBuilder;
     private java.lang.CharSequence symbol;
-    private double price;
+    private long price;
     private int quantity;
+    private int cumulativeQuantity;
+    private long cumulativeAmount;
+    private java.lang.CharSequence counterpartyKey;
+    private pfe_broker.avro.Order counterpartyOrder;
+    private int counterpartyCumulativeQuantity;
+    private long counterpartyCumulativeAmount;
+    private pfe_broker.avro.ExecutionType type;
+    private java.lang.CharSequence cancelClOrdId;
 
     /** Creates a new Builder */
     private Builder() {
@@ -256,25 +463,61 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
      */
     private Builder(pfe_broker.avro.Trade.Builder other) {
       super(other);
-      if (isValidValue(fields()[0], other.order)) {
-        this.order = data().deepCopy(fields()[0].schema(), other.order);
+      if (isValidValue(fields()[0], other.id)) {
+        this.id = data().deepCopy(fields()[0].schema(), other.id);
         fieldSetFlags()[0] = other.fieldSetFlags()[0];
       }
+      if (isValidValue(fields()[1], other.order)) {
+        this.order = data().deepCopy(fields()[1].schema(), other.order);
+        fieldSetFlags()[1] = other.fieldSetFlags()[1];
+      }
       if (other.hasOrderBuilder()) {
         this.orderBuilder = pfe_broker.avro.Order.newBuilder(other.getOrderBuilder());
       }
-      if (isValidValue(fields()[1], other.symbol)) {
-        this.symbol = data().deepCopy(fields()[1].schema(), other.symbol);
-        fieldSetFlags()[1] = other.fieldSetFlags()[1];
-      }
-      if (isValidValue(fields()[2], other.price)) {
-        this.price = data().deepCopy(fields()[2].schema(), other.price);
+      if (isValidValue(fields()[2], other.symbol)) {
+        this.symbol = data().deepCopy(fields()[2].schema(), other.symbol);
         fieldSetFlags()[2] = other.fieldSetFlags()[2];
       }
-      if (isValidValue(fields()[3], other.quantity)) {
-        this.quantity = data().deepCopy(fields()[3].schema(), other.quantity);
+      if (isValidValue(fields()[3], other.price)) {
+        this.price = data().deepCopy(fields()[3].schema(), other.price);
         fieldSetFlags()[3] = other.fieldSetFlags()[3];
       }
+      if (isValidValue(fields()[4], other.quantity)) {
+        this.quantity = data().deepCopy(fields()[4].schema(), other.quantity);
+        fieldSetFlags()[4] = other.fieldSetFlags()[4];
+      }
+      if (isValidValue(fields()[5], other.cumulativeQuantity)) {
+        this.cumulativeQuantity = data().deepCopy(fields()[5].schema(), other.cumulativeQuantity);
+        fieldSetFlags()[5] = other.fieldSetFlags()[5];
+      }
+      if (isValidValue(fields()[6], other.cumulativeAmount)) {
+        this.cumulativeAmount = data().deepCopy(fields()[6].schema(), other.cumulativeAmount);
+        fieldSetFlags()[6] = other.fieldSetFlags()[6];
+      }
+      if (isValidValue(fields()[7], other.counterpartyKey)) {
+        this.counterpartyKey = data().deepCopy(fields()[7].schema(), other.counterpartyKey);
+        fieldSetFlags()[7] = other.fieldSetFlags()[7];
+      }
+      if (isValidValue(fields()[8], other.counterpartyOrder)) {
+        this.counterpartyOrder = data().deepCopy(fields()[8].schema(), other.counterpartyOrder);
+        fieldSetFlags()[8] = other.fieldSetFlags()[8];
+      }
+      if (isValidValue(fields()[9], other.counterpartyCumulativeQuantity)) {
+        this.counterpartyCumulativeQuantity = data().deepCopy(fields()[9].schema(), other.counterpartyCumulativeQuantity);
+        fieldSetFlags()[9] = other.fieldSetFlags()[9];
+      }
+      if (isValidValue(fields()[10], other.counterpartyCumulativeAmount)) {
+        this.counterpartyCumulativeAmount = data().deepCopy(fields()[10].schema(), other.counterpartyCumulativeAmount);
+        fieldSetFlags()[10] = other.fieldSetFlags()[10];
+      }
+      if (isValidValue(fields()[11], other.type)) {
+        this.type = data().deepCopy(fields()[11].schema(), other.type);
+        fieldSetFlags()[11] = other.fieldSetFlags()[11];
+      }
+      if (isValidValue(fields()[12], other.cancelClOrdId)) {
+        this.cancelClOrdId = data().deepCopy(fields()[12].schema(), other.cancelClOrdId);
+        fieldSetFlags()[12] = other.fieldSetFlags()[12];
+      }
     }
 
     /**
@@ -283,23 +526,99 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
      */
     private Builder(pfe_broker.avro.Trade other) {
       super(SCHEMA$, MODEL$);
-      if (isValidValue(fields()[0], other.order)) {
-        this.order = data().deepCopy(fields()[0].schema(), other.order);
+      if (isValidValue(fields()[0], other.id)) {
+        this.id = data().deepCopy(fields()[0].schema(), other.id);
         fieldSetFlags()[0] = true;
       }
-      this.orderBuilder = null;
-      if (isValidValue(fields()[1], other.symbol)) {
-        this.symbol = data().deepCopy(fields()[1].schema(), other.symbol);
+      if (isValidValue(fields()[1], other.order)) {
+        this.order = data().deepCopy(fields()[1].schema(), other.order);
         fieldSetFlags()[1] = true;
       }
-      if (isValidValue(fields()[2], other.price)) {
-        this.price = data().deepCopy(fields()[2].schema(), other.price);
+      this.orderBuilder = null;
+      if (isValidValue(fields()[2], other.symbol)) {
+        this.symbol = data().deepCopy(fields()[2].schema(), other.symbol);
         fieldSetFlags()[2] = true;
       }
-      if (isValidValue(fields()[3], other.quantity)) {
-        this.quantity = data().deepCopy(fields()[3].schema(), other.quantity);
+      if (isValidValue(fields()[3], other.price)) {
+        this.price = data().deepCopy(fields()[3].schema(), other.price);
         fieldSetFlags()[3] = true;
       }
+      if (isValidValue(fields()[4], other.quantity)) {
+        this.quantity = data().deepCopy(fields()[4].schema(), other.quantity);
+        fieldSetFlags()[4] = true;
+      }
+      if (isValidValue(fields()[5], other.cumulativeQuantity)) {
+        this.cumulativeQuantity = data().deepCopy(fields()[5].schema(), other.cumulativeQuantity);
+        fieldSetFlags()[5] = true;
+      }
+      if (isValidValue(fields()[6], other.cumulativeAmount)) {
+        this.cumulativeAmount = data().deepCopy(fields()[6].schema(), other.cumulativeAmount);
+        fieldSetFlags()[6] = true;
+      }
+      if (isValidValue(fields()[7], other.counterpartyKey)) {
+        this.counterpartyKey = data().deepCopy(fields()[7].schema(), other.counterpartyKey);
+        fieldSetFlags()[7] = true;
+      }
+      if (isValidValue(fields()[8], other.counterpartyOrder)) {
+        this.counterpartyOrder = data().deepCopy(fields()[8].schema(), other.counterpartyOrder);
+        fieldSetFlags()[8] = true;
+      }
+      if (isValidValue(fields()[9], other.counterpartyCumulativeQuantity)) {
+        this.counterpartyCumulativeQuantity = data().deepCopy(fields()[9].schema(), other.counterpartyCumulativeQuantity);
+        fieldSetFlags()[9] = true;
+      }
+      if (isValidValue(fields()[10], other.counterpartyCumulativeAmount)) {
+        this.counterpartyCumulativeAmount = data().deepCopy(fields()[10].schema(), other.counterpartyCumulativeAmount);
+        fieldSetFlags()[10] = true;
+      }
+      if (isValidValue(fields()[11], other.type)) {
+        this.type = data().deepCopy(fields()[11].schema(), other.type);
+        fieldSetFlags()[11] = true;
+      }
+      if (isValidValue(fields()[12], other.cancelClOrdId)) {
+        this.cancelClOrdId = data().deepCopy(fields()[12].schema(), other.cancelClOrdId);
+        fieldSetFlags()[12] = true;
+      }
+    }
+
+    /**
+      * Gets the value of the 'id' field.
+      * @return The value.
+      */
+    public java.lang.CharSequence getId() {
+      return id;
+    }
+
+
+    /**
+      * Sets the value of the 'id' field.
+      * @param value The value of 'id'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setId(java.lang.CharSequence value) {
+      validate(fields()[0], value);
+      this.id = value;
+      fieldSetFlags()[0] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'id' field has been set.
+      * @return True if the 'id' field has been set, false otherwise.
+      */
+    public boolean hasId() {
+      return fieldSetFlags()[0];
+    }
+
+
+    /**
+      * Clears the value of the 'id' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearId() {
+      id = null;
+      fieldSetFlags()[0] = false;
+      return this;
     }
 
     /**
@@ -317,10 +636,10 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return This builder.
       */
     public pfe_broker.avro.Trade.Builder setOrder(pfe_broker.avro.Order value) {
-      validate(fields()[0], value);
+      validate(fields()[1], value);
       this.orderBuilder = null;
       this.order = value;
-      fieldSetFlags()[0] = true;
+      fieldSetFlags()[1] = true;
       return this;
     }
 
@@ -329,7 +648,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return True if the 'order' field has been set, false otherwise.
       */
     public boolean hasOrder() {
-      return fieldSetFlags()[0];
+      return fieldSetFlags()[1];
     }
 
     /**
@@ -374,7 +693,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
     public pfe_broker.avro.Trade.Builder clearOrder() {
       order = null;
       orderBuilder = null;
-      fieldSetFlags()[0] = false;
+      fieldSetFlags()[1] = false;
       return this;
     }
 
@@ -393,9 +712,9 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return This builder.
       */
     public pfe_broker.avro.Trade.Builder setSymbol(java.lang.CharSequence value) {
-      validate(fields()[1], value);
+      validate(fields()[2], value);
       this.symbol = value;
-      fieldSetFlags()[1] = true;
+      fieldSetFlags()[2] = true;
       return this;
     }
 
@@ -404,7 +723,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return True if the 'symbol' field has been set, false otherwise.
       */
     public boolean hasSymbol() {
-      return fieldSetFlags()[1];
+      return fieldSetFlags()[2];
     }
 
 
@@ -414,7 +733,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       */
     public pfe_broker.avro.Trade.Builder clearSymbol() {
       symbol = null;
-      fieldSetFlags()[1] = false;
+      fieldSetFlags()[2] = false;
       return this;
     }
 
@@ -422,7 +741,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * Gets the value of the 'price' field.
       * @return The value.
       */
-    public double getPrice() {
+    public long getPrice() {
       return price;
     }
 
@@ -432,10 +751,10 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @param value The value of 'price'.
       * @return This builder.
       */
-    public pfe_broker.avro.Trade.Builder setPrice(double value) {
-      validate(fields()[2], value);
+    public pfe_broker.avro.Trade.Builder setPrice(long value) {
+      validate(fields()[3], value);
       this.price = value;
-      fieldSetFlags()[2] = true;
+      fieldSetFlags()[3] = true;
       return this;
     }
 
@@ -444,7 +763,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return True if the 'price' field has been set, false otherwise.
       */
     public boolean hasPrice() {
-      return fieldSetFlags()[2];
+      return fieldSetFlags()[3];
     }
 
 
@@ -453,7 +772,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return This builder.
       */
     public pfe_broker.avro.Trade.Builder clearPrice() {
-      fieldSetFlags()[2] = false;
+      fieldSetFlags()[3] = false;
       return this;
     }
 
@@ -472,9 +791,9 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return This builder.
       */
     public pfe_broker.avro.Trade.Builder setQuantity(int value) {
-      validate(fields()[3], value);
+      validate(fields()[4], value);
       this.quantity = value;
-      fieldSetFlags()[3] = true;
+      fieldSetFlags()[4] = true;
       return this;
     }
 
@@ -483,7 +802,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return True if the 'quantity' field has been set, false otherwise.
       */
     public boolean hasQuantity() {
-      return fieldSetFlags()[3];
+      return fieldSetFlags()[4];
     }
 
 
@@ -492,7 +811,323 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
       * @return This builder.
       */
     public pfe_broker.avro.Trade.Builder clearQuantity() {
-      fieldSetFlags()[3] = false;
+      fieldSetFlags()[4] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'cumulativeQuantity' field.
+      * @return The value.
+      */
+    public int getCumulativeQuantity() {
+      return cumulativeQuantity;
+    }
+
+
+    /**
+      * Sets the value of the 'cumulativeQuantity' field.
+      * @param value The value of 'cumulativeQuantity'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setCumulativeQuantity(int value) {
+      validate(fields()[5], value);
+      this.cumulativeQuantity = value;
+      fieldSetFlags()[5] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'cumulativeQuantity' field has been set.
+      * @return True if the 'cumulativeQuantity' field has been set, false otherwise.
+      */
+    public boolean hasCumulativeQuantity() {
+      return fieldSetFlags()[5];
+    }
+
+
+    /**
+      * Clears the value of the 'cumulativeQuantity' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearCumulativeQuantity() {
+      fieldSetFlags()[5] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'cumulativeAmount' field.
+      * @return The value.
+      */
+    public long getCumulativeAmount() {
+      return cumulativeAmount;
+    }
+
+
+    /**
+      * Sets the value of the 'cumulativeAmount' field.
+      * @param value The value of 'cumulativeAmount'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setCumulativeAmount(long value) {
+      validate(fields()[6], value);
+      this.cumulativeAmount = value;
+      fieldSetFlags()[6] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'cumulativeAmount' field has been set.
+      * @return True if the 'cumulativeAmount' field has been set, false otherwise.
+      */
+    public boolean hasCumulativeAmount() {
+      return fieldSetFlags()[6];
+    }
+
+
+    /**
+      * Clears the value of the 'cumulativeAmount' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearCumulativeAmount() {
+      fieldSetFlags()[6] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'counterpartyKey' field.
+      * @return The value.
+      */
+    public java.lang.CharSequence getCounterpartyKey() {
+      return counterpartyKey;
+    }
+
+
+    /**
+      * Sets the value of the 'counterpartyKey' field.
+      * @param value The value of 'counterpartyKey'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setCounterpartyKey(java.lang.CharSequence value) {
+      validate(fields()[7], value);
+      this.counterpartyKey = value;
+      fieldSetFlags()[7] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'counterpartyKey' field has been set.
+      * @return True if the 'counterpartyKey' field has been set, false otherwise.
+      */
+    public boolean hasCounterpartyKey() {
+      return fieldSetFlags()[7];
+    }
+
+
+    /**
+      * Clears the value of the 'counterpartyKey' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearCounterpartyKey() {
+      counterpartyKey = null;
+      fieldSetFlags()[7] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'counterpartyOrder' field.
+      * @return The value.
+      */
+    public pfe_broker.avro.Order getCounterpartyOrder() {
+      return counterpartyOrder;
+    }
+
+
+    /**
+      * Sets the value of the 'counterpartyOrder' field.
+      * @param value The value of 'counterpartyOrder'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setCounterpartyOrder(pfe_broker.avro.Order value) {
+      validate(fields()[8], value);
+      this.counterpartyOrder = value;
+      fieldSetFlags()[8] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'counterpartyOrder' field has been set.
+      * @return True if the 'counterpartyOrder' field has been set, false otherwise.
+      */
+    public boolean hasCounterpartyOrder() {
+      return fieldSetFlags()[8];
+    }
+
+
+    /**
+      * Clears the value of the 'counterpartyOrder' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearCounterpartyOrder() {
+      counterpartyOrder = null;
+      fieldSetFlags()[8] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'counterpartyCumulativeQuantity' field.
+      * @return The value.
+      */
+    public int getCounterpartyCumulativeQuantity() {
+      return counterpartyCumulativeQuantity;
+    }
+
+
+    /**
+      * Sets the value of the 'counterpartyCumulativeQuantity' field.
+      * @param value The value of 'counterpartyCumulativeQuantity'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setCounterpartyCumulativeQuantity(int value) {
+      validate(fields()[9], value);
+      this.counterpartyCumulativeQuantity = value;
+      fieldSetFlags()[9] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'counterpartyCumulativeQuantity' field has been set.
+      * @return True if the 'counterpartyCumulativeQuantity' field has been set, false otherwise.
+      */
+    public boolean hasCounterpartyCumulativeQuantity() {
+      return fieldSetFlags()[9];
+    }
+
+
+    /**
+      * Clears the value of the 'counterpartyCumulativeQuantity' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearCounterpartyCumulativeQuantity() {
+      fieldSetFlags()[9] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'counterpartyCumulativeAmount' field.
+      * @return The value.
+      */
+    public long getCounterpartyCumulativeAmount() {
+      return counterpartyCumulativeAmount;
+    }
+
+
+    /**
+      * Sets the value of the 'counterpartyCumulativeAmount' field.
+      * @param value The value of 'counterpartyCumulativeAmount'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setCounterpartyCumulativeAmount(long value) {
+      validate(fields()[10], value);
+      this.counterpartyCumulativeAmount = value;
+      fieldSetFlags()[10] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'counterpartyCumulativeAmount' field has been set.
+      * @return True if the 'counterpartyCumulativeAmount' field has been set, false otherwise.
+      */
+    public boolean hasCounterpartyCumulativeAmount() {
+      return fieldSetFlags()[10];
+    }
+
+
+    /**
+      * Clears the value of the 'counterpartyCumulativeAmount' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearCounterpartyCumulativeAmount() {
+      fieldSetFlags()[10] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'type' field.
+      * @return The value.
+      */
+    public pfe_broker.avro.ExecutionType getType() {
+      return type;
+    }
+
+
+    /**
+      * Sets the value of the 'type' field.
+      * @param value The value of 'type'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setType(pfe_broker.avro.ExecutionType value) {
+      validate(fields()[11], value);
+      this.type = value;
+      fieldSetFlags()[11] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'type' field has been set.
+      * @return True if the 'type' field has been set, false otherwise.
+      */
+    public boolean hasType() {
+      return fieldSetFlags()[11];
+    }
+
+
+    /**
+      * Clears the value of the 'type' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearType() {
+      type = null;
+      fieldSetFlags()[11] = false;
+      return this;
+    }
+
+    /**
+      * Gets the value of the 'cancelClOrdId' field.
+      * @return The value.
+      */
+    public java.lang.CharSequence getCancelClOrdId() {
+      return cancelClOrdId;
+    }
+
+
+    /**
+      * Sets the value of the 'cancelClOrdId' field.
+      * @param value The value of 'cancelClOrdId'.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder setCancelClOrdId(java.lang.CharSequence value) {
+      validate(fields()[12], value);
+      this.cancelClOrdId = value;
+      fieldSetFlags()[12] = true;
+      return this;
+    }
+
+    /**
+      * Checks whether the 'cancelClOrdId' field has been set.
+      * @return True if the 'cancelClOrdId' field has been set, false otherwise.
+      */
+    public boolean hasCancelClOrdId() {
+      return fieldSetFlags()[12];
+    }
+
+
+    /**
+      * Clears the value of the 'cancelClOrdId' field.
+      * @return This builder.
+      */
+    public pfe_broker.avro.Trade.Builder clearCancelClOrdId() {
+      cancelClOrdId = null;
+      fieldSetFlags()[12] = false;
       return this;
     }
 
@@ -501,6 +1136,7 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
     public Trade build() {
       try {
         Trade record = new Trade();
+        record.id = fieldSetFlags()[0] ? this.id : (java.lang.CharSequence) defaultValue(fields()[0]);
         if (orderBuilder != null) {
           try {
             record.order = this.orderBuilder.build();
@@ -509,11 +1145,19 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
             throw e;
           }
         } else {
-          record.order = fieldSetFlags()[0] ? this.order : (pfe_broker.avro.Order) defaultValue(fields()[0]);
+          record.order = fieldSetFlags()[1] ? this.order : (pfe_broker.avro.Order) defaultValue(fields()[1]);
         }
-        record.symbol = fieldSetFlags()[1] ? this.symbol : (java.lang.CharSequence) defaultValue(fields()[1]);
-        record.price = fieldSetFlags()[2] ? this.price : (java.lang.Double) defaultValue(fields()[2]);
-        record.quantity = fieldSetFlags()[3] ? this.quantity : (java.lang.Integer) defaultValue(fields()[3]);
+        record.symbol = fieldSetFlags()[2] ? this.symbol : (java.lang.CharSequence) defaultValue(fields()[2]);
+        record.price = fieldSetFlags()[3] ? this.price : (java.lang.Long) defaultValue(fields()[3]);
+        record.quantity = fieldSetFlags()[4] ? this.quantity : (java.lang.Integer) defaultValue(fields()[4]);
+        record.cumulativeQuantity = fieldSetFlags()[5] ? this.cumulativeQuantity : (java.lang.Integer) defaultValue(fields()[5]);
+        record.cumulativeAmount = fieldSetFlags()[6] ? this.cumulativeAmount : (java.lang.Long) defaultValue(fields()[6]);
+        record.counterpartyKey = fieldSetFlags()[7] ? this.counterpartyKey : (java.lang.CharSequence) defaultValue(fields()[7]);
+        record.counterpartyOrder = fieldSetFlags()[8] ? this.counterpartyOrder : (pfe_broker.avro.Order) defaultValue(fields()[8]);
+        record.counterpartyCumulativeQuantity = fieldSetFlags()[9] ? this.counterpartyCumulativeQuantity : (java.lang.Integer) defaultValue(fields()[9]);
+        record.counterpartyCumulativeAmount = fieldSetFlags()[10] ? this.counterpartyCumulativeAmount : (java.lang.Long) defaultValue(fields()[10]);
+        record.type = fieldSetFlags()[11] ? this.type : (pfe_broker.avro.ExecutionType) defaultValue(fields()[11]);
+        record.cancelClOrdId = fieldSetFlags()[12] ? this.cancelClOrdId : (java.lang.CharSequence) defaultValue(fields()[12]);
         return record;
       } catch (org.apache.avro.AvroMissingFieldException e) {
         throw e;
@@ -546,14 +1190,50 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
   @Override public void customEncode(org.apache.avro.io.Encoder out)
     throws java.io.IOException
   {
+    out.writeString(this.id);
+
     this.order.customEncode(out);
 
     out.writeString(this.symbol);
 
-    out.writeDouble(this.price);
+    out.writeLong(this.price);
 
     out.writeInt(this.quantity);
 
+    out.writeInt(this.cumulativeQuantity);
+
+    out.writeLong(this.cumulativeAmount);
+
+    if (this.counterpartyKey == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeString(this.counterpartyKey);
+    }
+
+    if (this.counterpartyOrder == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      this.counterpartyOrder.customEncode(out);
+    }
+
+    out.writeInt(this.counterpartyCumulativeQuantity);
+
+    out.writeLong(this.counterpartyCumulativeAmount);
+
+    out.writeEnum(this.type.ordinal());
+
+    if (this.cancelClOrdId == null) {
+      out.writeIndex(0);
+      out.writeNull();
+    } else {
+      out.writeIndex(1);
+      out.writeString(this.cancelClOrdId);
+    }
+
   }
 
   @Override public void customDecode(org.apache.avro.io.ResolvingDecoder in)
@@ -561,6 +1241,8 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
   {
     org.apache.avro.Schema.Field[] fieldOrder = in.readFieldOrderIfDiff();
     if (fieldOrder == null) {
+      this.id = in.readString(this.id instanceof Utf8 ? (Utf8)this.id : null);
+
       if (this.order == null) {
         this.order = new pfe_broker.avro.Order();
       }
@@ -568,32 +1250,120 @@ public class Trade extends org.apache.avro.specific.SpecificRecordBase implement
 
       this.symbol = in.readString(this.symbol instanceof Utf8 ? (Utf8)this.symbol : null);
 
-      this.price = in.readDouble();
+      this.price = in.readLong();
 
       this.quantity = in.readInt();
 
+      this.cumulativeQuantity = in.readInt();
+
+      this.cumulativeAmount = in.readLong();
+
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.counterpartyKey = null;
+      } else {
+        this.counterpartyKey = in.readString(this.counterpartyKey instanceof Utf8 ? (Utf8)this.counterpartyKey : null);
+      }
+
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.counterpartyOrder = null;
+      } else {
+        if (this.counterpartyOrder == null) {
+          this.counterpartyOrder = new pfe_broker.avro.Order();
+        }
+        this.counterpartyOrder.customDecode(in);
+      }
+
+      this.counterpartyCumulativeQuantity = in.readInt();
+
+      this.counterpartyCumulativeAmount = in.readLong();
+
+      this.type = pfe_broker.avro.ExecutionType.values()[in.readEnum()];
+
+      if (in.readIndex() != 1) {
+        in.readNull();
+        this.cancelClOrdId = null;
+      } else {
+        this.cancelClOrdId = in.readString(this.cancelClOrdId instanceof Utf8 ? (Utf8)this.cancelClOrdId : null);
+      }
+
     } else {
-      for (int i = 0; i < 4; i++) {
+      for (int i = 0; i < 13; i++) {
         switch (fieldOrder[i].pos()) {
         case 0:
+          this.id = in.readString(this.id instanceof Utf8 ? (Utf8)this.id : null);
+          break;
+
+        case 1:
           if (this.order == null) {
             this.order = new pfe_broker.avro.Order();
           }
           this.order.customDecode(in);
           break;
 
-        case 1:
+        case 2:
           this.symbol = in.readString(this.symbol instanceof Utf8 ? (Utf8)this.symbol : null);
           break;
 
-        case 2:
-          this.price = in.readDouble();
+        case 3:
+          this.price = in.readLong();
           break;
 
-        case 3:
+        case 4:
           this.quantity = in.readInt();
           break;
 
+        case 5:
+          this.cumulativeQuantity = in.readInt();
+          break;
+
+        case 6:
+          this.cumulativeAmount = in.readLong();
+          break;
+
+        case 7:
+          if (in.readIndex() != 1) {
+            in.readNull();
+            this.counterpartyKey = null;
+          } else {
+            this.counterpartyKey = in.readString(this.counterpartyKey instanceof Utf8 ? (Utf8)this.counterpartyKey : null);
+          }
+          break;
+
+        case 8:
+          if (in.readIndex() != 1) {
+            in.readNull();
+            this.counterpartyOrder = null;
+          } else {
+            if (this.counterpartyOrder == null) {
+              this.counterpartyOrder = new pfe_broker.avro.Order();
+            }
+            this.counterpartyOrder.customDecode(in);
+          }
+          break;
+
+        case 9:
+          this.counterpartyCumulativeQuantity = in.readInt();
+          break;
+
+        case 10:
+          this.counterpartyCumulativeAmount = in.readLong();
+          break;
+
+        case 11:
+          this.type = pfe_broker.avro.ExecutionType.values()[in.readEnum()];
+          break;
+
+        case 12:
+          if (in.readIndex() != 1) {
+            in.readNull();
+            this.cancelClOrdId = null;
+          } else {
+            this.cancelClOrdId = in.readString(this.cancelClOrdId instanceof Utf8 ? (Utf8)this.cancelClOrdId : null);
+          }
+          break;
+
         default:
           throw new java.io.IOException("Corrupt ResolvingDecoder.");
         }
@@ -38,6 +38,41 @@ public class Converters {
     }
   }
 
+  public static class OrderType {
+
+    private static final Map<Character, pfe_broker.avro.OrderType> avroOrderTypeMap = new HashMap<>();
+    private static final Map<pfe_broker.avro.OrderType, Character> quickfixOrderTypeMap = new HashMap<>();
+
+    static {
+      avroOrderTypeMap.put(quickfix.field.OrdType.MARKET, pfe_broker.avro.OrderType.MARKET);
+      avroOrderTypeMap.put(quickfix.field.OrdType.LIMIT, pfe_broker.avro.OrderType.LIMIT);
+
+      avroOrderTypeMap.entrySet().forEach(entry -> quickfixOrderTypeMap.put(entry.getValue(), entry.getKey()));
+    }
+
+    public static char charFromAvro(pfe_broker.avro.OrderType orderType) {
+      if (!quickfixOrderTypeMap.containsKey(orderType)) {
+        throw new IllegalArgumentException("Unknown order type: " + orderType);
+      }
+      return quickfixOrderTypeMap.get(orderType);
+    }
+
+    public static quickfix.field.OrdType fromAvro(pfe_broker.avro.OrderType orderType) {
+      return new quickfix.field.OrdType(charFromAvro(orderType));
+    }
+
+    public static pfe_broker.avro.OrderType toAvro(char orderType) {
+      if (!avroOrderTypeMap.containsKey(orderType)) {
+        throw new IllegalArgumentException("Unknown order type: " + orderType);
+      }
+      return avroOrderTypeMap.get(orderType);
+    }
+
+    public static pfe_broker.avro.OrderType toAvro(quickfix.field.OrdType orderType) {
+      return toAvro(orderType.getValue());
+    }
+  }
+
   public static class OrderRejectReason {
 
     private static final Map<Integer, pfe_broker.avro.OrderRejectReason> avroReasonMap = new HashMap<>();
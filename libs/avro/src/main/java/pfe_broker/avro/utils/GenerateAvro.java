@@ -11,8 +11,11 @@ public class GenerateAvro {
   public static File[] files = new File[] {
     getFileFromRessource("order-rejected-reason.avsc"),
     getFileFromRessource("side.avsc"),
+    getFileFromRessource("order-type.avsc"),
     getFileFromRessource("order.avsc"),
+    getFileFromRessource("execution-type.avsc"),
     getFileFromRessource("trade.avsc"),
+    getFileFromRessource("book-order.avsc"),
     getFileFromRessource("rejected-order.avsc"),
     getFileFromRessource("market-data.avsc"),
   };
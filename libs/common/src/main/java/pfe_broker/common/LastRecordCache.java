@@ -0,0 +1,294 @@
+package pfe_broker.common;
+
+import io.confluent.kafka.serializers.KafkaAvroDeserializer;
+import io.confluent.kafka.serializers.KafkaAvroDeserializerConfig;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRebalanceListener;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.clients.consumer.KafkaConsumer;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Keeps the last record of every topic of a prefix in memory, such as the
+ * last market data of every symbol, keyed by the end of the topic name.
+ *
+ * A background thread is subscribed to the topics, or only to those of the
+ * owned keys, and updates the cache as soon as a new record is published,
+ * so reading the last value of a key is a lock-free map lookup. The
+ * listeners are notified of every new value on that thread.
+ *
+ * @param <V> the type of the values of the topics
+ */
+public class LastRecordCache<V> implements Runnable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    LastRecordCache.class
+  );
+
+  /**
+   * Last known value of a key.
+   *
+   * @param value the value of the record
+   * @param timestamp the kafka timestamp of the record, in epoch milliseconds
+   * @param receivedAt the time the record was stored in the cache, in epoch
+   * milliseconds
+   */
+  public record LastRecord<V>(V value, long timestamp, long receivedAt) {
+    /**
+     * @return the time elapsed since the value was produced
+     */
+    public Duration staleness() {
+      return Duration.ofMillis(System.currentTimeMillis() - timestamp);
+    }
+
+    /**
+     * @return the time the cache entry was last updated
+     */
+    public Instant lastUpdate() {
+      return Instant.ofEpochMilli(receivedAt);
+    }
+  }
+
+  private final String name;
+  private final String topicPrefix;
+  private final Properties properties;
+  private final Map<String, LastRecord<V>> lastRecords =
+    new ConcurrentHashMap<>();
+  private final List<BiConsumer<String, V>> listeners =
+    new CopyOnWriteArrayList<>();
+
+  private KafkaConsumer<String, V> consumer;
+  private Thread thread;
+  private volatile boolean running;
+  private volatile Set<String> ownedKeys;
+  private volatile boolean subscriptionChanged;
+
+  /**
+   * @param name the name of the consumer thread
+   * @param topicPrefix the prefix of the topics, followed by the key
+   * @param properties the consumer properties, see
+   * {@link #avroConsumerProperties(String, String, String)}
+   */
+  public LastRecordCache(
+    String name,
+    String topicPrefix,
+    Properties properties
+  ) {
+    this.name = name;
+    this.topicPrefix = topicPrefix;
+    this.properties = properties;
+  }
+
+  /**
+   * @return the properties of a consumer of specific Avro records reading
+   * every partition of the topics from their last record, in a group of its
+   * own
+   */
+  public static Properties avroConsumerProperties(
+    String bootstrapServers,
+    String schemaRegistryUrl,
+    String groupPrefix
+  ) {
+    Properties props = new Properties();
+    props.put(ConsumerConfig.BOOTSTRAP_SERVERS_CONFIG, bootstrapServers);
+    props.put(
+      KafkaAvroDeserializerConfig.SCHEMA_REGISTRY_URL_CONFIG,
+      schemaRegistryUrl
+    );
+    // Every instance must receive all the partitions, so each one uses its
+    // own group
+    props.put(ConsumerConfig.GROUP_ID_CONFIG, groupPrefix + UUID.randomUUID());
+    props.put(
+      ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG,
+      StringDeserializer.class
+    );
+    props.put(
+      ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG,
+      KafkaAvroDeserializer.class
+    );
+    props.put(KafkaAvroDeserializerConfig.SPECIFIC_AVRO_READER_CONFIG, true);
+    props.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, false);
+    props.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+    props.put(ConsumerConfig.FETCH_MAX_WAIT_MS_CONFIG, 10);
+    // New topics are discovered on metadata refresh
+    props.put(ConsumerConfig.METADATA_MAX_AGE_CONFIG, 1000);
+    return props;
+  }
+
+  public void start() {
+    this.consumer = new KafkaConsumer<>(properties);
+    this.running = true;
+    this.thread = new Thread(this, name);
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  public void stop() {
+    running = false;
+    consumer.wakeup();
+    try {
+      thread.join(1000);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  @Override
+  public void run() {
+    try {
+      boolean subscribed = false;
+      while (running) {
+        if (subscriptionChanged || !subscribed) {
+          subscriptionChanged = false;
+          subscribed = subscribe();
+        }
+        if (!subscribed) {
+          // No key is owned, nothing to read
+          Thread.sleep(100);
+          continue;
+        }
+        for (ConsumerRecord<String, V> record : consumer.poll(
+          Duration.ofMillis(100)
+        )) {
+          update(
+            record.topic().substring(topicPrefix.length()),
+            record.value(),
+            record.timestamp()
+          );
+        }
+      }
+    } catch (WakeupException e) {
+      // Raised by stop()
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (Exception e) {
+      LOG.error("{} stopped: {}", name, e.getMessage());
+    } finally {
+      consumer.close();
+    }
+  }
+
+  /**
+   * Subscribe to the topics of the owned keys, or of every key if the
+   * ownership is unknown.
+   *
+   * @return false if no key is owned
+   */
+  private boolean subscribe() {
+    Set<String> keys = ownedKeys;
+    String keyPattern;
+
+    if (keys == null) {
+      keyPattern = ".*";
+    } else {
+      lastRecords.keySet().retainAll(keys);
+      if (keys.isEmpty()) {
+        consumer.unsubscribe();
+        return false;
+      }
+      keyPattern =
+        keys
+          .stream()
+          .map(Pattern::quote)
+          .collect(Collectors.joining("|", "(", ")"));
+    }
+    consumer.subscribe(
+      Pattern.compile(Pattern.quote(topicPrefix) + keyPattern),
+      new SeekToLastRecord()
+    );
+    return true;
+  }
+
+  /**
+   * Restrict the cache to the given keys, such as the symbols whose orders
+   * are handled by this instance.
+   */
+  public void setOwnedKeys(Set<String> keys) {
+    this.ownedKeys = Set.copyOf(keys);
+    this.subscriptionChanged = true;
+    LOG.info("{} reading {}", name, this.ownedKeys);
+  }
+
+  /**
+   * Store a value, unless a more recent one is known, and notify the
+   * listeners. Only called by the consumer thread, and by the tests.
+   */
+  public void update(String key, V value, long timestamp) {
+    LastRecord<V> current = lastRecords.get(key);
+
+    // Only one thread writes, so a plain get/put keeps the latest record
+    if (current != null && timestamp < current.timestamp()) {
+      return;
+    }
+    lastRecords.put(
+      key,
+      new LastRecord<>(value, timestamp, System.currentTimeMillis())
+    );
+    for (BiConsumer<String, V> listener : listeners) {
+      listener.accept(key, value);
+    }
+  }
+
+  /**
+   * @return the last value of the key, null if none has been received yet
+   */
+  public V get(String key) {
+    LastRecord<V> lastRecord = lastRecords.get(key);
+    return lastRecord == null ? null : lastRecord.value();
+  }
+
+  public LastRecord<V> getLastRecord(String key) {
+    return lastRecords.get(key);
+  }
+
+  public Map<String, LastRecord<V>> getLastRecords() {
+    return Collections.unmodifiableMap(lastRecords);
+  }
+
+  /**
+   * Notify the listener of every new value, on the consumer thread.
+   */
+  public void addListener(BiConsumer<String, V> listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Start reading each newly assigned partition from its last record, so the
+   * cache is filled with the current values without replaying the history.
+   */
+  private class SeekToLastRecord implements ConsumerRebalanceListener {
+
+    @Override
+    public void onPartitionsRevoked(Collection<TopicPartition> partitions) {}
+
+    @Override
+    public void onPartitionsAssigned(Collection<TopicPartition> partitions) {
+      consumer
+        .endOffsets(partitions)
+        .forEach((partition, endOffset) -> {
+          if (endOffset > 0) {
+            consumer.seek(partition, endOffset - 1);
+          }
+        });
+      LOG.debug("{} reading from {}", name, partitions);
+    }
+  }
+}
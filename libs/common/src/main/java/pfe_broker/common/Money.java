@@ -0,0 +1,30 @@
+package pfe_broker.common;
+
+/**
+ * Fixed-point amounts of money.
+ *
+ * The prices of the orders and trades, and the balances of the accounts,
+ * are longs in minor units (cents), so the ledger is updated with integer
+ * arithmetic and never drifts. The conversion to and from decimal prices
+ * only happens at the edges: FIX messages and market data.
+ */
+public final class Money {
+
+  /**
+   * Minor units in one major unit
+   */
+  public static final long SCALE = 100;
+
+  private Money() {}
+
+  /**
+   * @return the amount in minor units, rounded to the nearest one
+   */
+  public static long toMinorUnits(double amount) {
+    return Math.round(amount * SCALE);
+  }
+
+  public static double toMajorUnits(long minorUnits) {
+    return (double) minorUnits / SCALE;
+  }
+}
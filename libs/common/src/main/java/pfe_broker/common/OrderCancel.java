@@ -0,0 +1,33 @@
+package pfe_broker.common;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+
+/**
+ * Cancel requests of the orders resting in the books.
+ *
+ * A cancel request is sent on the topic of the orders, keyed by the key of
+ * the order it cancels, so it follows that order to the market-matcher
+ * instance holding its book. Its value is an order with the symbol, side
+ * and quantity of the request, and the ClOrdID of the request is kept in
+ * the {@link #CL_ORD_ID_HEADER} header. order-stream accepts it without any
+ * check nor reservation.
+ */
+public final class OrderCancel {
+
+  public static final String CL_ORD_ID_HEADER = "cancel-cl-ord-id";
+
+  private OrderCancel() {}
+
+  /**
+   * @return the ClOrdID of the cancel request, null if the record is an
+   * order
+   */
+  public static String clOrdId(Headers headers) {
+    Header header = headers.lastHeader(CL_ORD_ID_HEADER);
+    return header == null
+      ? null
+      : new String(header.value(), StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,100 @@
+package pfe_broker.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+
+/**
+ * Salted hashes of the passwords of the users, stored in the password
+ * column as pbkdf2-sha256$ITERATIONS$SALT$HASH, the salt and the hash in
+ * Base64.
+ *
+ * The number of iterations is stored with each hash, so it can be raised
+ * without invalidating the existing ones.
+ */
+public final class PasswordHasher {
+
+  private static final String PREFIX = "pbkdf2-sha256$";
+  private static final String ALGORITHM = "PBKDF2WithHmacSHA256";
+  private static final int ITERATIONS = 10_000;
+  private static final int SALT_BYTES = 16;
+  private static final int HASH_BITS = 256;
+
+  private static final SecureRandom RANDOM = new SecureRandom();
+
+  private PasswordHasher() {}
+
+  public static String hash(String password) {
+    byte[] salt = new byte[SALT_BYTES];
+    RANDOM.nextBytes(salt);
+    Base64.Encoder encoder = Base64.getEncoder();
+    return (
+      PREFIX +
+      ITERATIONS +
+      "$" +
+      encoder.encodeToString(salt) +
+      "$" +
+      encoder.encodeToString(pbkdf2(password, salt, ITERATIONS))
+    );
+  }
+
+  /**
+   * @return whether the stored value is a hash, rather than a password
+   * stored in plain text before the passwords were hashed
+   */
+  public static boolean isHash(String stored) {
+    return stored.startsWith(PREFIX);
+  }
+
+  /**
+   * Check a password against a stored hash, in constant time.
+   */
+  public static boolean verify(String password, String stored) {
+    String[] parts = stored.substring(PREFIX.length()).split("\\$");
+    if (parts.length != 3) {
+      return false;
+    }
+    Base64.Decoder decoder = Base64.getDecoder();
+    byte[] expected = decoder.decode(parts[2]);
+    byte[] actual = pbkdf2(
+      password,
+      decoder.decode(parts[1]),
+      Integer.parseInt(parts[0])
+    );
+    return MessageDigest.isEqual(expected, actual);
+  }
+
+  /**
+   * Compare a password with a password stored in plain text, in constant
+   * time.
+   */
+  public static boolean verifyPlain(String password, String stored) {
+    return MessageDigest.isEqual(
+      password.getBytes(StandardCharsets.UTF_8),
+      stored.getBytes(StandardCharsets.UTF_8)
+    );
+  }
+
+  private static byte[] pbkdf2(String password, byte[] salt, int iterations) {
+    PBEKeySpec spec = new PBEKeySpec(
+      password.toCharArray(),
+      salt,
+      iterations,
+      HASH_BITS
+    );
+    try {
+      return SecretKeyFactory
+        .getInstance(ALGORITHM)
+        .generateSecret(spec)
+        .getEncoded();
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot hash the password", e);
+    } finally {
+      spec.clearPassword();
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package pfe_broker.common;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.header.Headers;
+import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Deserializer;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serializer;
+
+/**
+ * Record waiting in a state store for its batch to be processed, with
+ * everything needed to forward it afterwards.
+ *
+ * The processors which batch their records keep them in a changelogged
+ * store rather than in memory, so a record received before a commit is
+ * still pending after a crash or a rebalance, and is processed by the next
+ * owner of the task.
+ *
+ * @param key the key of the record
+ * @param value the value of the record
+ * @param timestamp the timestamp of the record
+ * @param headers the headers of the record
+ */
+public record PendingRecord<V>(
+  String key,
+  V value,
+  long timestamp,
+  Headers headers
+) {
+  /**
+   * Serde of the pending records, the values being written with the serde
+   * of the topic they have been read from.
+   */
+  public static <V> Serde<PendingRecord<V>> serde(Serde<V> valueSerde) {
+    return new PendingRecordSerde<>(valueSerde);
+  }
+
+  private static class PendingRecordSerde<V>
+    implements
+      Serde<PendingRecord<V>>,
+      Serializer<PendingRecord<V>>,
+      Deserializer<PendingRecord<V>> {
+
+    private final Serde<V> valueSerde;
+
+    PendingRecordSerde(Serde<V> valueSerde) {
+      this.valueSerde = valueSerde;
+    }
+
+    @Override
+    public void configure(Map<String, ?> configs, boolean isKey) {
+      valueSerde.configure(configs, isKey);
+    }
+
+    @Override
+    public Serializer<PendingRecord<V>> serializer() {
+      return this;
+    }
+
+    @Override
+    public Deserializer<PendingRecord<V>> deserializer() {
+      return this;
+    }
+
+    @Override
+    public byte[] serialize(String topic, PendingRecord<V> record) {
+      if (record == null) {
+        return null;
+      }
+      byte[] key = bytesOf(record.key());
+      byte[] value = valueSerde.serializer().serialize(topic, record.value());
+      List<byte[]> headers = new ArrayList<>();
+      int size = Long.BYTES + sizeOf(key) + sizeOf(value) + Integer.BYTES;
+      for (Header header : record.headers()) {
+        byte[] headerKey = bytesOf(header.key());
+        headers.add(headerKey);
+        headers.add(header.value());
+        size += sizeOf(headerKey) + sizeOf(header.value());
+      }
+
+      ByteBuffer buffer = ByteBuffer.allocate(size);
+      buffer.putLong(record.timestamp());
+      put(buffer, key);
+      put(buffer, value);
+      buffer.putInt(headers.size() / 2);
+      headers.forEach(bytes -> put(buffer, bytes));
+      return buffer.array();
+    }
+
+    @Override
+    public PendingRecord<V> deserialize(String topic, byte[] data) {
+      if (data == null) {
+        return null;
+      }
+      ByteBuffer buffer = ByteBuffer.wrap(data);
+      long timestamp = buffer.getLong();
+      String key = stringOf(get(buffer));
+      V value = valueSerde.deserializer().deserialize(topic, get(buffer));
+      Headers headers = new RecordHeaders();
+      for (int count = buffer.getInt(); count > 0; count--) {
+        headers.add(new RecordHeader(stringOf(get(buffer)), get(buffer)));
+      }
+      return new PendingRecord<>(key, value, timestamp, headers);
+    }
+
+    @Override
+    public void close() {
+      valueSerde.close();
+    }
+
+    private static byte[] bytesOf(String string) {
+      return string == null ? null : string.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String stringOf(byte[] bytes) {
+      return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static int sizeOf(byte[] bytes) {
+      return Integer.BYTES + (bytes == null ? 0 : bytes.length);
+    }
+
+    /**
+     * Write the length of the bytes followed by the bytes, -1 for null.
+     */
+    private static void put(ByteBuffer buffer, byte[] bytes) {
+      if (bytes == null) {
+        buffer.putInt(-1);
+      } else {
+        buffer.putInt(bytes.length).put(bytes);
+      }
+    }
+
+    private static byte[] get(ByteBuffer buffer) {
+      int length = buffer.getInt();
+      if (length < 0) {
+        return null;
+      }
+      byte[] bytes = new byte[length];
+      buffer.get(bytes);
+      return bytes;
+    }
+  }
+}
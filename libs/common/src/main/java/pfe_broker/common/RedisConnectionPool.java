@@ -0,0 +1,194 @@
+package pfe_broker.common;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Bounded pool of Redis connections, shared by the stream threads.
+ *
+ * A connection is borrowed for the duration of a command (or of a group of
+ * commands which must not be interleaved with the commands of another
+ * thread), so the threads do not queue behind each other on a single
+ * connection. The connections are opened lazily, up to the size of the
+ * pool, and a thread waits for a connection to be released once they are
+ * all borrowed.
+ *
+ * The time spent waiting for a connection is recorded, see {@link #stats()},
+ * and reported periodically by {@link RedisConnectionPoolReporter}. A pool
+ * which is often waited for is too small for the number of threads.
+ */
+public class RedisConnectionPool implements AutoCloseable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    RedisConnectionPool.class
+  );
+
+  public record WaitStats(
+    long borrows,
+    long waits,
+    Duration totalWait,
+    Duration maxWait
+  ) {
+    public Duration averageWait() {
+      return borrows == 0 ? Duration.ZERO : totalWait.dividedBy(borrows);
+    }
+
+    /**
+     * @return the statistics of the borrows made since the previous ones,
+     * the longest wait being the longest since the pool has been created
+     */
+    public WaitStats since(WaitStats previous) {
+      return new WaitStats(
+        borrows - previous.borrows,
+        waits - previous.waits,
+        totalWait.minus(previous.totalWait),
+        maxWait
+      );
+    }
+  }
+
+  private final RedisClient redisClient;
+  private final int size;
+  private final Duration maxWait;
+  private final BlockingQueue<StatefulRedisConnection<String, String>> idle;
+  private final AtomicInteger opened = new AtomicInteger();
+  private volatile boolean closed;
+
+  private final LongAdder borrows = new LongAdder();
+  private final LongAdder waits = new LongAdder();
+  private final LongAdder totalWaitNanos = new LongAdder();
+  private final AtomicLong maxWaitNanos = new AtomicLong();
+
+  /**
+   * @param size the maximum number of connections, usually the number of
+   * stream threads
+   * @param maxWait how long to wait for a connection before failing
+   */
+  public RedisConnectionPool(
+    RedisClient redisClient,
+    int size,
+    Duration maxWait
+  ) {
+    if (size <= 0) {
+      throw new IllegalArgumentException("Pool size must be positive: " + size);
+    }
+    this.redisClient = redisClient;
+    this.size = size;
+    this.maxWait = maxWait;
+    this.idle = new ArrayBlockingQueue<>(size);
+  }
+
+  /**
+   * Run commands on a borrowed connection, which is released afterwards.
+   */
+  public <T> T execute(Function<RedisCommands<String, String>, T> commands) {
+    StatefulRedisConnection<String, String> connection = borrow();
+    try {
+      return commands.apply(connection.sync());
+    } finally {
+      release(connection);
+    }
+  }
+
+  /**
+   * Borrow a connection, which must be given back with
+   * {@link #release(StatefulRedisConnection)}.
+   */
+  public StatefulRedisConnection<String, String> borrow() {
+    borrows.increment();
+
+    StatefulRedisConnection<String, String> connection = idle.poll();
+    if (connection != null) {
+      return connection;
+    }
+    if (tryReserveConnection()) {
+      try {
+        return redisClient.connect();
+      } catch (RuntimeException e) {
+        opened.decrementAndGet();
+        throw e;
+      }
+    }
+
+    long start = System.nanoTime();
+    try {
+      connection = idle.poll(maxWait.toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RedisException("Interrupted while waiting for a connection");
+    } finally {
+      recordWait(System.nanoTime() - start);
+    }
+    if (connection == null) {
+      throw new RedisException(
+        "No Redis connection available after " + maxWait
+      );
+    }
+    return connection;
+  }
+
+  public void release(StatefulRedisConnection<String, String> connection) {
+    if (closed || !connection.isOpen() || !idle.offer(connection)) {
+      // Replaced by a new connection on a later borrow, unless closed
+      connection.close();
+      opened.decrementAndGet();
+    }
+  }
+
+  private boolean tryReserveConnection() {
+    while (true) {
+      int count = opened.get();
+      if (count >= size) {
+        return false;
+      }
+      if (opened.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void recordWait(long nanos) {
+    waits.increment();
+    totalWaitNanos.add(nanos);
+    maxWaitNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  public WaitStats stats() {
+    return new WaitStats(
+      borrows.sum(),
+      waits.sum(),
+      Duration.ofNanos(totalWaitNanos.sum()),
+      Duration.ofNanos(maxWaitNanos.get())
+    );
+  }
+
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Close the idle connections, the borrowed ones are closed when released.
+   */
+  @Override
+  public void close() {
+    closed = true;
+    LOG.info("Redis connection pool closed, wait statistics: {}", stats());
+    StatefulRedisConnection<String, String> connection;
+    while ((connection = idle.poll()) != null) {
+      connection.close();
+      opened.decrementAndGet();
+    }
+  }
+}
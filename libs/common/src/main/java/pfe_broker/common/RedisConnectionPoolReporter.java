@@ -0,0 +1,52 @@
+package pfe_broker.common;
+
+import io.micronaut.context.annotation.Requires;
+import io.micronaut.scheduling.annotation.Scheduled;
+import jakarta.inject.Singleton;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import pfe_broker.common.RedisConnectionPool.WaitStats;
+
+/**
+ * Report periodically the wait statistics of the Redis connection pools of
+ * a service, over the interval since the previous report.
+ *
+ * A pool which has been waited for is reported as a warning, it is too
+ * small for the number of threads using it.
+ */
+@Singleton
+@Requires(property = "redis.connection-pool.report-interval")
+public class RedisConnectionPoolReporter {
+
+  private static final Logger LOG = LoggerFactory.getLogger(
+    RedisConnectionPoolReporter.class
+  );
+
+  private record ReportedPool(RedisConnectionPool pool, WaitStats last) {}
+
+  private final Map<String, ReportedPool> pools = new ConcurrentHashMap<>();
+
+  public void register(String name, RedisConnectionPool pool) {
+    pools.put(name, new ReportedPool(pool, pool.stats()));
+  }
+
+  public void unregister(String name) {
+    pools.remove(name);
+  }
+
+  @Scheduled(fixedDelay = "${redis.connection-pool.report-interval}")
+  void report() {
+    pools.replaceAll((name, reported) -> {
+      WaitStats stats = reported.pool().stats();
+      WaitStats interval = stats.since(reported.last());
+      if (interval.waits() > 0) {
+        LOG.warn("Redis connection pool {} waited for: {}", name, interval);
+      } else if (interval.borrows() > 0) {
+        LOG.info("Redis connection pool {}: {}", name, interval);
+      }
+      return new ReportedPool(reported.pool(), stats);
+    });
+  }
+}
@@ -0,0 +1,128 @@
+package pfe_broker.common;
+
+import io.lettuce.core.RedisNoScriptException;
+import io.lettuce.core.ScriptOutputType;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Lua script executed by Redis with EVALSHA.
+ *
+ * Only the SHA1 digest of the script is sent with each call, the source is
+ * loaded once when the server does not know it yet (first call, restart or
+ * script cache flushed).
+ */
+public class RedisScript {
+
+  private final String source;
+  private final String sha;
+
+  public RedisScript(String source) {
+    this.source = source;
+    this.sha = sha1(source);
+  }
+
+  /**
+   * Read a script from the classpath.
+   */
+  public static RedisScript fromResource(String path) {
+    try (
+      InputStream stream = RedisScript.class.getClassLoader()
+        .getResourceAsStream(path)
+    ) {
+      if (stream == null) {
+        throw new IllegalArgumentException("Script not found: " + path);
+      }
+      return new RedisScript(
+        new String(stream.readAllBytes(), StandardCharsets.UTF_8)
+      );
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public <T> T eval(
+    RedisCommands<String, String> commands,
+    ScriptOutputType outputType,
+    String[] keys,
+    String... args
+  ) {
+    try {
+      return commands.evalsha(sha, outputType, keys, args);
+    } catch (RedisNoScriptException e) {
+      commands.scriptLoad(source);
+      return commands.evalsha(sha, outputType, keys, args);
+    }
+  }
+
+  /**
+   * Asynchronous variant, the command is only sent when the connection
+   * flushes its commands, so several calls can be pipelined.
+   */
+  public <T> CompletionStage<T> evalAsync(
+    RedisAsyncCommands<String, String> commands,
+    ScriptOutputType outputType,
+    String[] keys,
+    String... args
+  ) {
+    CompletableFuture<T> result = new CompletableFuture<>();
+    commands
+      .<T>evalsha(sha, outputType, keys, args)
+      .whenComplete((value, error) -> {
+        if (error == null) {
+          result.complete(value);
+        } else if (error instanceof RedisNoScriptException) {
+          // EVAL also caches the script for the next calls
+          commands
+            .<T>eval(source, outputType, keys, args)
+            .whenComplete((retried, retryError) -> {
+              if (retryError == null) {
+                result.complete(retried);
+              } else {
+                result.completeExceptionally(retryError);
+              }
+            });
+          commands.flushCommands();
+        } else {
+          result.completeExceptionally(error);
+        }
+      });
+    return result;
+  }
+
+  /**
+   * Load the script on the server, so the first calls do not need to fall
+   * back on sending the source.
+   */
+  public void load(RedisCommands<String, String> commands) {
+    commands.scriptLoad(source);
+  }
+
+  public String getSource() {
+    return source;
+  }
+
+  public String getSha() {
+    return sha;
+  }
+
+  private static String sha1(String source) {
+    try {
+      MessageDigest digest = MessageDigest.getInstance("SHA-1");
+      return HexFormat
+        .of()
+        .formatHex(digest.digest(source.getBytes(StandardCharsets.UTF_8)));
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package pfe_broker.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Generator of 64-bit ids unique across the instances of the cluster and
+ * across restarts, in the Snowflake layout:
+ *
+ * <pre>
+ * | 0 | 41 bits: milliseconds since EPOCH | 10 bits: node | 12 bits: seq |
+ * </pre>
+ *
+ * Each instance must be given its own node id. The ids of an instance are
+ * increasing. The generator is lock-free and does not allocate: the last
+ * timestamp and sequence are packed in a single AtomicLong. When the 4096
+ * ids of a millisecond are exhausted, or the clock goes backwards, the ids
+ * continue on the following millisecond rather than waiting for the clock.
+ */
+public final class SnowflakeIdGenerator {
+
+  /**
+   * 2024-01-01T00:00:00Z, the ids last until 2093
+   */
+  public static final long EPOCH = 1704067200000L;
+
+  private static final int NODE_BITS = 10;
+  private static final int SEQUENCE_BITS = 12;
+
+  public static final int MAX_NODE_ID = (1 << NODE_BITS) - 1;
+
+  private final long node;
+  private final LongSupplier clock;
+  // Timestamp and sequence of the last id, timestamp << SEQUENCE_BITS | seq
+  private final AtomicLong last = new AtomicLong();
+
+  public SnowflakeIdGenerator(int nodeId) {
+    this(nodeId, System::currentTimeMillis);
+  }
+
+  SnowflakeIdGenerator(int nodeId, LongSupplier clock) {
+    if (nodeId < 0 || nodeId > MAX_NODE_ID) {
+      throw new IllegalArgumentException(
+        "Node id must be between 0 and " + MAX_NODE_ID + ": " + nodeId
+      );
+    }
+    this.node = (long) nodeId << SEQUENCE_BITS;
+    this.clock = clock;
+  }
+
+  public long nextId() {
+    while (true) {
+      long previous = last.get();
+      long timestamp = clock.getAsLong() - EPOCH;
+      // Overflows into the timestamp when the sequence is exhausted
+      long next = timestamp > previous >>> SEQUENCE_BITS
+        ? timestamp << SEQUENCE_BITS
+        : previous + 1;
+      if (last.compareAndSet(previous, next)) {
+        return (next >>> SEQUENCE_BITS) << (NODE_BITS + SEQUENCE_BITS) |
+        node |
+        (next & ((1L << SEQUENCE_BITS) - 1));
+      }
+    }
+  }
+
+  /**
+   * @return the milliseconds since the Unix epoch at which the id has been
+   * generated
+   */
+  public static long timestampOf(long id) {
+    return (id >>> (NODE_BITS + SEQUENCE_BITS)) + EPOCH;
+  }
+
+  public static int nodeOf(long id) {
+    return (int) (id >>> SEQUENCE_BITS) & MAX_NODE_ID;
+  }
+}
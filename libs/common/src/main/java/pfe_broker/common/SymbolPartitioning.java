@@ -0,0 +1,28 @@
+package pfe_broker.common;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.utils.Utils;
+
+/**
+ * Partitioning of the accepted orders by symbol.
+ *
+ * When enabled, order-stream keys the accepted orders by symbol, so every
+ * order of a symbol lands in the same partition and each market-matcher
+ * instance matches a disjoint set of symbols. The original key of the order
+ * is kept in the {@link #ORDER_KEY_HEADER} header.
+ */
+public final class SymbolPartitioning {
+
+  public static final String ORDER_KEY_HEADER = "order-key";
+
+  private SymbolPartitioning() {}
+
+  /**
+   * @return the partition a record keyed by the symbol is sent to, the same
+   * as the one chosen by the default partitioner of the producer
+   */
+  public static int partitionOf(String symbol, int partitionCount) {
+    byte[] key = symbol.getBytes(StandardCharsets.UTF_8);
+    return Utils.toPositive(Utils.murmur2(key)) % partitionCount;
+  }
+}
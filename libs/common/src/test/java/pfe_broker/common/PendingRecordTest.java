@@ -0,0 +1,59 @@
+package pfe_broker.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import org.apache.kafka.common.header.internals.RecordHeaders;
+import org.apache.kafka.common.serialization.Serde;
+import org.apache.kafka.common.serialization.Serdes;
+import org.junit.jupiter.api.Test;
+
+public class PendingRecordTest {
+
+  private final Serde<PendingRecord<String>> serde = PendingRecord.serde(
+    Serdes.String()
+  );
+
+  @Test
+  void testRoundTrip() {
+    RecordHeaders headers = new RecordHeaders();
+    headers.add("order-key", "user:1:2".getBytes(StandardCharsets.UTF_8));
+    headers.add("empty", null);
+    PendingRecord<String> record = new PendingRecord<>(
+      "user",
+      "value",
+      42L,
+      headers
+    );
+
+    PendingRecord<String> read = serde
+      .deserializer()
+      .deserialize("topic", serde.serializer().serialize("topic", record));
+
+    assertThat(read.key()).isEqualTo("user");
+    assertThat(read.value()).isEqualTo("value");
+    assertThat(read.timestamp()).isEqualTo(42L);
+    assertThat(read.headers().toArray()).hasSize(2);
+    assertThat(read.headers().lastHeader("order-key").value())
+      .isEqualTo("user:1:2".getBytes(StandardCharsets.UTF_8));
+    assertThat(read.headers().lastHeader("empty").value()).isNull();
+  }
+
+  @Test
+  void testNullKey() {
+    PendingRecord<String> record = new PendingRecord<>(
+      null,
+      "value",
+      0L,
+      new RecordHeaders()
+    );
+
+    PendingRecord<String> read = serde
+      .deserializer()
+      .deserialize("topic", serde.serializer().serialize("topic", record));
+
+    assertThat(read.key()).isNull();
+    assertThat(read.value()).isEqualTo("value");
+    assertThat(read.headers().toArray()).isEmpty();
+  }
+}
@@ -0,0 +1,182 @@
+package pfe_broker.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.RedisException;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.sync.RedisCommands;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import pfe_broker.common.RedisConnectionPool.WaitStats;
+
+public class RedisConnectionPoolTest {
+
+  private RedisClient redisClient;
+
+  @BeforeEach
+  void setUp() {
+    redisClient = mock(RedisClient.class);
+    when(redisClient.connect()).thenAnswer(invocation -> openConnection());
+  }
+
+  @SuppressWarnings("unchecked")
+  private static StatefulRedisConnection<String, String> openConnection() {
+    StatefulRedisConnection<String, String> connection = mock(
+      StatefulRedisConnection.class
+    );
+    when(connection.isOpen()).thenReturn(true);
+    when(connection.sync()).thenReturn(mock(RedisCommands.class));
+    return connection;
+  }
+
+  @Test
+  void testBorrowAndRelease() {
+    RedisConnectionPool pool = new RedisConnectionPool(
+      redisClient,
+      2,
+      Duration.ofMillis(100)
+    );
+    verify(redisClient, never()).connect();
+
+    // Opened lazily, then reused once released
+    StatefulRedisConnection<String, String> connection = pool.borrow();
+    pool.release(connection);
+    assertThat(pool.borrow()).isSameAs(connection);
+    verify(redisClient, times(1)).connect();
+
+    // A second connection while the first one is borrowed
+    assertThat(pool.borrow()).isNotSameAs(connection);
+    verify(redisClient, times(2)).connect();
+
+    assertThat(pool.stats().borrows()).isEqualTo(3);
+    assertThat(pool.stats().waits()).isZero();
+  }
+
+  @Test
+  void testTimeout() {
+    RedisConnectionPool pool = new RedisConnectionPool(
+      redisClient,
+      1,
+      Duration.ofMillis(50)
+    );
+    pool.borrow();
+
+    assertThatThrownBy(pool::borrow)
+      .isInstanceOf(RedisException.class)
+      .hasMessageContaining("No Redis connection available");
+    verify(redisClient, times(1)).connect();
+
+    WaitStats stats = pool.stats();
+    assertThat(stats.borrows()).isEqualTo(2);
+    assertThat(stats.waits()).isEqualTo(1);
+    assertThat(stats.maxWait()).isGreaterThanOrEqualTo(Duration.ofMillis(50));
+    assertThat(stats.totalWait()).isEqualTo(stats.maxWait());
+  }
+
+  @Test
+  void testWaitForRelease() throws Exception {
+    RedisConnectionPool pool = new RedisConnectionPool(
+      redisClient,
+      1,
+      Duration.ofSeconds(5)
+    );
+    StatefulRedisConnection<String, String> connection = pool.borrow();
+
+    CompletableFuture<StatefulRedisConnection<String, String>> waiting =
+      CompletableFuture.supplyAsync(pool::borrow);
+    Thread.sleep(50);
+    assertThat(waiting).isNotDone();
+
+    pool.release(connection);
+    assertThat(waiting.get(1, TimeUnit.SECONDS)).isSameAs(connection);
+    assertThat(pool.stats().waits()).isEqualTo(1);
+  }
+
+  @Test
+  void testExecuteReleases() {
+    RedisConnectionPool pool = new RedisConnectionPool(
+      redisClient,
+      1,
+      Duration.ofMillis(50)
+    );
+
+    assertThat(pool.execute(commands -> "first")).isEqualTo("first");
+    assertThatThrownBy(() ->
+        pool.execute(commands -> {
+          throw new IllegalStateException("failed");
+        })
+      )
+      .isInstanceOf(IllegalStateException.class);
+    // Released even when the commands failed
+    assertThat(pool.execute(commands -> "third")).isEqualTo("third");
+    verify(redisClient, times(1)).connect();
+  }
+
+  @Test
+  void testReplaceClosedConnection() {
+    RedisConnectionPool pool = new RedisConnectionPool(
+      redisClient,
+      1,
+      Duration.ofMillis(50)
+    );
+    StatefulRedisConnection<String, String> connection = pool.borrow();
+    when(connection.isOpen()).thenReturn(false);
+    pool.release(connection);
+    verify(connection).close();
+
+    assertThat(pool.borrow()).isNotSameAs(connection);
+    verify(redisClient, times(2)).connect();
+  }
+
+  @Test
+  void testClose() {
+    RedisConnectionPool pool = new RedisConnectionPool(
+      redisClient,
+      2,
+      Duration.ofMillis(50)
+    );
+    StatefulRedisConnection<String, String> idle = pool.borrow();
+    StatefulRedisConnection<String, String> borrowed = pool.borrow();
+    pool.release(idle);
+
+    pool.close();
+    verify(idle).close();
+    verify(borrowed, never()).close();
+
+    // Closed when released after the pool
+    pool.release(borrowed);
+    verify(borrowed).close();
+  }
+
+  @Test
+  void testStatsSince() {
+    WaitStats previous = new WaitStats(
+      10,
+      2,
+      Duration.ofMillis(30),
+      Duration.ofMillis(20)
+    );
+    WaitStats current = new WaitStats(
+      25,
+      3,
+      Duration.ofMillis(40),
+      Duration.ofMillis(20)
+    );
+
+    WaitStats interval = current.since(previous);
+    assertThat(interval.borrows()).isEqualTo(15);
+    assertThat(interval.waits()).isEqualTo(1);
+    assertThat(interval.totalWait()).isEqualTo(Duration.ofMillis(10));
+    assertThat(interval.maxWait()).isEqualTo(Duration.ofMillis(20));
+  }
+}
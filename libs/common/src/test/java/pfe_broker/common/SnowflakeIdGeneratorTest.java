@@ -0,0 +1,135 @@
+package pfe_broker.common;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+public class SnowflakeIdGeneratorTest {
+
+  private static final long NOW = SnowflakeIdGenerator.EPOCH + 1_000_000L;
+
+  @Test
+  void testPacking() {
+    AtomicLong clock = new AtomicLong(NOW);
+    SnowflakeIdGenerator generator = new SnowflakeIdGenerator(
+      SnowflakeIdGenerator.MAX_NODE_ID,
+      clock::get
+    );
+
+    long id = generator.nextId();
+    assertThat(id).isPositive();
+    assertThat(SnowflakeIdGenerator.timestampOf(id)).isEqualTo(NOW);
+    assertThat(SnowflakeIdGenerator.nodeOf(id))
+      .isEqualTo(SnowflakeIdGenerator.MAX_NODE_ID);
+
+    SnowflakeIdGenerator other = new SnowflakeIdGenerator(7, clock::get);
+    long otherId = other.nextId();
+    assertThat(SnowflakeIdGenerator.timestampOf(otherId)).isEqualTo(NOW);
+    assertThat(SnowflakeIdGenerator.nodeOf(otherId)).isEqualTo(7);
+    // Same millisecond and sequence, told apart by the node only
+    assertThat(otherId).isNotEqualTo(id);
+  }
+
+  @Test
+  void testInvalidNodeId() {
+    assertThatThrownBy(() -> new SnowflakeIdGenerator(-1))
+      .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() ->
+        new SnowflakeIdGenerator(SnowflakeIdGenerator.MAX_NODE_ID + 1)
+      )
+      .isInstanceOf(IllegalArgumentException.class);
+  }
+
+  @Test
+  void testSequenceRollover() {
+    AtomicLong clock = new AtomicLong(NOW);
+    SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+
+    long previous = generator.nextId();
+    for (int i = 1; i < 4096; i++) {
+      long id = generator.nextId();
+      assertThat(id).isEqualTo(previous + 1);
+      assertThat(SnowflakeIdGenerator.timestampOf(id)).isEqualTo(NOW);
+      previous = id;
+    }
+
+    // The 4097th id of the millisecond continues on the following one
+    long id = generator.nextId();
+    assertThat(id).isGreaterThan(previous);
+    assertThat(SnowflakeIdGenerator.timestampOf(id)).isEqualTo(NOW + 1);
+    assertThat(SnowflakeIdGenerator.nodeOf(id)).isEqualTo(1);
+
+    // Which does not collide once the clock has caught up
+    clock.set(NOW + 1);
+    assertThat(generator.nextId()).isEqualTo(id + 1);
+  }
+
+  @Test
+  void testClockBackwards() {
+    AtomicLong clock = new AtomicLong(NOW);
+    SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1, clock::get);
+    long first = generator.nextId();
+
+    clock.set(NOW - 1000);
+    long second = generator.nextId();
+    assertThat(second).isGreaterThan(first);
+    assertThat(SnowflakeIdGenerator.timestampOf(second)).isEqualTo(NOW);
+
+    // Back to the clock once it has moved past the last id
+    clock.set(NOW + 5);
+    long third = generator.nextId();
+    assertThat(SnowflakeIdGenerator.timestampOf(third)).isEqualTo(NOW + 5);
+  }
+
+  @Test
+  void testConcurrentUniqueness() throws Exception {
+    // A slow clock, so the threads contend on the same milliseconds
+    AtomicLong ticks = new AtomicLong();
+    SnowflakeIdGenerator generator = new SnowflakeIdGenerator(
+      3,
+      () -> NOW + ticks.incrementAndGet() / 10_000
+    );
+    int threads = 8;
+    int idsPerThread = 50_000;
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<long[]>> futures = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        futures.add(
+          executor.submit(() -> {
+            long[] ids = new long[idsPerThread];
+            for (int i = 0; i < idsPerThread; i++) {
+              ids[i] = generator.nextId();
+            }
+            return ids;
+          })
+        );
+      }
+
+      Set<Long> unique = new HashSet<>();
+      for (Future<long[]> future : futures) {
+        long[] ids = future.get();
+        for (int i = 0; i < ids.length; i++) {
+          // Increasing within a thread
+          if (i > 0) {
+            assertThat(ids[i]).isGreaterThan(ids[i - 1]);
+          }
+          unique.add(ids[i]);
+        }
+      }
+      assertThat(unique).hasSize(threads * idsPerThread);
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+}
@@ -31,8 +31,11 @@ public class User {
   @Column(nullable = false)
   private String password;
 
+  /**
+   * Cash balance in cents, see pfe_broker.common.Money
+   */
   @Column(nullable = false)
-  private Double balance;
+  private Long balance;
 
   @OneToMany(
     mappedBy = "user",
@@ -45,7 +48,7 @@ public class User {
   public User(
     @NonNull String username,
     @NonNull String password,
-    Double balance
+    Long balance
   ) {
     if (balance < 0) {
       throw new IllegalArgumentException("Balance cannot be negative");
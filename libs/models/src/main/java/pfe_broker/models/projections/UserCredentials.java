@@ -0,0 +1,10 @@
+package pfe_broker.models.projections;
+
+import io.micronaut.core.annotation.Introspected;
+
+/**
+ * Columns of a user needed to check its credentials, read without loading
+ * its stocks
+ */
+@Introspected
+public record UserCredentials(long id, String username, String password) {}
@@ -1,11 +1,17 @@
 package pfe_broker.models.repositories;
 
+import io.micronaut.data.annotation.Id;
 import io.micronaut.data.annotation.Repository;
 import io.micronaut.data.jpa.repository.JpaRepository;
 import java.util.Optional;
 import pfe_broker.models.domains.User;
+import pfe_broker.models.projections.UserCredentials;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
   Optional<User> findByUsername(String username);
+
+  Optional<UserCredentials> searchByUsername(String username);
+
+  void updatePassword(@Id long id, String password);
 }
@@ -43,7 +43,7 @@ class StockRepositoryTest {
 
   @BeforeAll
   void setup() {
-    user = new User("testuser", "testpassword", 1000.0);
+    user = new User("testuser", "testpassword", 100000L);
     userRepository.save(user);
   }
 
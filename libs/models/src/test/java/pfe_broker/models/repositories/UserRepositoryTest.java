@@ -11,6 +11,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.testcontainers.junit.jupiter.Testcontainers;
 import pfe_broker.models.domains.User;
+import pfe_broker.models.projections.UserCredentials;
 
 @MicronautTest(
   rollback = false,
@@ -43,7 +44,7 @@ class UserRepositoryTest {
   @Test
   void testFindByUsername() {
     // Create a sample user
-    User user = new User("testuser", "testpassword", 1000.0);
+    User user = new User("testuser", "testpassword", 100000L);
     userRepository.save(user);
 
     // Call the repository method
@@ -53,4 +54,22 @@ class UserRepositoryTest {
     Assertions.assertTrue(foundUser.isPresent());
     Assertions.assertEquals(user.getId(), foundUser.get().getId());
   }
+
+  @Test
+  void testSearchCredentials() {
+    // Create a sample user
+    User user = new User("credentialsuser", "testpassword", 100000L);
+    userRepository.save(user);
+
+    // Call the repository methods
+    userRepository.updatePassword(user.getId(), "newpassword");
+    Optional<UserCredentials> credentials = userRepository.searchByUsername(
+      "credentialsuser"
+    );
+
+    // Assert that the updated password is found
+    Assertions.assertTrue(credentials.isPresent());
+    Assertions.assertEquals(user.getId(), credentials.get().id());
+    Assertions.assertEquals("newpassword", credentials.get().password());
+  }
 }